@@ -0,0 +1,121 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * BloomFilter
+ *
+ * A Bloom filter over 64-bit fingerprints, which can say for certain that a fingerprint
+ * has never been added while using only a few bits per fingerprint. It may wrongly say
+ * that a fingerprint has been added, about once in a hundred times when it holds the
+ * number of fingerprints it was sized for. The bits are set atomically, so any number
+ * of threads can add to and check the filter at once without locking.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class BloomFilter {
+
+    /** The default number of bits used for each fingerprint. */
+    public static final int DEFAULT_BITS_PER_ELEMENT = 10;
+
+    /** The default number of bits set for each fingerprint. */
+    public static final int DEFAULT_HASHES = 7;
+
+    /** The bits of the filter. */
+    private final AtomicLongArray bits;
+
+    /** The number of bits in the filter. */
+    private final long size;
+
+    /** The number of bits set for each fingerprint. */
+    private final int hashes;
+
+    /**
+     * Constructor of an empty filter sized for the number of fingerprints passed in,
+     * with the default number of bits and hashes for each.
+     *
+     * @param expected the number of fingerprints expected
+     */
+    public BloomFilter(int expected) {
+        this(expected, DEFAULT_BITS_PER_ELEMENT, DEFAULT_HASHES);
+    }
+
+    /**
+     * Constructor of an empty filter sized for the number of fingerprints passed in.
+     *
+     * @param expected the number of fingerprints expected
+     * @param bitsPerElement the number of bits used for each fingerprint; at least 1
+     * @param hashes the number of bits set for each fingerprint; at least 1
+     */
+    public BloomFilter(int expected, int bitsPerElement, int hashes) {
+        long words = Math.max(1, ((long) Math.max(1, expected) * Math.max(1, bitsPerElement) + 63) >>> 6);
+        this.bits = new AtomicLongArray((int) Math.min(words, Integer.MAX_VALUE - 8));
+        this.size = (long) bits.length() << 6;
+        this.hashes = Math.max(1, hashes);
+    }
+
+    /**
+     * Adds a fingerprint to the filter.
+     *
+     * @param fingerprint the fingerprint to add
+     */
+    public void put(long fingerprint) {
+        long step = step(fingerprint);
+        long hash = fingerprint;
+        for (int i = 0; i < hashes; i++, hash += step) {
+            long bit = index(hash);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            if ((bits.get(word) & mask) == 0) {
+                bits.getAndAccumulate(word, mask, (current, set) -> current | set);
+            }
+        }
+    }
+
+    /**
+     * Checks whether a fingerprint may have been added to the filter.
+     *
+     * @param fingerprint the fingerprint to check
+     * @return false if the fingerprint has certainly never been added; true otherwise
+     */
+    public boolean mightContain(long fingerprint) {
+        long step = step(fingerprint);
+        long hash = fingerprint;
+        for (int i = 0; i < hashes; i++, hash += step) {
+            long bit = index(hash);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of bits in the filter.
+     *
+     * @return the number of bits
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns how far apart the hashes of a fingerprint are, taken from its upper half
+     * and made odd so that the hashes do not repeat.
+     *
+     * @param fingerprint the fingerprint
+     * @return the step between hashes
+     */
+    private static long step(long fingerprint) {
+        return (fingerprint >>> 32) | (fingerprint << 32) | 1L;
+    }
+
+    /**
+     * Scales a hash to a bit of the filter.
+     *
+     * @param hash the hash
+     * @return the bit the hash falls on
+     */
+    private long index(long hash) {
+        return Math.floorMod(hash, size);
+    }
+}
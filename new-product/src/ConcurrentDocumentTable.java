@@ -0,0 +1,309 @@
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * ConcurrentDocumentTable
+ *
+ * A DocumentTable that many threads can add documents and word counts to at once
+ * without any locking. Paths and word counts are kept in chunks that double in size,
+ * each created the first time a document ID reaches it, so growing the table never
+ * copies or replaces an array another thread may be updating. Word counts are updated
+ * atomically, and documents that are removed are marked in a bitset of each chunk.
+ * The word count of a removed document is kept rather than set back to 0, so a count
+ * read by a search that found the document before it was removed never drops to 0.
+ *
+ * Document IDs are never renumbered, since other threads may be using the ones already
+ * handed out at any time. Instead, once nothing refers to a removed document anymore,
+ * its ID is released and handed out again to the next path that is added, so a table
+ * that documents keep being removed from and added to stops growing.
+ *
+ * A document ID is handed out before its path is stored, so the path of a document ID
+ * should only be looked up once {@link #add(String)} has returned that ID to some thread.
+ * Alternate locations are kept in concurrent maps and sets, since they are rare.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class ConcurrentDocumentTable extends DocumentTable {
+
+    /** The number of bits in the size of the first chunk. */
+    private static final int FIRST_BITS = 4;
+
+    /** The number of chunks, one for each bit a document ID can have above the first chunk. */
+    private static final int CHUNKS = Integer.SIZE - FIRST_BITS;
+
+    /** Lookup of the document ID assigned to a path. */
+    private final ConcurrentHashMap<String, Integer> ids;
+
+    /** The next document ID to hand out. */
+    private final AtomicInteger next;
+
+    /** The chunks of the table; chunk k holds 2^(k + FIRST_BITS) documents. */
+    private final AtomicReferenceArray<Chunk> chunks;
+
+    /** The IDs of removed documents that have been released, to be handed out again. */
+    private final ConcurrentLinkedQueue<Integer> released;
+
+    /** The alternate locations of each document that has any, sorted, by document ID. */
+    private final ConcurrentHashMap<Integer, Set<String>> alternates;
+
+    /** Lookup of the document ID an alternate location belongs to. */
+    private final ConcurrentHashMap<String, Integer> alternateIds;
+
+    /** Constructor of an empty ConcurrentDocumentTable. */
+    public ConcurrentDocumentTable() {
+        this.ids = new ConcurrentHashMap<>();
+        this.next = new AtomicInteger();
+        this.chunks = new AtomicReferenceArray<>(CHUNKS);
+        this.released = new ConcurrentLinkedQueue<>();
+        this.alternates = new ConcurrentHashMap<>();
+        this.alternateIds = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Hands out a released document ID before any new one. The word count of a released
+     * ID is set back to 0 and its path stored before its deleted mark is cleared, so it
+     * is never read as a document with a word count until its words are added.
+     */
+    @Override
+    public int add(String path) {
+        Integer id = ids.get(path);
+        if (id != null) {
+            return id;
+        }
+        if (!alternateIds.isEmpty()) {
+            removeAlternate(path);
+        }
+        return ids.computeIfAbsent(path, key -> {
+            Integer reused = released.poll();
+            if (reused == null) {
+                int assigned = next.getAndIncrement();
+                chunk(assigned).paths.set(offset(assigned), key);
+                return assigned;
+            }
+            Chunk chunk = chunk(reused);
+            int offset = offset(reused);
+            chunk.counts.set(offset, 0);
+            chunk.paths.set(offset, key);
+            chunk.deleted.getAndAccumulate(offset >>> 6, ~(1L << offset), (bits, mask) -> bits & mask);
+            return reused;
+        });
+    }
+
+    @Override
+    public int getId(String path) {
+        Integer id = ids.get(path);
+        return id == null ? -1 : id;
+    }
+
+    @Override
+    public String getPath(int id) {
+        return chunk(id).paths.get(offset(id));
+    }
+
+    @Override
+    public int getCount(int id) {
+        return chunk(id).counts.get(offset(id));
+    }
+
+    @Override
+    public void addCount(int id, int words) {
+        chunk(id).counts.addAndGet(offset(id), words);
+    }
+
+    /**
+     * Removes the path from the table and marks its document ID as deleted. Unlike
+     * {@link DocumentTable#remove(String)}, the word count of the document is kept, and
+     * is left out of {@link #getCounts()} by the mark instead.
+     */
+    @Override
+    public int remove(String path) {
+        Integer id = ids.remove(path);
+        if (id == null) {
+            return -1;
+        }
+        Chunk chunk = chunk(id);
+        int offset = offset(id);
+        chunk.deleted.getAndAccumulate(offset >>> 6, 1L << offset, (bits, bit) -> bits | bit);
+        Set<String> dropped = alternates.remove(id);
+        if (dropped != null) {
+            dropped.forEach(location -> alternateIds.remove(location, id));
+        }
+        return id;
+    }
+
+    @Override
+    public boolean addAlternate(int id, String path) {
+        if (ids.containsKey(path)) {
+            return false;
+        }
+        Integer previous = alternateIds.put(path, id);
+        if (previous != null && previous != id) {
+            removeFrom(alternates, previous, path);
+        }
+        boolean[] added = new boolean[1];
+        alternates.compute(id, (key, locations) -> {
+            Set<String> updated = locations != null ? locations : new ConcurrentSkipListSet<>();
+            added[0] = updated.add(path);
+            return updated;
+        });
+        return added[0];
+    }
+
+    @Override
+    public int removeAlternate(String path) {
+        Integer id = alternateIds.remove(path);
+        if (id == null) {
+            return -1;
+        }
+        removeFrom(alternates, id, path);
+        return id;
+    }
+
+    @Override
+    public int getAlternateOf(String path) {
+        Integer id = alternateIds.get(path);
+        return id == null ? -1 : id;
+    }
+
+    @Override
+    public Collection<String> getAlternates(int id) {
+        Set<String> locations = alternates.get(id);
+        return locations == null ? Collections.emptySet() : Collections.unmodifiableCollection(locations);
+    }
+
+    @Override
+    public boolean hasAlternates() {
+        return !alternateIds.isEmpty();
+    }
+
+    /**
+     * Releases the ID of a removed document so that it is handed out again. Its path is
+     * cleared, so it is left out of the table until it is handed out. Nothing may refer
+     * to the document anymore, such as the postings of an index, and the ID must not
+     * have been released already.
+     *
+     * @param id the document ID of a removed document
+     */
+    public void release(int id) {
+        chunk(id).paths.set(offset(id), null);
+        released.add(id);
+    }
+
+    /**
+     * Releases the ID of every removed document that has not been released yet, rather
+     * than giving the documents that are left new IDs, since other threads may be using
+     * IDs that are already handed out. The documents that are left keep their IDs, so
+     * postings only have to drop the removed documents; the mapping that is returned
+     * does that. Should only be called while no other thread is adding to or removing
+     * from the table.
+     *
+     * @return the document ID of every document ID, or -1 for removed documents
+     */
+    @Override
+    public int[] compact() {
+        int[] remap = new int[size()];
+        for (int id = 0; id < remap.length; id++) {
+            remap[id] = id;
+            if (isDeleted(id)) {
+                remap[id] = -1;
+                if (getPath(id) != null) {
+                    release(id);
+                }
+            }
+        }
+        return remap;
+    }
+
+    @Override
+    public boolean isDeleted(int id) {
+        int offset = offset(id);
+        return (chunk(id).deleted.get(offset >>> 6) & (1L << offset)) != 0;
+    }
+
+    /**
+     * Returns the number of document IDs that have been handed out, counting released
+     * ones. A document ID below this may still be waiting for its path to be stored.
+     */
+    @Override
+    public int size() {
+        return next.get();
+    }
+
+    @Override
+    public TreeMap<String, Integer> getCounts() {
+        TreeMap<String, Integer> sorted = new TreeMap<>();
+        int size = size();
+        for (int id = 0; id < size; id++) {
+            String path = getPath(id);
+            int count = getCount(id);
+            if (path != null && count > 0 && !isDeleted(id)) {
+                sorted.put(path, count);
+            }
+        }
+        return sorted;
+    }
+
+    /**
+     * Returns the chunk that holds the document ID, creating it if no thread has yet.
+     *
+     * @param id the document ID to lookup
+     * @return the chunk of that document ID
+     */
+    private Chunk chunk(int id) {
+        long shifted = (long) id + (1 << FIRST_BITS);
+        int index = 63 - Long.numberOfLeadingZeros(shifted) - FIRST_BITS;
+        Chunk chunk = chunks.get(index);
+        if (chunk == null) {
+            chunks.compareAndSet(index, null, new Chunk(1 << (index + FIRST_BITS)));
+            chunk = chunks.get(index);
+        }
+        return chunk;
+    }
+
+    /**
+     * Returns the index of the document ID within its chunk.
+     *
+     * @param id the document ID to lookup
+     * @return the index within the chunk
+     */
+    private static int offset(int id) {
+        long shifted = (long) id + (1 << FIRST_BITS);
+        return (int) (shifted - Long.highestOneBit(shifted));
+    }
+
+    /**
+     * The paths and word counts of a run of consecutive document IDs.
+     */
+    private static class Chunk {
+
+        /** The path of every document in the chunk. */
+        private final AtomicReferenceArray<String> paths;
+
+        /** The number of words stored for every document in the chunk. */
+        private final AtomicIntegerArray counts;
+
+        /** One bit for every document in the chunk that has been removed. */
+        private final AtomicLongArray deleted;
+
+        /**
+         * Constructor of an empty chunk.
+         *
+         * @param size the number of documents in the chunk
+         */
+        public Chunk(int size) {
+            this.paths = new AtomicReferenceArray<>(size);
+            this.counts = new AtomicIntegerArray(size);
+            this.deleted = new AtomicLongArray((size + Long.SIZE - 1) / Long.SIZE);
+        }
+    }
+}
@@ -0,0 +1,569 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * ConcurrentInvertedIndex
+ *
+ * A thread-safe InvertedIndex that many threads can add files to at the same time.
+ * Instead of one lock around the whole index like {@link MultithreadIndex}, the words
+ * are split by hash across a number of shards, each a sorted map with its own lock, so
+ * threads adding different files rarely wait on one another. Document IDs and word
+ * counts are kept in a {@link ConcurrentDocumentTable}, which needs no lock at all.
+ *
+ * Each shard is sorted on its own, so anything that needs every word in sorted order,
+ * such as a partial search or writing to JSON, merges the words of the shards together.
+ * Postings returned by this index are copies taken under the lock of their shard, so
+ * they can be read while other threads keep adding files.
+ *
+ * Removing a file only marks it as removed in the document table, the same as
+ * {@link InvertedIndex}, and reads leave it out from then on. Once enough files have
+ * been removed, a background thread purges their positions one shard at a time, so
+ * only one shard is locked at once, and then releases their document IDs to be handed
+ * out again, so an index that files keep being replaced in stops growing.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class ConcurrentInvertedIndex extends InvertedIndex {
+
+    /** The default number of shards. */
+    public static final int DEFAULT_SHARDS = 64;
+
+    /** The shards of the index. */
+    private final Shard[] shards;
+
+    /** Used to pick a shard from a hash; the number of shards minus one. */
+    private final int mask;
+
+    /** The document IDs and word counts of the files in this index. */
+    private final ConcurrentDocumentTable documents;
+
+    /** The document IDs of the files removed since their positions were last purged. */
+    private final ConcurrentLinkedQueue<Integer> removed;
+
+    /**
+     * The number of files removed since their positions were last purged. While this is
+     * above 0, reads leave out the positions of removed files.
+     */
+    private final AtomicInteger tombstones;
+
+    /** Makes sure only one purge runs at a time. */
+    private final ReentrantLock purgeLock;
+
+    /** Whether a background purge has been started and has not finished yet. */
+    private final AtomicBoolean purging;
+
+    /**
+     * Constructor of an index with the default number of shards.
+     */
+    public ConcurrentInvertedIndex() {
+        this(DEFAULT_SHARDS);
+    }
+
+    /**
+     * Constructor of an index with at least the number of shards passed in, rounded up
+     * to a power of two.
+     *
+     * @param shards the minimum number of shards
+     */
+    public ConcurrentInvertedIndex(int shards) {
+        this(new ConcurrentDocumentTable(), shards);
+    }
+
+    /**
+     * Constructor of an index that keeps its documents in the table passed in.
+     *
+     * @param documents the table of documents
+     * @param shards the minimum number of shards
+     */
+    private ConcurrentInvertedIndex(ConcurrentDocumentTable documents, int shards) {
+        super(documents);
+        int size = Integer.highestOneBit(Math.max(2, shards - 1)) << 1;
+        this.shards = new Shard[size];
+        for (int i = 0; i < size; i++) {
+            this.shards[i] = new Shard();
+        }
+        this.mask = size - 1;
+        this.documents = documents;
+        this.removed = new ConcurrentLinkedQueue<>();
+        this.tombstones = new AtomicInteger();
+        this.purgeLock = new ReentrantLock();
+        this.purging = new AtomicBoolean();
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public void add(String element, Integer position, String path) {
+        int docId = documents.add(path);
+        Shard shard = shardOf(element);
+        boolean added;
+        shard.writeLock.lock();
+        try {
+            DocumentPostings postings = shard.words.get(element);
+            if (postings == null) {
+                postings = new DocumentPostings();
+                shard.words.put(element, postings);
+            }
+            added = postings.getOrAdd(docId).addPosition(position);
+        }
+        finally {
+            shard.writeLock.unlock();
+        }
+        if (added) {
+            documents.addCount(docId, 1);
+        }
+    }
+
+    /**
+     * Adds every word of a whole document, taking the lock of each shard only once for
+     * all of the words of the document in that shard.
+     */
+    @Override
+    public void addAll(Map<String, PostingList> words, String path) {
+        if (words.isEmpty()) {
+            return;
+        }
+        int docId = documents.add(path);
+        List<List<Map.Entry<String, PostingList>>> buckets = bucket(words.entrySet(), Map.Entry::getKey);
+        int added = 0;
+        for (int i = 0; i < shards.length; i++) {
+            List<Map.Entry<String, PostingList>> bucket = buckets.get(i);
+            if (bucket.isEmpty()) {
+                continue;
+            }
+            Shard shard = shards[i];
+            shard.writeLock.lock();
+            try {
+                for (var entry : bucket) {
+                    DocumentPostings postings = shard.words.get(entry.getKey());
+                    if (postings == null) {
+                        postings = new DocumentPostings();
+                        shard.words.put(entry.getKey(), postings);
+                    }
+                    added += postings.addAll(docId, entry.getValue());
+                }
+            }
+            finally {
+                shard.writeLock.unlock();
+            }
+        }
+        documents.addCount(docId, added);
+    }
+
+    /**
+     * Merges another index into this one, taking the lock of each shard only once for
+     * all of the words of the other index in that shard. Paths keep their alternate
+     * locations, and files removed from the other index are left out.
+     */
+    @Override
+    public void merge(InvertedIndex other) {
+        DocumentTable otherDocuments = other.getDocuments();
+        int[] docIds = new int[otherDocuments.size()];
+        for (int id = 0; id < docIds.length; id++) {
+            docIds[id] = otherDocuments.isDeleted(id) ? -1 : documents.add(otherDocuments.getPath(id));
+        }
+        if (otherDocuments.hasAlternates()) {
+            for (int id = 0; id < docIds.length; id++) {
+                for (String location : docIds[id] < 0 ? List.<String>of() : otherDocuments.getAlternates(id)) {
+                    documents.addAlternate(docIds[id], location);
+                }
+            }
+        }
+        List<List<String>> buckets = bucket(other.getWords(), word -> word);
+        for (int i = 0; i < shards.length; i++) {
+            List<String> bucket = buckets.get(i);
+            if (bucket.isEmpty()) {
+                continue;
+            }
+            Shard shard = shards[i];
+            shard.writeLock.lock();
+            try {
+                for (String word : bucket) {
+                    DocumentPostings postings = shard.words.get(word);
+                    DocumentPostings otherPostings = other.getPostings(word);
+                    for (int j = 0; j < otherPostings.size(); j++) {
+                        int docId = docIds[otherPostings.docIdAt(j)];
+                        if (docId < 0) {
+                            continue;
+                        }
+                        if (postings == null) {
+                            postings = new DocumentPostings();
+                            shard.words.put(word, postings);
+                        }
+                        documents.addCount(docId, postings.addAll(docId, otherPostings.positionsAt(j)));
+                    }
+                }
+            }
+            finally {
+                shard.writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Marks a file as removed in the document table, which takes no lock, and leaves its
+     * positions out of every read from then on. Once at least one in
+     * {@link InvertedIndex#PURGE_FRACTION} of the document IDs handed out belong to
+     * removed files, their positions are purged on a background thread. If files keep
+     * being removed until twice that many are waiting, such as when the background thread
+     * does not get to run, the thread removing the file purges them itself, so the
+     * document table does not keep growing. A file should not be removed while another
+     * thread is still adding it.
+     */
+    @Override
+    public boolean removeDocument(String path) {
+        int docId = documents.remove(path);
+        if (docId < 0) {
+            return documents.removeAlternate(path) >= 0;
+        }
+        removed.add(docId);
+        int waiting = tombstones.incrementAndGet() * PURGE_FRACTION;
+        if (waiting >= documents.size() * 2) {
+            purge();
+        }
+        else if (waiting >= documents.size() && purging.compareAndSet(false, true)) {
+            Thread purger = new Thread(() -> {
+                try {
+                    purge();
+                }
+                finally {
+                    purging.set(false);
+                }
+            }, "ConcurrentInvertedIndex-purge");
+            purger.setDaemon(true);
+            purger.start();
+        }
+        return true;
+    }
+
+    /**
+     * Purges the positions of every file removed so far from one shard at a time, taking
+     * the lock of only that shard, then releases their document IDs to be handed out
+     * again, since nothing refers to them anymore. Files removed while the shards are
+     * being purged are left for the next purge.
+     */
+    @Override
+    public void purge() {
+        purgeLock.lock();
+        try {
+            ArrayList<Integer> purged = new ArrayList<>();
+            for (Integer docId = removed.poll(); docId != null; docId = removed.poll()) {
+                purged.add(docId);
+            }
+            if (purged.isEmpty()) {
+                return;
+            }
+            for (Shard shard : shards) {
+                shard.writeLock.lock();
+                try {
+                    var iterator = shard.words.values().iterator();
+                    while (iterator.hasNext()) {
+                        DocumentPostings postings = iterator.next();
+                        if (postings.removeIf(documents::isDeleted) > 0 && postings.size() == 0) {
+                            iterator.remove();
+                        }
+                    }
+                }
+                finally {
+                    shard.writeLock.unlock();
+                }
+            }
+            purged.forEach(documents::release);
+            tombstones.addAndGet(-purged.size());
+        }
+        finally {
+            purgeLock.unlock();
+        }
+    }
+
+    @Override
+    protected boolean hasTombstones() {
+        return tombstones.get() > 0;
+    }
+
+    @Override
+    public boolean contains(String element) {
+        Shard shard = shardOf(element);
+        shard.readLock.lock();
+        try {
+            return hasTombstones() ? countLive(shard.words.get(element)) > 0 : shard.words.containsKey(element);
+        }
+        finally {
+            shard.readLock.unlock();
+        }
+    }
+
+    @Override
+    public int getNumberPositions(String element) {
+        Shard shard = shardOf(element);
+        shard.readLock.lock();
+        try {
+            DocumentPostings postings = shard.words.get(element);
+            return hasTombstones() ? countLive(postings) : postings != null ? postings.size() : 0;
+        }
+        finally {
+            shard.readLock.unlock();
+        }
+    }
+
+    /**
+     * Adds up the number of words in every shard, reading the size of each shard with
+     * an optimistic read, unless there are removed files left to purge.
+     */
+    @Override
+    public int numberOfElementsInStructure() {
+        if (hasTombstones()) {
+            return getWords().size();
+        }
+        int total = 0;
+        for (Shard shard : shards) {
+            total += shard.size();
+        }
+        return total;
+    }
+
+    /**
+     * Returns every word of the index in sorted order, merged from the shards. The words
+     * are copied, so words added afterward are not included.
+     */
+    @Override
+    public Collection<String> getWords() {
+        List<List<String>> sorted = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            shard.readLock.lock();
+            try {
+                if (!hasTombstones()) {
+                    sorted.add(new ArrayList<>(shard.words.keySet()));
+                    continue;
+                }
+                ArrayList<String> words = new ArrayList<>();
+                shard.words.forEach((word, postings) -> {
+                    if (countLive(postings) > 0) {
+                        words.add(word);
+                    }
+                });
+                sorted.add(words);
+            }
+            finally {
+                shard.readLock.unlock();
+            }
+        }
+        return Collections.unmodifiableList(SortedWords.merge(sorted));
+    }
+
+    /**
+     * Returns a copy of the postings of the word, taken under the lock of its shard,
+     * leaving out files that have been removed but not purged yet.
+     */
+    @Override
+    protected DocumentPostings getPostings(String word) {
+        Shard shard = shardOf(word);
+        shard.readLock.lock();
+        try {
+            DocumentPostings postings = shard.words.get(word);
+            if (postings == null) {
+                return null;
+            }
+            return hasTombstones() ? postings.copy().without(documents::isDeleted) : postings.copy();
+        }
+        finally {
+            shard.readLock.unlock();
+        }
+    }
+
+    /**
+     * Finds the words that start with the prefix in every shard, then merges them
+     * together so they are returned in sorted order.
+     */
+    @Override
+    protected Collection<String> getWordsStartingWith(String prefix) {
+        List<List<String>> sorted = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            ArrayList<String> words = new ArrayList<>();
+            shard.readLock.lock();
+            try {
+                boolean tombstoned = hasTombstones();
+                for (var entry : shard.words.tailMap(prefix).entrySet()) {
+                    if (!entry.getKey().startsWith(prefix)) {
+                        break;
+                    }
+                    if (!tombstoned || countLive(entry.getValue()) > 0) {
+                        words.add(entry.getKey());
+                    }
+                }
+            }
+            finally {
+                shard.readLock.unlock();
+            }
+            if (!words.isEmpty()) {
+                sorted.add(words);
+            }
+        }
+        return SortedWords.merge(sorted);
+    }
+
+    /**
+     * Reads the number of appearances of the word in every file under the lock of its
+     * shard, without copying its postings.
+     */
+    @Override
+    protected void searchHelper(ArrayList<QueryResult> list, QueryResult[] lookup, String word) {
+        Shard shard = shardOf(word);
+        shard.readLock.lock();
+        try {
+            DocumentPostings postings = shard.words.get(word);
+            if (postings != null) {
+                for (int i = 0; i < postings.size(); i++) {
+                    addAppearances(list, lookup, postings.docIdAt(i), postings.positionsAt(i).size());
+                }
+            }
+        }
+        finally {
+            shard.readLock.unlock();
+        }
+    }
+
+    /**
+     * Skips files that were added after the search started, since the lookup was sized
+     * for the files in the index at that time. Also skips files that are still being
+     * added, whose word count is not yet set, and files that have been removed, whose
+     * positions may not be purged yet. A file whose document ID was released and handed
+     * out to another file while the search was running is only counted for the file the
+     * search found first; their paths are compared as references, since the ID may be
+     * handed out to the same path again.
+     */
+    @Override
+    protected void addAppearances(ArrayList<QueryResult> list, QueryResult[] lookup,
+                                  int docId, int appearances) {
+        if (docId < lookup.length && documents.getCount(docId) > 0 && !documents.isDeleted(docId)
+                && (lookup[docId] == null || lookup[docId].getPathFile() == documents.getPath(docId))) {
+            super.addAppearances(list, lookup, docId, appearances);
+        }
+    }
+
+    /**
+     * Counts the files in postings that have not been removed.
+     *
+     * @param postings the postings of a word, or {@code null}
+     * @return the number of files in the postings that have not been removed
+     */
+    private int countLive(DocumentPostings postings) {
+        int live = 0;
+        for (int i = 0; postings != null && i < postings.size(); i++) {
+            if (!documents.isDeleted(postings.docIdAt(i))) {
+                live++;
+            }
+        }
+        return live;
+    }
+
+    /**
+     * Returns the number of shards of the index.
+     *
+     * @return the number of shards
+     */
+    public int getShards() {
+        return shards.length;
+    }
+
+    /**
+     * Returns the shard that a word belongs to.
+     *
+     * @param word the word to lookup
+     * @return the shard of the word
+     */
+    private Shard shardOf(String word) {
+        return shards[shardIndex(word)];
+    }
+
+    /**
+     * Picks the shard of a word from its hash, spreading the higher bits into the lower
+     * ones used to pick a shard.
+     *
+     * @param word the word to lookup
+     * @return the index of the shard of the word
+     */
+    private int shardIndex(String word) {
+        int hash = word.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /**
+     * Splits elements into one list for each shard by the word of each element.
+     *
+     * @param <T> the type of the elements
+     * @param elements the elements to split
+     * @param word the word of an element
+     * @return a list of the elements of each shard, by shard index
+     */
+    private <T> List<List<T>> bucket(Collection<T> elements, Function<T, String> word) {
+        List<List<T>> buckets = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (T element : elements) {
+            buckets.get(shardIndex(word.apply(element))).add(element);
+        }
+        return buckets;
+    }
+
+    /**
+     * The words of one shard and the lock that guards them.
+     */
+    private static class Shard {
+
+        /** The words of the shard mapped to their postings. */
+        private final TreeMap<String, DocumentPostings> words;
+
+        /** The lock of the shard. */
+        private final OptimisticReadWriteLock lock;
+
+        /** The read lock of the shard. */
+        private final SimpleLock readLock;
+
+        /** The write lock of the shard. */
+        private final SimpleLock writeLock;
+
+        /** Constructor of an empty shard. */
+        public Shard() {
+            this.words = new TreeMap<>();
+            this.lock = new OptimisticReadWriteLock();
+            this.readLock = lock.readLock();
+            this.writeLock = lock.writeLock();
+        }
+
+        /**
+         * Returns the number of words in the shard with an optimistic read, which takes
+         * no lock, and only takes the read lock if a writer got in while reading.
+         *
+         * @return the number of words in the shard
+         */
+        public int size() {
+            long stamp = lock.tryOptimisticRead();
+            int size = words.size();
+            if (lock.validate(stamp)) {
+                return size;
+            }
+            readLock.lock();
+            try {
+                return words.size();
+            }
+            finally {
+                readLock.unlock();
+            }
+        }
+    }
+}
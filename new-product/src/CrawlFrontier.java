@@ -0,0 +1,198 @@
+import java.net.URI;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CrawlFrontier
+ *
+ * The pages a crawl has found but not yet fetched, along with every page it has seen.
+ * The pages waiting to be fetched are handed out closest to the seed first, and in the
+ * order they were found among pages of the same depth. The maximum is counted as pages
+ * are offered, so which pages make it in depends on the order pages are fetched: only
+ * when the crawler takes a page out as it has room to fetch it, rather than emptying the
+ * frontier, does a crawl that stops at its maximum cover the pages near the seed instead
+ * of one deep chain of links.
+ *
+ * Pages that have been seen are remembered only as 64-bit fingerprints of their URL in
+ * a {@link FingerprintSet}, which can be checked without locking. A {@link BloomFilter}
+ * can be placed in front of it as a first check, so that a URL that has never been seen
+ * is recognized from a few bits without probing the table.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class CrawlFrontier {
+
+    /** The most fingerprints the seen-set and filter are sized for up front. */
+    private static final int MAX_PRESIZE = 1 << 20;
+
+    /** The fingerprints of every page seen. */
+    private final FingerprintSet seen;
+
+    /** A first check of whether a page has been seen, or {@code null} if not used. */
+    private final BloomFilter filter;
+
+    /** The pages waiting to be fetched. */
+    private final PriorityBlockingQueue<Entry> waiting;
+
+    /** The order pages were offered in, to break ties between pages of the same depth. */
+    private final AtomicLong order;
+
+    /** The number of pages accepted so far, which never goes past the maximum. */
+    private final AtomicInteger accepted;
+
+    /** The maximum number of pages to accept. */
+    private final int max;
+
+    /**
+     * Constructor of an empty frontier without a Bloom filter.
+     *
+     * @param max the maximum number of pages to accept; at least 1
+     */
+    public CrawlFrontier(int max) {
+        this(max, false);
+    }
+
+    /**
+     * Constructor of an empty frontier.
+     *
+     * @param max the maximum number of pages to accept; at least 1
+     * @param useFilter whether to check a Bloom filter before the seen-set
+     */
+    public CrawlFrontier(int max, boolean useFilter) {
+        this.max = Math.max(1, max);
+        int expected = Math.min(this.max, MAX_PRESIZE);
+        this.seen = new FingerprintSet(expected);
+        this.filter = useFilter ? new BloomFilter(expected) : null;
+        this.waiting = new PriorityBlockingQueue<>();
+        this.order = new AtomicLong();
+        this.accepted = new AtomicInteger();
+    }
+
+    /**
+     * Accepts a page to be fetched, unless it has been seen before or the maximum number
+     * of pages have already been accepted.
+     *
+     * @param uri the normalized URL of the page
+     * @param depth the number of links between the seed and the page
+     * @return true if the page was accepted; false otherwise
+     */
+    public boolean offer(URI uri, int depth) {
+        if (accepted.get() >= max) {
+            return false;
+        }
+        long fingerprint = FingerprintSet.fingerprint(uri.toString());
+        if (filter != null) {
+            if (filter.mightContain(fingerprint) && seen.contains(fingerprint)) {
+                return false;
+            }
+            filter.put(fingerprint);
+        }
+        if (!seen.add(fingerprint) || accepted.getAndIncrement() >= max) {
+            return false;
+        }
+        waiting.add(new Entry(uri, depth, order.getAndIncrement()));
+        return true;
+    }
+
+    /**
+     * Removes the next page to fetch: the one closest to the seed, and the first offered
+     * among those.
+     *
+     * @return the next page to fetch, or {@code null} if no pages are waiting
+     */
+    public Entry poll() {
+        return waiting.poll();
+    }
+
+    /**
+     * Checks whether any pages are waiting to be fetched.
+     *
+     * @return true if no pages are waiting; false otherwise
+     */
+    public boolean isEmpty() {
+        return waiting.isEmpty();
+    }
+
+    /**
+     * Checks whether a page has been seen, without locking.
+     *
+     * @param uri the normalized URL of the page
+     * @return true if the page has been offered before; false otherwise
+     */
+    public boolean hasSeen(URI uri) {
+        long fingerprint = FingerprintSet.fingerprint(uri.toString());
+        return (filter == null || filter.mightContain(fingerprint)) && seen.contains(fingerprint);
+    }
+
+    /**
+     * Returns the number of pages seen.
+     *
+     * @return the number of pages seen
+     */
+    public int getSeen() {
+        return seen.size();
+    }
+
+    /**
+     * Returns the number of pages accepted to be fetched.
+     *
+     * @return the number of pages accepted
+     */
+    public int getAccepted() {
+        return Math.min(accepted.get(), max);
+    }
+
+    /**
+     * A page waiting to be fetched, with how deep it is in the crawl.
+     */
+    public static class Entry implements Comparable<Entry> {
+
+        /** The URL of the page. */
+        private final URI uri;
+
+        /** The number of links between the seed and the page. */
+        private final int depth;
+
+        /** When the page was offered, relative to the other pages. */
+        private final long order;
+
+        /**
+         * Constructor of a page waiting to be fetched.
+         *
+         * @param uri the URL of the page
+         * @param depth the number of links between the seed and the page
+         * @param order when the page was offered, relative to the other pages
+         */
+        public Entry(URI uri, int depth, long order) {
+            this.uri = uri;
+            this.depth = depth;
+            this.order = order;
+        }
+
+        /**
+         * Returns the URL of the page.
+         *
+         * @return the URL
+         */
+        public URI getUri() {
+            return uri;
+        }
+
+        /**
+         * Returns the number of links between the seed and the page.
+         *
+         * @return the depth
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int compare = Integer.compare(depth, other.depth);
+            return compare != 0 ? compare : Long.compare(order, other.order);
+        }
+    }
+}
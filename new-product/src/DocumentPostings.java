@@ -0,0 +1,253 @@
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * DocumentPostings
+ *
+ * The postings of a single word: the document IDs the word is found in, each
+ * paired with the PostingList of positions in that document. Kept as two parallel
+ * arrays sorted by document ID instead of a map so that no key or entry objects
+ * are created. Documents are indexed one after another, so new document IDs are
+ * almost always appended to the end.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class DocumentPostings {
+
+    /** The number of documents reserved the first time a document is added. */
+    private static final int INITIAL_CAPACITY = 2;
+
+    /** The document IDs, sorted in increasing order. */
+    private int[] docIds;
+
+    /** The positions for each document ID at the same index. */
+    private PostingList[] lists;
+
+    /** The number of documents stored. */
+    private int size;
+
+    /** Constructor of an empty DocumentPostings. */
+    public DocumentPostings() {
+        this.docIds = new int[INITIAL_CAPACITY];
+        this.lists = new PostingList[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    /**
+     * Returns the positions stored for the document.
+     *
+     * @param docId the document ID to lookup
+     * @return the positions for that document, or {@code null} if there are none
+     */
+    public PostingList get(int docId) {
+        int index = indexOf(docId);
+        return index < 0 ? null : lists[index];
+    }
+
+    /**
+     * Returns the positions stored for the document, adding an empty PostingList for
+     * that document if there is none yet.
+     *
+     * @param docId the document ID to lookup or add
+     * @return the positions for that document
+     */
+    public PostingList getOrAdd(int docId) {
+        int index = indexOf(docId);
+        if (index >= 0) {
+            return lists[index];
+        }
+        PostingList positions = new PostingList();
+        insert(-index - 1, docId, positions);
+        return positions;
+    }
+
+    /**
+     * Adds every position of a PostingList to the document. If the document has no
+     * positions yet, the PostingList itself is stored rather than copied, so it should
+     * not be modified by anything else afterward.
+     *
+     * @param docId the document ID to add to
+     * @param positions the positions to be added
+     * @return the number of positions that were not already stored for the document
+     */
+    public int addAll(int docId, PostingList positions) {
+        int index = indexOf(docId);
+        if (index >= 0) {
+            return lists[index].addPositions(positions);
+        }
+        insert(-index - 1, docId, positions);
+        return positions.size();
+    }
+
+    /**
+     * Removes the document and its positions.
+     *
+     * @param docId the document ID to remove
+     * @return true if the document was stored; false otherwise
+     */
+    public boolean remove(int docId) {
+        int index = indexOf(docId);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(docIds, index + 1, docIds, index, size - index - 1);
+        System.arraycopy(lists, index + 1, lists, index, size - index - 1);
+        size--;
+        lists[size] = null;
+        return true;
+    }
+
+    /**
+     * Removes every document whose ID matches, along with its positions, in a single
+     * pass over the postings.
+     *
+     * @param removed tests whether a document ID should be removed
+     * @return the number of documents that were removed
+     */
+    public int removeIf(IntPredicate removed) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!removed.test(docIds[i])) {
+                docIds[kept] = docIds[i];
+                lists[kept] = lists[i];
+                kept++;
+            }
+        }
+        int count = size - kept;
+        Arrays.fill(lists, kept, size, null);
+        size = kept;
+        return count;
+    }
+
+    /**
+     * Gives every document the new document ID it is mapped to, dropping documents that
+     * are mapped to -1, in a single pass over the postings. The new IDs have to be in
+     * the same order as the old ones so the postings stay sorted.
+     *
+     * @param remap the new document ID of every old document ID, or -1 to drop it
+     * @return the number of documents that were dropped
+     */
+    public int remap(int[] remap) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            int docId = remap[docIds[i]];
+            if (docId >= 0) {
+                docIds[kept] = docId;
+                lists[kept] = lists[i];
+                kept++;
+            }
+        }
+        int count = size - kept;
+        Arrays.fill(lists, kept, size, null);
+        size = kept;
+        return count;
+    }
+
+    /**
+     * Returns these postings without the documents whose ID matches. If no document
+     * matches, these postings are returned as they are; otherwise the rest are put in
+     * new postings that share their positions with these.
+     *
+     * @param removed tests whether a document ID should be left out
+     * @return the postings that are left, or {@code null} if every document was left out
+     */
+    public DocumentPostings without(IntPredicate removed) {
+        int first = 0;
+        while (first < size && !removed.test(docIds[first])) {
+            first++;
+        }
+        if (first == size) {
+            return this;
+        }
+        DocumentPostings kept = new DocumentPostings();
+        for (int i = 0; i < size; i++) {
+            if (i < first || i > first && !removed.test(docIds[i])) {
+                kept.insert(kept.size, docIds[i], lists[i]);
+            }
+        }
+        return kept.size > 0 ? kept : null;
+    }
+
+    /**
+     * Returns the document ID stored at the index.
+     *
+     * @param index the index between 0 and {@link #size()}
+     * @return the document ID at that index
+     */
+    public int docIdAt(int index) {
+        return docIds[index];
+    }
+
+    /**
+     * Returns the positions stored at the index.
+     *
+     * @param index the index between 0 and {@link #size()}
+     * @return the positions at that index
+     */
+    public PostingList positionsAt(int index) {
+        return lists[index];
+    }
+
+    /**
+     * Returns the number of documents stored.
+     *
+     * @return the number of documents the word is found in
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a copy of these postings, including a copy of the positions of every
+     * document, that is not affected by anything added to these postings afterward.
+     *
+     * @return a copy of these postings
+     */
+    public DocumentPostings copy() {
+        DocumentPostings copied = new DocumentPostings();
+        copied.docIds = Arrays.copyOf(docIds, Math.max(INITIAL_CAPACITY, size));
+        copied.lists = new PostingList[copied.docIds.length];
+        for (int i = 0; i < size; i++) {
+            copied.lists[i] = lists[i].copy();
+        }
+        copied.size = size;
+        return copied;
+    }
+
+    /**
+     * Inserts a document at the index, shifting any later documents back by one.
+     *
+     * @param insertAt the index to insert at
+     * @param docId the document ID to insert
+     * @param positions the positions for that document
+     */
+    private void insert(int insertAt, int docId, PostingList positions) {
+        if (size == docIds.length) {
+            docIds = Arrays.copyOf(docIds, size * 2);
+            lists = Arrays.copyOf(lists, size * 2);
+        }
+        System.arraycopy(docIds, insertAt, docIds, insertAt + 1, size - insertAt);
+        System.arraycopy(lists, insertAt, lists, insertAt + 1, size - insertAt);
+        docIds[insertAt] = docId;
+        lists[insertAt] = positions;
+        size++;
+    }
+
+    /**
+     * Finds the index of the document ID, checking the last document first since
+     * that is where positions are added while reading through a file.
+     *
+     * @param docId the document ID to lookup
+     * @return the index of the document ID, or (-(insertion point) - 1) if not found
+     */
+    private int indexOf(int docId) {
+        if (size > 0 && docIds[size - 1] == docId) {
+            return size - 1;
+        }
+        if (size == 0 || docIds[size - 1] < docId) {
+            return -size - 1;
+        }
+        return Arrays.binarySearch(docIds, 0, size, docId);
+    }
+}
@@ -0,0 +1,322 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * DocumentTable
+ *
+ * Assigns every file path that is indexed a dense integer document ID, starting
+ * at 0, so that the inverted index can refer to a file by its ID instead of
+ * repeating the full path String in every posting. Also keeps the word count of
+ * every document in an array indexed by document ID. A path that is removed keeps
+ * its ID, marked as deleted, until the table is compacted, which gives the documents
+ * that are left new IDs in the same order so the IDs are dense again.
+ *
+ * A document can also have alternate locations: paths of near-duplicates that were
+ * collapsed into it rather than indexed. They have no document ID of their own, but are
+ * listed with the paths of the table and dropped along with their document.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class DocumentTable {
+
+    /** The number of word counts reserved before the first document is added. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Lookup of the document ID assigned to a path. */
+    private final HashMap<String, Integer> ids;
+
+    /** The path of every document, indexed by document ID. */
+    private final ArrayList<String> paths;
+
+    /** The number of words stored for every document, indexed by document ID. */
+    private int[] counts;
+
+    /** The document IDs of the paths that have been removed. */
+    private final BitSet deleted;
+
+    /** The alternate locations of each document that has any, sorted, by document ID. */
+    private HashMap<Integer, TreeSet<String>> alternates;
+
+    /** Lookup of the document ID an alternate location belongs to. */
+    private final HashMap<String, Integer> alternateIds;
+
+    /** Constructor of an empty DocumentTable. */
+    public DocumentTable() {
+        this.ids = new HashMap<>();
+        this.paths = new ArrayList<>();
+        this.counts = new int[INITIAL_CAPACITY];
+        this.deleted = new BitSet();
+        this.alternates = new HashMap<>();
+        this.alternateIds = new HashMap<>();
+    }
+
+    /**
+     * Returns the document ID of the path, assigning the next unused ID to the path
+     * if it has not been seen before. A path that was an alternate location of another
+     * document is not one anymore once it is a document of its own.
+     *
+     * @param path the path to file that is being indexed
+     * @return the document ID of the path
+     */
+    public int add(String path) {
+        Integer id = ids.get(path);
+        if (id != null) {
+            return id;
+        }
+        if (!alternateIds.isEmpty()) {
+            removeAlternate(path);
+        }
+        int next = paths.size();
+        ids.put(path, next);
+        paths.add(path);
+        if (next == counts.length) {
+            int[] grown = new int[counts.length * 2];
+            System.arraycopy(counts, 0, grown, 0, counts.length);
+            counts = grown;
+        }
+        return next;
+    }
+
+    /**
+     * Returns the document ID of the path without assigning one.
+     *
+     * @param path the path to lookup
+     * @return the document ID of the path, or -1 if the path has not been added
+     */
+    public int getId(String path) {
+        Integer id = ids.get(path);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the path the document ID was assigned to.
+     *
+     * @param id the document ID to lookup
+     * @return the path of the document
+     */
+    public String getPath(int id) {
+        return paths.get(id);
+    }
+
+    /**
+     * Returns the number of words stored for the document.
+     *
+     * @param id the document ID to lookup
+     * @return the word count of the document
+     */
+    public int getCount(int id) {
+        return counts[id];
+    }
+
+    /**
+     * Adds to the number of words stored for the document.
+     *
+     * @param id the document ID to update
+     * @param words the number of words that were added to the document
+     */
+    public void addCount(int id, int words) {
+        counts[id] += words;
+    }
+
+    /**
+     * Removes the path from the table and marks its document ID as deleted, setting its
+     * word count back to 0 and dropping its alternate locations. The ID is not handed
+     * out again until the table is compacted, so adding the path again afterward gives
+     * it a new ID, and any postings still stored under the old ID can be told apart with
+     * {@link #isDeleted(int)} and purged later.
+     *
+     * @param path the path to remove
+     * @return the document ID the path had, or -1 if the path has not been added
+     */
+    public int remove(String path) {
+        Integer id = ids.remove(path);
+        if (id == null) {
+            return -1;
+        }
+        deleted.set(id);
+        counts[id] = 0;
+        TreeSet<String> dropped = alternates.remove(id);
+        if (dropped != null) {
+            dropped.forEach(alternateIds::remove);
+        }
+        return id;
+    }
+
+    /**
+     * Records a path as an alternate location of a document, such as a near-duplicate
+     * that was collapsed into it. A path that is a document of its own is left alone,
+     * and a path that was an alternate location of another document is moved.
+     *
+     * @param id the document ID the path is an alternate location of
+     * @param path the alternate location
+     * @return true if the path was recorded; false if it is a document or already recorded
+     */
+    public boolean addAlternate(int id, String path) {
+        if (ids.containsKey(path)) {
+            return false;
+        }
+        Integer previous = alternateIds.put(path, id);
+        if (previous != null && previous != id) {
+            removeFrom(alternates, previous, path);
+        }
+        return alternates.computeIfAbsent(id, key -> new TreeSet<>()).add(path);
+    }
+
+    /**
+     * Removes a path from the alternate locations of its document.
+     *
+     * @param path the alternate location to remove
+     * @return the document ID the path was an alternate location of, or -1 if it was not one
+     */
+    public int removeAlternate(String path) {
+        Integer id = alternateIds.remove(path);
+        if (id == null) {
+            return -1;
+        }
+        removeFrom(alternates, id, path);
+        return id;
+    }
+
+    /**
+     * Returns the document ID a path is an alternate location of.
+     *
+     * @param path the path to lookup
+     * @return the document ID, or -1 if the path is not an alternate location
+     */
+    public int getAlternateOf(String path) {
+        Integer id = alternateIds.get(path);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the alternate locations of a document.
+     *
+     * @param id the document ID to lookup
+     * @return an unmodifiable sorted Collection of the alternate locations, empty if there are none
+     */
+    public Collection<String> getAlternates(int id) {
+        TreeSet<String> locations = alternates.get(id);
+        return locations == null ? Collections.emptySet() : Collections.unmodifiableCollection(locations);
+    }
+
+    /**
+     * Determines whether any document has alternate locations.
+     *
+     * @return true if any alternate location is recorded; false otherwise
+     */
+    public boolean hasAlternates() {
+        return !alternateIds.isEmpty();
+    }
+
+    /**
+     * Drops every removed document and gives the documents that are left new document
+     * IDs, starting at 0, in the same order as their old ones. Postings stored under the
+     * old IDs have to be given the new ones with the mapping that is returned.
+     *
+     * @return the new document ID of every old document ID, or -1 for removed documents
+     */
+    public int[] compact() {
+        int[] remap = new int[paths.size()];
+        HashMap<Integer, TreeSet<String>> moved = new HashMap<>();
+        int next = 0;
+        for (int id = 0; id < remap.length; id++) {
+            if (deleted.get(id)) {
+                remap[id] = -1;
+                continue;
+            }
+            String path = paths.get(id);
+            remap[id] = next;
+            TreeSet<String> locations = alternates.get(id);
+            if (locations != null) {
+                moved.put(next, locations);
+                for (String location : locations) {
+                    alternateIds.put(location, next);
+                }
+            }
+            paths.set(next, path);
+            counts[next] = counts[id];
+            ids.put(path, next);
+            next++;
+        }
+        paths.subList(next, paths.size()).clear();
+        Arrays.fill(counts, next, counts.length, 0);
+        deleted.clear();
+        alternates = moved;
+        return remap;
+    }
+
+    /**
+     * Determines whether the document ID belongs to a path that has been removed.
+     *
+     * @param id the document ID to lookup
+     * @return true if the document has been removed; false otherwise
+     */
+    public boolean isDeleted(int id) {
+        return deleted.get(id);
+    }
+
+    /**
+     * Returns the number of document IDs that have been assigned.
+     *
+     * @return the number of documents in the table
+     */
+    public int size() {
+        return paths.size();
+    }
+
+    /**
+     * Returns the paths of every document that has at least one word, along with their
+     * alternate locations, sorted by path.
+     *
+     * @return an unmodifiable sorted Collection of paths
+     */
+    public Collection<String> getPaths() {
+        TreeMap<String, Integer> counts = getCounts();
+        if (!hasAlternates()) {
+            return Collections.unmodifiableCollection(counts.keySet());
+        }
+        TreeSet<String> paths = new TreeSet<>(counts.keySet());
+        for (String path : counts.keySet()) {
+            paths.addAll(getAlternates(getId(path)));
+        }
+        return Collections.unmodifiableCollection(paths);
+    }
+
+    /**
+     * Removes an alternate location from the locations of a document, forgetting the
+     * document once it has none left. Done as one update of the map, so it is atomic
+     * for a concurrent map.
+     *
+     * @param <T> the type of the collections of alternate locations
+     * @param alternates the alternate locations of each document
+     * @param id the document ID
+     * @param path the alternate location to remove
+     */
+    protected static <T extends Collection<String>> void removeFrom(Map<Integer, T> alternates, int id, String path) {
+        alternates.computeIfPresent(id, (key, locations) -> locations.remove(path) && locations.isEmpty() ? null : locations);
+    }
+
+    /**
+     * Returns the word count of every document that has at least one word, keyed and
+     * sorted by path. Only used at the edges of the index such as writing to JSON.
+     *
+     * @return a sorted map of paths to word counts
+     */
+    public TreeMap<String, Integer> getCounts() {
+        TreeMap<String, Integer> sorted = new TreeMap<>();
+        for (int id = 0; id < paths.size(); id++) {
+            if (counts[id] > 0) {
+                sorted.put(paths.get(id), counts[id]);
+            }
+        }
+        return sorted;
+    }
+}
@@ -1,3 +1,5 @@
+import java.net.URI;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.io.IOException;
 
@@ -22,17 +24,142 @@ public class Driver {
     public static void main(String[] args) {
 
         ArgumentParser argParser = new ArgumentParser(args);
-        InvertedIndex invertedIndex = new InvertedIndex();
+        InvertedIndex invertedIndex = createIndex(argParser);
         InvertedIndexBuilder builder = new InvertedIndexBuilder(invertedIndex);
-        QueryBuilder queryBuilder = new QueryBuilder(invertedIndex);
-        MultithreadIndex threadIndex = new MultithreadIndex();
+        int limit = 0;
+        if (argParser.hasFlag("-limit")) {
+            try {
+                limit = Integer.parseInt(argParser.getString("-limit"));
+            }
+            catch (NumberFormatException e) {
+                System.out.println("Invalid limit for search results, returning all results. ");
+            }
+        }
+        QueryBuilder queryBuilder = new QueryBuilder(invertedIndex, limit);
+        IncrementalIndexBuilder incremental = null;
+        IndexWatcher watcher = null;
+        boolean merged = false;
+
+        if (argParser.hasFlag("-load")) {
 
+            Path loadPath = argParser.getPath("-load", Path.of("index.bin"));
+            try {
+                IndexSegment segment = IndexSegment.open(loadPath);
+                if (argParser.hasFlag("-path")) {
+                    invertedIndex.merge(segment);
+                    merged = true;
+                    Path manifestPath = IndexManifest.pathOf(loadPath);
+                    if (Files.isRegularFile(manifestPath)) {
+                        incremental = new IncrementalIndexBuilder(invertedIndex, IndexManifest.read(manifestPath));
+                    }
+                }
+                else {
+                    invertedIndex = segment;
+                    builder = new InvertedIndexBuilder(invertedIndex);
+                    queryBuilder = new QueryBuilder(invertedIndex, limit);
+                }
+            }
+            catch (IOException e) {
+                System.out.println("Unable to load index segment from: " + loadPath.toString());
+            }
+        }
+        if (argParser.hasFlag("-threads")) {
+
+            String thread = argParser.getString("-threads");
+            if ("virtual".equalsIgnoreCase(thread)) {
+                builder = new VirtualThreadIndexBuilder(invertedIndex);
+            }
+            else {
+                int numThreads;
+                try {
+                    numThreads = Integer.parseInt(thread);
+                }
+                catch (NumberFormatException e) {
+                    numThreads = 5;
+                }
+                if (numThreads > 0 && argParser.hasFlag("-queue")) {
+                    builder = new QueueIndexBuilder(invertedIndex, numThreads);
+                }
+                else if (numThreads > 0) {
+                    builder = new ParallelIndexBuilder(invertedIndex, numThreads);
+                }
+                else {
+                    System.out.println("Unable to make threads with thread count: " + thread);
+                    return;
+                }
+            }
+        }
+        NearDuplicateDetector detector = null;
+        if (argParser.hasFlag("-dedup") && merged) {
+
+            System.out.println("Near-duplicates can only be found while building an index from scratch, "
+                    + "ignoring -dedup. ");
+        }
+        else if (argParser.hasFlag("-dedup")) {
+
+            int distance = NearDuplicateDetector.DEFAULT_DISTANCE;
+            if (argParser.hasFlag("-distance")) {
+                try {
+                    distance = Integer.parseInt(argParser.getString("-distance"));
+                    if (distance < 0 || distance > NearDuplicateDetector.MAX_DISTANCE) {
+                        distance = Math.min(Math.max(0, distance), NearDuplicateDetector.MAX_DISTANCE);
+                        System.out.println("Near-duplicate distance must be from 0 to "
+                                + NearDuplicateDetector.MAX_DISTANCE + " bits, using " + distance + " bit(s). ");
+                    }
+                }
+                catch (NumberFormatException e) {
+                    System.out.println("Invalid near-duplicate distance, using " + distance + " bit(s). ");
+                }
+            }
+            detector = new NearDuplicateDetector(distance, "collapse".equalsIgnoreCase(argParser.getString("-dedup")));
+            builder.setDetector(detector);
+        }
         if (argParser.hasFlag("-path")) {
 
             Path getPath = argParser.getPath("-path");
             if (getPath != null) {
                 try {
-                    builder.buildIndexFromPath(getPath);
+                    if (argParser.hasFlag("-watch")) {
+                        long debounce;
+                        try {
+                            debounce = Long.parseLong(argParser.getString("-watch"));
+                        }
+                        catch (NumberFormatException e) {
+                            debounce = IndexWatcher.DEFAULT_DEBOUNCE_MILLIS;
+                        }
+                        watcher = new IndexWatcher(invertedIndex, getPath, debounce,
+                                IndexWatcher.DEFAULT_QUEUE_CAPACITY);
+                        watcher.setDetector(detector);
+                    }
+                    long start = System.nanoTime();
+                    if (incremental != null) {
+                        incremental.buildIndexFromPath(getPath);
+                        System.out.printf("Updated index in %.3f seconds. %s%n",
+                                (System.nanoTime() - start) / 1e9, incremental);
+                        System.out.println(StemCache.getShared());
+                    }
+                    else {
+                        builder.buildIndexFromPath(getPath);
+                        if (builder instanceof ParallelIndexBuilder) {
+                            System.out.printf("Built index with %d thread(s) in %.3f seconds%n",
+                                    ((ParallelIndexBuilder) builder).getThreads(),
+                                    (System.nanoTime() - start) / 1e9);
+                        }
+                        else if (builder instanceof QueueIndexBuilder) {
+                            System.out.printf("Built index with %d thread(s) on a work-stealing queue in %.3f seconds, %d steal(s)%n",
+                                    ((QueueIndexBuilder) builder).getThreads(),
+                                    (System.nanoTime() - start) / 1e9, ((QueueIndexBuilder) builder).getSteals());
+                        }
+                        else if (builder instanceof VirtualThreadIndexBuilder) {
+                            System.out.printf("Built index with virtual threads and %d parsing thread(s) in %.3f seconds%n",
+                                    ((VirtualThreadIndexBuilder) builder).getThreads(),
+                                    (System.nanoTime() - start) / 1e9);
+                        }
+                        System.out.println(StemCache.getShared());
+                        if (detector != null) {
+                            System.out.println(detector);
+                        }
+                    }
                 }
                 catch (IOException e) {
                     System.out.println("Unable to read file(s) from path: " + getPath.toString());
@@ -42,6 +169,196 @@ public class Driver {
                 System.out.println("Please give a valid path or directory. ");
             }
         }
+        if (argParser.hasFlag("-html")) {
+
+            String seed = argParser.getString("-html");
+            int max = WebCrawler.DEFAULT_MAX;
+            if (argParser.hasFlag("-max")) {
+                try {
+                    max = Integer.parseInt(argParser.getString("-max"));
+                }
+                catch (NumberFormatException e) {
+                    System.out.println("Invalid maximum number of pages, crawling " + max + " page(s). ");
+                }
+            }
+            int numThreads = WorkQueue.DEFAULT;
+            if (argParser.hasFlag("-threads")) {
+                try {
+                    numThreads = Math.max(1, Integer.parseInt(argParser.getString("-threads")));
+                }
+                catch (NumberFormatException e) {
+                    numThreads = WorkQueue.DEFAULT;
+                }
+            }
+            long delay = HostScheduler.DEFAULT_DELAY_MILLIS;
+            if (argParser.hasFlag("-delay")) {
+                try {
+                    delay = Long.parseLong(argParser.getString("-delay"));
+                }
+                catch (NumberFormatException e) {
+                    System.out.println("Invalid delay between requests to a host, using " + delay + " ms. ");
+                }
+            }
+            int perHost = numThreads;
+            if (argParser.hasFlag("-perhost")) {
+                try {
+                    perHost = Integer.parseInt(argParser.getString("-perhost"));
+                }
+                catch (NumberFormatException e) {
+                    System.out.println("Invalid number of requests per host, using " + perHost + ". ");
+                }
+            }
+            TaskQueue queue = new StealingWorkQueue(numThreads, StealingWorkQueue.DEFAULT_CAPACITY);
+            HostScheduler scheduler = new HostScheduler(queue, delay, perHost, numThreads);
+            try {
+                long start = System.nanoTime();
+                WebCrawler crawler = new WebCrawler(invertedIndex, scheduler,
+                        new CrawlFrontier(max, argParser.hasFlag("-bloom")), new HtmlFetcher());
+                crawler.setDetector(detector);
+                crawler.crawl(URI.create(seed != null ? seed : ""));
+                System.out.printf("Crawled %d page(s) with %d thread(s) in %.3f seconds%n",
+                        crawler.getCrawled(), queue.size(), (System.nanoTime() - start) / 1e9);
+                System.out.println(StemCache.getShared());
+                if (detector != null) {
+                    System.out.println(detector);
+                }
+            }
+            catch (IllegalArgumentException e) {
+                System.out.println("Please give a valid HTTP or HTTPS URL to crawl. ");
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                System.out.println("Interrupted while crawling from: " + seed);
+            }
+            finally {
+                scheduler.shutdown();
+                queue.shutdown();
+            }
+        }
+        if (detector != null && detector.isCollapse()) {
+            refresh(invertedIndex);
+            addAlternates(invertedIndex, detector);
+        }
+        refresh(invertedIndex);
+        if (argParser.hasFlag("-segment")) {
+
+            Path segmentPath = argParser.getPath("-segment", Path.of("index.bin"));
+            try {
+                invertedIndex.writeSegment(segmentPath);
+                Path pathRoot = argParser.getPath("-path");
+                if (incremental != null) {
+                    incremental.getManifest().write(IndexManifest.pathOf(segmentPath));
+                }
+                else if (pathRoot != null) {
+                    IndexManifest.scan(pathRoot).write(IndexManifest.pathOf(segmentPath));
+                }
+            }
+            catch (IOException e) {
+                System.out.println("Unable to write index segment at: " + segmentPath.toString());
+            }
+        }
+        if (argParser.hasFlag("-duplicates") && detector != null) {
+
+            Path duplicatesPath = argParser.getPath("-duplicates", Path.of("duplicates.json"));
+            try {
+                detector.writeCollapsed(duplicatesPath);
+            }
+            catch (IOException e) {
+                System.out.println("Unable to write near-duplicates at: " + duplicatesPath.toString());
+            }
+        }
+        writeOutputs(argParser, invertedIndex, queryBuilder);
+        if (watcher != null) {
+
+            QueryBuilder watchedQueries = queryBuilder;
+            InvertedIndex watchedIndex = invertedIndex;
+            IndexWatcher watching = watcher;
+            watcher.setListener(count -> {
+                System.out.printf("Applied %d change(s) from %s, %d ms behind the files%n",
+                        count, argParser.getPath("-path"), watching.getStaleness());
+                watchedQueries.clear();
+                refresh(watchedIndex);
+                writeOutputs(argParser, watchedIndex, watchedQueries);
+            });
+            watcher.start();
+            System.out.println("Watching for changes in: " + argParser.getPath("-path"));
+            try {
+                watcher.awaitClose();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Creates the index that files and pages are added to. The -store flag picks a
+     * thread-safe index built for concurrent adding: "sharded" for a
+     * ConcurrentInvertedIndex, "snapshot" for a SnapshotIndex, or "segmented" for a
+     * SegmentedIndex. Otherwise the index is an InvertedIndex, or a MultithreadIndex when
+     * watching for changes.
+     *
+     * @param argParser the parsed command-line arguments
+     * @return the index to add to
+     */
+    private static InvertedIndex createIndex(ArgumentParser argParser) {
+        String store = argParser.getString("-store");
+        if ("sharded".equalsIgnoreCase(store)) {
+            return new ConcurrentInvertedIndex();
+        }
+        if ("snapshot".equalsIgnoreCase(store)) {
+            return new SnapshotIndex();
+        }
+        if ("segmented".equalsIgnoreCase(store)) {
+            return new SegmentedIndex();
+        }
+        if (store != null) {
+            System.out.println("Unknown index store: " + store + ", using the default index. ");
+        }
+        return argParser.hasFlag("-watch") ? new MultithreadIndex() : new InvertedIndex();
+    }
+
+    /**
+     * Makes everything added to the index so far visible to searches and outputs, for
+     * an index that only shows what was added once it is published or flushed.
+     *
+     * @param invertedIndex the index that was added to
+     */
+    private static void refresh(InvertedIndex invertedIndex) {
+        if (invertedIndex instanceof SnapshotIndex) {
+            ((SnapshotIndex) invertedIndex).publish();
+        }
+        else if (invertedIndex instanceof SegmentedIndex) {
+            ((SegmentedIndex) invertedIndex).flush();
+        }
+    }
+
+    /**
+     * Records the locations the detector collapsed into each canonical document as
+     * alternate locations of that document in the index. The index is refreshed first,
+     * so every canonical document can be found in it.
+     *
+     * @param invertedIndex the index the canonical documents were added to
+     * @param detector the detector that collapsed the near-duplicates
+     */
+    private static void addAlternates(InvertedIndex invertedIndex, NearDuplicateDetector detector) {
+        detector.getCollapsed().forEach((canonical, locations) -> {
+            for (String location : locations) {
+                invertedIndex.addAlternate(canonical, location);
+            }
+        });
+    }
+
+    /**
+     * Writes the index, the word counts, and the results of the queries to the outputs
+     * given by the command-line arguments, if any.
+     *
+     * @param argParser the parsed command-line arguments
+     * @param invertedIndex the index to write and search
+     * @param queryBuilder the query builder that searches the index
+     */
+    private static void writeOutputs(ArgumentParser argParser, InvertedIndex invertedIndex,
+                                     QueryBuilder queryBuilder) {
         if (argParser.hasFlag("-index")) {
 
             Path indexPath = argParser.getPath("-index", Path.of("index.json"));
@@ -102,32 +419,5 @@ public class Driver {
                 System.out.println("Error, cannot check nor write for results to JSON format. ");
             }
         }
-        if (argParser.hasFlag("-threads")) {
-
-            Path thread = argParser.getPath("-threads");
-            int numThreads;
-            if (thread != null) {
-                try {
-                    numThreads = Integer.parseInt(thread.toString());
-                    System.out.println("hi " + thread.toString());
-                }
-                catch (NumberFormatException e) {
-                    numThreads = 5;
-                }
-                if (numThreads > 0) {
-                    WorkQueue workers = new WorkQueue(numThreads);
-                    MultithreadIndexBuilder threadBuilder =
-                            new MultithreadIndexBuilder(thread, threadIndex, workers);
-                    threadBuilder.shutDownWorkers();
-                    workers.shutdown();
-                }
-            }
-            else {
-                System.out.println("Unable to make threads with thread");
-                return;
-            }
-        }
-
     }
 }
-
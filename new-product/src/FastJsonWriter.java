@@ -0,0 +1,278 @@
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+
+/**
+ * FastJsonWriter
+ *
+ * Writes the inverted index in exactly the same "pretty" JSON format as
+ * {@link SimpleJsonWriter#asBigNestedObject(Map, Writer, int)}, but fast enough for
+ * indexes that are several gigabytes of JSON. Everything is written into one large
+ * char buffer that is reused for the whole file, indents are precomputed Strings
+ * instead of loops, and positions are turned into digits directly in the buffer
+ * instead of through Integer and String objects.
+ *
+ * Like SimpleJsonWriter, keys are written as they are without escaping.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class FastJsonWriter implements Closeable, Flushable {
+
+    /** The default size of the char buffer. */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    /** The largest indent level that is precomputed. */
+    private static final int MAX_INDENT = 16;
+
+    /** The indents from zero to {@link #MAX_INDENT} tabs. */
+    private static final String[] INDENTS = new String[MAX_INDENT + 1];
+
+    static {
+        for (int i = 0; i <= MAX_INDENT; i++) {
+            INDENTS[i] = "\t".repeat(i);
+        }
+    }
+
+    /** The writer the buffer is flushed to. */
+    private final Writer writer;
+
+    /** The buffer of chars not yet passed to the writer. */
+    private final char[] buffer;
+
+    /** The number of chars used in the buffer. */
+    private int used;
+
+    /**
+     * Constructor of a FastJsonWriter with the default buffer size.
+     *
+     * @param writer the writer to write the JSON to
+     */
+    public FastJsonWriter(Writer writer) {
+        this(writer, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructor of a FastJsonWriter with the buffer size passed in.
+     *
+     * @param writer the writer to write the JSON to
+     * @param bufferSize the number of chars to buffer; at least 16
+     */
+    public FastJsonWriter(Writer writer, int bufferSize) {
+        this.writer = writer;
+        this.buffer = new char[Math.max(16, bufferSize)];
+        this.used = 0;
+    }
+
+    /**
+     * Writes all stemmed keywords and respective values (paths and positions) as one large
+     * nested JSON object, the same as {@link SimpleJsonWriter#asBigNestedObject(Map, Writer, int)}
+     * does at level 0.
+     *
+     * @param elements the data structure of keywords and respective appearances in files
+     * @throws IOException thrown in case invalid input provided/output returned
+     */
+    public void writeIndex(Map<String, ? extends Map<String, ? extends Collection<Integer>>> elements)
+            throws IOException {
+        write("{\n");
+        var iterator = elements.entrySet().iterator();
+        if (iterator.hasNext()) {
+            var entry = iterator.next();
+            quote(entry.getKey(), 1);
+            write(": ");
+            writeLocations(entry.getValue(), 1);
+        }
+        while (iterator.hasNext()) {
+            var entry = iterator.next();
+            write(",\n");
+            quote(entry.getKey(), 1);
+            write(": ");
+            writeLocations(entry.getValue(), 1);
+        }
+        write("\n}\n");
+    }
+
+    /**
+     * Writes the paths of a word and the positions in each as a nested JSON object.
+     *
+     * @param locations the paths mapped to positions
+     * @param level the indent level of the object
+     * @throws IOException thrown in case invalid input provided/output returned
+     */
+    private void writeLocations(Map<String, ? extends Collection<Integer>> locations, int level)
+            throws IOException {
+        write("{\n");
+        var iterator = locations.entrySet().iterator();
+        if (iterator.hasNext()) {
+            var entry = iterator.next();
+            quote(entry.getKey(), level + 1);
+            write(": ");
+            writePositions(entry.getValue(), level + 1);
+        }
+        while (iterator.hasNext()) {
+            var entry = iterator.next();
+            write(",\n");
+            quote(entry.getKey(), level + 1);
+            write(": ");
+            writePositions(entry.getValue(), level + 1);
+        }
+        write('\n');
+        indent(level);
+        write('}');
+    }
+
+    /**
+     * Writes positions as a JSON array, reading a PostingList without boxing.
+     *
+     * @param positions the positions to write
+     * @param level the indent level of the array
+     * @throws IOException thrown in case invalid input provided/output returned
+     */
+    private void writePositions(Collection<Integer> positions, int level) throws IOException {
+        write("[\n");
+        Iterator<Integer> iterator = positions.iterator();
+        if (iterator instanceof PrimitiveIterator.OfInt) {
+            PrimitiveIterator.OfInt ints = (PrimitiveIterator.OfInt) iterator;
+            if (ints.hasNext()) {
+                indent(level + 1);
+                writeInt(ints.nextInt());
+            }
+            while (ints.hasNext()) {
+                write(",\n");
+                indent(level + 1);
+                writeInt(ints.nextInt());
+            }
+        }
+        else {
+            if (iterator.hasNext()) {
+                indent(level + 1);
+                writeInt(iterator.next());
+            }
+            while (iterator.hasNext()) {
+                write(",\n");
+                indent(level + 1);
+                writeInt(iterator.next());
+            }
+        }
+        write('\n');
+        indent(level);
+        write(']');
+    }
+
+    /**
+     * Indents and then writes the element surrounded by {@code " "} quotation marks.
+     *
+     * @param element the element to write
+     * @param level the number of tabs to indent
+     * @throws IOException thrown in case invalid input provided/output returned
+     */
+    public void quote(String element, int level) throws IOException {
+        indent(level);
+        write('"');
+        write(element);
+        write('"');
+    }
+
+    /**
+     * Writes the {@code \t} tab symbol by the number of times specified.
+     *
+     * @param level the number of tabs to write
+     * @throws IOException thrown in case invalid input provided/output returned
+     */
+    public void indent(int level) throws IOException {
+        write(level <= MAX_INDENT ? INDENTS[level] : "\t".repeat(level));
+    }
+
+    /**
+     * Writes the decimal digits of an int straight into the buffer.
+     *
+     * @param value the int to write
+     * @throws IOException thrown in case invalid input provided/output returned
+     */
+    public void writeInt(int value) throws IOException {
+        if (value == Integer.MIN_VALUE) {
+            write(Integer.toString(value));
+            return;
+        }
+        if (buffer.length - used < 11) {
+            flushBuffer();
+        }
+        if (value < 0) {
+            buffer[used++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (int bound = 10; digits < 10 && value >= bound; bound *= 10) {
+            digits++;
+        }
+        int end = used + digits;
+        for (int i = end - 1; i >= used; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        used = end;
+    }
+
+    /**
+     * Writes a single char.
+     *
+     * @param c the char to write
+     * @throws IOException thrown in case invalid input provided/output returned
+     */
+    public void write(char c) throws IOException {
+        if (used == buffer.length) {
+            flushBuffer();
+        }
+        buffer[used++] = c;
+    }
+
+    /**
+     * Writes a String, copying it into the buffer unless it is larger than the buffer.
+     *
+     * @param text the String to write
+     * @throws IOException thrown in case invalid input provided/output returned
+     */
+    public void write(String text) throws IOException {
+        int length = text.length();
+        if (length > buffer.length - used) {
+            flushBuffer();
+            if (length > buffer.length) {
+                writer.write(text);
+                return;
+            }
+        }
+        text.getChars(0, length, buffer, used);
+        used += length;
+    }
+
+    /**
+     * Passes everything in the buffer to the writer.
+     *
+     * @throws IOException thrown in case invalid input provided/output returned
+     */
+    private void flushBuffer() throws IOException {
+        writer.write(buffer, 0, used);
+        used = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        }
+        finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,235 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * FingerprintSet
+ *
+ * A set of 64-bit fingerprints kept in one open-addressing table of primitive longs,
+ * so each member takes 8 bytes of table instead of a String and a hash set node. The
+ * table is at most three quarters full and grows by half when it gets there, so it is
+ * never less than half full either, and each member takes between 10.7 and 16 bytes.
+ *
+ * Checking whether a fingerprint is in the set never locks: it reads the current table,
+ * which is only replaced once a grown copy is complete. Fingerprints are added with a
+ * compare-and-set on their slot, under a read lock that only keeps them from racing
+ * with the table being grown.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class FingerprintSet {
+
+    /** The default number of fingerprints the set holds before it grows. */
+    public static final int DEFAULT_EXPECTED = 1024;
+
+    /** The smallest table used. */
+    private static final int MIN_CAPACITY = 16;
+
+    /** The value of an empty slot. A fingerprint of zero is stored as {@link #ZERO}. */
+    private static final long EMPTY = 0L;
+
+    /** What a fingerprint of zero is stored as, so that it is not mistaken for an empty slot. */
+    private static final long ZERO = 0x9E3779B97F4A7C15L;
+
+    /** The table of fingerprints. */
+    private volatile AtomicLongArray table;
+
+    /** The number of fingerprints in the set. */
+    private final AtomicInteger size;
+
+    /** Shared by adds, held alone while the table is grown. */
+    private final ReentrantReadWriteLock resizeLock;
+
+    /**
+     * Constructor of an empty set sized for the default number of fingerprints.
+     */
+    public FingerprintSet() {
+        this(DEFAULT_EXPECTED);
+    }
+
+    /**
+     * Constructor of an empty set sized to hold the number of fingerprints passed in
+     * before it has to grow.
+     *
+     * @param expected the number of fingerprints expected
+     */
+    public FingerprintSet(int expected) {
+        long capacity = Math.max(MIN_CAPACITY, (long) Math.max(0, expected) * 4 / 3 + 1);
+        this.table = new AtomicLongArray((int) Math.min(capacity, Integer.MAX_VALUE - 8));
+        this.size = new AtomicInteger();
+        this.resizeLock = new ReentrantReadWriteLock();
+    }
+
+    /**
+     * Checks whether a fingerprint is in the set, without locking.
+     *
+     * @param fingerprint the fingerprint to look for
+     * @return true if the fingerprint has been added; false otherwise
+     */
+    public boolean contains(long fingerprint) {
+        long key = key(fingerprint);
+        AtomicLongArray current = table;
+        int capacity = current.length();
+        for (int i = slot(key, capacity); ; i = i + 1 < capacity ? i + 1 : 0) {
+            long value = current.get(i);
+            if (value == key) {
+                return true;
+            }
+            if (value == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Adds a fingerprint to the set, if it is not already there.
+     *
+     * @param fingerprint the fingerprint to add
+     * @return true if the fingerprint was added; false if it was already in the set
+     */
+    public boolean add(long fingerprint) {
+        long key = key(fingerprint);
+        int capacity;
+        resizeLock.readLock().lock();
+        try {
+            AtomicLongArray current = table;
+            capacity = current.length();
+            if (!insert(current, key)) {
+                return false;
+            }
+        }
+        finally {
+            resizeLock.readLock().unlock();
+        }
+        if ((long) size.incrementAndGet() * 4 > (long) capacity * 3) {
+            grow();
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of fingerprints in the set.
+     *
+     * @return the number of fingerprints
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Returns the number of slots in the table, each of which takes 8 bytes.
+     *
+     * @return the number of slots
+     */
+    public int capacity() {
+        return table.length();
+    }
+
+    /**
+     * Computes a 64-bit fingerprint of a string: FNV-1a over its characters followed by
+     * the MurmurHash3 finalizer, so that every bit of the result depends on every character.
+     *
+     * @param text the string to fingerprint
+     * @return the fingerprint
+     */
+    public static long fingerprint(CharSequence text) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * The MurmurHash3 64-bit finalizer.
+     *
+     * @param hash the value to mix
+     * @return the mixed value
+     */
+    public static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Inserts a key into a table with a compare-and-set on the first empty slot of its
+     * probe sequence.
+     *
+     * @param current the table to insert into
+     * @param key the key to insert
+     * @return true if the key was inserted; false if it was already there
+     */
+    private static boolean insert(AtomicLongArray current, long key) {
+        int capacity = current.length();
+        for (int i = slot(key, capacity); ; i = i + 1 < capacity ? i + 1 : 0) {
+            long value = current.get(i);
+            if (value == key) {
+                return false;
+            }
+            if (value == EMPTY) {
+                if (current.compareAndSet(i, EMPTY, key)) {
+                    return true;
+                }
+                if (current.get(i) == key) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the table into one half again as large, if it is still more than three
+     * quarters full once no adds are running, then replaces the table with the copy.
+     */
+    private void grow() {
+        resizeLock.writeLock().lock();
+        try {
+            AtomicLongArray current = table;
+            int capacity = current.length();
+            if ((long) size.get() * 4 <= (long) capacity * 3) {
+                return;
+            }
+            AtomicLongArray grown = new AtomicLongArray(
+                    (int) Math.min((long) capacity * 3 / 2 + 1, Integer.MAX_VALUE - 8));
+            for (int i = 0; i < capacity; i++) {
+                long value = current.get(i);
+                if (value != EMPTY) {
+                    insert(grown, value);
+                }
+            }
+            table = grown;
+        }
+        finally {
+            resizeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the key a fingerprint is stored as.
+     *
+     * @param fingerprint the fingerprint
+     * @return the fingerprint, or {@link #ZERO} if it is zero
+     */
+    private static long key(long fingerprint) {
+        return fingerprint != EMPTY ? fingerprint : ZERO;
+    }
+
+    /**
+     * Returns the first slot of the probe sequence of a key, scaling the upper 32 bits
+     * of the key into the table rather than taking a remainder, so that the table does
+     * not need to be a power of two.
+     *
+     * @param key the key
+     * @param capacity the number of slots in the table
+     * @return the first slot to probe
+     */
+    private static int slot(long key, int capacity) {
+        return (int) (((key >>> 32) * capacity) >>> 32);
+    }
+}
@@ -0,0 +1,391 @@
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * HostScheduler
+ *
+ * Decides when each fetch of a crawl may start, so that no host is sent requests faster
+ * than it should be. Every host has its own queue of fetches, which start in the order
+ * they were submitted, and a host is sent at most a set number of requests at once with
+ * at least a set delay between the start of one request and the next. Across every host,
+ * at most a set number of requests are in flight at once.
+ *
+ * A fetch that may start is handed to the work queue. A host that has to wait out its
+ * delay is placed on a {@link TimingWheel}, and one background thread sleeps until the
+ * next tick of the wheel and releases every host whose delay has passed, so no thread
+ * spins waiting on a host. Hosts that are ready while the number of requests in flight
+ * is at its cap wait their turn, first come first served.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class HostScheduler {
+
+    /** The default delay between requests to the same host, in milliseconds. */
+    public static final long DEFAULT_DELAY_MILLIS = 0;
+
+    /** The length of a tick of the timing wheel, in milliseconds. */
+    public static final long TICK_MILLIS = 5;
+
+    /** The number of ticks in a turn of the timing wheel. */
+    private static final int WHEEL_SLOTS = 512;
+
+    /** The queue the fetches are run on. */
+    private final TaskQueue queue;
+
+    /** The delay between the start of one request to a host and the next, in nanoseconds. */
+    private final long delayNanos;
+
+    /** The most requests in flight to one host at once. */
+    private final int perHost;
+
+    /** The most requests in flight at once across every host. */
+    private final int maxInFlight;
+
+    /** Guards everything below. */
+    private final ReentrantLock lock;
+
+    /** Signaled when a host is placed on an empty wheel or the scheduler is shut down. */
+    private final Condition ticked;
+
+    /** Signaled when every fetch submitted has finished. */
+    private final Condition finished;
+
+    /** The hosts with fetches waiting or in flight. */
+    private final HashMap<String, Host> hosts;
+
+    /** Hosts that may start a fetch, waiting for the number in flight to drop below its cap. */
+    private final ArrayDeque<Host> ready;
+
+    /** Hosts waiting out their delay. */
+    private final TimingWheel<Host> wheel;
+
+    /** Releases hosts from the wheel as their delay passes. */
+    private final Thread ticker;
+
+    /** The number of fetches in flight across every host. */
+    private int inFlight;
+
+    /** The number of fetches submitted that have not finished. */
+    private int pending;
+
+    /** Used to signal the scheduler should be shutdown. */
+    private boolean shutdown;
+
+    /**
+     * Constructor of a scheduler with no delay that lets each host and all hosts together
+     * have as many requests in flight as the work queue has threads.
+     *
+     * @param queue the queue the fetches are run on
+     */
+    public HostScheduler(TaskQueue queue) {
+        this(queue, DEFAULT_DELAY_MILLIS, queue.size(), queue.size());
+    }
+
+    /**
+     * Constructor of a scheduler.
+     *
+     * @param queue the queue the fetches are run on
+     * @param delayMillis the delay between the start of one request to a host and the next
+     * @param perHost the most requests in flight to one host at once; at least 1
+     * @param maxInFlight the most requests in flight at once across every host; at least 1
+     */
+    public HostScheduler(TaskQueue queue, long delayMillis, int perHost, int maxInFlight) {
+        this.queue = queue;
+        this.delayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis));
+        this.perHost = Math.max(1, perHost);
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.lock = new ReentrantLock();
+        this.ticked = lock.newCondition();
+        this.finished = lock.newCondition();
+        this.hosts = new HashMap<>();
+        this.ready = new ArrayDeque<>();
+        this.wheel = new TimingWheel<>(TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS), WHEEL_SLOTS, System.nanoTime());
+        this.ticker = new Thread(this::tick, "HostScheduler-wheel");
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+
+    /**
+     * Submits a fetch of a page, to be run on the work queue once its host allows it.
+     *
+     * @param uri the page the fetch is for
+     * @param fetch the fetch to run
+     */
+    public void submit(URI uri, Runnable fetch) {
+        ArrayList<Runnable> started = new ArrayList<>();
+        lock.lock();
+        try {
+            pending++;
+            Host host = hosts.computeIfAbsent(uri.getRawAuthority(), Host::new);
+            host.fetches.add(fetch);
+            reconsider(host, System.nanoTime());
+            pump(started);
+        }
+        finally {
+            lock.unlock();
+        }
+        started.forEach(queue::execute);
+    }
+
+    /**
+     * Waits until every fetch submitted, including those submitted by other fetches while
+     * waiting, has finished.
+     *
+     * @throws InterruptedException thrown in case the thread is interrupted while waiting
+     */
+    public void finish() throws InterruptedException {
+        lock.lock();
+        try {
+            while (pending > 0) {
+                finished.await();
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops releasing hosts from the wheel. Fetches already handed to the work queue are
+     * not affected, but fetches still waiting on their host will not start.
+     */
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            ticked.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of fetches in flight across every host.
+     *
+     * @return the number of fetches in flight
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the most requests let in flight at once across every host.
+     *
+     * @return the cap on requests in flight
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Returns the number of fetches submitted that have not finished.
+     *
+     * @return the number of pending fetches
+     */
+    public int getPending() {
+        lock.lock();
+        try {
+            return pending;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Places a host where it belongs: nowhere if it has nothing to start or is at its own
+     * cap (it is reconsidered when one of its fetches finishes), on the wheel if it is
+     * still within its delay, or else in line to start its next fetch.
+     *
+     * @param host the host to place
+     * @param now the current time, as given by {@link System#nanoTime()}
+     */
+    private void reconsider(Host host, long now) {
+        if (host.waiting || host.fetches.isEmpty() || host.inFlight >= perHost) {
+            return;
+        }
+        host.waiting = true;
+        if (now - host.nextStart < 0) {
+            if (wheel.isEmpty()) {
+                ticked.signal();
+            }
+            wheel.schedule(host, host.nextStart);
+        }
+        else {
+            ready.add(host);
+        }
+    }
+
+    /**
+     * Forgets a host that has nothing waiting or in flight once its delay has passed.
+     * Until then it is kept on the wheel, so that a fetch submitted for it in the
+     * meantime still waits out the delay.
+     *
+     * @param host the idle host
+     * @param now the current time, as given by {@link System#nanoTime()}
+     */
+    private void retire(Host host, long now) {
+        if (now - host.nextStart >= 0) {
+            hosts.remove(host.name);
+            return;
+        }
+        host.waiting = true;
+        if (wheel.isEmpty()) {
+            ticked.signal();
+        }
+        wheel.schedule(host, host.nextStart);
+    }
+
+    /**
+     * Starts the next fetch of each host in line, until the number in flight reaches its
+     * cap. The fetches are collected rather than executed so that the work queue is never
+     * called while holding the lock.
+     *
+     * @param started the list the fetches to execute are added to
+     */
+    private void pump(ArrayList<Runnable> started) {
+        long now = System.nanoTime();
+        while (inFlight < maxInFlight && !ready.isEmpty()) {
+            Host host = ready.poll();
+            host.waiting = false;
+            Runnable fetch = host.fetches.poll();
+            host.inFlight++;
+            host.nextStart = now + delayNanos;
+            inFlight++;
+            started.add(() -> run(host, fetch));
+            reconsider(host, now);
+        }
+    }
+
+    /**
+     * Runs a fetch, then lets its host and the next host in line start another. The delay
+     * of the host is counted again from when the fetch actually starts, since a worker
+     * may not pick it up the moment it is handed to the work queue.
+     *
+     * @param host the host of the fetch
+     * @param fetch the fetch to run
+     */
+    private void run(Host host, Runnable fetch) {
+        if (delayNanos > 0) {
+            lock.lock();
+            try {
+                long next = System.nanoTime() + delayNanos;
+                if (next - host.nextStart > 0) {
+                    host.nextStart = next;
+                }
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+        try {
+            fetch.run();
+        }
+        finally {
+            ArrayList<Runnable> started = new ArrayList<>();
+            lock.lock();
+            try {
+                host.inFlight--;
+                inFlight--;
+                pending--;
+                long now = System.nanoTime();
+                if (host.inFlight == 0 && host.fetches.isEmpty() && !host.waiting) {
+                    retire(host, now);
+                }
+                reconsider(host, now);
+                pump(started);
+                if (pending == 0) {
+                    finished.signalAll();
+                }
+            }
+            finally {
+                lock.unlock();
+            }
+            started.forEach(queue::execute);
+        }
+    }
+
+    /**
+     * Sleeps until the next tick of the wheel while any host is on it, and releases the
+     * hosts whose delay has passed. Sleeps until signaled while the wheel is empty.
+     */
+    private void tick() {
+        while (true) {
+            ArrayList<Runnable> started = new ArrayList<>();
+            lock.lock();
+            try {
+                if (shutdown) {
+                    return;
+                }
+                if (wheel.isEmpty()) {
+                    ticked.await();
+                }
+                else {
+                    ticked.awaitNanos(wheel.nanosUntilNextTick(System.nanoTime()));
+                }
+                long now = System.nanoTime();
+                wheel.advance(now, host -> {
+                    host.waiting = false;
+                    if (host.inFlight == 0 && host.fetches.isEmpty()) {
+                        retire(host, now);
+                    }
+                    reconsider(host, now);
+                });
+                pump(started);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            finally {
+                lock.unlock();
+            }
+            started.forEach(queue::execute);
+        }
+    }
+
+    /**
+     * The fetches waiting for one host and when it may next be sent a request.
+     */
+    private static class Host {
+
+        /** The host and port, as in the authority of a URI. */
+        private final String name;
+
+        /** The fetches waiting to start, in the order they were submitted. */
+        private final ArrayDeque<Runnable> fetches;
+
+        /** The number of requests in flight to this host. */
+        private int inFlight;
+
+        /** When the next request may start, as given by {@link System#nanoTime()}. */
+        private long nextStart;
+
+        /** Whether this host is on the wheel or in line to start a fetch. */
+        private boolean waiting;
+
+        /**
+         * Constructor of a host with no fetches.
+         *
+         * @param name the host and port
+         */
+        public Host(String name) {
+            this.name = name;
+            this.fetches = new ArrayDeque<>();
+            this.nextStart = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+import java.util.regex.Pattern;
+
+/**
+ * HtmlCleaner
+ *
+ * Decodes the character entities found in the text and links of a web page, so the text
+ * can be parsed and stemmed just like a text file. Numeric entities and the most common
+ * named ones are decoded; the tags themselves are read by {@link HtmlStreamParser}.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class HtmlCleaner {
+
+    /** Matches a numeric character entity. */
+    private static final Pattern NUMERIC_ENTITY_REGEX = Pattern.compile("&#(x[0-9a-fA-F]+|[0-9]+);");
+
+    /** Matches a named character entity. */
+    private static final Pattern NAMED_ENTITY_REGEX = Pattern.compile("&([a-zA-Z]+);");
+
+    /**
+     * Decodes numeric character entities and the most common named ones. Any other
+     * named entity is replaced by a space.
+     *
+     * @param text the text to decode
+     * @return the decoded text
+     */
+    public static String stripEntities(String text) {
+        String decoded = NUMERIC_ENTITY_REGEX.matcher(text).replaceAll(match -> decodeEntity("#" + match.group(1)));
+        return NAMED_ENTITY_REGEX.matcher(decoded).replaceAll(match -> decodeEntity(match.group(1)));
+    }
+
+    /**
+     * Decodes one character entity, numeric or named. An entity that is not known or
+     * is not a valid character is decoded as a space.
+     *
+     * @param entity the entity, without the ampersand and semicolon
+     * @return the characters it stands for
+     */
+    public static String decodeEntity(CharSequence entity) {
+        if (entity.length() > 1 && entity.charAt(0) == '#') {
+            boolean hex = entity.charAt(1) == 'x' || entity.charAt(1) == 'X';
+            try {
+                int codePoint = Integer.parseInt(entity, hex ? 2 : 1, entity.length(), hex ? 16 : 10);
+                return Character.isValidCodePoint(codePoint) ? Character.toString(codePoint) : " ";
+            }
+            catch (NumberFormatException e) {
+                return " ";
+            }
+        }
+        String named = decodeNamed(entity.toString());
+        return named != null ? named : " ";
+    }
+
+    /**
+     * Decodes one of the most common named character entities.
+     *
+     * @param name the name of the entity, without the ampersand and semicolon
+     * @return the character it stands for, or {@code null} if it is not known
+     */
+    public static String decodeNamed(String name) {
+        switch (name) {
+            case "amp":
+                return "&";
+            case "lt":
+                return "<";
+            case "gt":
+                return ">";
+            case "quot":
+                return "\"";
+            case "apos":
+                return "'";
+            case "nbsp":
+                return " ";
+            case "ndash":
+                return "–";
+            case "mdash":
+                return "—";
+            case "copy":
+                return "©";
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.time.Duration;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * HtmlFetcher
+ *
+ * Fetches web pages over HTTP or HTTPS and streams their HTML as it arrives. Only pages
+ * that are found (status 200) and are served as HTML are returned, following any
+ * redirects along the way. One fetcher, and the connections it keeps open to each server, is
+ * meant to be shared by every thread of a crawl.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class HtmlFetcher {
+
+    /** Matches the charset parameter of a content type. */
+    private static final Pattern CHARSET_REGEX = Pattern.compile("(?i);\\s*charset\\s*=\\s*\"?([^\\s;\"]+)");
+
+    /** The default time to wait to connect to a server or for a response. */
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(10);
+
+    /** The client that fetches the pages. */
+    private final HttpClient client;
+
+    /** The time to wait for a response. */
+    private final Duration timeout;
+
+    /**
+     * Constructor of a fetcher with the default timeout.
+     */
+    public HtmlFetcher() {
+        this(DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Constructor of a fetcher with the timeout passed in.
+     *
+     * @param timeout the time to wait to connect to a server or for a response
+     */
+    public HtmlFetcher(Duration timeout) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(timeout)
+                .build();
+        this.timeout = timeout;
+    }
+
+    /**
+     * Fetches the page at the URI without reading its body, so that the HTML can be
+     * read as it arrives. The body of a page that is not HTML is closed right away.
+     * The caller must close the body of the response returned. The URI of the response
+     * is where the page was found after any redirects, which is what relative links in
+     * it are relative to.
+     *
+     * @param uri the page to fetch
+     * @return the response whose body streams the HTML of the page, or {@code null} if
+     *         it was not found or is not HTML
+     * @throws IOException thrown in case the page cannot be fetched
+     * @throws InterruptedException thrown in case the thread is interrupted while waiting
+     */
+    public HttpResponse<InputStream> fetchStream(URI uri) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(timeout).GET().build();
+        HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        if (isHtml(response)) {
+            return response;
+        }
+        response.body().close();
+        return null;
+    }
+
+    /**
+     * Returns the charset given in the content type of a response, or UTF-8 if there is
+     * none or it is not supported.
+     *
+     * @param response the response
+     * @return the charset of the body
+     */
+    public static Charset getCharset(HttpResponse<?> response) {
+        Matcher matcher = CHARSET_REGEX.matcher(response.headers().firstValue("Content-Type").orElse(""));
+        if (matcher.find()) {
+            try {
+                return Charset.forName(matcher.group(1));
+            }
+            catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+                return StandardCharsets.UTF_8;
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Determines whether a response is a page that was found and is served as HTML.
+     *
+     * @param response the response to check
+     * @return true if the status is 200 and the content type is HTML; false otherwise
+     */
+    public static boolean isHtml(HttpResponse<?> response) {
+        return response.statusCode() == 200 && response.headers().firstValue("Content-Type")
+                .map(type -> type.toLowerCase().startsWith("text/html"))
+                .orElse(false);
+    }
+}
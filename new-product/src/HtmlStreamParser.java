@@ -0,0 +1,383 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * HtmlStreamParser
+ *
+ * Reads the HTML of a web page one buffer at a time and passes on the text a reader would
+ * see, without ever holding the whole page. Comments, the contents of scripts and styles,
+ * and the contents of elements that are never shown are skipped, character entities are
+ * decoded with {@link HtmlCleaner}, and every tag ends the text before it. The href of every anchor tag is passed to a separate callback as
+ * it is found.
+ *
+ * Text is passed on in pieces that end at a tag or at whitespace, so that no word is split
+ * between two pieces, and each piece is at most the size of the buffer. A piece is backed
+ * by a buffer that is reused for the next piece, so it must be copied if it is kept. The
+ * memory used to parse a page is therefore fixed no matter how large the page is.
+ *
+ * Each HtmlStreamParser keeps its own buffers and is not safe to share between threads.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class HtmlStreamParser {
+
+    /** The default size of the buffers used for input, text, and tags, in chars. */
+    public static final int DEFAULT_BUFFER = 4096;
+
+    /** The longest entity that is decoded, without the ampersand and semicolon. */
+    private static final int MAX_ENTITY = 32;
+
+    /** Matches the href attribute of a tag, quoted with either quote or not at all. */
+    private static final Pattern HREF_REGEX = Pattern.compile(
+            "(?is)\\shref\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\s>]+))");
+
+    /** Reading text. */
+    private static final int TEXT = 0;
+
+    /** Reading an entity, after its ampersand. */
+    private static final int ENTITY = 1;
+
+    /** Reading a tag, after its opening angle bracket. */
+    private static final int TAG = 2;
+
+    /** Reading a comment, after its opening {@code <!--}. */
+    private static final int COMMENT = 3;
+
+    /** Reading the contents of a script or style, up to its closing tag. */
+    private static final int RAW = 4;
+
+    /** Called with each piece of text. */
+    private final Consumer<CharSequence> text;
+
+    /** Called with the href of each anchor tag, or {@code null} if links are not wanted. */
+    private final Consumer<String> links;
+
+    /** The size of the buffers. */
+    private final int limit;
+
+    /** The chars read from the page. */
+    private final char[] input;
+
+    /** The text read since the last piece was passed on. */
+    private final StringBuilder segment;
+
+    /** The tag being read, without its angle brackets; cut off at the size of the buffer. */
+    private final StringBuilder tag;
+
+    /** The entity being read, without its ampersand. */
+    private final StringBuilder entity;
+
+    /** What is being read. */
+    private int state;
+
+    /** The quote the current attribute value of a tag is in, or 0 if not in one. */
+    private char quote;
+
+    /** The closing tag that ends the script or style being read, such as {@code </script}. */
+    private String rawEnd;
+
+    /** The number of chars of the closing tag of the script or style matched so far. */
+    private int rawMatched;
+
+    /** The number of dashes in a row just read in a comment. */
+    private int dashes;
+
+    /** The number of elements that are never shown that the text is currently in. */
+    private int hidden;
+
+    /**
+     * Constructor of a parser with buffers of the default size.
+     *
+     * @param text called with each piece of text
+     * @param links called with the href of each anchor tag, or {@code null} if links are not wanted
+     */
+    public HtmlStreamParser(Consumer<CharSequence> text, Consumer<String> links) {
+        this(text, links, DEFAULT_BUFFER);
+    }
+
+    /**
+     * Constructor of a parser with buffers of the size passed in.
+     *
+     * @param text called with each piece of text
+     * @param links called with the href of each anchor tag, or {@code null} if links are not wanted
+     * @param limit the size of the buffers, in chars; at least {@link #MAX_ENTITY}
+     */
+    public HtmlStreamParser(Consumer<CharSequence> text, Consumer<String> links, int limit) {
+        this.text = text;
+        this.links = links;
+        this.limit = Math.max(MAX_ENTITY, limit);
+        this.input = new char[this.limit];
+        this.segment = new StringBuilder(this.limit);
+        this.tag = new StringBuilder(this.limit);
+        this.entity = new StringBuilder(MAX_ENTITY);
+    }
+
+    /**
+     * Reads a page to its end, passing on its text and links.
+     *
+     * @param reader the HTML of the page
+     * @throws IOException thrown in case the page cannot be read
+     */
+    public void parse(Reader reader) throws IOException {
+        state = TEXT;
+        hidden = 0;
+        segment.setLength(0);
+        int read;
+        while ((read = reader.read(input)) != -1) {
+            for (int i = 0; i < read; i++) {
+                accept(input[i]);
+            }
+        }
+        if (state == ENTITY) {
+            appendText('&');
+            appendText(entity);
+        }
+        flushText();
+    }
+
+    /**
+     * Reads one char of the page.
+     *
+     * @param c the char to read
+     */
+    private void accept(char c) {
+        switch (state) {
+            case TEXT:
+                if (c == '<') {
+                    flushText();
+                    tag.setLength(0);
+                    quote = 0;
+                    state = TAG;
+                }
+                else if (c == '&') {
+                    entity.setLength(0);
+                    state = ENTITY;
+                }
+                else {
+                    appendText(c);
+                }
+                break;
+            case ENTITY:
+                if (c == ';' && entity.length() > 0) {
+                    appendText(HtmlCleaner.decodeEntity(entity));
+                    state = TEXT;
+                }
+                else if ((Character.isLetterOrDigit(c) || c == '#') && entity.length() < MAX_ENTITY) {
+                    entity.append(c);
+                }
+                else {
+                    appendText('&');
+                    appendText(entity);
+                    state = TEXT;
+                    accept(c);
+                }
+                break;
+            case TAG:
+                acceptTag(c);
+                break;
+            case COMMENT:
+                if (c == '>' && dashes >= 2) {
+                    state = TEXT;
+                }
+                dashes = c == '-' ? dashes + 1 : 0;
+                break;
+            case RAW:
+                acceptRaw(c);
+                break;
+            default:
+                throw new IllegalStateException("Unknown state: " + state);
+        }
+    }
+
+    /**
+     * Reads one char of a tag. A {@code <} that is not followed by a letter, {@code /},
+     * {@code !}, or {@code ?} does not start a tag and is read as text.
+     *
+     * @param c the char to read
+     */
+    private void acceptTag(char c) {
+        if (tag.length() == 0 && !Character.isLetter(c) && c != '/' && c != '!' && c != '?') {
+            state = TEXT;
+            appendText('<');
+            accept(c);
+            return;
+        }
+        if (quote != 0) {
+            if (c == quote) {
+                quote = 0;
+            }
+        }
+        else if (c == '>') {
+            endTag();
+            return;
+        }
+        else if ((c == '"' || c == '\'') && lastInTag() == '=') {
+            quote = c;
+        }
+        if (tag.length() < limit) {
+            tag.append(c);
+        }
+        if (tag.length() == 3 && tag.charAt(0) == '!' && tag.charAt(1) == '-' && tag.charAt(2) == '-') {
+            dashes = 0;
+            state = COMMENT;
+        }
+    }
+
+    /**
+     * Returns the last char of the tag read so far that is not whitespace.
+     *
+     * @return the last char that is not whitespace, or 0 if there is none
+     */
+    private char lastInTag() {
+        for (int i = tag.length() - 1; i >= 0; i--) {
+            if (!Character.isWhitespace(tag.charAt(i))) {
+                return tag.charAt(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Reads one char of the contents of a script or style, looking for its closing tag.
+     * Once the closing tag is found the rest of it is read as a tag.
+     *
+     * @param c the char to read
+     */
+    private void acceptRaw(char c) {
+        if (Character.toLowerCase(c) == rawEnd.charAt(rawMatched)) {
+            rawMatched++;
+            if (rawMatched == rawEnd.length()) {
+                tag.setLength(0);
+                tag.append(rawEnd, 1, rawEnd.length());
+                quote = 0;
+                state = TAG;
+            }
+        }
+        else {
+            rawMatched = c == '<' ? 1 : 0;
+        }
+    }
+
+    /**
+     * Handles a tag once its closing angle bracket is read: starts skipping the contents
+     * of a script, style, or element that is never shown, stops skipping at the end of
+     * an element that is never shown, and passes on the href of an anchor tag.
+     */
+    private void endTag() {
+        state = TEXT;
+        boolean closing = tag.length() > 0 && tag.charAt(0) == '/';
+        int start = closing ? 1 : 0;
+        int end = start;
+        while (end < tag.length() && !Character.isWhitespace(tag.charAt(end)) && tag.charAt(end) != '/') {
+            end++;
+        }
+        String name = tag.substring(start, end).toLowerCase(Locale.ROOT);
+        boolean selfClosing = tag.length() > 0 && tag.charAt(tag.length() - 1) == '/';
+        if (closing) {
+            if (isHidden(name) && hidden > 0) {
+                hidden--;
+            }
+            return;
+        }
+        switch (name) {
+            case "script":
+            case "style":
+                if (!selfClosing) {
+                    rawEnd = "</" + name;
+                    rawMatched = 0;
+                    state = RAW;
+                }
+                break;
+            case "body":
+                hidden = 0;
+                break;
+            case "a":
+                if (links != null) {
+                    Matcher matcher = HREF_REGEX.matcher(tag);
+                    if (matcher.find()) {
+                        String href = matcher.group(1) != null ? matcher.group(1) :
+                                matcher.group(2) != null ? matcher.group(2) : matcher.group(3);
+                        links.accept(HtmlCleaner.stripEntities(href));
+                    }
+                }
+                break;
+            default:
+                if (isHidden(name) && !selfClosing) {
+                    hidden++;
+                }
+        }
+    }
+
+    /**
+     * Determines whether the contents of an element are never shown, although they are
+     * still markup. The start of the body ends all of them, in case the head was never
+     * closed.
+     *
+     * @param name the lowercase name of the element
+     * @return true if the contents of the element are skipped; false otherwise
+     */
+    private static boolean isHidden(String name) {
+        return name.equals("head") || name.equals("noscript") || name.equals("svg") || name.equals("template");
+    }
+
+    /**
+     * Adds a char to the text, unless inside an element that is never shown. A space
+     * that is not whitespace to {@link Character#isWhitespace}, such as a no-break space,
+     * is added as a plain space. Passes on a piece of text first if the buffer is full.
+     *
+     * @param c the char to add
+     */
+    private void appendText(char c) {
+        if (hidden > 0) {
+            return;
+        }
+        if (segment.length() >= limit) {
+            flushFull();
+        }
+        segment.append(TextTokenizer.isSpace(c) ? ' ' : c);
+    }
+
+    /**
+     * Adds each char of some decoded text to the text.
+     *
+     * @param chars the chars to add
+     */
+    private void appendText(CharSequence chars) {
+        for (int i = 0; i < chars.length(); i++) {
+            appendText(chars.charAt(i));
+        }
+    }
+
+    /**
+     * Passes on the text read so far, if there is any.
+     */
+    private void flushText() {
+        if (segment.length() > 0) {
+            text.accept(segment);
+            segment.setLength(0);
+        }
+    }
+
+    /**
+     * Passes on the text of a full buffer up to its last whitespace, keeping the word
+     * after it for the next piece. A word as long as the whole buffer is passed on as it
+     * is, except for a trailing high surrogate, which waits for its pair.
+     */
+    private void flushFull() {
+        int split = segment.length();
+        while (split > 0 && segment.charAt(split - 1) != ' ') {
+            split--;
+        }
+        if (split == 0) {
+            split = Character.isHighSurrogate(segment.charAt(segment.length() - 1)) ?
+                    segment.length() - 1 : segment.length();
+        }
+        text.accept(segment.subSequence(0, split));
+        segment.delete(0, split);
+    }
+}
@@ -0,0 +1,165 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.stream.Stream;
+
+/**
+ * IncrementalIndexBuilder
+ *
+ * Brings an index that was already built from a path up to date with the files under
+ * that path now, using the {@link IndexManifest} written when the index was saved.
+ * A file with the same size and modified time as before is skipped without being read.
+ * A file whose size or modified time changed is read once, and its contents are hashed
+ * and only indexed again if they really changed, replacing its old positions in the
+ * index. The hash recorded in the manifest is always of the bytes that were indexed,
+ * even if the file is written to again in the meantime. Files that are no longer under
+ * the path are removed from the index.
+ *
+ * A detector set on this builder should have seen every file already in the index. The
+ * files that are added or changed go through it, and the near-duplicates of a file that
+ * is changed or removed are indexed again.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class IncrementalIndexBuilder extends InvertedIndexBuilder {
+
+    /** The index that is brought up to date. */
+    private final InvertedIndex index;
+
+    /** The manifest of the files in the index, updated as files are indexed. */
+    private final IndexManifest manifest;
+
+    /** The number of files that were new. */
+    private int added;
+
+    /** The number of files that were indexed again since their contents changed. */
+    private int modified;
+
+    /** The number of files that were removed since they no longer exist. */
+    private int removed;
+
+    /** The number of files that were skipped since they did not change. */
+    private int unchanged;
+
+    /**
+     * Constructor for a builder that brings the index up to date from the manifest
+     * that was saved with it.
+     *
+     * @param index the index that was built before
+     * @param manifest the manifest of the files in that index
+     */
+    public IncrementalIndexBuilder(InvertedIndex index, IndexManifest manifest) {
+        super(index);
+        this.index = index;
+        this.manifest = manifest;
+    }
+
+    /**
+     * Indexes the files under the path that were added or changed since the manifest
+     * was written, and removes the files that were changed or deleted from the index.
+     *
+     * @param inputPath the path that is checked
+     * @throws IOException thrown in case a file cannot be read through or if invalid input
+     */
+    @Override
+    public void buildIndexFromPath(Path inputPath) throws IOException {
+        NearDuplicateDetector detector = getDetector();
+        ArrayDeque<String> freed = new ArrayDeque<>();
+        HashSet<String> found = new HashSet<>();
+        for (Path file : TextFileFinder.list(inputPath)) {
+            String path = file.toString();
+            found.add(path);
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            IndexManifest.Entry previous = manifest.get(path);
+            if (previous != null && previous.matches(attributes)) {
+                unchanged++;
+                continue;
+            }
+            byte[] contents = Files.readAllBytes(file);
+            String hash = IndexManifest.hash(contents);
+            IndexManifest.Entry current = new IndexManifest.Entry(attributes.size(),
+                    attributes.lastModifiedTime().toMillis(), hash);
+            if (previous != null && previous.getHash().equals(hash)) {
+                manifest.put(path, current);
+                unchanged++;
+                continue;
+            }
+            HashMap<String, PostingList> words = stemLines(decode(contents)::iterator);
+            if (detector != null) {
+                freed.addAll(replaceFile(path, words, index, detector));
+            }
+            else if (previous != null) {
+                index.replaceDocument(path, words);
+            }
+            else {
+                index.addAll(words, path);
+            }
+            if (previous != null) {
+                modified++;
+            }
+            else {
+                added++;
+            }
+            manifest.put(path, current);
+        }
+
+        ArrayList<String> deleted = new ArrayList<>();
+        for (String path : manifest.getPaths()) {
+            if (!found.contains(path) && Path.of(path).startsWith(inputPath)) {
+                deleted.add(path);
+            }
+        }
+        for (String path : deleted) {
+            index.removeDocument(path);
+            if (detector != null) {
+                freed.addAll(detector.forget(path));
+            }
+            manifest.remove(path);
+            removed++;
+        }
+
+        while (!freed.isEmpty()) {
+            String path = freed.poll();
+            if (found.contains(path)) {
+                byte[] contents = Files.readAllBytes(Path.of(path));
+                freed.addAll(replaceFile(path, stemLines(decode(contents)::iterator), index, detector));
+            }
+        }
+    }
+
+    /**
+     * Decodes the contents of a file as UTF-8 into its lines, split the same way as
+     * {@link java.io.BufferedReader#readLine()} splits them.
+     *
+     * @param contents the contents of a file
+     * @return the lines of the file
+     * @throws IOException thrown in case the contents are not valid UTF-8
+     */
+    private static Stream<String> decode(byte[] contents) throws IOException {
+        return StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(contents)).toString().lines();
+    }
+
+    /**
+     * Returns the manifest of the files in the index, including the changes made by
+     * {@link #buildIndexFromPath(Path)}.
+     *
+     * @return the up to date manifest
+     */
+    public IndexManifest getManifest() {
+        return manifest;
+    }
+
+    @Override
+    public String toString() {
+        return "Added: " + added + " Modified: " + modified
+                + " Removed: " + removed + " Unchanged: " + unchanged;
+    }
+}
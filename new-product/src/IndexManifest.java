@@ -0,0 +1,267 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * IndexManifest
+ *
+ * Records the size, last modified time, and a hash of the contents of every file that
+ * was indexed, so that a later run can tell which files were added, changed, or
+ * deleted since and only index those again. It is written next to the index segment as
+ * a text file with one file per line:
+ *
+ * <pre>
+ * size, modified time in milliseconds, SHA-256 of the contents, path
+ * </pre>
+ *
+ * separated by tabs, with the path last so that it may contain any other character.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class IndexManifest {
+
+    /** The first line of every manifest file. */
+    private static final String HEADER = "# index manifest v1";
+
+    /** The extension added to the path of an index segment for its manifest. */
+    public static final String EXTENSION = ".manifest";
+
+    /** The size of the buffer used to hash a file. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** The entry of every file, keyed and sorted by path. */
+    private final TreeMap<String, Entry> entries;
+
+    /** Constructor of an empty manifest. */
+    public IndexManifest() {
+        this.entries = new TreeMap<>();
+    }
+
+    /**
+     * Returns the path of the manifest that belongs to an index segment.
+     *
+     * @param segment the path of the index segment
+     * @return the path of its manifest
+     */
+    public static Path pathOf(Path segment) {
+        return segment.resolveSibling(segment.getFileName() + EXTENSION);
+    }
+
+    /**
+     * Reads a manifest that was written with {@link #write(Path)}.
+     *
+     * @param path the manifest file to read
+     * @return the manifest that was read
+     * @throws IOException thrown in case the file cannot be read or is not a manifest
+     */
+    public static IndexManifest read(Path path) throws IOException {
+        IndexManifest manifest = new IndexManifest();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(reader.readLine())) {
+                throw new IOException("Not a valid manifest file: " + path);
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", 4);
+                if (fields.length != 4) {
+                    throw new IOException("Not a valid manifest file: " + path);
+                }
+                try {
+                    manifest.entries.put(fields[3],
+                            new Entry(Long.parseLong(fields[0]), Long.parseLong(fields[1]), fields[2]));
+                }
+                catch (NumberFormatException e) {
+                    throw new IOException("Not a valid manifest file: " + path, e);
+                }
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Writes the manifest to a file.
+     *
+     * @param path the manifest file to write
+     * @throws IOException thrown in case the file cannot be written to
+     */
+    public void write(Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for (var entry : entries.entrySet()) {
+                Entry value = entry.getValue();
+                writer.write(value.size + "\t" + value.modified + "\t" + value.hash + "\t" + entry.getKey());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Builds a manifest of every text file under a path, hashing the contents of each.
+     *
+     * @param start the initial path to search
+     * @return the manifest of the text files found
+     * @throws IOException thrown in case a file cannot be read
+     */
+    public static IndexManifest scan(Path start) throws IOException {
+        IndexManifest manifest = new IndexManifest();
+        for (Path file : TextFileFinder.list(start)) {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            manifest.put(file.toString(), new Entry(attributes.size(),
+                    attributes.lastModifiedTime().toMillis(), hash(file)));
+        }
+        return manifest;
+    }
+
+    /**
+     * Returns the entry of a file.
+     *
+     * @param path the path of the file
+     * @return the entry of that file, or {@code null} if it is not in the manifest
+     */
+    public Entry get(String path) {
+        return entries.get(path);
+    }
+
+    /**
+     * Adds or replaces the entry of a file.
+     *
+     * @param path the path of the file
+     * @param entry the size, modified time, and hash of the file
+     */
+    public void put(String path, Entry entry) {
+        entries.put(path, entry);
+    }
+
+    /**
+     * Removes the entry of a file.
+     *
+     * @param path the path of the file
+     */
+    public void remove(String path) {
+        entries.remove(path);
+    }
+
+    /**
+     * Returns the path of every file in the manifest, sorted by path.
+     *
+     * @return an unmodifiable Collection of paths
+     */
+    public Collection<String> getPaths() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    /**
+     * Returns the number of files in the manifest.
+     *
+     * @return the number of files
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Computes the SHA-256 of the contents of a file.
+     *
+     * @param file the file to hash
+     * @return the hash as lowercase hex digits
+     * @throws IOException thrown in case the file cannot be read
+     */
+    public static String hash(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Computes the SHA-256 of contents that were already read, so that the hash is of
+     * exactly the bytes that are indexed.
+     *
+     * @param contents the contents of a file
+     * @return the hash as lowercase hex digits
+     */
+    public static String hash(byte[] contents) {
+        return HexFormat.of().formatHex(newDigest().digest(contents));
+    }
+
+    /**
+     * Returns a new SHA-256 digest.
+     *
+     * @return the digest
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The size, last modified time, and hash of the contents of a file.
+     */
+    public static class Entry {
+
+        /** The size of the file in bytes. */
+        private final long size;
+
+        /** The last modified time of the file in milliseconds. */
+        private final long modified;
+
+        /** The SHA-256 of the contents of the file as hex digits. */
+        private final String hash;
+
+        /**
+         * Constructor of an entry.
+         *
+         * @param size the size of the file in bytes
+         * @param modified the last modified time of the file in milliseconds
+         * @param hash the SHA-256 of the contents of the file as hex digits
+         */
+        public Entry(long size, long modified, String hash) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+        }
+
+        /**
+         * Determines whether a file still has the same size and modified time, in which
+         * case it is assumed not to have changed without reading it.
+         *
+         * @param attributes the current attributes of the file
+         * @return true if the size and modified time are the same
+         */
+        public boolean matches(BasicFileAttributes attributes) {
+            return size == attributes.size() && modified == attributes.lastModifiedTime().toMillis();
+        }
+
+        /**
+         * Returns the SHA-256 of the contents of the file.
+         *
+         * @return the hash as hex digits
+         */
+        public String getHash() {
+            return hash;
+        }
+    }
+}
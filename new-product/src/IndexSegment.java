@@ -0,0 +1,499 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * IndexSegment
+ *
+ * A read-only inverted index that is memory-mapped from a binary segment file, so
+ * that searches can be run right away without crawling and indexing the files again.
+ * Only the document table is read into memory when the segment is opened; words and
+ * positions are read from the mapped file as they are searched for.
+ *
+ * The segment file is laid out as follows, with every number written as a big-endian
+ * int and every String as its UTF-8 length followed by its UTF-8 bytes:
+ *
+ * <pre>
+ * header:     magic, version
+ * documents:  for each document ID: word count, path, number of alternate locations,
+ *             then each alternate location
+ * words:      for each word in sorted order: word, number of documents,
+ *             then for each document: document ID, PostingList
+ * word index: the offset of each word above, in the same order
+ * footer:     number of documents, number of words, documents offset, word index offset
+ * </pre>
+ *
+ * A segment can also be built in memory from an index with {@link #copyOf(InvertedIndex)},
+ * which gives a compact, read-only copy of the index as it was at that moment.
+ *
+ * A segment file is limited to 2GB since it is mapped as a single buffer.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class IndexSegment extends InvertedIndex {
+
+    /** The first int of every segment file, "WSCI" in ASCII. */
+    public static final int MAGIC = 0x57534349;
+
+    /** The version of the segment file layout. */
+    public static final int VERSION = 2;
+
+    /** The number of bytes in the header. */
+    private static final int HEADER_LENGTH = 8;
+
+    /** The number of bytes in the footer. */
+    private static final int FOOTER_LENGTH = 16;
+
+    /** The mapped segment file, only ever read with absolute gets so threads can share it. */
+    private final ByteBuffer buffer;
+
+    /** The number of words in the segment. */
+    private final int wordCount;
+
+    /** The offset of the word index in the segment. */
+    private final int wordIndexOffset;
+
+    /**
+     * Constructor of a segment from a mapped file and its document table.
+     *
+     * @param buffer the mapped segment file
+     * @param documents the document table read from the file
+     * @param wordCount the number of words in the segment
+     * @param wordIndexOffset the offset of the word index in the segment
+     */
+    private IndexSegment(ByteBuffer buffer, DocumentTable documents, int wordCount, int wordIndexOffset) {
+        super(documents);
+        this.buffer = buffer;
+        this.wordCount = wordCount;
+        this.wordIndexOffset = wordIndexOffset;
+    }
+
+    /**
+     * Opens a segment file that was written by {@link InvertedIndex#writeSegment(Path)},
+     * mapping it into memory read-only.
+     *
+     * @param path the segment file to open
+     * @return the segment that was opened
+     * @throws IOException thrown in case the file cannot be read or is not a segment file
+     */
+    public static IndexSegment open(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE || channel.size() < HEADER_LENGTH + FOOTER_LENGTH) {
+                throw new IOException("Not a valid segment file: " + path);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        return read(buffer, path.toString());
+    }
+
+    /**
+     * Creates an in-memory segment with every word, document, and position that is in
+     * the index at this moment. The segment does not change as the index does, and since
+     * it is read-only it can be searched by any number of threads without locking.
+     *
+     * @param index the index to copy
+     * @return a read-only copy of the index
+     * @throws UncheckedIOException thrown in case the index is too large for a single segment
+     */
+    public static IndexSegment copyOf(InvertedIndex index) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                write(index, out, "memory");
+            }
+            return read(ByteBuffer.wrap(bytes.toByteArray()), "memory");
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the header, footer, and document table of a segment, and checks that the
+     * footer agrees with where the document table and word index are, and that the words
+     * start right where the document table ends. A segment that was cut short or is
+     * corrupt in those parts is rejected as not a segment, rather than failing with
+     * whatever a read past the end would throw.
+     *
+     * @param buffer the whole segment
+     * @param source where the segment came from, for error messages
+     * @return the segment that was read
+     * @throws IOException thrown in case the buffer is not a segment
+     */
+    private static IndexSegment read(ByteBuffer buffer, String source) throws IOException {
+        if (buffer.limit() < HEADER_LENGTH + FOOTER_LENGTH
+                || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a valid segment file: " + source);
+        }
+        int footer = buffer.limit() - FOOTER_LENGTH;
+        int documentCount = buffer.getInt(footer);
+        int wordCount = buffer.getInt(footer + 4);
+        int offset = buffer.getInt(footer + 8);
+        int wordIndexOffset = buffer.getInt(footer + 12);
+        if (documentCount < 0 || wordCount < 0 || offset < HEADER_LENGTH || wordIndexOffset < offset
+                || wordIndexOffset + 4L * wordCount != footer) {
+            throw new IOException("Not a valid segment file: " + source);
+        }
+
+        DocumentTable documents = new DocumentTable();
+        try {
+            for (int id = 0; id < documentCount; id++) {
+                int count = buffer.getInt(offset);
+                String file = readString(buffer, offset + 4);
+                offset += 8 + buffer.getInt(offset + 4);
+                int alternates = buffer.getInt(offset);
+                offset += 4;
+                if (count < 0 || alternates < 0 || offset > wordIndexOffset) {
+                    throw new IOException("Not a valid segment file: " + source);
+                }
+                int docId = documents.add(file);
+                documents.addCount(docId, count);
+                for (int i = 0; i < alternates; i++) {
+                    documents.addAlternate(docId, readString(buffer, offset));
+                    offset += 4 + buffer.getInt(offset);
+                    if (offset > wordIndexOffset) {
+                        throw new IOException("Not a valid segment file: " + source);
+                    }
+                }
+            }
+            if (offset != (wordCount > 0 ? buffer.getInt(wordIndexOffset) : wordIndexOffset)) {
+                throw new IOException("Not a valid segment file: " + source);
+            }
+        }
+        catch (IndexOutOfBoundsException e) {
+            throw new IOException("Not a valid segment file: " + source, e);
+        }
+        return new IndexSegment(buffer, documents, wordCount, wordIndexOffset);
+    }
+
+    /**
+     * Writes every word, document, and position of an index to a segment file.
+     *
+     * @param index the index to write
+     * @param path the segment file to write to
+     * @throws IOException thrown in case the file cannot be written to
+     */
+    public static void write(InvertedIndex index, Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            write(index, out, path.toString());
+        }
+    }
+
+    /**
+     * Writes every word, document, and position of an index in the segment layout.
+     * Files that have been removed from the index are left out, and the rest are given
+     * new document IDs in the same order with no gaps.
+     *
+     * @param index the index to write
+     * @param out the output to write to
+     * @param target where the segment is written to, for error messages
+     * @throws IOException thrown in case the output cannot be written to
+     */
+    private static void write(InvertedIndex index, DataOutputStream out, String target) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+
+        DocumentTable documents = index.getDocuments();
+        int documentsOffset = out.size();
+        int[] docIds = new int[documents.size()];
+        int documentCount = 0;
+        for (int id = 0; id < docIds.length; id++) {
+            if (documents.isDeleted(id)) {
+                docIds[id] = -1;
+                continue;
+            }
+            docIds[id] = documentCount++;
+            out.writeInt(documents.getCount(id));
+            writeString(out, documents.getPath(id));
+            Collection<String> alternates = documents.getAlternates(id);
+            out.writeInt(alternates.size());
+            for (String location : alternates) {
+                writeString(out, location);
+            }
+        }
+
+        ArrayList<Integer> offsets = new ArrayList<>(index.numberOfElementsInStructure());
+        for (String word : index.getWords()) {
+            DocumentPostings postings = index.getPostings(word);
+            if (postings == null) {
+                continue;
+            }
+            offsets.add(out.size());
+            writeString(out, word);
+            out.writeInt(postings.size());
+            for (int i = 0; i < postings.size(); i++) {
+                out.writeInt(docIds[postings.docIdAt(i)]);
+                postings.positionsAt(i).write(out);
+            }
+        }
+
+        int wordIndexOffset = out.size();
+        for (int offset : offsets) {
+            out.writeInt(offset);
+        }
+
+        out.writeInt(documentCount);
+        out.writeInt(offsets.size());
+        out.writeInt(documentsOffset);
+        out.writeInt(wordIndexOffset);
+        if (out.size() == Integer.MAX_VALUE) {
+            throw new IOException("Index is too large for a single segment file: " + target);
+        }
+    }
+
+    @Override
+    public boolean contains(String element) {
+        return findWord(element) >= 0;
+    }
+
+    @Override
+    public int numberOfElementsInStructure() {
+        return wordCount;
+    }
+
+    @Override
+    public Collection<String> getWords() {
+        return new AbstractList<String>() {
+
+            @Override
+            public String get(int index) {
+                return wordAt(index);
+            }
+
+            @Override
+            public int size() {
+                return wordCount;
+            }
+        };
+    }
+
+    @Override
+    protected DocumentPostings getPostings(String word) {
+        int index = findWord(word);
+        if (index < 0) {
+            return null;
+        }
+        int offset = postingsOffset(index);
+        int documentCount = buffer.getInt(offset);
+        offset += 4;
+        DocumentPostings postings = new DocumentPostings();
+        for (int i = 0; i < documentCount; i++) {
+            int docId = buffer.getInt(offset);
+            postings.addAll(docId, PostingList.read(buffer, offset + 4));
+            offset += 4 + PostingList.writtenLength(buffer, offset + 4);
+        }
+        return postings;
+    }
+
+    @Override
+    protected Collection<String> getWordsStartingWith(String prefix) {
+        ArrayList<String> words = new ArrayList<String>();
+        int index = findWord(prefix);
+        for (int i = index >= 0 ? index : -index - 1; i < wordCount; i++) {
+            String word = wordAt(i);
+            if (!word.startsWith(prefix)) {
+                break;
+            }
+            words.add(word);
+        }
+        return words;
+    }
+
+    /**
+     * Reads only the number of positions of each document from the mapped file, skipping
+     * over the positions themselves since a search does not need them.
+     */
+    @Override
+    protected void searchHelper(ArrayList<QueryResult> list, QueryResult[] lookup, String word) {
+        forEachCount(word, (docId, count) -> addAppearances(list, lookup, docId, count));
+    }
+
+    /**
+     * Passes the document ID and number of positions of every document the word is found
+     * in to the consumer, reading only the counts and not the positions themselves.
+     *
+     * @param word the word to lookup
+     * @param consumer receives the document ID and number of positions of each document
+     * @return true if the word is in the segment; false otherwise
+     */
+    public boolean forEachCount(String word, CountConsumer consumer) {
+        int index = findWord(word);
+        if (index < 0) {
+            return false;
+        }
+        int offset = postingsOffset(index);
+        int documentCount = buffer.getInt(offset);
+        offset += 4;
+        for (int i = 0; i < documentCount; i++) {
+            consumer.accept(buffer.getInt(offset), buffer.getInt(offset + 4));
+            offset += 4 + PostingList.writtenLength(buffer, offset + 4);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of bytes of the segment.
+     *
+     * @return the size of the segment in bytes
+     */
+    public int sizeInBytes() {
+        return buffer.limit();
+    }
+
+    /**
+     * Segments are read-only.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void add(String element, Integer position, String path) {
+        throw new UnsupportedOperationException("Index segments are read-only.");
+    }
+
+    /**
+     * Segments are read-only.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void addAll(Map<String, PostingList> words, String path) {
+        throw new UnsupportedOperationException("Index segments are read-only.");
+    }
+
+    /**
+     * Segments are read-only.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void merge(InvertedIndex other) {
+        throw new UnsupportedOperationException("Index segments are read-only.");
+    }
+
+    /**
+     * Segments are read-only.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean addAlternate(String path, String location) {
+        throw new UnsupportedOperationException("Index segments are read-only.");
+    }
+
+    /**
+     * Segments are read-only.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean removeDocument(String path) {
+        throw new UnsupportedOperationException("Index segments are read-only.");
+    }
+
+    /**
+     * Finds a word with a binary search over the word index.
+     *
+     * @param word the word to find
+     * @return the index of the word, or (-(insertion point) - 1) if not found
+     */
+    private int findWord(String word) {
+        int low = 0;
+        int high = wordCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int compare = wordAt(middle).compareTo(word);
+            if (compare < 0) {
+                low = middle + 1;
+            }
+            else if (compare > 0) {
+                high = middle - 1;
+            }
+            else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Reads the word at the index of the word index.
+     *
+     * @param index the index of the word
+     * @return the word
+     */
+    private String wordAt(int index) {
+        return readString(buffer, buffer.getInt(wordIndexOffset + 4 * index));
+    }
+
+    /**
+     * Returns the offset of the postings of the word at the index, right after the word.
+     *
+     * @param index the index of the word
+     * @return the offset of the number of documents of the word
+     */
+    private int postingsOffset(int index) {
+        int offset = buffer.getInt(wordIndexOffset + 4 * index);
+        return offset + 4 + buffer.getInt(offset);
+    }
+
+    /**
+     * Writes a String as its UTF-8 length followed by its UTF-8 bytes.
+     *
+     * @param out the output to write to
+     * @param text the String to write
+     * @throws IOException thrown in case the output cannot be written to
+     */
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a String that was written with {@link #writeString(DataOutputStream, String)}.
+     *
+     * @param buffer the buffer to read from
+     * @param offset the offset the String starts at
+     * @return the String that was read
+     * @throws IndexOutOfBoundsException thrown in case the String would run past the end of the buffer
+     */
+    private static String readString(ByteBuffer buffer, int offset) {
+        int length = buffer.getInt(offset);
+        if (length < 0 || length > buffer.limit() - offset - 4) {
+            throw new IndexOutOfBoundsException("String of " + length + " bytes at " + offset);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(offset + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Receives the number of positions of a word in a document.
+     */
+    @FunctionalInterface
+    public interface CountConsumer {
+
+        /**
+         * Receives the number of positions of a word in a document.
+         *
+         * @param docId the document ID, in the document table of the segment
+         * @param count the number of positions of the word in that document
+         */
+        void accept(int docId, int count);
+    }
+}
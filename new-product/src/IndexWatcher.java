@@ -0,0 +1,569 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+
+/**
+ * IndexWatcher
+ *
+ * Keeps an index up to date with the text files under a directory as they are created,
+ * changed, and deleted, without scanning the whole directory again. Every directory of
+ * the tree is registered with a {@link WatchService}, and directories created later are
+ * registered as they appear.
+ *
+ * One background thread takes the events from the watch service and puts the path of
+ * each into a bounded queue, waiting when the queue is full. Another thread takes paths
+ * from the queue and applies them to the index, after no event has come in for that path
+ * for the debounce window, so a burst of events for one file, such as a file being
+ * written in pieces, is applied once. A path that keeps changing is applied anyway once
+ * its first event is {@link #MAX_DEBOUNCES} windows old. If the watch service drops
+ * events because they were not taken fast enough, the whole directory is checked again.
+ *
+ * The index is changed while it may be searched, so it should be thread-safe, such as a
+ * {@link MultithreadIndex} or a {@link SnapshotIndex}. {@link #getStaleness()} tells how
+ * long the oldest change that has not been applied to the index yet has been waiting.
+ * If the index was built with a {@link NearDuplicateDetector}, changed files go through
+ * the same detector, and the near-duplicates of a file that is changed or removed are
+ * indexed again.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class IndexWatcher implements Closeable {
+
+    /** The default time to wait after the last event of a path before applying it. */
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 200;
+
+    /** The default number of events the queue holds. */
+    public static final int DEFAULT_QUEUE_CAPACITY = 4096;
+
+    /** The number of debounce windows a path waits at most after its first event. */
+    public static final int MAX_DEBOUNCES = 5;
+
+    /** The index that is kept up to date. */
+    private final InvertedIndex index;
+
+    /** The directory that is watched. */
+    private final Path root;
+
+    /** The time to wait after the last event of a path before applying it, in nanoseconds. */
+    private final long debounceNanos;
+
+    /** The watch service every directory is registered with. */
+    private final WatchService service;
+
+    /** The directory each watch key was registered for. */
+    private final ConcurrentHashMap<WatchKey, Path> directories;
+
+    /**
+     * Every directory that was registered and has not been seen to go away, kept apart
+     * from the watch keys since a key is dropped as soon as its directory is deleted.
+     */
+    private final Set<Path> watched;
+
+    /** The events that have been taken from the watch service but not applied yet. */
+    private final BlockingQueue<Event> events;
+
+    /** Whether the watch service dropped events, so the whole directory needs to be checked. */
+    private final AtomicBoolean rescan;
+
+    /** Takes events from the watch service. */
+    private final Thread watcher;
+
+    /** Applies events to the index. */
+    private final Thread worker;
+
+    /** The number of paths that have been applied to the index. */
+    private final LongAdder applied;
+
+    /** The time of the oldest event the worker is waiting on, or {@link Long#MAX_VALUE} if none. */
+    private volatile long pendingSince;
+
+    /** Decides which changed files are near-duplicates, or {@code null} if not set. */
+    private volatile NearDuplicateDetector detector;
+
+    /** Told the number of paths applied after each batch, or {@code null} if not set. */
+    private volatile IntConsumer listener;
+
+    /** Whether the watcher has been closed. */
+    private volatile boolean closed;
+
+    /**
+     * Constructor of a watcher with the default debounce window and queue capacity.
+     *
+     * @param index the index to keep up to date
+     * @param root the directory to watch
+     * @throws IOException thrown in case a directory cannot be registered
+     */
+    public IndexWatcher(InvertedIndex index, Path root) throws IOException {
+        this(index, root, DEFAULT_DEBOUNCE_MILLIS, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Constructor of a watcher that registers every directory under the root right
+     * away, so changes made from now on are seen, but only starts applying them once
+     * {@link #start()} is called.
+     *
+     * @param index the index to keep up to date
+     * @param root the directory to watch
+     * @param debounceMillis the time to wait after the last event of a path before applying it
+     * @param capacity the number of events the queue holds
+     * @throws IOException thrown in case a directory cannot be registered
+     */
+    public IndexWatcher(InvertedIndex index, Path root, long debounceMillis, int capacity) throws IOException {
+        this.index = index;
+        this.root = root;
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, debounceMillis));
+        this.service = root.getFileSystem().newWatchService();
+        this.directories = new ConcurrentHashMap<>();
+        this.watched = ConcurrentHashMap.newKeySet();
+        this.events = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.rescan = new AtomicBoolean();
+        this.applied = new LongAdder();
+        this.pendingSince = Long.MAX_VALUE;
+        this.closed = false;
+        this.watcher = new Thread(this::watch, "IndexWatcher-events");
+        this.watcher.setDaemon(true);
+        this.worker = new Thread(this::work, "IndexWatcher-worker");
+        this.worker.setDaemon(true);
+        register(root);
+    }
+
+    /**
+     * Starts taking events and applying them to the index on the background threads.
+     */
+    public void start() {
+        watcher.start();
+        worker.start();
+    }
+
+    /**
+     * Sets what is told the number of paths applied to the index after each batch. It
+     * is called on the worker thread, so it delays the next batch while it runs.
+     *
+     * @param listener told the number of paths applied, or {@code null} for nothing
+     */
+    public void setListener(IntConsumer listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Sets the detector changed files go through. It should be the detector the index
+     * was built with, so it has seen every file in the index.
+     *
+     * @param detector decides which files are near-duplicates, or {@code null} to index every file
+     */
+    public void setDetector(NearDuplicateDetector detector) {
+        this.detector = detector;
+    }
+
+    /**
+     * Returns how long the oldest event that has not been applied to the index has been
+     * waiting, which is how far behind the files on disk the index may be.
+     *
+     * @return the staleness of the index in milliseconds, or 0 if every event was applied
+     */
+    public long getStaleness() {
+        long oldest = pendingSince;
+        Event head = events.peek();
+        if (head != null && head.time < oldest) {
+            oldest = head.time;
+        }
+        return oldest == Long.MAX_VALUE ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest);
+    }
+
+    /**
+     * Returns the number of paths that have been applied to the index.
+     *
+     * @return the number of paths applied
+     */
+    public long getApplied() {
+        return applied.sum();
+    }
+
+    /**
+     * Returns the number of events waiting in the queue.
+     *
+     * @return the number of queued events
+     */
+    public int getQueued() {
+        return events.size();
+    }
+
+    /**
+     * Waits until the watcher is closed.
+     *
+     * @throws InterruptedException thrown in case the thread is interrupted while waiting
+     */
+    public void awaitClose() throws InterruptedException {
+        worker.join();
+    }
+
+    /**
+     * Stops watching and waits for the background threads to finish. Events that were
+     * not applied yet are dropped.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        service.close();
+        worker.interrupt();
+        try {
+            if (watcher.isAlive()) {
+                watcher.join();
+            }
+            if (worker.isAlive()) {
+                worker.join();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Registers a directory and every directory under it with the watch service.
+     *
+     * @param start the directory to register
+     * @throws IOException thrown in case a directory cannot be registered
+     */
+    private void register(Path start) throws IOException {
+        try (Stream<Path> paths = Files.walk(start, FileVisitOption.FOLLOW_LINKS)) {
+            for (Path directory : (Iterable<Path>) paths.filter(Files::isDirectory)::iterator) {
+                WatchKey key = directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                directories.put(key, directory);
+                watched.add(directory);
+            }
+        }
+    }
+
+    /**
+     * Takes events from the watch service until it is closed, registering directories
+     * as they are created. Only run on the watcher thread.
+     */
+    private void watch() {
+        try {
+            while (!closed) {
+                WatchKey key = service.take();
+                Path directory = directories.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        rescan.set(true);
+                        events.put(new Event(root, System.nanoTime()));
+                        continue;
+                    }
+                    if (directory == null) {
+                        continue;
+                    }
+                    Path path = directory.resolve((Path) event.context());
+                    if (Files.isDirectory(path)) {
+                        if (event.kind() != StandardWatchEventKinds.ENTRY_CREATE) {
+                            continue;
+                        }
+                        try {
+                            register(path);
+                        }
+                        catch (IOException e) {
+                            rescan.set(true);
+                        }
+                    }
+                    events.put(new Event(path, System.nanoTime()));
+                }
+                if (!key.reset()) {
+                    directories.remove(key);
+                }
+            }
+        }
+        catch (InterruptedException | ClosedWatchServiceException e) {
+            return;
+        }
+    }
+
+    /**
+     * Takes events from the queue until the watcher is closed and applies every path
+     * once its debounce window has passed. Only run on the worker thread.
+     */
+    private void work() {
+        LinkedHashMap<Path, Pending> pending = new LinkedHashMap<>();
+        ArrayList<Event> taken = new ArrayList<>();
+        try {
+            while (!closed) {
+                Event event = pending.isEmpty() ? events.take() :
+                        events.poll(untilDue(pending), TimeUnit.NANOSECONDS);
+                if (event != null) {
+                    taken.add(event);
+                    events.drainTo(taken);
+                    for (Event next : taken) {
+                        Pending waiting = pending.get(next.path);
+                        if (waiting == null) {
+                            pending.put(next.path, new Pending(next.time));
+                        }
+                        else {
+                            waiting.last = Math.max(waiting.last, next.time);
+                        }
+                    }
+                    taken.clear();
+                }
+                updatePendingSince(pending);
+
+                List<Path> due = takeDue(pending);
+                if (!due.isEmpty()) {
+                    int count = apply(due);
+                    applied.add(count);
+                    updatePendingSince(pending);
+                    IntConsumer current = listener;
+                    if (current != null) {
+                        current.accept(count);
+                    }
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            return;
+        }
+    }
+
+    /**
+     * Returns how long until the next path is due to be applied.
+     *
+     * @param pending the paths waiting to be applied
+     * @return the time until the next path is due, in nanoseconds
+     */
+    private long untilDue(Map<Path, Pending> pending) {
+        long now = System.nanoTime();
+        long next = Long.MAX_VALUE;
+        for (Pending waiting : pending.values()) {
+            next = Math.min(next, waiting.due(debounceNanos) - now);
+        }
+        return Math.max(0, next);
+    }
+
+    /**
+     * Removes and returns the paths whose debounce window has passed.
+     *
+     * @param pending the paths waiting to be applied
+     * @return the paths that are due, in the order they were first changed
+     */
+    private List<Path> takeDue(Map<Path, Pending> pending) {
+        long now = System.nanoTime();
+        ArrayList<Path> due = new ArrayList<>();
+        Iterator<Map.Entry<Path, Pending>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, Pending> entry = iterator.next();
+            if (entry.getValue().due(debounceNanos) <= now) {
+                due.add(entry.getKey());
+                iterator.remove();
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Records the time of the oldest event the worker is waiting on.
+     *
+     * @param pending the paths waiting to be applied
+     */
+    private void updatePendingSince(Map<Path, Pending> pending) {
+        long oldest = Long.MAX_VALUE;
+        for (Pending waiting : pending.values()) {
+            oldest = Math.min(oldest, waiting.first);
+        }
+        pendingSince = oldest;
+    }
+
+    /**
+     * Applies changed paths to the index, or checks the whole directory again if the
+     * watch service dropped events.
+     *
+     * @param due the paths to apply
+     * @return the number of paths that were applied
+     */
+    private int apply(List<Path> due) {
+        if (rescan.getAndSet(false)) {
+            return applyDirectory(root, true);
+        }
+        int count = 0;
+        for (Path path : due) {
+            count += Files.isDirectory(path) ? applyDirectory(path, false) : applyFile(path);
+        }
+        return count;
+    }
+
+    /**
+     * Indexes a text file again, or removes it from the index if it no longer exists or
+     * is no longer a text file. If the path is not a file in the index but was a watched
+     * directory, every file under it is removed instead; only then are the files of the
+     * index looked through.
+     *
+     * @param path the path that changed
+     * @return the number of files that were applied
+     */
+    private int applyFile(Path path) {
+        NearDuplicateDetector current = detector;
+        if (TextFileFinder.IS_TEXT.test(path)) {
+            try {
+                HashMap<String, PostingList> words =
+                        InvertedIndexBuilder.stemLines(Files.readAllLines(path, StandardCharsets.UTF_8));
+                if (current == null) {
+                    index.replaceDocument(path.toString(), words);
+                    return 1;
+                }
+                return 1 + recheck(InvertedIndexBuilder.replaceFile(path.toString(), words, index, current));
+            }
+            catch (IOException e) {
+                // the file went away or cannot be read, so it is removed below
+            }
+        }
+        int count = removeFile(path.toString());
+        if (count > 0 || Files.isDirectory(path) || !watched.remove(path)) {
+            return count;
+        }
+        watched.removeIf(directory -> directory.startsWith(path));
+        for (String file : new ArrayList<>(index.getFiles())) {
+            if (Path.of(file).startsWith(path)) {
+                count += removeFile(file);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Removes a file from the index, and from the detector if one is set, indexing the
+     * near-duplicates of the file again.
+     *
+     * @param file the file to remove
+     * @return the number of files that were applied
+     */
+    private int removeFile(String file) {
+        NearDuplicateDetector current = detector;
+        int count = index.removeDocument(file) ? 1 : 0;
+        if (current != null) {
+            count += recheck(current.forget(file));
+        }
+        return count;
+    }
+
+    /**
+     * Indexes files again that were near-duplicates of a file that changed or was removed.
+     *
+     * @param locations the locations of the files
+     * @return the number of files that were applied
+     */
+    private int recheck(List<String> locations) {
+        int count = 0;
+        for (String location : locations) {
+            count += applyFile(Path.of(location));
+        }
+        return count;
+    }
+
+    /**
+     * Indexes every text file under a directory again. When the whole directory is
+     * checked again, files in the index under it that no longer exist are also removed.
+     *
+     * @param directory the directory to index
+     * @param removeMissing whether to remove files under the directory that are not found
+     * @return the number of files that were applied
+     */
+    private int applyDirectory(Path directory, boolean removeMissing) {
+        int count = 0;
+        HashSet<String> found = new HashSet<>();
+        try {
+            for (Path file : TextFileFinder.list(directory)) {
+                found.add(file.toString());
+                count += applyFile(file);
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            // part of the directory went away while it was walked; its events follow
+        }
+        if (removeMissing) {
+            for (String file : new ArrayList<>(index.getFiles())) {
+                if (!found.contains(file) && Path.of(file).startsWith(directory)) {
+                    count += removeFile(file);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * A path that changed and the time it changed, as taken from the watch service.
+     */
+    private static class Event {
+
+        /** The path that changed. */
+        private final Path path;
+
+        /** The time of the event, from {@link System#nanoTime()}. */
+        private final long time;
+
+        /**
+         * Constructor of an event.
+         *
+         * @param path the path that changed
+         * @param time the time of the event
+         */
+        public Event(Path path, long time) {
+            this.path = path;
+            this.time = time;
+        }
+    }
+
+    /**
+     * The times of the first and last events of a path waiting to be applied.
+     */
+    private static class Pending {
+
+        /** The time of the first event. */
+        private final long first;
+
+        /** The time of the last event. */
+        private long last;
+
+        /**
+         * Constructor of a path waiting after its first event.
+         *
+         * @param time the time of the first event
+         */
+        public Pending(long time) {
+            this.first = time;
+            this.last = time;
+        }
+
+        /**
+         * Returns the time the path should be applied: once no event has come in for the
+         * debounce window, or once the first event is {@link #MAX_DEBOUNCES} windows old.
+         *
+         * @param debounceNanos the debounce window in nanoseconds
+         * @return the time the path is due
+         */
+        public long due(long debounceNanos) {
+            return Math.min(last + debounceNanos, first + debounceNanos * MAX_DEBOUNCES);
+        }
+    }
+}
@@ -1,19 +1,22 @@
 import java.util.TreeMap;
-import java.util.TreeSet;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.DecimalFormat;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
-
-//import opennlp.tools.stemmer.snowball.SnowballStemmer;
+import java.util.function.IntPredicate;
 
 /**
  * InvertedIndex
@@ -27,9 +30,6 @@ import java.util.Set;
  */
 public class InvertedIndex {
 
-    /** Default use of a Snowball Stemmer */
-//    public static final SnowballStemmer.ALGORITHM DEFAULT = SnowballStemmer.ALGORITHM.ENGLISH;
-
     /**
      * Use of a QueryResult class that uses Comparable and resources in InveredIndex class
      *
@@ -38,8 +38,14 @@ public class InvertedIndex {
      */
     public class QueryResult implements Comparable<QueryResult> {
 
-        /** The name of the file path being read. */
-        private final String file;
+        /** The document ID of the file path being read. */
+        private final int docId;
+
+        /** The path of the file, kept since document IDs change when the index is purged. */
+        private final String path;
+
+        /** The alternate locations of the file, such as near-duplicates collapsed into it. */
+        private final List<String> alternates;
 
         /** The number of times a word being searched is found in the file. */
         private int appearances;
@@ -52,10 +58,12 @@ public class InvertedIndex {
          * for file and the number of appearances of a word in file at 0. Also
          * initializes the global file being as the file in use for each iteration.
          *
-         * @param file the file to be queried through
+         * @param docId the document ID of the file to be queried through
          */
-        public QueryResult(String file) {
-            this.file = file;
+        public QueryResult(int docId) {
+            this.docId = docId;
+            this.path = documents.getPath(docId);
+            this.alternates = documents.hasAlternates() ? List.copyOf(documents.getAlternates(docId)) : List.of();
             this.appearances = 0;
         }
 
@@ -65,7 +73,27 @@ public class InvertedIndex {
          * @return the name of the file
          */
         public String getPathFile() {
-            return file;
+            return path;
+        }
+
+        /**
+         * Retrieve the other locations of the file, such as near-duplicates that were
+         * collapsed into it rather than indexed.
+         *
+         * @return the alternate locations of the file, sorted; empty if there are none
+         */
+        public List<String> getAlternates() {
+            return alternates;
+        }
+
+        /**
+         * Retrieve the document ID the file the word is associated with had when it
+         * was searched; a later purge may give the file a different ID.
+         *
+         * @return the document ID of the file
+         */
+        public int getDocId() {
+            return docId;
         }
 
         /**
@@ -84,14 +112,13 @@ public class InvertedIndex {
 
         /**
          * Update the number of appearances of word featured in file.
-         * Passes in the word in a file that appears.
+         * Passes in the number of positions of a word in the file that appears.
          *
-         * @param word the argument passed in to check in the file
-         * @param location the location for the key.
+         * @param positions the number of positions the word is found at in the file
          */
-        private void updateAppearances(String word, String location) {
-            this.appearances += nestedMap.get(word).get(location).size();
-            this.score = (double) appearances / wordCountMap.get(location);
+        protected void updateAppearances(int positions) {
+            this.appearances += positions;
+            this.score = (double) appearances / documents.getCount(docId);
         }
 
         /**
@@ -125,25 +152,53 @@ public class InvertedIndex {
 
         @Override
         public String toString() {
-            return "File Name: " + file
-                    + "Word Count: " + wordCountMap.get(file) + "Position: " + appearances;
+            return "File Name: " + getPathFile()
+                    + "Word Count: " + getCount(path) + "Position: " + appearances;
         }
     }
 
+    /**
+     * The positions of removed files are purged once at least one in this many of the
+     * files ever added has been removed since the last purge.
+     */
+    protected static final int PURGE_FRACTION = 4;
+
     /**
      * A nested TreeMap with reference of a Key, which is a word to be parsed
-     * A Value is a map of a key that is the path of the file the word is found in and
-     * a value that has the number(s) of occurrences of the positions word found in file
+     * A Value is the postings of the files the word is found in, keyed by document ID,
+     * each with the positions of the word in that file kept as a compressed PostingList
      */
-    private final TreeMap<String, TreeMap<String, TreeSet<Integer>>> nestedMap;
+    private final TreeMap<String, DocumentPostings> nestedMap;
+
+    /** This is a separate data structure for the document ID and word count of each file path  */
+    private final DocumentTable documents;
 
-    /** This is a separate data structure for word count of files and their respective path location  */
-    private final TreeMap<String, Integer> wordCountMap;
+    /**
+     * A sorted, front-coded copy of the words used for partial searches. Built the first
+     * time it is needed and cleared whenever a new word is added to the index.
+     */
+    private volatile TermDictionary dictionary;
+
+    /**
+     * The number of files removed since their positions were last purged. While this is
+     * above 0, reads leave out the positions of removed files.
+     */
+    private int tombstones;
 
-    /** Constructor of InvertedIndex class which contains TreeMaps for data structure for words and file word counts */
+    /** Constructor of InvertedIndex class which contains a TreeMap for words and a table for file word counts */
     public InvertedIndex() {
+        this(new DocumentTable());
+    }
+
+    /**
+     * Constructor of InvertedIndex class for an index whose documents are already known,
+     * such as one that is loaded from disk.
+     *
+     * @param documents the document IDs and word counts of the files in the index
+     */
+    protected InvertedIndex(DocumentTable documents) {
         this.nestedMap = new TreeMap<>();
-        this.wordCountMap = new TreeMap<>();
+        this.documents = documents;
     }
 
     /**
@@ -156,11 +211,189 @@ public class InvertedIndex {
      * @param path the directory path to file that searched through as String
      */
     public void add(String element, Integer position, String path) {
-        nestedMap.putIfAbsent(element, new TreeMap<String, TreeSet<Integer>>());
-        nestedMap.get(element).putIfAbsent(path, new TreeSet<Integer>());
-        if (nestedMap.get(element).get(path).add(position)) {
-            wordCountMap.put(path, wordCountMap.getOrDefault(path, 0) + 1);
+        int docId = documents.add(path);
+        if (nestedMap.putIfAbsent(element, new DocumentPostings()) == null) {
+            dictionary = null;
+        }
+        if (nestedMap.get(element).getOrAdd(docId).addPosition(position)) {
+            documents.addCount(docId, 1);
+        }
+    }
+
+    /**
+     * Adds every word of a whole document and the positions of each word at once.
+     * Each word of the index is looked up only once and the word count of the file
+     * is updated only once for the document, instead of once per word. The
+     * PostingLists passed in are stored rather than copied when the path is new
+     * for a word, so they should not be modified afterward.
+     *
+     * @param words the words of the document mapped to the positions they are found at
+     * @param path the directory path to file that searched through as String
+     */
+    public void addAll(Map<String, PostingList> words, String path) {
+        if (words.isEmpty()) {
+            return;
+        }
+        int docId = documents.add(path);
+        int added = 0;
+        for (var entry : words.entrySet()) {
+            DocumentPostings postings = nestedMap.get(entry.getKey());
+            if (postings == null) {
+                postings = new DocumentPostings();
+                nestedMap.put(entry.getKey(), postings);
+                dictionary = null;
+            }
+            added += postings.addAll(docId, entry.getValue());
+        }
+        documents.addCount(docId, added);
+    }
+
+    /**
+     * Merges every word, path, and position of another index into this one, word by
+     * word and then path by path. Paths are given document IDs in this index as they
+     * are found in the other, and keep their alternate locations. Positions of a path that is new to this index are moved
+     * over without being copied, so the other index should be discarded afterward.
+     *
+     * @param other the index to be merged into this one
+     */
+    public void merge(InvertedIndex other) {
+        merge(other, other.getDocuments()::isDeleted);
+    }
+
+    /**
+     * Merges another index into this one the same way as {@link #merge(InvertedIndex)},
+     * leaving out the files of the other index whose document IDs match.
+     *
+     * @param other the index to be merged into this one
+     * @param skipped tests whether a document ID of the other index should be left out
+     */
+    protected void merge(InvertedIndex other, IntPredicate skipped) {
+        DocumentTable otherDocuments = other.getDocuments();
+        int[] docIds = new int[otherDocuments.size()];
+        for (int id = 0; id < docIds.length; id++) {
+            docIds[id] = skipped.test(id) ? -1 : documents.add(otherDocuments.getPath(id));
+        }
+        if (otherDocuments.hasAlternates()) {
+            for (int id = 0; id < docIds.length; id++) {
+                for (String location : docIds[id] < 0 ? List.<String>of() : otherDocuments.getAlternates(id)) {
+                    documents.addAlternate(docIds[id], location);
+                }
+            }
+        }
+        for (String word : other.getWords()) {
+            DocumentPostings otherPostings = other.getPostings(word);
+            DocumentPostings postings = nestedMap.get(word);
+            for (int i = 0; i < otherPostings.size(); i++) {
+                int docId = docIds[otherPostings.docIdAt(i)];
+                if (docId < 0) {
+                    continue;
+                }
+                if (postings == null) {
+                    postings = new DocumentPostings();
+                    nestedMap.put(word, postings);
+                    dictionary = null;
+                }
+                documents.addCount(docId, postings.addAll(docId, otherPostings.positionsAt(i)));
+            }
+        }
+    }
+
+    /**
+     * Removes a file from the index, such as when the file was changed or deleted. The
+     * file is only marked as removed in the document table, which is constant time; its
+     * positions are left out of every read from then on and purged from the words later,
+     * all at once for every file removed by then, either when enough files have been
+     * removed or when {@link #purge()} is called.
+     *
+     * A path that is only an alternate location of a file is removed from its
+     * locations instead.
+     *
+     * @param path the directory path to file that is to be removed as String
+     * @return true if the file was in the index; false otherwise
+     */
+    public boolean removeDocument(String path) {
+        if (documents.remove(path) < 0) {
+            return documents.removeAlternate(path) >= 0;
+        }
+        tombstones++;
+        if (tombstones * PURGE_FRACTION >= documents.size()) {
+            purge();
+        }
+        return true;
+    }
+
+    /**
+     * Records a location as another location of a file in the index, such as a
+     * near-duplicate that was collapsed into it rather than indexed. The location is
+     * listed with the files of the index and with every search result of the file, and
+     * is dropped when the file is removed.
+     *
+     * @param path the file in the index
+     * @param location the other location of the file
+     * @return true if the location was recorded; false if the file has no words in the
+     *         index, or the location is a file of its own or was already recorded
+     */
+    public boolean addAlternate(String path, String location) {
+        int docId = documents.getId(path);
+        if (docId < 0 || documents.getCount(docId) == 0 || documents.isDeleted(docId)) {
+            return false;
+        }
+        return documents.addAlternate(docId, location);
+    }
+
+    /**
+     * Replaces every word and position of a file with the ones passed in, such as when
+     * the file has changed since it was added. The file does not need to be in the
+     * index already.
+     *
+     * @param path the directory path to file that is to be replaced as String
+     * @param words the words of the file now mapped to the positions they are found at
+     */
+    public void replaceDocument(String path, Map<String, PostingList> words) {
+        removeDocument(path);
+        addAll(words, path);
+    }
+
+    /**
+     * Removes the positions of every file that has been removed from every word in one
+     * pass over the index, and drops any word that is no longer found in any file. The
+     * document table is compacted at the same time, so the document IDs of the files
+     * that are left stay dense however many times files are removed or replaced.
+     */
+    public void purge() {
+        if (tombstones == 0) {
+            return;
         }
+        int[] remap = documents.compact();
+        var iterator = nestedMap.values().iterator();
+        while (iterator.hasNext()) {
+            DocumentPostings postings = iterator.next();
+            if (postings.remap(remap) > 0 && postings.size() == 0) {
+                iterator.remove();
+                dictionary = null;
+            }
+        }
+        tombstones = 0;
+    }
+
+    /**
+     * Determines whether any file has been removed since the last purge, in which case
+     * reads have to leave out the positions of removed files.
+     *
+     * @return true if there are removed files left to purge; false otherwise
+     */
+    protected boolean hasTombstones() {
+        return tombstones > 0;
+    }
+
+    /**
+     * Returns the number of words stored in the index, including words only found in
+     * removed files that have not been purged yet.
+     *
+     * @return the number of words stored
+     */
+    protected int numberOfWordsStored() {
+        return nestedMap.size();
     }
 
     /**
@@ -170,7 +403,7 @@ public class InvertedIndex {
      * @return {@true} if the word is stored in the index; false otherwise
      */
     public boolean contains(String element) {
-        return nestedMap.containsKey(element);
+        return tombstones == 0 ? nestedMap.containsKey(element) : getPostings(element) != null;
     }
 
     /**
@@ -181,7 +414,7 @@ public class InvertedIndex {
      * @return {@true} if word is found and file path associated to word are found; false otherwise
      */
     public boolean contains(String element, String path) {
-        return contains(element) && nestedMap.get(element).containsKey(path);
+        return getPostingList(element, path) != null;
     }
 
     /**
@@ -194,7 +427,8 @@ public class InvertedIndex {
      * @return {@true} if the element and position is stored in the index; false otherwise
      */
     public boolean contains(String element, String path, int position) {
-        return contains(element, path) && nestedMap.get(element).get(path).contains(position);
+        PostingList positions = getPostingList(element, path);
+        return positions != null && positions.containsPosition(position);
     }
 
     /**
@@ -204,7 +438,8 @@ public class InvertedIndex {
      * @return the number of positions stored for that element
      */
     public int getNumberPositions(String element) {
-        return contains(element) ? nestedMap.get(element).size() : 0;
+        DocumentPostings postings = getPostings(element);
+        return postings != null ? postings.size() : 0;
     }
 
     /**
@@ -213,7 +448,7 @@ public class InvertedIndex {
      * @return the number of elements in index if structure is filled; 0 if index is empty
      */
     public int numberOfElementsInStructure() {
-        return nestedMap.size();
+        return tombstones == 0 ? nestedMap.size() : getWords().size();
     }
 
     /**
@@ -223,7 +458,16 @@ public class InvertedIndex {
      * @return a Collection of keys featured in the structure
      */
     public Collection<String> getWords() {
-        return Collections.unmodifiableSet(nestedMap.keySet());
+        if (tombstones == 0) {
+            return Collections.unmodifiableSet(nestedMap.keySet());
+        }
+        ArrayList<String> words = new ArrayList<>();
+        for (String word : nestedMap.keySet()) {
+            if (getPostings(word) != null) {
+                words.add(word);
+            }
+        }
+        return Collections.unmodifiableList(words);
     }
 
     /**
@@ -234,23 +478,36 @@ public class InvertedIndex {
      * @return a Collection of Strings that is a keySet respective of that word
      */
     public Collection<String> getLocations(String word) {
-        return contains(word) ?
-                Collections.unmodifiableCollection(nestedMap.get(word).keySet()) :
+        DocumentPostings postings = getPostings(word);
+        return postings != null ?
+                Collections.unmodifiableCollection(getLocationMap(postings).keySet()) :
                 Collections.emptySet();
     }
 
     /**
-     * Check if the path to a file in String form is in a wordCountMap structure
-     * and validates if that path is found in Collection of Strings
+     * Check if the path to a file in String form is in the document table
+     * and validates if that path is found in Collection of Strings, along with
+     * the alternate locations of each file
      *
      * @return a Collection of Strings that contains all the file paths
      */
     public Collection<String> getFiles() {
-        return Collections.unmodifiableCollection(wordCountMap.keySet());
+        return documents.getPaths();
+    }
+
+    /**
+     * Checks whether many threads can add to and search this index at once without
+     * any locking of their own. An InvertedIndex is not; subclasses that do their own
+     * locking say so, so that callers only take a lock of their own when it is needed.
+     *
+     * @return true if the index can be used from many threads at once; false otherwise
+     */
+    public boolean isThreadSafe() {
+        return false;
     }
 
     /**
-     * Check if the associated file path in wordCountMap structure contains an
+     * Check if the associated file path in the document table contains an
      * Integer value and validates if the associated count of words matches what
      * has the number of stems in that file
      *
@@ -258,7 +515,8 @@ public class InvertedIndex {
      * @return a Collection of Integers that contains all the file paths' word counts
      */
     public Integer getCount(String path) {
-        return wordCountMap.getOrDefault(path, 0);
+        int docId = documents.getId(path);
+        return docId < 0 ? 0 : documents.getCount(docId);
     }
 
     /**
@@ -270,11 +528,90 @@ public class InvertedIndex {
      * @return the position of the element with respect to file located in; empty Collection otherwise
      */
     public Collection<Integer> getPositions(String element, String path) {
-        return contains(element, path) ?
-                Collections.unmodifiableCollection(nestedMap.get(element).get(path)) :
+        PostingList positions = getPostingList(element, path);
+        return positions != null ?
+                Collections.unmodifiableCollection(positions) :
                 Collections.emptySet();
     }
 
+    /**
+     * Translates the path to its document ID and returns the positions of the element
+     * in that document.
+     *
+     * @param element the string keyword featured in file
+     * @param path the directory path to be searched through in String type
+     * @return the positions of the element in that file, or {@code null} if there are none
+     */
+    private PostingList getPostingList(String element, String path) {
+        DocumentPostings postings = getPostings(element);
+        int docId = documents.getId(path);
+        return postings == null || docId < 0 ? null : postings.get(docId);
+    }
+
+    /**
+     * Returns the postings of a word: the document IDs it is found in and the positions
+     * in each, leaving out files that have been removed but not purged yet. Subclasses
+     * that do not keep their words in memory override this.
+     *
+     * @param word the word to lookup
+     * @return the postings of the word, or {@code null} if the word is not in the index
+     */
+    protected DocumentPostings getPostings(String word) {
+        DocumentPostings postings = nestedMap.get(word);
+        return tombstones == 0 || postings == null ? postings : postings.without(documents::isDeleted);
+    }
+
+    /**
+     * Returns every word in the index that starts with the prefix, in sorted order,
+     * from the term dictionary so that only the matching words are visited.
+     *
+     * @param prefix the start of the words to find
+     * @return the words that start with the prefix
+     */
+    protected Collection<String> getWordsStartingWith(String prefix) {
+        return getDictionary().getWordsStartingWith(prefix);
+    }
+
+    /**
+     * Returns the term dictionary of the words in the index, building it if a word has
+     * been added since it was last built. Threads that only read the index may build it
+     * at the same time, which is harmless since they build the same dictionary.
+     *
+     * @return the term dictionary of the index
+     */
+    protected TermDictionary getDictionary() {
+        TermDictionary current = dictionary;
+        if (current == null) {
+            current = new TermDictionary(nestedMap.keySet());
+            dictionary = current;
+        }
+        return current;
+    }
+
+    /**
+     * Returns the document IDs and word counts of the files in this index.
+     *
+     * @return the document table of this index
+     */
+    protected DocumentTable getDocuments() {
+        return documents;
+    }
+
+    /**
+     * Translates the postings of a word from document IDs back to paths, sorted by path
+     * just like the JSON output and the Collections returned by this class expect.
+     *
+     * @param postings the postings of a word
+     * @return a sorted map of paths to the positions in that file
+     */
+    private TreeMap<String, PostingList> getLocationMap(DocumentPostings postings) {
+        TreeMap<String, PostingList> locations = new TreeMap<>();
+        for (int i = 0; i < postings.size(); i++) {
+            locations.put(documents.getPath(postings.docIdAt(i)), postings.positionsAt(i));
+        }
+        return locations;
+    }
+
     /**
      * Write to the InvertedIndex data structure that consists of the key word in String form,
      * the file path(s) that word is featured, also in String form, and an ArrayList of Integers that
@@ -284,11 +621,23 @@ public class InvertedIndex {
      * @throws IOException thrown in case a file cannot be read through or if invalid input given
      */
     public void writeIndex(Path path) throws IOException {
-        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
-            SimpleJsonWriter.asBigNestedObject(nestedMap, writer, 0);
+        try (FastJsonWriter writer = new FastJsonWriter(
+                new OutputStreamWriter(Files.newOutputStream(path), StandardCharsets.UTF_8))) {
+            writer.writeIndex(new PathView());
         }
     }
 
+    /**
+     * Writes the index to a compact binary segment file that can be opened again without
+     * re-indexing with {@link IndexSegment#open(Path)}.
+     *
+     * @param path the path of the segment file to write
+     * @throws IOException thrown in case the file cannot be written to
+     */
+    public void writeSegment(Path path) throws IOException {
+        IndexSegment.write(this, path);
+    }
+
     /**
      * Writes to the wordCount data structure that consists of a file path in String form and the number of
      * words/stems that file contains in Integer form.
@@ -297,7 +646,7 @@ public class InvertedIndex {
      * @throws IOException thrown in case a file cannot be read through or if invalid input given
      */
     public void writeWordCount(Path path) throws IOException {
-        SimpleJsonWriter.asObject(wordCountMap, path, 0);
+        SimpleJsonWriter.asObject(documents.getCounts(), path, 0);
     }
 
     /**
@@ -311,7 +660,20 @@ public class InvertedIndex {
      * @return an ArrayList of all query results that are to be searched
      */
     public ArrayList<QueryResult> search(Set<String> queries, boolean exact) {
-        return exact ? exactSearch(queries) : partialSearch(queries);
+        return exact ? exactSearch(queries, 0) : partialSearch(queries, 0);
+    }
+
+    /**
+     * Searches the same way as {@link #search(Set, boolean)}, but only returns the
+     * best results, up to the limit that is passed in.
+     *
+     * @param queries the queries to be searched with or at
+     * @param exact a boolean that determines if the query matches the stem argument
+     * @param limit the largest number of results to return, or 0 to return all of them
+     * @return an ArrayList of the best query results, in sorted order
+     */
+    public ArrayList<QueryResult> search(Set<String> queries, boolean exact, int limit) {
+        return exact ? exactSearch(queries, limit) : partialSearch(queries, limit);
     }
 
     /**
@@ -322,16 +684,26 @@ public class InvertedIndex {
      * @return an ArrayList of all query results
      */
     public ArrayList<QueryResult> exactSearch(Set<String> queries) {
+        return exactSearch(queries, 0);
+    }
 
-        HashMap<String, QueryResult> lookup = new HashMap<String, QueryResult>();
+    /**
+     * Method returns the best exact search results from inverted index, up to the limit.
+     *
+     * @param queries all search queries that are exact matches with search results
+     * @param limit the largest number of results to return, or 0 to return all of them
+     * @return an ArrayList of the best query results, in sorted order
+     */
+    public ArrayList<QueryResult> exactSearch(Set<String> queries, int limit) {
+
+        QueryResult[] lookup = new QueryResult[documents.size()];
         ArrayList<QueryResult> listResults = new ArrayList<QueryResult>();
         for(String oneQuery : queries) {
-            if (nestedMap.containsKey(oneQuery)) {
+            if (contains(oneQuery)) {
                 searchHelper(listResults, lookup, oneQuery);
             }
         }
-        Collections.sort(listResults);
-        return listResults;
+        return topResults(listResults, limit);
     }
 
     /**
@@ -342,54 +714,134 @@ public class InvertedIndex {
      * @return a list of Query Results
      */
     public ArrayList<QueryResult> partialSearch(Set<String> queries) {
+        return partialSearch(queries, 0);
+    }
 
-        HashMap<String, QueryResult> lookup = new HashMap<String, QueryResult>();
+    /**
+     * Method returns the best partial search results from inverted index, up to the limit.
+     *
+     * @param queries a TreeSet structure to do partialSearch
+     * @param limit the largest number of results to return, or 0 to return all of them
+     * @return an ArrayList of the best query results, in sorted order
+     */
+    public ArrayList<QueryResult> partialSearch(Set<String> queries, int limit) {
+
+        QueryResult[] lookup = new QueryResult[documents.size()];
         ArrayList<QueryResult> listResults = new ArrayList<QueryResult>();
         for(String oneQuery : queries) {
-            for(String stem : this.nestedMap.tailMap(oneQuery).keySet()) {
-                if (!stem.startsWith(oneQuery)) {
-                    break;
-                }
+            for(String stem : getWordsStartingWith(oneQuery)) {
                 searchHelper(listResults, lookup, stem);
             }
         }
-        Collections.sort(listResults);
-        return listResults;
+        return topResults(listResults, limit);
     }
 
     /**
-     * Helper method exclusively used for partialSearch method such that
-     * the first possible key in a list can be found and linked to the
-     * associated query.
+     * Sorts the results and keeps only the best ones, up to the limit. When there are
+     * more results than the limit, the best are picked with a heap that never holds more
+     * than the limit, so only those few are sorted instead of every result.
+     *
+     * @param results every result that was found
+     * @param limit the largest number of results to keep, or 0 to keep all of them
+     * @return the best results, in sorted order
+     */
+    protected static ArrayList<QueryResult> topResults(ArrayList<QueryResult> results, int limit) {
+        if (limit <= 0 || results.size() <= limit) {
+            Collections.sort(results);
+            return results;
+        }
+        PriorityQueue<QueryResult> worstFirst = new PriorityQueue<>(limit, Collections.reverseOrder());
+        for (QueryResult result : results) {
+            if (worstFirst.size() < limit) {
+                worstFirst.add(result);
+            }
+            else if (result.compareTo(worstFirst.peek()) < 0) {
+                worstFirst.poll();
+                worstFirst.add(result);
+            }
+        }
+        ArrayList<QueryResult> best = new ArrayList<QueryResult>(worstFirst);
+        Collections.sort(best);
+        return best;
+    }
+
+    /**
+     * Helper method used for the search methods such that the results of
+     * every file the word is found in are created or updated.
      *
      * @param list the collection of queries to be searched through
-     * @param lookup the HashMap structure in connection with the word and its query
+     * @param lookup the results found so far, indexed by document ID
      * @param word the word to be searched for in question
      */
-    private void searchHelper(ArrayList<QueryResult> list,
-                              HashMap<String, QueryResult> lookup, String word) {
+    protected void searchHelper(ArrayList<QueryResult> list,
+                                QueryResult[] lookup, String word) {
 
-        for(String location : this.nestedMap.get(word).keySet()) {
-            if(lookup.containsKey(location) == false) {
-                QueryResult result = new QueryResult(location);
-                lookup.put(location, result);
-                list.add(result);
-            }
-            lookup.get(location).updateAppearances(word, location);
+        DocumentPostings postings = getPostings(word);
+        if (postings == null) {
+            return;
+        }
+        for(int i = 0; i < postings.size(); i++) {
+            addAppearances(list, lookup, postings.docIdAt(i), postings.positionsAt(i).size());
         }
     }
 
     /**
-     * Retrieve the Default use of a SnowballStemmer Object exclusively for this class.
+     * Adds the appearances of a word in a file to the result for that file, creating
+     * the result the first time the file is found.
      *
-     * @return the Default use of a Snowball Stemmer Object
+     * @param list the collection of queries to be searched through
+     * @param lookup the results found so far, indexed by document ID
+     * @param docId the document ID of the file
+     * @param appearances the number of times the word is found in the file
      */
-    public static SnowballStemmer.ALGORITHM getDefault() {
-        return DEFAULT;
+    protected void addAppearances(ArrayList<QueryResult> list, QueryResult[] lookup,
+                                  int docId, int appearances) {
+        if(lookup[docId] == null) {
+            lookup[docId] = new QueryResult(docId);
+            list.add(lookup[docId]);
+        }
+        lookup[docId].updateAppearances(appearances);
     }
 
     @Override
     public String toString() {
-        return nestedMap.toString();
+        return new PathView().toString();
+    }
+
+    /**
+     * A read-only view of the index with every word's postings translated back to paths.
+     * The translation is done one word at a time while iterating so the whole index is
+     * never copied at once.
+     */
+    private class PathView extends AbstractMap<String, TreeMap<String, PostingList>> {
+
+        @Override
+        public Set<Map.Entry<String, TreeMap<String, PostingList>>> entrySet() {
+            return new AbstractSet<Map.Entry<String, TreeMap<String, PostingList>>>() {
+
+                @Override
+                public Iterator<Map.Entry<String, TreeMap<String, PostingList>>> iterator() {
+                    Iterator<String> words = getWords().iterator();
+                    return new Iterator<Map.Entry<String, TreeMap<String, PostingList>>>() {
+
+                        @Override
+                        public boolean hasNext() {
+                            return words.hasNext();
+                        }
+
+                        @Override
+                        public Map.Entry<String, TreeMap<String, PostingList>> next() {
+                            String word = words.next();
+                            return new SimpleImmutableEntry<>(word, getLocationMap(getPostings(word)));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return numberOfElementsInStructure();
+                }
+            };
+        }
     }
 }
\ No newline at end of file
@@ -1,9 +1,16 @@
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import opennlp.tools.stemmer.Stemmer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
 import opennlp.tools.stemmer.snowball.SnowballStemmer;
 
 /**
@@ -23,6 +30,9 @@ public class InvertedIndexBuilder {
     /** A separate InvertedIndex data structure for use in the Builder class. */
     private final InvertedIndex index;
 
+    /** Decides which files are near-duplicates that are not added, or {@code null} to add every file. */
+    private NearDuplicateDetector detector;
+
     /**
      * InvertedIndexBuilder constructor passes argument of InvertedIndex to be
      * used in comparison with the private InvertedIndex created in Builder class
@@ -36,14 +46,20 @@ public class InvertedIndexBuilder {
     /**
      * Creates InvertedIndex structure from the path that is taken.
      * Adds the file to the structure as a result of calling addFile.
-     * Iterates through all the files and checks for one on path before calling addFile.
+     * Iterates through the files as they are found while walking the path, so the first
+     * file is added before the rest of the path has been walked.
      *
      * @param inputPath the path that is checked
      * @throws IOException thrown in case a file cannot be read through or if invalid input
      */
     public void buildIndexFromPath(Path inputPath) throws IOException {
-        for (Path file : TextFileFinder.list(inputPath)) {
-            addFile(file);
+        try (Stream<Path> files = TextFileFinder.find(inputPath)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                addFile(file);
+            }
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
         }
     }
 
@@ -54,7 +70,26 @@ public class InvertedIndexBuilder {
      * @throws IOException thrown in case a file cannot be read through or if invalid input
      */
     public void addFile(Path file) throws IOException {
-        addFile(file, this.index);
+        addFile(file, this.index, this.detector);
+    }
+
+    /**
+     * Sets the detector that decides which files are near-duplicates of a file already
+     * added, which are then not added to the index.
+     *
+     * @param detector the detector to use, or {@code null} to add every file
+     */
+    public void setDetector(NearDuplicateDetector detector) {
+        this.detector = detector;
+    }
+
+    /**
+     * Returns the detector that decides which files are near-duplicates.
+     *
+     * @return the detector, or {@code null} if every file is added
+     */
+    public NearDuplicateDetector getDetector() {
+        return detector;
     }
 
     /**
@@ -63,23 +98,114 @@ public class InvertedIndexBuilder {
      *
      * Also adds to the wordCountMap data structure that takes a path and counts
      * the total number of word stems found in that file within the directory path
-     * that it is located in.
+     * that it is located in. The positions of every stem are collected for the
+     * whole file first and then added to the index at once. Words are stemmed
+     * through the shared StemCache.
      *
      * @param file the path that is to be searched through
      * @param index the InvertedIndex data structure used for Builder class
      * @throws IOException thrown in case a file cannot be read through or if invalid input
      */
     public static void addFile(Path file, InvertedIndex index) throws IOException {
+        addFile(file, index, null);
+    }
+
+    /**
+     * Builds inverted index data structure once contents of file are read through,
+     * parsed, and stemmed for searching, unless the detector finds that the file is a
+     * near-duplicate of one already added.
+     *
+     * @param file the path that is to be searched through
+     * @param index the InvertedIndex data structure used for Builder class
+     * @param detector decides whether the file is a near-duplicate, or {@code null} to always add it
+     * @throws IOException thrown in case a file cannot be read through or if invalid input
+     */
+    public static void addFile(Path file, InvertedIndex index, NearDuplicateDetector detector) throws IOException {
         try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
-            Stemmer stemmer = new SnowballStemmer(DEFAULT);
-            Integer counter = 1;
-            String fileString = file.toString();
-            String currLine = null;
-            while ((currLine = reader.readLine()) != null) {
-                for (String word : TextParser.parse(currLine)) {
-                    index.add(stemmer.stem(word).toString(), counter++, fileString);
-                }
+            HashMap<String, PostingList> words = stemLines(reader.lines()::iterator);
+            if (detector == null || detector.admit(file.toString(), words)) {
+                index.addAll(words, file.toString());
             }
         }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Indexes a file again in an index whose files have all been seen by a detector. The
+     * old contents of the file are forgotten first, then the file is indexed again unless
+     * it is now a near-duplicate, in which case it is removed from the index, or recorded
+     * as another location of its canonical document if near-duplicates are collapsed.
+     *
+     * @param location the location of the file
+     * @param words the positions of every stem found in the file now
+     * @param index the index the file is in
+     * @param detector the detector that has seen every file in the index
+     * @return the locations of the near-duplicates of the old contents, which are no
+     *         longer near-duplicates of anything and should be indexed again
+     */
+    public static List<String> replaceFile(String location, Map<String, PostingList> words,
+            InvertedIndex index, NearDuplicateDetector detector) {
+        List<String> freed = detector.forget(location);
+        if (detector.admit(location, words)) {
+            index.replaceDocument(location, words);
+        }
+        else {
+            index.removeDocument(location);
+            if (detector.isCollapse()) {
+                index.addAlternate(detector.getCanonical(location), location);
+            }
+        }
+        return freed;
+    }
+
+    /**
+     * Parses and stems every line of a file, collecting the positions of each stem
+     * without touching any index. Positions start at 1 and continue across lines.
+     *
+     * @param lines the lines of a file, in order
+     * @return the positions of every stem found in the lines
+     */
+    public static HashMap<String, PostingList> stemLines(Iterable<String> lines) {
+        TextTokenizer tokenizer = new TextTokenizer();
+        HashMap<String, PostingList> words = new HashMap<>();
+        Consumer<CharSequence> addWord = collectPositions(words);
+        for (String line : lines) {
+            tokenizer.tokenize(line, addWord);
+        }
+        return words;
+    }
+
+    /**
+     * Parses and stems the text of a web page as it is read, collecting the positions of
+     * each stem without touching any index. The HTML is never held in memory all at once;
+     * see {@link HtmlStreamParser}. Positions start at 1 and continue across the page.
+     *
+     * @param html the HTML of the page
+     * @param links called with the href of each anchor tag as it is read, or {@code null}
+     * @return the positions of every stem found in the text of the page
+     * @throws IOException thrown in case the page cannot be read
+     */
+    public static HashMap<String, PostingList> stemHtml(Reader html, Consumer<String> links) throws IOException {
+        TextTokenizer tokenizer = new TextTokenizer();
+        HashMap<String, PostingList> words = new HashMap<>();
+        Consumer<CharSequence> addWord = collectPositions(words);
+        new HtmlStreamParser(text -> tokenizer.tokenize(text, addWord), links).parse(html);
+        return words;
+    }
+
+    /**
+     * Returns a callback that stems each word through the shared StemCache and adds its
+     * position to the map, counting positions from 1.
+     *
+     * @param words the map of stems to their positions
+     * @return the callback each word is passed to, in order
+     */
+    private static Consumer<CharSequence> collectPositions(HashMap<String, PostingList> words) {
+        StemCache stems = StemCache.getShared();
+        int[] counter = {1};
+        return word -> words.computeIfAbsent(stems.stem(word), stem -> new PostingList())
+                .addPosition(counter[0]++);
     }
 }
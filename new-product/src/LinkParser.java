@@ -0,0 +1,61 @@
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Locale;
+
+/**
+ * LinkParser
+ *
+ * Turns the links of the anchor tags found in the HTML of a web page into absolute,
+ * normalized URIs, so that the same page reached through different links is recognized
+ * as the same page.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class LinkParser {
+
+    /**
+     * Resolves a link against the page it was found on and normalizes it.
+     *
+     * @param base the page the link is found on
+     * @param href the link as it is written in the page
+     * @return the absolute, normalized link, or {@code null} if it is not an HTTP or
+     *         HTTPS link or cannot be parsed
+     */
+    public static URI resolve(URI base, String href) {
+        try {
+            return normalize(base.resolve(new URI(href.strip())));
+        }
+        catch (IllegalArgumentException | URISyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Normalizes an absolute HTTP or HTTPS link: the scheme and host are made lowercase,
+     * the port is removed if it is the default for the scheme, an empty path becomes
+     * "/", and the fragment is removed.
+     *
+     * @param uri the link to normalize
+     * @return the normalized link, or {@code null} if it is not an absolute HTTP or HTTPS link
+     * @throws URISyntaxException thrown in case the normalized link cannot be built
+     */
+    public static URI normalize(URI uri) throws URISyntaxException {
+        String scheme = uri.getScheme();
+        if (scheme == null || uri.getHost() == null) {
+            return null;
+        }
+        scheme = scheme.toLowerCase(Locale.ROOT);
+        if (!scheme.equals("http") && !scheme.equals("https")) {
+            return null;
+        }
+        int port = uri.getPort();
+        if (port == 80 && scheme.equals("http") || port == 443 && scheme.equals("https")) {
+            port = -1;
+        }
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        String query = uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "";
+        String authority = uri.getHost().toLowerCase(Locale.ROOT) + (port != -1 ? ":" + port : "");
+        return new URI(scheme + "://" + authority + path + query).normalize();
+    }
+}
@@ -2,6 +2,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.logging.log4j.LogManager;
@@ -21,17 +22,17 @@ public class MultithreadIndex extends InvertedIndex {
     /**
      * A ReadWriteLock for exclusive use in this class.
      */
-    private ReadWriteLock lock;
+    private final OptimisticReadWriteLock lock;
 
     /**
      * A reader lock exclusively in use for this class.
      */
-    private ReadWriteLock.ReadLock readLock;
+    private final SimpleLock readLock;
 
     /**
      * A writer lock exclusively in use for this class.
      */
-    private ReadWriteLock.WriteLock writeLock;
+    private final SimpleLock writeLock;
 
     /** A logger for use in debugging. */
     private static final Logger logger = LogManager.getLogger();
@@ -41,7 +42,14 @@ public class MultithreadIndex extends InvertedIndex {
      */
     public MultithreadIndex() {
         super();
-        this.lock = new ReadWriteLock();
+        this.lock = new OptimisticReadWriteLock();
+        this.readLock = lock.readLock();
+        this.writeLock = lock.writeLock();
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
     }
 
     /**
@@ -61,6 +69,98 @@ public class MultithreadIndex extends InvertedIndex {
         }
     }
 
+    /**
+     * Adds all the words of a document with use of a writer lock, so that
+     * the lock is taken once per file rather than once per word.
+     */
+    @Override
+    public void addAll(Map<String, PostingList> words, String path) {
+        writeLock.lock();
+        try {
+            logger.debug("Adding document to structure. ");
+            super.addAll(words, path);
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Merges another index into this one with use of a writer lock, so that
+     * a whole partial index is added with a single lock.
+     */
+    @Override
+    public void merge(InvertedIndex other) {
+        writeLock.lock();
+        try {
+            logger.debug("Merging index into structure. ");
+            super.merge(other);
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Removes a file from the index with use of a writer lock.
+     */
+    @Override
+    public boolean removeDocument(String path) {
+        writeLock.lock();
+        try {
+            logger.debug("Removing document from structure. ");
+            return super.removeDocument(path);
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Records another location of a file with use of a writer lock.
+     */
+    @Override
+    public boolean addAlternate(String path, String location) {
+        writeLock.lock();
+        try {
+            return super.addAlternate(path, location);
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the words of a file with use of a writer lock, so that readers never see
+     * the file removed but not added again.
+     */
+    @Override
+    public void replaceDocument(String path, Map<String, PostingList> words) {
+        writeLock.lock();
+        try {
+            logger.debug("Replacing document in structure. ");
+            super.replaceDocument(path, words);
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Purges the positions of removed files with use of a writer lock.
+     */
+    @Override
+    public void purge() {
+        writeLock.lock();
+        try {
+            logger.debug("Purging removed documents from structure. ");
+            super.purge();
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
     /**
      * Checks with the use of a reader lock if a String key is found in
      * the inverted index data structure.
@@ -109,6 +209,30 @@ public class MultithreadIndex extends InvertedIndex {
         }
     }
 
+    /**
+     * Reads the number of words with an optimistic read, which takes no lock, and
+     * only takes the reader lock if a writer got in while reading. The optimistic read
+     * is only used while no file is waiting to be purged, when the number of words is
+     * the size of the map; otherwise counting walks every word, so it takes the lock.
+     */
+    @Override
+    public int numberOfElementsInStructure() {
+        long stamp = lock.tryOptimisticRead();
+        if (!hasTombstones()) {
+            int size = numberOfWordsStored();
+            if (lock.validate(stamp)) {
+                return size;
+            }
+        }
+        readLock.lock();
+        try {
+            return super.numberOfElementsInStructure();
+        }
+        finally {
+            readLock.unlock();
+        }
+    }
+
     @Override
     public int getNumberPositions(String element) {
         readLock.lock();
@@ -153,25 +277,43 @@ public class MultithreadIndex extends InvertedIndex {
         }
     }
 
+    /**
+     * Writes the index to JSON with use of a reader lock, since writing only
+     * reads the index. Searches that started before a writer came along can run
+     * while the index is being written, and adding to the index waits until the
+     * dump is done. Once a writer is waiting, searches that start after it wait
+     * for the writer as well, since the lock prefers writers.
+     */
     @Override
     public void writeIndex(Path path) throws IOException {
-        writeLock.lock();
+        readLock.lock();
         try {
             super.writeIndex(path);
         }
         finally {
-            writeLock.unlock();
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void writeSegment(Path path) throws IOException {
+        readLock.lock();
+        try {
+            super.writeSegment(path);
+        }
+        finally {
+            readLock.unlock();
         }
     }
 
     @Override
     public void writeWordCount(Path path) throws IOException {
-        writeLock.lock();
+        readLock.lock();
         try {
             super.writeWordCount(path);
         }
         finally {
-            writeLock.unlock();
+            readLock.unlock();
         }
     }
 
@@ -187,7 +329,22 @@ public class MultithreadIndex extends InvertedIndex {
             return super.search(queries, exact);
         }
         finally {
-            readLock.lock();
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Performs the same search as {@link #search(Set, boolean)} but only returns
+     * the best results up to the limit. Includes use of a reader lock.
+     */
+    @Override
+    public ArrayList<QueryResult> search(Set<String> queries, boolean exact, int limit) {
+        readLock.lock();
+        try {
+            return super.search(queries, exact, limit);
+        }
+        finally {
+            readLock.unlock();
         }
     }
 
@@ -211,16 +368,7 @@ public class MultithreadIndex extends InvertedIndex {
      *
      * @return the lock that is in use for this class
      */
-    public ReadWriteLock getLock() {
+    public OptimisticReadWriteLock getLock() {
         return lock;
     }
-
-    /**
-     * Set the lock to the value it needs to be set to.
-     *
-     * @param lock the lock to be set and/or initialized
-     */
-    public void setLock(ReadWriteLock lock) {
-        this.lock = lock;
-    }
-}
\ No newline at end of file
+}
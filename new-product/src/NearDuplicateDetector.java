@@ -0,0 +1,475 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * NearDuplicateDetector
+ *
+ * Recognizes documents that are the same or nearly the same as one already indexed, from
+ * the stems found in them, before they are added to the index. Every document is given a
+ * 64-bit SimHash: each distinct run of {@link #SHINGLE} stems in a row (a shingle) votes
+ * on every bit with the bit of its own hash, so documents that share most of their
+ * shingles have SimHashes that differ in only a few bits. Shingles are used rather than
+ * single stems so that the order of the words matters, and each counts once so that a
+ * few very common stems do not outvote the rest. A document whose SimHash is within the
+ * maximum Hamming distance of a document seen before is a near-duplicate of it.
+ *
+ * To avoid comparing every document to every other, the 64 bits are split into one more
+ * band than the maximum distance. Two SimHashes that differ in at most that many bits must
+ * have at least one band exactly the same, so only the documents that share a band with
+ * the new one are compared. The first document seen is the canonical one; a near-duplicate
+ * is either skipped, or collapsed into the canonical document without indexing it again.
+ * The locations collapsed into each canonical document are kept, so they can be recorded
+ * in the index as alternate locations of that document. A document that is removed from
+ * the index or changed is forgotten, so that it no longer hides its near-duplicates, and
+ * they can be checked again. The distance is capped at
+ * {@link #MAX_DISTANCE}, since with more bands each band is too narrow to narrow down
+ * the documents compared.
+ *
+ * When documents are indexed by many threads, which of a set of near-duplicates is seen
+ * first, and so becomes the canonical document, depends on the order the threads finish.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class NearDuplicateDetector {
+
+    /** The default maximum number of bits two near-duplicate SimHashes differ in. */
+    public static final int DEFAULT_DISTANCE = 3;
+
+    /** The most bits two near-duplicate SimHashes may be allowed to differ in. */
+    public static final int MAX_DISTANCE = 8;
+
+    /** The number of stems in a row that make up a shingle. */
+    public static final int SHINGLE = 3;
+
+    /** The number of bits in a SimHash. */
+    private static final int BITS = Long.SIZE;
+
+    /** The maximum number of bits two near-duplicate SimHashes differ in. */
+    private final int maxDistance;
+
+    /** Whether near-duplicates are collapsed into their canonical document rather than skipped. */
+    private final boolean collapse;
+
+    /** The lowest bit of each band. */
+    private final int[] shifts;
+
+    /** The bits of each band, after shifting. */
+    private final long[] masks;
+
+    /** For each band, the canonical documents by the value of that band of their SimHash. */
+    private final HashMap<Long, ArrayList<Signature>>[] bands;
+
+    /** The canonical documents by their location. */
+    private final HashMap<String, Signature> canonicals;
+
+    /** The locations of the near-duplicates found of each canonical document. */
+    private final TreeMap<String, TreeSet<String>> nearDuplicates;
+
+    /** The location of the canonical document of each near-duplicate. */
+    private final HashMap<String, String> canonicalOf;
+
+    /** Guards the bands, the documents, the near-duplicates, and the counts. */
+    private final ReentrantLock lock;
+
+    /** The number of canonical documents. */
+    private int documents;
+
+    /** The number of near-duplicates found. */
+    private int duplicates;
+
+    /**
+     * Constructor of a detector that skips documents within the default distance.
+     */
+    public NearDuplicateDetector() {
+        this(DEFAULT_DISTANCE, false);
+    }
+
+    /**
+     * Constructor of a detector.
+     *
+     * @param maxDistance the maximum number of bits two near-duplicate SimHashes differ in,
+     *        up to {@link #MAX_DISTANCE}; 0 finds only documents with the same SimHash
+     * @param collapse whether near-duplicates are collapsed into their canonical document
+     *        rather than skipped
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public NearDuplicateDetector(int maxDistance, boolean collapse) {
+        this.maxDistance = Math.min(Math.max(0, maxDistance), MAX_DISTANCE);
+        this.collapse = collapse;
+        int count = this.maxDistance + 1;
+        this.shifts = new int[count];
+        this.masks = new long[count];
+        this.bands = new HashMap[count];
+        int shift = 0;
+        for (int band = 0; band < count; band++) {
+            int width = BITS / count + (band < BITS % count ? 1 : 0);
+            shifts[band] = shift;
+            masks[band] = width == BITS ? -1L : (1L << width) - 1;
+            bands[band] = new HashMap<>();
+            shift += width;
+        }
+        this.canonicals = new HashMap<>();
+        this.nearDuplicates = new TreeMap<>();
+        this.canonicalOf = new HashMap<>();
+        this.lock = new ReentrantLock();
+    }
+
+    /**
+     * Checks whether a document should be added to the index: it should, unless it is a
+     * near-duplicate of a document already admitted. A document that is admitted becomes
+     * the canonical document for any near-duplicates of it seen later. A document with no
+     * words is always admitted and never becomes canonical. A document that changed since
+     * it was last checked should be forgotten first.
+     *
+     * @param location the location of the document
+     * @param words the positions of every stem found in the document
+     * @return true if the document should be added to the index; false if it is a near-duplicate
+     */
+    public boolean admit(String location, Map<String, PostingList> words) {
+        if (words.isEmpty()) {
+            return true;
+        }
+        long simHash = simHash(words);
+        lock.lock();
+        try {
+            forgetNearDuplicate(location);
+            Signature canonical = find(simHash);
+            if (canonical == null) {
+                Signature signature = new Signature(simHash, location);
+                for (int band = 0; band < bands.length; band++) {
+                    bands[band].computeIfAbsent(band(simHash, band), key -> new ArrayList<>()).add(signature);
+                }
+                canonicals.put(location, signature);
+                documents++;
+                return true;
+            }
+            if (canonical.location.equals(location)) {
+                return true;
+            }
+            duplicates++;
+            nearDuplicates.computeIfAbsent(canonical.location, key -> new TreeSet<>()).add(location);
+            canonicalOf.put(location, canonical.location);
+            return false;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forgets a document, such as when it is removed from the index or changed. A
+     * canonical document no longer hides any document, and the near-duplicates found of
+     * it are returned, no longer near-duplicates of anything, so they can be checked
+     * again. A near-duplicate is no longer listed with its canonical document.
+     *
+     * @param location the location of the document
+     * @return the locations of the near-duplicates of the document, sorted; empty if it
+     *         had none or was not canonical
+     */
+    public List<String> forget(String location) {
+        lock.lock();
+        try {
+            Signature signature = canonicals.remove(location);
+            if (signature == null) {
+                forgetNearDuplicate(location);
+                return List.of();
+            }
+            for (int band = 0; band < bands.length; band++) {
+                long key = band(signature.simHash, band);
+                ArrayList<Signature> candidates = bands[band].get(key);
+                candidates.remove(signature);
+                if (candidates.isEmpty()) {
+                    bands[band].remove(key);
+                }
+            }
+            documents--;
+            TreeSet<String> freed = nearDuplicates.remove(location);
+            if (freed == null) {
+                return List.of();
+            }
+            freed.forEach(canonicalOf::remove);
+            duplicates -= freed.size();
+            return List.copyOf(freed);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the canonical document a location was found to be a near-duplicate of.
+     *
+     * @param location the location of the document
+     * @return the location of its canonical document, or {@code null} if it is not a near-duplicate
+     */
+    public String getCanonical(String location) {
+        lock.lock();
+        try {
+            return canonicalOf.get(location);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Computes the SimHash of a document from the distinct shingles of its stems, put
+     * back in order by their positions. A document with fewer stems than a shingle is
+     * treated as one shingle of all of them.
+     *
+     * @param words the positions of every stem found in the document
+     * @return the SimHash
+     */
+    public static long simHash(Map<String, PostingList> words) {
+        int length = 0;
+        for (PostingList positions : words.values()) {
+            length = Math.max(length, positions.getLast());
+        }
+        long[] stems = new long[length];
+        for (Map.Entry<String, PostingList> entry : words.entrySet()) {
+            long hash = FingerprintSet.fingerprint(entry.getKey());
+            Iterator<Integer> iterator = entry.getValue().iterator();
+            if (iterator instanceof PrimitiveIterator.OfInt) {
+                PrimitiveIterator.OfInt ints = (PrimitiveIterator.OfInt) iterator;
+                while (ints.hasNext()) {
+                    stems[ints.nextInt() - 1] = hash;
+                }
+            }
+            else {
+                while (iterator.hasNext()) {
+                    stems[iterator.next() - 1] = hash;
+                }
+            }
+        }
+        int count = Math.max(1, length - SHINGLE + 1);
+        long[] shingles = new long[count];
+        for (int i = 0; i < count; i++) {
+            long shingle = 0;
+            for (int j = i; j < Math.min(length, i + SHINGLE); j++) {
+                shingle = FingerprintSet.mix(Long.rotateLeft(shingle, 21) ^ stems[j]);
+            }
+            shingles[i] = shingle;
+        }
+        Arrays.sort(shingles);
+        int[] votes = new int[BITS];
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && shingles[i] == shingles[i - 1]) {
+                continue;
+            }
+            for (int bit = 0; bit < BITS; bit++) {
+                votes[bit] += ((shingles[i] >>> bit) & 1) != 0 ? 1 : -1;
+            }
+        }
+        long simHash = 0;
+        for (int bit = 0; bit < BITS; bit++) {
+            if (votes[bit] > 0) {
+                simHash |= 1L << bit;
+            }
+        }
+        return simHash;
+    }
+
+    /**
+     * Returns the number of canonical documents.
+     *
+     * @return the number of documents admitted that had words and are not forgotten
+     */
+    public int getDocuments() {
+        lock.lock();
+        try {
+            return documents;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of near-duplicates found.
+     *
+     * @return the number of documents not admitted that are still near-duplicates
+     */
+    public int getDuplicates() {
+        lock.lock();
+        try {
+            return duplicates;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks whether near-duplicates are collapsed into their canonical document.
+     *
+     * @return true if near-duplicates are collapsed; false if they are skipped
+     */
+    public boolean isCollapse() {
+        return collapse;
+    }
+
+    /**
+     * Returns a copy of the locations collapsed into each canonical document.
+     *
+     * @return the collapsed locations, sorted, by canonical location; empty if
+     *         near-duplicates are skipped
+     */
+    public TreeMap<String, TreeSet<String>> getCollapsed() {
+        lock.lock();
+        try {
+            TreeMap<String, TreeSet<String>> copy = new TreeMap<>();
+            if (!collapse) {
+                return copy;
+            }
+            nearDuplicates.forEach((canonical, locations) -> copy.put(canonical, new TreeSet<>(locations)));
+            return copy;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the locations collapsed into each canonical document as a pretty JSON object
+     * of arrays.
+     *
+     * @param path the file path to write to
+     * @throws IOException thrown in case invalid input provided/output returned
+     */
+    public void writeCollapsed(Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write("{");
+            var iterator = getCollapsed().entrySet().iterator();
+            while (iterator.hasNext()) {
+                var entry = iterator.next();
+                writer.write("\n");
+                SimpleJsonWriter.quote(entry.getKey(), writer, 1);
+                writer.write(": ");
+                writeLocations(entry.getValue().iterator(), writer);
+                if (iterator.hasNext()) {
+                    writer.write(",");
+                }
+            }
+            writer.write("\n}");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Documents: %d Near-duplicates %s: %d",
+                getDocuments(), collapse ? "collapsed" : "skipped", getDuplicates());
+    }
+
+    /**
+     * Writes locations as a pretty JSON array of strings, nested one level deep.
+     *
+     * @param locations the locations to write
+     * @param writer the writer to use
+     * @throws IOException thrown in case invalid input provided/output returned
+     */
+    private static void writeLocations(Iterator<String> locations, Writer writer) throws IOException {
+        writer.write("[");
+        while (locations.hasNext()) {
+            writer.write("\n");
+            SimpleJsonWriter.quote(locations.next(), writer, 2);
+            if (locations.hasNext()) {
+                writer.write(",");
+            }
+        }
+        writer.write("\n");
+        SimpleJsonWriter.indent("]", writer, 1);
+    }
+
+    /**
+     * Stops listing a location as a near-duplicate of its canonical document, if it is
+     * one. Only called while holding the lock.
+     *
+     * @param location the location of the document
+     */
+    private void forgetNearDuplicate(String location) {
+        String canonical = canonicalOf.remove(location);
+        if (canonical != null) {
+            TreeSet<String> locations = nearDuplicates.get(canonical);
+            locations.remove(location);
+            if (locations.isEmpty()) {
+                nearDuplicates.remove(canonical);
+            }
+            duplicates--;
+        }
+    }
+
+    /**
+     * Finds a canonical document whose SimHash is within the maximum distance, among
+     * those that share a band with the SimHash passed in.
+     *
+     * @param simHash the SimHash to look for
+     * @return the closest canonical document found, or {@code null} if there is none
+     */
+    private Signature find(long simHash) {
+        Signature closest = null;
+        int closestDistance = maxDistance + 1;
+        for (int band = 0; band < bands.length; band++) {
+            ArrayList<Signature> candidates = bands[band].get(band(simHash, band));
+            if (candidates == null) {
+                continue;
+            }
+            for (Signature candidate : candidates) {
+                int distance = Long.bitCount(candidate.simHash ^ simHash);
+                if (distance < closestDistance) {
+                    closest = candidate;
+                    closestDistance = distance;
+                }
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Returns the value of one band of a SimHash.
+     *
+     * @param simHash the SimHash
+     * @param band the band
+     * @return the bits of the band, shifted down
+     */
+    private long band(long simHash, int band) {
+        return (simHash >>> shifts[band]) & masks[band];
+    }
+
+    /**
+     * The SimHash of a canonical document and where it is.
+     */
+    private static class Signature {
+
+        /** The SimHash of the document. */
+        private final long simHash;
+
+        /** The location of the document. */
+        private final String location;
+
+        /**
+         * Constructor of the signature of a canonical document.
+         *
+         * @param simHash the SimHash of the document
+         * @param location the location of the document
+         */
+        public Signature(long simHash, String location) {
+            this.simHash = simHash;
+            this.location = location;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+import java.util.ConcurrentModificationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Maintains a pair of associated locks, one for read-only operations and one
+ * for writing, along with optimistic reads that take no lock at all.
+ *
+ * An optimistic read is a stamp taken before reading and validated afterwards; it
+ * only reads the state of the lock, so many threads can read at once without any of
+ * them writing to memory the others share. If a writer got in between, validating
+ * fails and the read should be done again under the read lock. Optimistic reads are
+ * meant for short reads that cannot go wrong if the data changes part way, such as
+ * reading a size.
+ *
+ * The read and write locks are built on a {@link StampedLock}, so taking the read lock
+ * is a single atomic update instead of a synchronized block, and waiting threads are
+ * woken one at a time. A StampedLock on its own still lets a new reader in ahead of a
+ * writer that is already waiting, so the writers waiting for the lock are counted as
+ * well: while any are, new readers wait until they have had their turn, so a steady
+ * stream of searches cannot starve a writer. Threads that already hold the read lock
+ * can always take it again.
+ *
+ * Both locks are reentrant for the thread that holds them, and the thread holding the
+ * write lock may also take the read lock. Releasing the write lock while still holding
+ * the read lock downgrades to a read lock. Taking the write lock while holding only the
+ * read lock would deadlock, so it throws an {@link IllegalStateException} instead. If
+ * unlock is called by a thread that does not hold the lock, a
+ * {@link ConcurrentModificationException} is thrown.
+ *
+ * @see SimpleLock
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class OptimisticReadWriteLock {
+
+    /** The lock that the read and write locks are built on. */
+    private final StampedLock stamped;
+
+    /** The read holds of each thread. */
+    private final ThreadLocal<ReadHold> readHolds;
+
+    /** The lock for read operations. */
+    private final ReadLock readLock;
+
+    /** The lock for write operations. */
+    private final WriteLock writeLock;
+
+    /** The number of threads waiting to take the write lock. */
+    private final AtomicInteger waitingWriters;
+
+    /** Readers wait on this while there are waiting writers, and are notified once there are none. */
+    private final Object writersDone;
+
+    /** The thread holding the write lock, or {@code null} if none. */
+    private volatile Thread writer;
+
+    /** The number of times the writer has taken the write lock; only used by the writer. */
+    private int writeHolds;
+
+    /** The stamp of the write lock; only used by the writer. */
+    private long writeStamp;
+
+    /**
+     * Initializes a new optimistic read/write lock.
+     */
+    public OptimisticReadWriteLock() {
+        this.stamped = new StampedLock();
+        this.readHolds = ThreadLocal.withInitial(ReadHold::new);
+        this.readLock = new ReadLock();
+        this.writeLock = new WriteLock();
+        this.waitingWriters = new AtomicInteger();
+        this.writersDone = new Object();
+        this.writer = null;
+        this.writeHolds = 0;
+        this.writeStamp = 0;
+    }
+
+    /**
+     * Returns the lock for read operations.
+     *
+     * @return the read lock
+     */
+    public SimpleLock readLock() {
+        return readLock;
+    }
+
+    /**
+     * Returns the lock for write operations.
+     *
+     * @return the write lock
+     */
+    public SimpleLock writeLock() {
+        return writeLock;
+    }
+
+    /**
+     * Starts an optimistic read.
+     *
+     * @return a stamp to validate once done reading, or 0 if the write lock is held
+     * @see #validate(long)
+     */
+    public long tryOptimisticRead() {
+        return stamped.tryOptimisticRead();
+    }
+
+    /**
+     * Checks that nothing was written since an optimistic read started.
+     *
+     * @param stamp the stamp from {@link #tryOptimisticRead()}
+     * @return true if what was read is still valid; false if it must be read again
+     *         under the read lock
+     */
+    public boolean validate(long stamp) {
+        return stamp != 0 && stamped.validate(stamp);
+    }
+
+    /**
+     * Determines whether the thread running this code holds the write lock.
+     *
+     * @return true if the current thread holds the write lock
+     */
+    public boolean isWriteLockedByCurrentThread() {
+        return writer == Thread.currentThread();
+    }
+
+    /**
+     * Waits without giving up on an interrupt until no writer is waiting for the lock,
+     * keeping the interrupt for the caller.
+     */
+    private void awaitWriters() {
+        boolean interrupted = false;
+        synchronized (writersDone) {
+            while (waitingWriters.get() > 0) {
+                try {
+                    writersDone.wait();
+                }
+                catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The number of times a thread holds the read lock and the stamp it holds it with.
+     */
+    private static class ReadHold {
+
+        /** The number of times the read lock is held. */
+        private int count;
+
+        /** The stamp of the read lock, or 0 if it is held through the write lock. */
+        private long stamp;
+    }
+
+    /**
+     * Used to maintain simultaneous read operations.
+     */
+    private class ReadLock implements SimpleLock {
+
+        /**
+         * Will wait until there are no active or waiting writers, and then takes a
+         * read lock. Does not wait if the current thread already holds either lock.
+         */
+        @Override
+        public void lock() {
+            ReadHold hold = readHolds.get();
+            if (hold.count > 0 || writer == Thread.currentThread()) {
+                hold.count++;
+                return;
+            }
+            if (waitingWriters.get() > 0) {
+                awaitWriters();
+            }
+            hold.stamp = stamped.readLock();
+            hold.count = 1;
+        }
+
+        /**
+         * Releases one hold of the read lock, letting a waiting writer in once no
+         * readers are left.
+         *
+         * @throws ConcurrentModificationException if the current thread does not hold
+         *         the read lock
+         */
+        @Override
+        public void unlock() throws ConcurrentModificationException {
+            ReadHold hold = readHolds.get();
+            if (hold.count == 0) {
+                throw new ConcurrentModificationException("Read lock is not held by " + Thread.currentThread());
+            }
+            hold.count--;
+            if (hold.count == 0 && hold.stamp != 0) {
+                stamped.unlockRead(hold.stamp);
+                hold.stamp = 0;
+            }
+        }
+    }
+
+    /**
+     * Used to maintain exclusive write operations.
+     */
+    private class WriteLock implements SimpleLock {
+
+        /**
+         * Will wait until there are no active readers or writers, and then takes the
+         * write lock and records which thread holds it. While it waits, new readers
+         * wait as well.
+         *
+         * @throws IllegalStateException if the current thread holds only the read lock
+         */
+        @Override
+        public void lock() throws IllegalStateException {
+            Thread current = Thread.currentThread();
+            if (writer == current) {
+                writeHolds++;
+                return;
+            }
+            if (readHolds.get().count > 0) {
+                throw new IllegalStateException("Cannot take the write lock while holding the read lock.");
+            }
+            waitingWriters.incrementAndGet();
+            try {
+                writeStamp = stamped.writeLock();
+            }
+            finally {
+                if (waitingWriters.decrementAndGet() == 0) {
+                    synchronized (writersDone) {
+                        writersDone.notifyAll();
+                    }
+                }
+            }
+            writer = current;
+            writeHolds = 1;
+        }
+
+        /**
+         * Releases one hold of the write lock. Once the last hold is released, waiting
+         * threads are let in, or the lock is downgraded to a read lock if the current
+         * thread still holds the read lock.
+         *
+         * @throws ConcurrentModificationException if the current thread does not hold
+         *         the write lock
+         */
+        @Override
+        public void unlock() throws ConcurrentModificationException {
+            if (writer != Thread.currentThread()) {
+                throw new ConcurrentModificationException("Write lock is not held by " + Thread.currentThread());
+            }
+            writeHolds--;
+            if (writeHolds > 0) {
+                return;
+            }
+            writer = null;
+            long stamp = writeStamp;
+            writeStamp = 0;
+            ReadHold hold = readHolds.get();
+            if (hold.count > 0) {
+                hold.stamp = stamped.tryConvertToReadLock(stamp);
+            }
+            else {
+                stamped.unlockWrite(stamp);
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * ParallelIndexBuilder
+ *
+ * Builds the inverted index from a path on a fork/join pool. The directories are
+ * walked in parallel on the pool with {@link TextFileFinder#discover}, and every text
+ * file is indexed on the pool as soon as it is found, so indexing starts right away
+ * instead of after the whole tree has been walked. Each thread of the pool indexes its
+ * files into a private InvertedIndex that no other thread touches (so no locking is
+ * needed), and once every file is indexed the partial indexes are merged back together
+ * two at a time, so the merging work is spread across the pool as well.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class ParallelIndexBuilder extends InvertedIndexBuilder {
+
+    /** The index that the merged result is added to. */
+    private final InvertedIndex index;
+
+    /** The number of threads to use. */
+    private final int threads;
+
+    /**
+     * Constructor for a builder that uses the number of threads passed in.
+     *
+     * @param index the InvertedIndex that the merged result is added to
+     * @param threads the number of threads to use; should be at least 1
+     */
+    public ParallelIndexBuilder(InvertedIndex index, int threads) {
+        super(index);
+        this.index = index;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Creates InvertedIndex structure from the path that is taken, indexing the files
+     * in parallel as they are found and merging the result into the index of this builder.
+     *
+     * @param inputPath the path that is checked
+     * @throws IOException thrown in case a file cannot be read through or if invalid input
+     */
+    @Override
+    public void buildIndexFromPath(Path inputPath) throws IOException {
+        ConcurrentHashMap<Thread, InvertedIndex> partials = new ConcurrentHashMap<>();
+        NearDuplicateDetector detector = getDetector();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            TextFileFinder.discover(inputPath, pool, file -> {
+                InvertedIndex partial = partials.computeIfAbsent(Thread.currentThread(),
+                        thread -> new InvertedIndex());
+                try {
+                    addFile(file, partial, detector);
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (!partials.isEmpty()) {
+                index.merge(pool.invoke(new MergeTask(new ArrayList<>(partials.values()))));
+            }
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Returns the number of threads used by this builder.
+     *
+     * @return the number of threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Merges a list of partial indexes, splitting the list in half and merging the two
+     * halves once they are both merged.
+     */
+    @SuppressWarnings("serial")
+    private static class MergeTask extends RecursiveTask<InvertedIndex> {
+
+        /** The partial indexes to merge. */
+        private final List<InvertedIndex> partials;
+
+        /**
+         * Constructor for a list of partial indexes.
+         *
+         * @param partials the partial indexes to merge; at least one
+         */
+        public MergeTask(List<InvertedIndex> partials) {
+            this.partials = partials;
+        }
+
+        @Override
+        protected InvertedIndex compute() {
+            if (partials.size() == 1) {
+                return partials.get(0);
+            }
+            int middle = partials.size() / 2;
+            MergeTask left = new MergeTask(partials.subList(0, middle));
+            MergeTask right = new MergeTask(partials.subList(middle, partials.size()));
+            right.fork();
+            InvertedIndex merged = left.compute();
+            merged.merge(right.join());
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,338 @@
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * PostingList
+ *
+ * A compact, sorted collection of the positions a single word is found at in a
+ * single file. Positions are stored as the difference from the previous position
+ * (delta encoding) and each difference is written as a variable-length sequence
+ * of bytes, seven bits at a time, in a growable byte array. Since positions arrive
+ * in increasing order while a file is read, appending is the common case and never
+ * creates an Integer object.
+ *
+ * Behaves like a read-only sorted set of Integers for everything outside of this
+ * package's index classes; duplicates are ignored just like a TreeSet would.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class PostingList extends AbstractCollection<Integer> {
+
+    /** The number of bytes reserved the first time a position is added. */
+    private static final int INITIAL_CAPACITY = 4;
+
+    /** The encoded gaps between positions. */
+    private byte[] bytes;
+
+    /** The number of bytes used in the byte array. */
+    private int length;
+
+    /** The number of positions stored. */
+    private int count;
+
+    /** The largest (and most recently appended) position stored. */
+    private int last;
+
+    /** Constructor of an empty PostingList that does not reserve any memory until needed. */
+    public PostingList() {
+        this.bytes = null;
+        this.length = 0;
+        this.count = 0;
+        this.last = 0;
+    }
+
+    /**
+     * Constructor of a PostingList from positions that are already encoded.
+     *
+     * @param bytes the encoded gaps between positions
+     * @param count the number of positions encoded
+     * @param last the largest position encoded
+     */
+    private PostingList(byte[] bytes, int count, int last) {
+        this.bytes = bytes;
+        this.length = bytes.length;
+        this.count = count;
+        this.last = last;
+    }
+
+    /**
+     * Reads a PostingList that was written with {@link #write(DataOutput)}, without
+     * moving the position of the buffer so that the buffer can be shared by threads.
+     *
+     * @param buffer the buffer to read from
+     * @param offset the index in the buffer the list starts at
+     * @return the PostingList that was read
+     */
+    public static PostingList read(ByteBuffer buffer, int offset) {
+        int count = buffer.getInt(offset);
+        int last = buffer.getInt(offset + 4);
+        byte[] bytes = new byte[buffer.getInt(offset + 8)];
+        buffer.get(offset + 12, bytes);
+        return new PostingList(bytes, count, last);
+    }
+
+    /**
+     * Returns the number of bytes {@link #write(DataOutput)} writes for a list that was
+     * written at the offset, so that it can be skipped over without being read.
+     *
+     * @param buffer the buffer the list was written to
+     * @param offset the index in the buffer the list starts at
+     * @return the number of bytes the list takes up
+     */
+    public static int writtenLength(ByteBuffer buffer, int offset) {
+        return 12 + buffer.getInt(offset + 8);
+    }
+
+    /**
+     * Writes the number of positions, the last position, and the encoded positions.
+     *
+     * @param out the output to write to
+     * @throws IOException thrown in case the output cannot be written to
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(count);
+        out.writeInt(last);
+        out.writeInt(length);
+        if (length > 0) {
+            out.write(bytes, 0, length);
+        }
+    }
+
+    /**
+     * Adds a position to this list. Positions greater than the last one are appended
+     * directly to the end of the encoded bytes; any other position is inserted in order
+     * by re-encoding the list, which does not happen when reading through a file.
+     *
+     * @param position the position to be added, must not be negative
+     * @return {@code true} if the position was not already stored; false otherwise
+     */
+    public boolean addPosition(int position) {
+        if (position < 0) {
+            throw new IllegalArgumentException("Position must not be negative: " + position);
+        }
+        if (count == 0 || position > last) {
+            writeGap(count == 0 ? position : position - last);
+            last = position;
+            count++;
+            return true;
+        }
+        if (position == last || containsPosition(position)) {
+            return false;
+        }
+        insert(position);
+        return true;
+    }
+
+    /**
+     * Adds every position of another list to this one.
+     *
+     * @param other the list of positions to be added
+     * @return the number of positions that were not already stored
+     */
+    public int addPositions(PostingList other) {
+        int added = 0;
+        PositionIterator iterator = other.new PositionIterator();
+        while (iterator.hasNext()) {
+            if (addPosition(iterator.nextInt())) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Determines whether the position is stored in this list. Stops decoding once a
+     * position larger than the one looked for is reached.
+     *
+     * @param position the position to lookup
+     * @return {@code true} if the position is stored; false otherwise
+     */
+    public boolean containsPosition(int position) {
+        if (count == 0 || position > last || position < 0) {
+            return false;
+        }
+        PositionIterator iterator = new PositionIterator();
+        while (iterator.hasNext()) {
+            int current = iterator.nextInt();
+            if (current >= position) {
+                return current == position;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the largest position stored in this list.
+     *
+     * @return the last position, or 0 if the list is empty
+     */
+    public int getLast() {
+        return last;
+    }
+
+    /**
+     * Returns the number of bytes used to store every position in this list.
+     *
+     * @return the encoded size of the list in bytes
+     */
+    public int encodedLength() {
+        return length;
+    }
+
+    /**
+     * Returns a copy of this list that is not affected by any positions added to this
+     * list afterward.
+     *
+     * @return a copy of this list
+     */
+    public PostingList copy() {
+        if (bytes == null) {
+            return new PostingList();
+        }
+        byte[] copied = new byte[length];
+        System.arraycopy(bytes, 0, copied, 0, length);
+        return new PostingList(copied, count, last);
+    }
+
+    /**
+     * Releases any unused capacity at the end of the byte array. Useful once a file
+     * has been fully read and no more positions will be appended for it.
+     */
+    public void trimToSize() {
+        if (bytes != null && bytes.length > length) {
+            byte[] trimmed = new byte[length];
+            System.arraycopy(bytes, 0, trimmed, 0, length);
+            bytes = trimmed;
+        }
+    }
+
+    @Override
+    public boolean contains(Object element) {
+        return element instanceof Integer && containsPosition((Integer) element);
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        return new PositionIterator();
+    }
+
+    /**
+     * Writes one gap to the end of the byte array, seven bits per byte with the high bit
+     * set on every byte except the final one.
+     *
+     * @param gap the difference from the previous position
+     */
+    private void writeGap(int gap) {
+        ensureCapacity(length + 5);
+        while ((gap & ~0x7F) != 0) {
+            bytes[length++] = (byte) ((gap & 0x7F) | 0x80);
+            gap >>>= 7;
+        }
+        bytes[length++] = (byte) gap;
+    }
+
+    /**
+     * Grows the byte array, doubling its size, so that it can hold at least the number
+     * of bytes that is passed in.
+     *
+     * @param needed the minimum number of bytes required
+     */
+    private void ensureCapacity(int needed) {
+        if (bytes == null) {
+            bytes = new byte[Math.max(INITIAL_CAPACITY, needed)];
+        }
+        else if (bytes.length < needed) {
+            byte[] grown = new byte[Math.max(bytes.length * 2, needed)];
+            System.arraycopy(bytes, 0, grown, 0, length);
+            bytes = grown;
+        }
+    }
+
+    /**
+     * Inserts a position that is smaller than the last position by decoding and
+     * re-encoding every position in this list.
+     *
+     * @param position the position to insert
+     */
+    private void insert(int position) {
+        int[] positions = new int[count + 1];
+        int i = 0;
+        boolean inserted = false;
+        PositionIterator iterator = new PositionIterator();
+        while (iterator.hasNext()) {
+            int current = iterator.nextInt();
+            if (!inserted && position < current) {
+                positions[i++] = position;
+                inserted = true;
+            }
+            positions[i++] = current;
+        }
+        length = 0;
+        count = 0;
+        for (int current : positions) {
+            writeGap(count == 0 ? current : current - last);
+            last = current;
+            count++;
+        }
+    }
+
+    /**
+     * Decodes the positions of this list in increasing order. Callers that check for
+     * {@link PrimitiveIterator.OfInt} can read the positions without boxing.
+     */
+    private class PositionIterator implements PrimitiveIterator.OfInt {
+
+        /** The index of the next byte to be decoded. */
+        private int offset = 0;
+
+        /** The number of positions decoded so far. */
+        private int decoded = 0;
+
+        /** The position that was decoded last. */
+        private int current = 0;
+
+        @Override
+        public boolean hasNext() {
+            return decoded < count;
+        }
+
+        @Override
+        public Integer next() {
+            return nextInt();
+        }
+
+        /**
+         * Decodes the next position without creating an Integer object.
+         *
+         * @return the next position in the list
+         */
+        @Override
+        public int nextInt() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[offset++];
+                gap |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            current = decoded == 0 ? gap : current + gap;
+            decoded++;
+            return current;
+        }
+    }
+}
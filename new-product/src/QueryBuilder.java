@@ -7,7 +7,6 @@ import java.util.List;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
-import opennlp.tools.stemmer.Stemmer;
 import opennlp.tools.stemmer.snowball.SnowballStemmer;
 
 /**
@@ -29,6 +28,9 @@ public class QueryBuilder {
     /** An inverted index data structure exclusively used in the QueryBuilder class. */
     private final InvertedIndex invertedIndex;
 
+    /** The largest number of results kept for each query, or 0 to keep all of them. */
+    private final int limit;
+
     /**
      * Partial Search Constructor of a TreeMap using QueryBuilder structure which
      * creates a new TreeMap for results and sets private InvertedIndex as passed indexs
@@ -36,8 +38,20 @@ public class QueryBuilder {
      * @param index the InvertedIndex argument that is being passed into QueryBuilder
      */
     public QueryBuilder(InvertedIndex index) {
+        this(index, 0);
+    }
+
+    /**
+     * Constructor of a QueryBuilder that only keeps the best results of each query,
+     * up to the limit that is passed in.
+     *
+     * @param index the InvertedIndex argument that is being passed into QueryBuilder
+     * @param limit the largest number of results kept for each query, or 0 to keep all of them
+     */
+    public QueryBuilder(InvertedIndex index, int limit) {
         this.results = new TreeMap<>();
         this.invertedIndex = index;
+        this.limit = limit;
     }
 
     /**
@@ -71,11 +85,9 @@ public class QueryBuilder {
      */
     public void parse(String line, boolean exactFlag) {
 
-        Stemmer stemmer = new SnowballStemmer(DEFAULT);
+        StemCache stems = StemCache.getShared();
         TreeSet<String> queries = new TreeSet<String>();
-        for(String queryPart : TextParser.parse(line)) {
-            queries.add(stemmer.stem(queryPart).toString());
-        }
+        new TextTokenizer().tokenize(line, queryPart -> queries.add(stems.stem(queryPart)));
         if (queries.isEmpty()) {
             return;
         }
@@ -83,10 +95,18 @@ public class QueryBuilder {
         if (results.containsKey(queryString)) {
             return;
         }
-        List<InvertedIndex.QueryResult> listOfResults = invertedIndex.search(queries, exactFlag);
+        List<InvertedIndex.QueryResult> listOfResults = invertedIndex.search(queries, exactFlag, limit);
         this.results.put(queryString, listOfResults);
     }
 
+    /**
+     * Forgets every search result, so that queries that are parsed again are searched
+     * again, such as after the index has changed.
+     */
+    public void clear() {
+        results.clear();
+    }
+
     /**
      * Writes out all search results in pretty JSON format. Argument passes in file path
      * and calls asQueryResultTreeMap that passes in the structure of results and all of
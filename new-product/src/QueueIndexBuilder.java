@@ -0,0 +1,126 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * QueueIndexBuilder
+ *
+ * Builds the inverted index from a path on a {@link StealingWorkQueue}. The calling
+ * thread walks the path with {@link TextFileFinder#find(Path)} and hands each text file
+ * to the queue as it is found; once the bounded submission queue is full, the walk
+ * waits for a worker to take a file, so it never runs far ahead of indexing. Each worker
+ * indexes its files into a private InvertedIndex that no other thread touches, and the
+ * partial indexes are merged into the index once every file is indexed.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class QueueIndexBuilder extends InvertedIndexBuilder {
+
+    /** The index that the merged result is added to. */
+    private final InvertedIndex index;
+
+    /** The number of worker threads to use. */
+    private final int threads;
+
+    /** The number of files waiting to be indexed before the walk waits. */
+    private final int capacity;
+
+    /** The number of files stolen from another worker's deque during the last build. */
+    private volatile long steals;
+
+    /**
+     * Constructor for a builder that uses the number of threads passed in and the default
+     * capacity of the submission queue.
+     *
+     * @param index the InvertedIndex that the merged result is added to
+     * @param threads the number of threads to use; should be at least 1
+     */
+    public QueueIndexBuilder(InvertedIndex index, int threads) {
+        this(index, threads, StealingWorkQueue.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor for a builder.
+     *
+     * @param index the InvertedIndex that the merged result is added to
+     * @param threads the number of threads to use; should be at least 1
+     * @param capacity the number of files waiting to be indexed before the walk waits
+     */
+    public QueueIndexBuilder(InvertedIndex index, int threads, int capacity) {
+        super(index);
+        this.index = index;
+        this.threads = Math.max(1, threads);
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * Creates InvertedIndex structure from the path that is taken, indexing the files on
+     * the work queue as they are found and merging the result into the index of this builder.
+     *
+     * @param inputPath the path that is checked
+     * @throws IOException thrown in case a file cannot be read through, if invalid input,
+     *         or if the thread is interrupted while waiting for the files to be indexed
+     */
+    @Override
+    public void buildIndexFromPath(Path inputPath) throws IOException {
+        ConcurrentHashMap<Thread, InvertedIndex> partials = new ConcurrentHashMap<>();
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        NearDuplicateDetector detector = getDetector();
+        StealingWorkQueue queue = new StealingWorkQueue(threads, capacity);
+        try (Stream<Path> files = TextFileFinder.find(inputPath)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                queue.execute(() -> {
+                    InvertedIndex partial = partials.computeIfAbsent(Thread.currentThread(),
+                            thread -> new InvertedIndex());
+                    try {
+                        addFile(file, partial, detector);
+                    }
+                    catch (IOException e) {
+                        failure.compareAndSet(null, e);
+                    }
+                });
+            }
+            queue.finish();
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Interrupted while indexing: " + inputPath);
+            }
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        finally {
+            steals = queue.getStealCount();
+            queue.shutdown();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        for (InvertedIndex partial : partials.values()) {
+            index.merge(partial);
+        }
+    }
+
+    /**
+     * Returns the number of worker threads used by this builder.
+     *
+     * @return the number of threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Returns the number of files that were stolen from another worker's deque during
+     * the last build.
+     *
+     * @return the number of steals
+     */
+    public long getSteals() {
+        return steals;
+    }
+}
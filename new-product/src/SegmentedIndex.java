@@ -0,0 +1,617 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * SegmentedIndex
+ *
+ * A thread-safe InvertedIndex that grows by adding read-only segments instead of
+ * changing one large index, so new files can be added to an index at any time without
+ * building it again. Files that are added one at a time are collected in a small buffer
+ * that becomes a new {@link IndexSegment} once it holds enough files, and an index that
+ * is merged in, such as one batch built by {@link ParallelIndexBuilder}, becomes a
+ * segment of its own right away.
+ *
+ * Searches go through every segment and add up the appearances in each file into one
+ * list of results. A background thread keeps the number of segments small: segments
+ * are put into tiers by size, each tier {@link #DEFAULT_MERGE_FACTOR} times larger than
+ * the one before, and once a tier has that many segments they are merged into a single
+ * segment of the next tier. Segments are never changed, so searches only have to read
+ * which segments there are, and never wait on adding or merging.
+ *
+ * Reads only see files that have been flushed into a segment, either when the buffer is
+ * full or by calling {@link #flush()}. A file is expected to be added only once; adding
+ * the same path again counts its words twice, so a changed file should be given to
+ * {@link #replaceDocument(String, Map)} instead.
+ *
+ * Removing a file only marks its document ID as deleted, and searches skip it from then
+ * on. Its positions stay in the segments until they are merged, since merging leaves
+ * removed files out, and a segment that has had one in {@link #PURGE_FRACTION} of its
+ * files removed is rewritten on its own even if its tier is not full.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class SegmentedIndex extends InvertedIndex {
+
+    /** The default number of files the buffer holds before it becomes a segment. */
+    public static final int DEFAULT_FLUSH_DOCUMENTS = 1000;
+
+    /** The default number of segments in a tier that are merged together. */
+    public static final int DEFAULT_MERGE_FACTOR = 4;
+
+    /**
+     * A segment is rewritten without its removed files once at least one in this many
+     * of its files has been removed.
+     */
+    public static final int PURGE_FRACTION = 4;
+
+    /** The size of the segments in the smallest tier, in bytes. */
+    private static final long SMALLEST_TIER = 1 << 16;
+
+    /** The document IDs and word counts of every file in every segment. */
+    private final ConcurrentDocumentTable documents;
+
+    /** Lets only one writer at a time add to the buffer. */
+    private final ReentrantLock writeLock;
+
+    /** Lets only one thread at a time replace the list of segments. */
+    private final Object segmentsLock;
+
+    /** Merges segments in the background. */
+    private final ExecutorService merger;
+
+    /** Whether a merge is waiting to run on the merger. */
+    private final AtomicBoolean mergePending;
+
+    /** The number of merges that have been done. */
+    private final LongAdder merges;
+
+    /** The number of files the buffer holds before it becomes a segment. */
+    private final int flushDocuments;
+
+    /** The number of segments in a tier that are merged together. */
+    private final int mergeFactor;
+
+    /** The files that have not been flushed to a segment yet; only used while holding the write lock. */
+    private InvertedIndex buffer;
+
+    /** The segments of the index, oldest first, replaced as a whole whenever it changes. */
+    private volatile List<Segment> segments;
+
+    /** Whether the index has been shut down. */
+    private volatile boolean shutdown;
+
+    /**
+     * Constructor of an empty index with the default flush size and merge factor.
+     */
+    public SegmentedIndex() {
+        this(DEFAULT_FLUSH_DOCUMENTS, DEFAULT_MERGE_FACTOR);
+    }
+
+    /**
+     * Constructor of an empty index with the flush size and merge factor passed in.
+     *
+     * @param flushDocuments the number of files the buffer holds before it becomes a segment
+     * @param mergeFactor the number of segments in a tier that are merged together; at least 2
+     */
+    public SegmentedIndex(int flushDocuments, int mergeFactor) {
+        this(new ConcurrentDocumentTable(), flushDocuments, mergeFactor);
+    }
+
+    /**
+     * Constructor of an empty index that keeps its documents in the table passed in.
+     *
+     * @param documents the table of documents
+     * @param flushDocuments the number of files the buffer holds before it becomes a segment
+     * @param mergeFactor the number of segments in a tier that are merged together
+     */
+    private SegmentedIndex(ConcurrentDocumentTable documents, int flushDocuments, int mergeFactor) {
+        super(documents);
+        this.documents = documents;
+        this.writeLock = new ReentrantLock();
+        this.segmentsLock = new Object();
+        this.merger = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SegmentedIndex-merger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.mergePending = new AtomicBoolean();
+        this.merges = new LongAdder();
+        this.flushDocuments = Math.max(1, flushDocuments);
+        this.mergeFactor = Math.max(2, mergeFactor);
+        this.buffer = new InvertedIndex();
+        this.segments = Collections.emptyList();
+        this.shutdown = false;
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public void add(String element, Integer position, String path) {
+        writeLock.lock();
+        try {
+            buffer.add(element, position, path);
+            flushIfFull();
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void addAll(Map<String, PostingList> words, String path) {
+        writeLock.lock();
+        try {
+            buffer.addAll(words, path);
+            flushIfFull();
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Adds the other index as a new segment of its own, without going through the buffer.
+     */
+    @Override
+    public void merge(InvertedIndex other) {
+        if (other.getDocuments().size() > 0) {
+            addSegment(other instanceof IndexSegment ? (IndexSegment) other : IndexSegment.copyOf(other));
+        }
+    }
+
+    /**
+     * Removes a file from the buffer if it has not been flushed yet, and marks it as
+     * deleted if it is in a segment, then lets the background thread check whether a
+     * segment should be rewritten without its removed files.
+     */
+    @Override
+    public boolean removeDocument(String path) {
+        writeLock.lock();
+        try {
+            boolean removed = buffer.removeDocument(path);
+            if (documents.remove(path) >= 0) {
+                removed = true;
+                scheduleMerge();
+            }
+            else if (documents.removeAlternate(path) >= 0) {
+                removed = true;
+            }
+            return removed;
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Records the location against the file in the buffer if it has not been flushed
+     * yet, so it goes along into the segment, or against the file in a segment otherwise.
+     */
+    @Override
+    public boolean addAlternate(String path, String location) {
+        writeLock.lock();
+        try {
+            return buffer.addAlternate(path, location) || super.addAlternate(path, location);
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Removes the file and adds it to the buffer again while holding the write lock, so
+     * no other writer can add the same file in between.
+     */
+    @Override
+    public void replaceDocument(String path, Map<String, PostingList> words) {
+        writeLock.lock();
+        try {
+            super.replaceDocument(path, words);
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Turns the files in the buffer into a new segment, so they can be searched.
+     */
+    public void flush() {
+        writeLock.lock();
+        try {
+            if (buffer.getDocuments().size() > 0) {
+                IndexSegment segment = IndexSegment.copyOf(buffer);
+                buffer = new InvertedIndex();
+                addSegment(segment);
+            }
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Flushes what is left in the buffer, waits for any merges that are running or
+     * waiting, and stops the background merging thread.
+     */
+    public void shutdown() {
+        flush();
+        shutdown = true;
+        merger.shutdown();
+        try {
+            merger.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the number of segments of the index.
+     *
+     * @return the number of segments
+     */
+    public int getSegments() {
+        return segments.size();
+    }
+
+    /**
+     * Returns the number of merges that have been done.
+     *
+     * @return the number of merges
+     */
+    public long getMerges() {
+        return merges.sum();
+    }
+
+    @Override
+    public boolean contains(String element) {
+        for (Segment segment : segments) {
+            if (segment.index.contains(element) && segment.isLive(element, documents)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int numberOfElementsInStructure() {
+        List<Segment> current = segments;
+        return current.size() == 1 && current.get(0).countDeleted(documents) == 0 ?
+                current.get(0).index.numberOfElementsInStructure() :
+                getWords().size();
+    }
+
+    /**
+     * Returns every word of every segment in sorted order, leaving out words that are
+     * only found in removed files. The words are copied, so segments added afterward are
+     * not included.
+     */
+    @Override
+    public Collection<String> getWords() {
+        List<Collection<String>> sorted = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (segment.countDeleted(documents) == 0) {
+                sorted.add(segment.index.getWords());
+                continue;
+            }
+            ArrayList<String> words = new ArrayList<>();
+            for (String word : segment.index.getWords()) {
+                if (segment.isLive(word, documents)) {
+                    words.add(word);
+                }
+            }
+            sorted.add(words);
+        }
+        return Collections.unmodifiableList(SortedWords.merge(sorted));
+    }
+
+    /**
+     * Combines the postings of the word from every segment, translated to the document
+     * IDs of this index, leaving out removed files.
+     */
+    @Override
+    protected DocumentPostings getPostings(String word) {
+        DocumentPostings combined = null;
+        for (Segment segment : segments) {
+            DocumentPostings postings = segment.index.getPostings(word);
+            if (postings == null) {
+                continue;
+            }
+            for (int i = 0; i < postings.size(); i++) {
+                int docId = segment.docIds[postings.docIdAt(i)];
+                if (documents.isDeleted(docId)) {
+                    continue;
+                }
+                if (combined == null) {
+                    combined = new DocumentPostings();
+                }
+                combined.addAll(docId, postings.positionsAt(i));
+            }
+        }
+        return combined;
+    }
+
+    @Override
+    protected Collection<String> getWordsStartingWith(String prefix) {
+        List<Collection<String>> sorted = new ArrayList<>();
+        for (Segment segment : segments) {
+            sorted.add(segment.index.getWordsStartingWith(prefix));
+        }
+        return SortedWords.merge(sorted);
+    }
+
+    /**
+     * Searches every segment for the exact words, adding up the appearances of each file
+     * across the segments. The segments are read once, so a segment added during the
+     * search is not half included.
+     */
+    @Override
+    public ArrayList<QueryResult> exactSearch(Set<String> queries, int limit) {
+        List<Segment> current = segments;
+        QueryResult[] lookup = new QueryResult[documents.size()];
+        ArrayList<QueryResult> results = new ArrayList<QueryResult>();
+        for (String query : queries) {
+            for (Segment segment : current) {
+                searchSegment(segment, query, results, lookup);
+            }
+        }
+        return topResults(results, limit);
+    }
+
+    /**
+     * Searches every segment for the words that start with each query, adding up the
+     * appearances of each file across the segments.
+     */
+    @Override
+    public ArrayList<QueryResult> partialSearch(Set<String> queries, int limit) {
+        List<Segment> current = segments;
+        QueryResult[] lookup = new QueryResult[documents.size()];
+        ArrayList<QueryResult> results = new ArrayList<QueryResult>();
+        for (String query : queries) {
+            for (Segment segment : current) {
+                for (String stem : segment.index.getWordsStartingWith(query)) {
+                    searchSegment(segment, stem, results, lookup);
+                }
+            }
+        }
+        return topResults(results, limit);
+    }
+
+    /**
+     * Skips files that were removed, and files that were added after the search started,
+     * since the lookup was sized for the files in the index at that time.
+     */
+    @Override
+    protected void addAppearances(ArrayList<QueryResult> list, QueryResult[] lookup,
+                                  int docId, int appearances) {
+        if (docId < lookup.length && !documents.isDeleted(docId)) {
+            super.addAppearances(list, lookup, docId, appearances);
+        }
+    }
+
+    /**
+     * Adds the appearances of a word in one segment to the results.
+     *
+     * @param segment the segment to search
+     * @param word the word to search for
+     * @param results the results found so far
+     * @param lookup the results found so far, indexed by document ID of this index
+     */
+    private void searchSegment(Segment segment, String word,
+                               ArrayList<QueryResult> results, QueryResult[] lookup) {
+        segment.index.forEachCount(word, (docId, count) ->
+                addAppearances(results, lookup, segment.docIds[docId], count));
+    }
+
+    /**
+     * Flushes the buffer if it holds enough files. Only called while holding the write lock.
+     */
+    private void flushIfFull() {
+        if (buffer.getDocuments().size() >= flushDocuments) {
+            IndexSegment segment = IndexSegment.copyOf(buffer);
+            buffer = new InvertedIndex();
+            addSegment(segment);
+        }
+    }
+
+    /**
+     * Gives the files of a segment document IDs in this index, along with their alternate
+     * locations, and adds it as the newest segment, then lets the background thread check
+     * whether a tier is full.
+     *
+     * @param index the segment to add
+     */
+    private void addSegment(IndexSegment index) {
+        DocumentTable local = index.getDocuments();
+        int[] docIds = new int[local.size()];
+        for (int id = 0; id < docIds.length; id++) {
+            docIds[id] = documents.add(local.getPath(id));
+            documents.addCount(docIds[id], local.getCount(id));
+            for (String location : local.getAlternates(id)) {
+                documents.addAlternate(docIds[id], location);
+            }
+        }
+        synchronized (segmentsLock) {
+            ArrayList<Segment> added = new ArrayList<>(segments);
+            added.add(new Segment(index, docIds));
+            segments = Collections.unmodifiableList(added);
+        }
+        scheduleMerge();
+    }
+
+    /**
+     * Asks the background thread to merge segments, unless it has already been asked.
+     */
+    private void scheduleMerge() {
+        if (!shutdown && mergePending.compareAndSet(false, true)) {
+            merger.execute(() -> {
+                mergePending.set(false);
+                while (mergeTier()) {
+                    merges.increment();
+                }
+            });
+        }
+    }
+
+    /**
+     * Finds the smallest tier that has enough segments and merges its oldest segments
+     * into one segment, which takes the place of the oldest of them. If no tier has
+     * enough segments, the oldest segment with enough removed files is rewritten on its
+     * own instead. Removed files are left out of the merged segment, which is dropped if
+     * no files are left.
+     *
+     * @return true if segments were merged; false if no segment needed to be
+     */
+    private boolean mergeTier() {
+        List<Segment> current = segments;
+        ArrayList<Segment> chosen = null;
+        for (int tier = 0; chosen == null && tier < Integer.SIZE; tier++) {
+            ArrayList<Segment> inTier = new ArrayList<>();
+            for (Segment segment : current) {
+                if (tierOf(segment) == tier) {
+                    inTier.add(segment);
+                }
+            }
+            if (inTier.size() >= mergeFactor) {
+                chosen = new ArrayList<>(inTier.subList(0, mergeFactor));
+            }
+        }
+        for (int i = 0; chosen == null && i < current.size(); i++) {
+            Segment segment = current.get(i);
+            if (segment.countDeleted(documents) * PURGE_FRACTION >= segment.docIds.length) {
+                chosen = new ArrayList<>(List.of(segment));
+            }
+        }
+        if (chosen == null) {
+            return false;
+        }
+
+        InvertedIndex combined = new InvertedIndex();
+        DocumentTable combinedDocuments = combined.getDocuments();
+        int[] docIds = new int[0];
+        for (Segment segment : chosen) {
+            DocumentTable local = segment.index.getDocuments();
+            boolean[] removed = new boolean[local.size()];
+            for (int id = 0; id < removed.length; id++) {
+                removed[id] = documents.isDeleted(segment.docIds[id]);
+            }
+            combined.merge(segment.index, id -> removed[id]);
+            docIds = Arrays.copyOf(docIds, combinedDocuments.size());
+            for (int id = 0; id < removed.length; id++) {
+                if (!removed[id]) {
+                    docIds[combinedDocuments.getId(local.getPath(id))] = segment.docIds[id];
+                }
+            }
+        }
+        Segment merged = docIds.length > 0 ? new Segment(IndexSegment.copyOf(combined), docIds) : null;
+
+        synchronized (segmentsLock) {
+            ArrayList<Segment> replaced = new ArrayList<>(segments.size());
+            boolean placed = false;
+            for (Segment segment : segments) {
+                if (chosen.contains(segment)) {
+                    if (!placed && merged != null) {
+                        replaced.add(merged);
+                    }
+                    placed = true;
+                }
+                else {
+                    replaced.add(segment);
+                }
+            }
+            segments = Collections.unmodifiableList(replaced);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the tier of a segment by its size, where each tier holds segments that are
+     * the merge factor times larger than the tier before.
+     *
+     * @param segment the segment
+     * @return the tier of the segment, starting at 0
+     */
+    private int tierOf(Segment segment) {
+        int tier = 0;
+        for (long size = segment.index.sizeInBytes() / SMALLEST_TIER; size >= mergeFactor; size /= mergeFactor) {
+            tier++;
+        }
+        return tier;
+    }
+
+    /**
+     * A read-only segment and the document ID in this index of each of its documents.
+     */
+    private static class Segment {
+
+        /** The words and postings of the segment. */
+        private final IndexSegment index;
+
+        /** The document ID in this index of each document ID of the segment. */
+        private final int[] docIds;
+
+        /**
+         * Constructor of a segment.
+         *
+         * @param index the words and postings of the segment
+         * @param docIds the document ID in this index of each document ID of the segment
+         */
+        public Segment(IndexSegment index, int[] docIds) {
+            this.index = index;
+            this.docIds = docIds;
+        }
+
+        /**
+         * Returns the number of files of the segment that have been removed.
+         *
+         * @param documents the document table of the index the segment belongs to
+         * @return the number of removed files
+         */
+        public int countDeleted(DocumentTable documents) {
+            int deleted = 0;
+            for (int docId : docIds) {
+                if (documents.isDeleted(docId)) {
+                    deleted++;
+                }
+            }
+            return deleted;
+        }
+
+        /**
+         * Determines whether the word is found in a file of the segment that has not
+         * been removed.
+         *
+         * @param word the word to lookup
+         * @param documents the document table of the index the segment belongs to
+         * @return true if the word is found in a file that was not removed; false otherwise
+         */
+        public boolean isLive(String word, DocumentTable documents) {
+            DocumentPostings postings = index.getPostings(word);
+            if (postings == null) {
+                return false;
+            }
+            for (int i = 0; i < postings.size(); i++) {
+                if (!documents.isDeleted(docIds[postings.docIdAt(i)])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
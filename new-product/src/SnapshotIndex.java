@@ -0,0 +1,433 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * SnapshotIndex
+ *
+ * A thread-safe InvertedIndex where searching never waits on adding. Files are added
+ * to a private, mutable InvertedIndex of the changes since the last snapshot, which only
+ * writers touch, one writer at a time, and the paths removed since then are kept beside
+ * it. To publish, the changes are swapped out for an empty index, which is all the
+ * writers wait for, and then merged with the last snapshot into a new read-only,
+ * compact {@link IndexSegment} that replaces it through a single volatile reference.
+ * Every read, including searching and writing to JSON, goes to the latest published
+ * snapshot without taking any lock, and since a snapshot never changes, a long read
+ * such as writing the index to JSON sees one consistent index the whole way through.
+ *
+ * Reads only see what has been added up to the last {@link #publish()}. Snapshots can be
+ * published by hand, or on a schedule with {@link #startPublishing(long, TimeUnit)} while
+ * files keep being added.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class SnapshotIndex extends InvertedIndex {
+
+    /** Lets only one writer at a time change the index, or swap out its changes to publish them. */
+    private final ReentrantLock writeLock;
+
+    /** Lets only one snapshot at a time be built. */
+    private final ReentrantLock publishLock;
+
+    /** The files added since the last snapshot; only used while holding the write lock. */
+    private InvertedIndex changes;
+
+    /**
+     * The paths removed since the last snapshot that may be in the last snapshot or in
+     * the changes being published; only used while holding the write lock.
+     */
+    private HashSet<String> removed;
+
+    /**
+     * The alternate locations recorded since the last snapshot, each with the path of the
+     * file it belongs to; only used while holding the write lock.
+     */
+    private HashMap<String, String> alternates;
+
+    /**
+     * The changes being merged into the next snapshot, or {@code null} if no snapshot is
+     * being built; only changed while holding the write lock.
+     */
+    private InvertedIndex publishing;
+
+    /** The latest published snapshot, read by every search without locking. */
+    private volatile IndexSegment snapshot;
+
+    /** Whether anything was changed since the last snapshot; only used while holding the write lock. */
+    private boolean changed;
+
+    /** The number of snapshots that have been published. */
+    private volatile long published;
+
+    /** Publishes snapshots on a schedule, or {@code null} if not started. */
+    private ScheduledExecutorService publisher;
+
+    /** The scheduled publishing task, or {@code null} if not started. */
+    private ScheduledFuture<?> scheduled;
+
+    /**
+     * Constructor of an empty index with an empty snapshot published.
+     */
+    public SnapshotIndex() {
+        super();
+        this.writeLock = new ReentrantLock();
+        this.publishLock = new ReentrantLock();
+        this.changes = new InvertedIndex();
+        this.removed = new HashSet<>();
+        this.alternates = new HashMap<>();
+        this.publishing = null;
+        this.snapshot = IndexSegment.copyOf(changes);
+        this.changed = false;
+        this.published = 0;
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public void add(String element, Integer position, String path) {
+        writeLock.lock();
+        try {
+            changes.add(element, position, path);
+            changed = true;
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void addAll(Map<String, PostingList> words, String path) {
+        writeLock.lock();
+        try {
+            changes.addAll(words, path);
+            changed = true;
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void merge(InvertedIndex other) {
+        writeLock.lock();
+        try {
+            changes.merge(other);
+            changed = true;
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean removeDocument(String path) {
+        writeLock.lock();
+        try {
+            boolean found = changes.removeDocument(path) | markRemoved(path) | alternates.remove(path) != null;
+            changed |= found;
+            return found;
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Records the location against the file for the next snapshot, if the file is in the
+     * changes, the last snapshot or the changes being published and was not removed since.
+     */
+    @Override
+    public boolean addAlternate(String path, String location) {
+        writeLock.lock();
+        try {
+            boolean found = changes.getCount(path) > 0 || !removed.contains(path)
+                    && (snapshot.getCount(path) > 0 || (publishing != null && publishing.getCount(path) > 0));
+            if (found) {
+                alternates.put(location, path);
+                changed = true;
+            }
+            return found;
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void replaceDocument(String path, Map<String, PostingList> words) {
+        writeLock.lock();
+        try {
+            markRemoved(path);
+            changes.replaceDocument(path, words);
+            changed = true;
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Purges the positions of removed files from the changes since the last snapshot.
+     * Snapshots never hold the positions of removed files, so they do not change.
+     */
+    @Override
+    public void purge() {
+        writeLock.lock();
+        try {
+            changes.purge();
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Publishes a new snapshot with every change made so far, if anything changed since
+     * the last snapshot. Writers only wait while the changes are swapped out for an
+     * empty index; the new snapshot is built from the last snapshot and the changes
+     * after that, while writers keep adding and searches keep using the last snapshot.
+     *
+     * @return true if a new snapshot was published; false if nothing had changed
+     */
+    public boolean publish() {
+        publishLock.lock();
+        try {
+            HashSet<String> gone;
+            HashMap<String, String> located;
+            writeLock.lock();
+            try {
+                if (!changed) {
+                    return false;
+                }
+                publishing = changes;
+                gone = removed;
+                changes = new InvertedIndex();
+                located = alternates;
+                removed = new HashSet<>();
+                alternates = new HashMap<>();
+                changed = false;
+            }
+            finally {
+                writeLock.unlock();
+            }
+
+            IndexSegment last = snapshot;
+            DocumentTable lastDocuments = last.getDocuments();
+            InvertedIndex next = new InvertedIndex();
+            next.merge(last, id -> lastDocuments.isDeleted(id) || gone.contains(lastDocuments.getPath(id)));
+            gone.forEach(next.getDocuments()::removeAlternate);
+            next.merge(publishing);
+            located.forEach((location, path) -> next.addAlternate(path, location));
+            IndexSegment built = IndexSegment.copyOf(next);
+
+            writeLock.lock();
+            try {
+                snapshot = built;
+                publishing = null;
+                published++;
+            }
+            finally {
+                writeLock.unlock();
+            }
+            return true;
+        }
+        finally {
+            publishLock.unlock();
+        }
+    }
+
+    /**
+     * Starts publishing a snapshot on a background thread every time the period passes,
+     * whenever something was added since the last one.
+     *
+     * @param period the time between snapshots
+     * @param unit the unit of the period
+     */
+    public synchronized void startPublishing(long period, TimeUnit unit) {
+        if (publisher != null) {
+            return;
+        }
+        publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SnapshotIndex-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduled = publisher.scheduleWithFixedDelay(this::publish, period, period, unit);
+    }
+
+    /**
+     * Stops publishing on a schedule and publishes one last snapshot, so that
+     * everything added so far can be searched.
+     */
+    public synchronized void stopPublishing() {
+        if (publisher != null) {
+            scheduled.cancel(false);
+            publisher.shutdown();
+            publisher = null;
+            scheduled = null;
+        }
+        publish();
+    }
+
+    /**
+     * Returns the latest published snapshot.
+     *
+     * @return the snapshot that reads are done on
+     */
+    public IndexSegment getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns the number of snapshots that have been published, not counting the empty
+     * one the index starts with.
+     *
+     * @return the number of snapshots published
+     */
+    public long getPublished() {
+        return published;
+    }
+
+    @Override
+    public boolean contains(String element) {
+        return snapshot.contains(element);
+    }
+
+    @Override
+    public boolean contains(String element, String path) {
+        return snapshot.contains(element, path);
+    }
+
+    @Override
+    public boolean contains(String element, String path, int position) {
+        return snapshot.contains(element, path, position);
+    }
+
+    @Override
+    public int getNumberPositions(String element) {
+        return snapshot.getNumberPositions(element);
+    }
+
+    @Override
+    public int numberOfElementsInStructure() {
+        return snapshot.numberOfElementsInStructure();
+    }
+
+    @Override
+    public Collection<String> getWords() {
+        return snapshot.getWords();
+    }
+
+    @Override
+    public Collection<String> getLocations(String word) {
+        return snapshot.getLocations(word);
+    }
+
+    @Override
+    public Collection<String> getFiles() {
+        return snapshot.getFiles();
+    }
+
+    @Override
+    public Integer getCount(String path) {
+        return snapshot.getCount(path);
+    }
+
+    @Override
+    public Collection<Integer> getPositions(String element, String path) {
+        return snapshot.getPositions(element, path);
+    }
+
+    @Override
+    protected DocumentPostings getPostings(String word) {
+        return snapshot.getPostings(word);
+    }
+
+    @Override
+    protected Collection<String> getWordsStartingWith(String prefix) {
+        return snapshot.getWordsStartingWith(prefix);
+    }
+
+    @Override
+    protected DocumentTable getDocuments() {
+        return snapshot.getDocuments();
+    }
+
+    @Override
+    public void writeIndex(Path path) throws IOException {
+        snapshot.writeIndex(path);
+    }
+
+    @Override
+    public void writeSegment(Path path) throws IOException {
+        snapshot.writeSegment(path);
+    }
+
+    @Override
+    public void writeWordCount(Path path) throws IOException {
+        snapshot.writeWordCount(path);
+    }
+
+    @Override
+    public ArrayList<QueryResult> search(Set<String> queries, boolean exact) {
+        return snapshot.search(queries, exact);
+    }
+
+    @Override
+    public ArrayList<QueryResult> search(Set<String> queries, boolean exact, int limit) {
+        return snapshot.search(queries, exact, limit);
+    }
+
+    @Override
+    public ArrayList<QueryResult> exactSearch(Set<String> queries) {
+        return snapshot.exactSearch(queries);
+    }
+
+    @Override
+    public ArrayList<QueryResult> exactSearch(Set<String> queries, int limit) {
+        return snapshot.exactSearch(queries, limit);
+    }
+
+    @Override
+    public ArrayList<QueryResult> partialSearch(Set<String> queries) {
+        return snapshot.partialSearch(queries);
+    }
+
+    @Override
+    public ArrayList<QueryResult> partialSearch(Set<String> queries, int limit) {
+        return snapshot.partialSearch(queries, limit);
+    }
+
+    @Override
+    public String toString() {
+        return snapshot.toString();
+    }
+
+    /**
+     * Marks a path as removed from the last snapshot and from the changes being
+     * published, if it is a file or an alternate location in either of them. Only called
+     * while holding the write lock.
+     *
+     * @param path the path to remove
+     * @return true if the path was found and not already marked; false otherwise
+     */
+    private boolean markRemoved(String path) {
+        boolean found = snapshot.getCount(path) > 0 || snapshot.getDocuments().getAlternateOf(path) >= 0
+                || (publishing != null && publishing.getCount(path) > 0);
+        return found && removed.add(path);
+    }
+}
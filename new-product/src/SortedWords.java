@@ -0,0 +1,93 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * SortedWords
+ *
+ * Merges collections of words that are each already sorted into one sorted list,
+ * such as the words of the shards or segments of an index. Only the next word of each
+ * collection is compared, so the words are never sorted again.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class SortedWords {
+
+    /**
+     * Merges sorted collections of words into one sorted list, always taking the smallest
+     * next word of all the collections. A word found in more than one collection is only
+     * added once.
+     *
+     * @param sorted the sorted collections of words
+     * @return every word of the collections in sorted order, without duplicates
+     */
+    public static ArrayList<String> merge(List<? extends Collection<String>> sorted) {
+        int total = 0;
+        for (Collection<String> words : sorted) {
+            total += words.size();
+        }
+        ArrayList<String> merged = new ArrayList<>(total);
+        PriorityQueue<Cursor> next = new PriorityQueue<>(Math.max(1, sorted.size()));
+        for (Collection<String> words : sorted) {
+            Iterator<String> iterator = words.iterator();
+            if (iterator.hasNext()) {
+                next.add(new Cursor(iterator));
+            }
+        }
+        String previous = null;
+        while (!next.isEmpty()) {
+            Cursor cursor = next.poll();
+            if (!cursor.word.equals(previous)) {
+                merged.add(cursor.word);
+                previous = cursor.word;
+            }
+            if (cursor.advance()) {
+                next.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * A position in one of the sorted collections being merged, ordered by its current word.
+     */
+    private static class Cursor implements Comparable<Cursor> {
+
+        /** The rest of the words of the collection. */
+        private final Iterator<String> words;
+
+        /** The current word. */
+        private String word;
+
+        /**
+         * Constructor of a cursor on the first word of a collection.
+         *
+         * @param words an iterator over the sorted words; has at least one word
+         */
+        public Cursor(Iterator<String> words) {
+            this.words = words;
+            this.word = words.next();
+        }
+
+        /**
+         * Moves to the next word.
+         *
+         * @return true if there is a next word; false if the collection is used up
+         */
+        public boolean advance() {
+            if (!words.hasNext()) {
+                return false;
+            }
+            word = words.next();
+            return true;
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            return word.compareTo(other.word);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * StealingWorkQueue
+ *
+ * A {@link TaskQueue} that, unlike {@link WorkQueue}, does not funnel every task
+ * through one synchronized list. Each worker thread has its own deque of tasks;
+ * a worker takes from its own deque first, then from a shared submission queue, and
+ * when both are empty it steals from the far end of another worker's deque. Tasks that
+ * a worker submits while running (for example, a crawl task that finds more links) go
+ * straight onto that worker's own deque.
+ *
+ * The shared submission queue is bounded. When it is full, {@link #execute(Runnable)}
+ * blocks the submitting thread until a worker takes a task, so a producer such as
+ * TextFileFinder cannot run arbitrarily far ahead of indexing.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class StealingWorkQueue implements TaskQueue {
+
+    /** The default number of tasks the submission queue holds before execute blocks. */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /** Logger used in cases for debugging. */
+    private static final Logger logger = LogManager.getLogger();
+
+    /** The worker threads. */
+    private final Worker[] workers;
+
+    /** Tasks submitted from outside of the worker threads. */
+    private final ArrayBlockingQueue<Runnable> submissions;
+
+    /** Workers that found no work and are parked. */
+    private final ConcurrentLinkedQueue<Worker> idle;
+
+    /** The number of tasks submitted but not yet finished. */
+    private final AtomicInteger pending;
+
+    /** The number of tasks taken from another worker's deque. */
+    private final LongAdder steals;
+
+    /** Used by finish to wait until there are no pending tasks. */
+    private final Object finished;
+
+    /** Used to signal the queue should be shutdown. */
+    private volatile boolean shutdown;
+
+    /**
+     * Starts a work queue with the default number of threads and capacity.
+     */
+    public StealingWorkQueue() {
+        this(WorkQueue.DEFAULT, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Starts a work queue with the specified number of threads and a submission queue
+     * that holds up to the specified number of tasks.
+     *
+     * @param threads number of worker threads; should be at least 1
+     * @param capacity number of submitted tasks held before execute blocks
+     */
+    public StealingWorkQueue(int threads, int capacity) {
+        this.workers = new Worker[Math.max(1, threads)];
+        this.submissions = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.idle = new ConcurrentLinkedQueue<>();
+        this.pending = new AtomicInteger();
+        this.steals = new LongAdder();
+        this.finished = new Object();
+        this.shutdown = false;
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(i);
+        }
+        for (Worker worker : workers) {
+            worker.start();
+        }
+    }
+
+    /**
+     * Adds a work request. Requests from a worker thread of this queue go onto that
+     * worker's own deque; all other requests go onto the bounded submission queue,
+     * waiting for space if it is full. If the thread is interrupted while waiting, the
+     * request is dropped and the interrupt is kept.
+     *
+     * @param r work request (in the form of a {@link Runnable} object)
+     */
+    @Override
+    public void execute(Runnable r) {
+        pending.incrementAndGet();
+        Thread current = Thread.currentThread();
+        if (current instanceof Worker && ((Worker) current).owner() == this) {
+            ((Worker) current).deque.addFirst(r);
+        }
+        else {
+            try {
+                submissions.put(r);
+            }
+            catch (InterruptedException e) {
+                taskDone();
+                Thread.currentThread().interrupt();
+                logger.debug("Interrupted while waiting to submit work. ");
+                return;
+            }
+        }
+        wakeOne();
+    }
+
+    /**
+     * Waits until every submitted task has finished running.
+     */
+    @Override
+    public void finish() {
+        synchronized (finished) {
+            while (pending.get() > 0) {
+                try {
+                    finished.wait();
+                }
+                catch (InterruptedException e) {
+                    logger.debug("Finished all interrupted", e);
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Asks the queue to shutdown. Any unprocessed work will not be finished,
+     * but threads in-progress will not be interrupted.
+     */
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker);
+        }
+        logger.debug("Queue has been shut down. ");
+    }
+
+    /**
+     * Returns the number of worker threads being used by the work queue.
+     *
+     * @return number of worker threads in the queue
+     */
+    @Override
+    public int size() {
+        return workers.length;
+    }
+
+    /**
+     * Returns the number of tasks waiting to run, in the submission queue and in every
+     * worker's deque.
+     *
+     * @return the number of tasks waiting to run
+     */
+    public int getQueueDepth() {
+        int depth = submissions.size();
+        for (Worker worker : workers) {
+            depth += worker.deque.size();
+        }
+        return depth;
+    }
+
+    /**
+     * Returns the number of tasks that were stolen from another worker's deque.
+     *
+     * @return the number of steals
+     */
+    public long getStealCount() {
+        return steals.sum();
+    }
+
+    /**
+     * Returns the number of tasks submitted but not yet finished.
+     *
+     * @return the number of pending tasks
+     */
+    public int getPending() {
+        return pending.get();
+    }
+
+    /** Unparks one idle worker, if there is one, so it can pick up new work. */
+    private void wakeOne() {
+        Worker worker = idle.poll();
+        if (worker != null) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    /**
+     * Marks a task as finished, or as never submitted, waking any threads in
+     * {@link #finish()} once there are no more pending tasks.
+     */
+    private void taskDone() {
+        if (pending.decrementAndGet() == 0) {
+            synchronized (finished) {
+                finished.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Runs tasks from its own deque, the submission queue, or another worker's deque,
+     * and parks when there is no work anywhere until it is woken up or shut down. A
+     * worker adds itself to the idle workers before it looks for work the last time,
+     * and execute adds the task before it wakes an idle worker, so a task is never left
+     * waiting while every worker is parked.
+     */
+    private class Worker extends Thread {
+
+        /** The tasks of this worker; it takes from the front and thieves take from the back. */
+        private final ConcurrentLinkedDeque<Runnable> deque;
+
+        /** The index of this worker. */
+        private final int index;
+
+        /**
+         * Constructor of a worker thread.
+         *
+         * @param index the index of this worker
+         */
+        public Worker(int index) {
+            this.deque = new ConcurrentLinkedDeque<>();
+            this.index = index;
+            setName("StealingWorkQueue-" + index);
+            setDaemon(true);
+        }
+
+        /**
+         * Returns the queue this worker belongs to.
+         *
+         * @return the queue of this worker
+         */
+        public StealingWorkQueue owner() {
+            return StealingWorkQueue.this;
+        }
+
+        @Override
+        public void run() {
+            while (!shutdown) {
+                Runnable r = findWork();
+                if (r == null) {
+                    idle.add(this);
+                    r = findWork();
+                    if (r == null) {
+                        LockSupport.park(this);
+                        idle.remove(this);
+                        continue;
+                    }
+                    idle.remove(this);
+                }
+                try {
+                    r.run();
+                }
+                catch (RuntimeException e) {
+                    System.err.println("Warning: Work queue encountered an exception while running.");
+                }
+                finally {
+                    taskDone();
+                }
+            }
+        }
+
+        /**
+         * Takes the next task from this worker's deque, then the submission queue, then
+         * the back of another worker's deque, starting from a random worker.
+         *
+         * @return the next task, or {@code null} if there is no work anywhere
+         */
+        private Runnable findWork() {
+            Runnable r = deque.pollFirst();
+            if (r == null) {
+                r = submissions.poll();
+            }
+            if (r == null && workers.length > 1) {
+                int start = ThreadLocalRandom.current().nextInt(workers.length);
+                for (int i = 0; i < workers.length && r == null; i++) {
+                    Worker victim = workers[(start + i) % workers.length];
+                    if (victim != this) {
+                        r = victim.deque.pollLast();
+                    }
+                }
+                if (r != null) {
+                    steals.increment();
+                }
+            }
+            return r;
+        }
+    }
+}
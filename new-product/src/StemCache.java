@@ -0,0 +1,166 @@
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import opennlp.tools.stemmer.Stemmer;
+import opennlp.tools.stemmer.snowball.SnowballStemmer;
+
+/**
+ * StemCache
+ *
+ * Remembers the stem of every word (surface form) it has stemmed so that the same
+ * word is not stemmed again, shared by the index builders and QueryBuilder. The cache
+ * is a fixed-size array where each word has exactly one slot picked by its hash, so
+ * memory is bounded by the capacity and a newer word simply replaces an older one
+ * in the same slot. Lookups compare the characters of the word in place, so a token
+ * from {@link TextTokenizer} does not have to become a String to be looked up.
+ *
+ * Safe to use from many threads without locking: each slot holds an immutable entry
+ * that is replaced atomically, and every thread stems with its own SnowballStemmer
+ * since those are not thread-safe.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class StemCache {
+
+    /** The default number of slots; a power of two. */
+    public static final int DEFAULT_CAPACITY = 1 << 18;
+
+    /** The cache shared by the builders and QueryBuilder. */
+    private static final StemCache SHARED = new StemCache(DEFAULT_CAPACITY);
+
+    /** The slots of the cache. */
+    private final AtomicReferenceArray<Entry> slots;
+
+    /** Used to pick a slot from a hash; the number of slots minus one. */
+    private final int mask;
+
+    /** The stemmer of each thread. */
+    private final ThreadLocal<Stemmer> stemmers;
+
+    /** The number of words found in the cache. */
+    private final LongAdder hits;
+
+    /** The number of words that had to be stemmed. */
+    private final LongAdder misses;
+
+    /**
+     * Constructor for a cache with at least the number of slots passed in, rounded up
+     * to a power of two.
+     *
+     * @param capacity the minimum number of words the cache can hold
+     */
+    public StemCache(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.stemmers = ThreadLocal.withInitial(() -> new SnowballStemmer(InvertedIndexBuilder.DEFAULT));
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    /**
+     * Returns the cache shared by the builders and QueryBuilder.
+     *
+     * @return the shared cache
+     */
+    public static StemCache getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the stem of the word, stemming it with the stemmer of the calling thread
+     * only if it is not already cached.
+     *
+     * @param word the word to be stemmed
+     * @return the stem of the word
+     */
+    public String stem(CharSequence word) {
+        int hash = hash(word);
+        int slot = hash & mask;
+        Entry entry = slots.get(slot);
+        if (entry != null && entry.hash == hash && entry.word.contentEquals(word)) {
+            hits.increment();
+            return entry.stem;
+        }
+        misses.increment();
+        String stem = stemmers.get().stem(word).toString();
+        slots.set(slot, new Entry(hash, word.toString(), stem));
+        return stem;
+    }
+
+    /**
+     * Returns the number of words that were found in the cache.
+     *
+     * @return the number of cache hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of words that had to be stemmed.
+     *
+     * @return the number of cache misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of slots in the cache.
+     *
+     * @return the maximum number of words the cache can hold
+     */
+    public int capacity() {
+        return slots.length();
+    }
+
+    /**
+     * Computes the same hash as {@link String#hashCode()} without creating a String,
+     * then spreads the higher bits into the lower ones used to pick a slot.
+     *
+     * @param word the word to hash
+     * @return the hash of the word
+     */
+    private static int hash(CharSequence word) {
+        int hash = 0;
+        for (int i = 0; i < word.length(); i++) {
+            hash = 31 * hash + word.charAt(i);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    @Override
+    public String toString() {
+        return "Stem cache hits: " + getHits() + " misses: " + getMisses();
+    }
+
+    /**
+     * A word and its stem, never modified once it is put in a slot.
+     */
+    private static class Entry {
+
+        /** The hash of the word. */
+        private final int hash;
+
+        /** The word as it was found in the text. */
+        private final String word;
+
+        /** The stem of the word. */
+        private final String stem;
+
+        /**
+         * Constructor for an entry of the cache.
+         *
+         * @param hash the hash of the word
+         * @param word the word as it was found in the text
+         * @param stem the stem of the word
+         */
+        public Entry(int hash, String word, String stem) {
+            this.hash = hash;
+            this.word = word;
+            this.stem = stem;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/**
+ * TaskQueue
+ *
+ * The operations shared by the work queues of this project: running tasks on a fixed
+ * number of worker threads, waiting until every task has finished, and shutting the
+ * threads down. Code that only hands tasks to a queue depends on this, so either a
+ * {@link WorkQueue} or a {@link StealingWorkQueue} can be passed to it.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public interface TaskQueue {
+
+    /**
+     * Adds a work request. A worker thread will run it when one is available.
+     *
+     * @param r work request (in the form of a {@link Runnable} object)
+     */
+    void execute(Runnable r);
+
+    /**
+     * Waits until every task added so far has finished running.
+     */
+    void finish();
+
+    /**
+     * Asks the queue to shutdown. Any unprocessed work will not be finished,
+     * but threads in-progress will not be interrupted.
+     */
+    void shutdown();
+
+    /**
+     * Returns the number of worker threads being used by the work queue.
+     *
+     * @return number of worker threads in the queue
+     */
+    int size();
+}
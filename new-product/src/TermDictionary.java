@@ -0,0 +1,319 @@
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * TermDictionary
+ *
+ * An immutable, sorted dictionary of the words in an index that finds every word
+ * starting with a prefix as one contiguous range, so a partial search only does
+ * work for the words it actually returns. Words are front coded in blocks: the first
+ * word of each block is kept whole, and every other word only keeps the characters
+ * that differ from the word before it, which suits stems that share long prefixes.
+ *
+ * A prefix is found with a binary search over the first word of each block and then
+ * a short scan within one block, for both ends of the range.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class TermDictionary {
+
+    /** The number of words in each front-coded block. */
+    private static final int BLOCK_SIZE = 16;
+
+    /** The first word of every block. */
+    private final String[] heads;
+
+    /**
+     * The rest of the words of every block, each as the number of chars shared with the
+     * previous word, the number of chars that follow, and then those chars. Numbers are
+     * stored as two chars each.
+     */
+    private final char[] suffixes;
+
+    /** The index in the suffixes where each block starts. */
+    private final int[] offsets;
+
+    /** The number of words in the dictionary. */
+    private final int size;
+
+    /**
+     * Constructor of a dictionary from words that are already sorted, such as the keys
+     * of a TreeMap.
+     *
+     * @param sortedWords the words in sorted order, without duplicates
+     */
+    public TermDictionary(Collection<String> sortedWords) {
+        this.size = sortedWords.size();
+        int blocks = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        this.heads = new String[blocks];
+        this.offsets = new int[blocks];
+
+        StringBuilder encoded = new StringBuilder();
+        String previous = null;
+        int i = 0;
+        for (String word : sortedWords) {
+            if (i % BLOCK_SIZE == 0) {
+                heads[i / BLOCK_SIZE] = word;
+                offsets[i / BLOCK_SIZE] = encoded.length();
+            }
+            else {
+                int shared = sharedLength(previous, word);
+                appendNumber(encoded, shared);
+                appendNumber(encoded, word.length() - shared);
+                encoded.append(word, shared, word.length());
+            }
+            previous = word;
+            i++;
+        }
+        this.suffixes = new char[encoded.length()];
+        encoded.getChars(0, encoded.length(), suffixes, 0);
+    }
+
+    /**
+     * Returns the number of words in the dictionary.
+     *
+     * @return the number of words
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the word at the index, in sorted order.
+     *
+     * @param index the index of the word
+     * @return the word at that index
+     */
+    public String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        Cursor cursor = new Cursor(index / BLOCK_SIZE);
+        for (int i = index % BLOCK_SIZE; i > 0; i--) {
+            cursor.next();
+        }
+        return cursor.word.toString();
+    }
+
+    /**
+     * Returns every word that starts with the prefix, in sorted order. The words are
+     * decoded one after another as the list is iterated.
+     *
+     * @param prefix the start of the words to find
+     * @return an unmodifiable list of the words that start with the prefix
+     */
+    public List<String> getWordsStartingWith(String prefix) {
+        int start = lowerBound(prefix, false);
+        int end = lowerBound(prefix, true);
+        return new Range(start, end);
+    }
+
+    /**
+     * Finds the first word that is not before the prefix. If past is true, every word
+     * that starts with the prefix also counts as before it, so the result is the end
+     * of the range of words that start with the prefix.
+     *
+     * @param prefix the prefix to compare with
+     * @param past whether words starting with the prefix count as before it
+     * @return the index of the first word that is not before the prefix
+     */
+    private int lowerBound(String prefix, boolean past) {
+        int low = 0;
+        int high = heads.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (isBefore(heads[middle], prefix, past)) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        if (low == 0) {
+            return 0;
+        }
+        int block = low - 1;
+        Cursor cursor = new Cursor(block);
+        int index = block * BLOCK_SIZE;
+        int end = Math.min(size, index + BLOCK_SIZE);
+        while (index < end && isBefore(cursor.word, prefix, past)) {
+            index++;
+            if (index < end) {
+                cursor.next();
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Determines whether a word comes before the prefix in sorted order.
+     *
+     * @param word the word to compare
+     * @param prefix the prefix to compare with
+     * @param past whether a word starting with the prefix counts as before it
+     * @return {@code true} if the word comes before the prefix
+     */
+    private static boolean isBefore(CharSequence word, String prefix, boolean past) {
+        int length = Math.min(word.length(), prefix.length());
+        for (int i = 0; i < length; i++) {
+            char a = word.charAt(i);
+            char b = prefix.charAt(i);
+            if (a != b) {
+                return a < b;
+            }
+        }
+        return word.length() < prefix.length() || past;
+    }
+
+    /**
+     * Returns the number of leading chars two words have in common.
+     *
+     * @param a the first word
+     * @param b the second word
+     * @return the length of the common prefix
+     */
+    private static int sharedLength(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < length && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Appends a non-negative int as two chars.
+     *
+     * @param encoded the chars to append to
+     * @param number the number to append
+     */
+    private static void appendNumber(StringBuilder encoded, int number) {
+        encoded.append((char) (number >>> 16));
+        encoded.append((char) number);
+    }
+
+    /**
+     * Decodes the words of the dictionary one after another, starting from the first
+     * word of a block and continuing into the next blocks.
+     */
+    private class Cursor {
+
+        /** The word the cursor is on. */
+        private final StringBuilder word;
+
+        /** The block of the word the cursor is on. */
+        private int block;
+
+        /** The index within the block of the word the cursor is on. */
+        private int position;
+
+        /** The index in the suffixes of the next word. */
+        private int offset;
+
+        /**
+         * Constructor of a cursor on the first word of a block.
+         *
+         * @param block the block to start at
+         */
+        public Cursor(int block) {
+            this.word = new StringBuilder(heads[block]);
+            this.block = block;
+            this.position = 0;
+            this.offset = offsets[block];
+        }
+
+        /** Moves the cursor to the next word. */
+        public void next() {
+            position++;
+            if (position == BLOCK_SIZE) {
+                block++;
+                position = 0;
+                word.setLength(0);
+                word.append(heads[block]);
+                offset = offsets[block];
+                return;
+            }
+            int shared = (suffixes[offset] << 16) | suffixes[offset + 1];
+            int length = (suffixes[offset + 2] << 16) | suffixes[offset + 3];
+            offset += 4;
+            word.setLength(shared);
+            word.append(suffixes, offset, length);
+            offset += length;
+        }
+    }
+
+    /**
+     * A range of words in the dictionary, decoded in order while it is iterated.
+     */
+    private class Range extends AbstractList<String> {
+
+        /** The index of the first word in the range. */
+        private final int start;
+
+        /** The index after the last word in the range. */
+        private final int end;
+
+        /**
+         * Constructor of a range of words.
+         *
+         * @param start the index of the first word
+         * @param end the index after the last word
+         */
+        public Range(int start, int end) {
+            this.start = start;
+            this.end = Math.max(start, end);
+        }
+
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return TermDictionary.this.get(start + index);
+        }
+
+        @Override
+        public int size() {
+            return end - start;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<String>() {
+
+                /** The index of the next word. */
+                private int index = start;
+
+                /** The cursor on the previous word, created when the first word is read. */
+                private Cursor cursor = null;
+
+                @Override
+                public boolean hasNext() {
+                    return index < end;
+                }
+
+                @Override
+                public String next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    if (cursor == null) {
+                        cursor = new Cursor(index / BLOCK_SIZE);
+                        for (int i = index % BLOCK_SIZE; i > 0; i--) {
+                            cursor.next();
+                        }
+                    }
+                    else {
+                        cursor.next();
+                    }
+                    index++;
+                    return cursor.word.toString();
+                }
+            };
+        }
+    }
+}
@@ -1,10 +1,21 @@
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 import java.util.function.BiPredicate;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -29,18 +40,31 @@ public class TextFileFinder {
      * @see Path#getFileName()
      * @see Files#walk(Path, FileVisitOption...)
      */
-    public static final Predicate<Path> IS_TEXT = (path) -> {
-        String lower = path.toString().toLowerCase();
-        return Files.isRegularFile(path) && (lower.endsWith(".txt") || lower.endsWith(".text"));
-    };
+    public static final Predicate<Path> IS_TEXT = (path) -> Files.isRegularFile(path) && hasTextExtension(path);
 
     /**
      * A lambda function that returns true if the path is a file that ends in a .txt or .text extension
      * (case-insensitive). Useful for {@link Files#find(Path, int, BiPredicate, FileVisitOption...)}.
+     * Uses the attributes that were already read while walking instead of reading them again.
      *
      * @see Files#find(Path, int, BiPredicate, FileVisitOption...)
      */
-    public static final BiPredicate<Path, BasicFileAttributes> IS_TEXT_ATTR = (path, attr) -> IS_TEXT.test(path);
+    public static final BiPredicate<Path, BasicFileAttributes> IS_TEXT_ATTR =
+            (path, attr) -> attr.isRegularFile() && hasTextExtension(path);
+
+    /** The number of text files found in one directory that are handed off together. */
+    private static final int DISCOVERY_BATCH = 16;
+
+    /**
+     * Checks if the name of a path ends in .txt or .text (case-insensitive).
+     *
+     * @param path the path to check
+     * @return true if the path has a text extension; false otherwise
+     */
+    private static boolean hasTextExtension(Path path) {
+        String lower = path.toString().toLowerCase();
+        return lower.endsWith(".txt") || lower.endsWith(".text");
+    }
 
     /**
      * Returns a stream of text files, following any symbolic links encountered.
@@ -59,7 +83,7 @@ public class TextFileFinder {
      * @see Integer#MAX_VALUE
      */
     public static Stream<Path> find(Path start) throws IOException {
-        return Files.walk(start, FileVisitOption.FOLLOW_LINKS).filter(IS_TEXT);
+        return Files.find(start, Integer.MAX_VALUE, IS_TEXT_ATTR, FileVisitOption.FOLLOW_LINKS);
     }
 
     /**
@@ -73,6 +97,109 @@ public class TextFileFinder {
      * @see #find(Path)
      */
     public static List<Path> list(Path start) throws IOException {
-        return find(start).collect(Collectors.toList());
+        try (Stream<Path> files = find(start)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Finds every text file under a path on a fork/join pool, following any symbolic
+     * links encountered, and hands each to the consumer as soon as it is found instead
+     * of after the whole tree has been walked. Every directory is listed by its own task,
+     * so directories are walked in parallel, and the text files of a directory are handed
+     * off in small batches as it is listed, so one large directory is also processed in
+     * parallel. The consumer is called on the threads of the pool, from many at once.
+     *
+     * @param start the initial path to search
+     * @param pool the pool to walk and process the files on
+     * @param found called with every text file found
+     * @throws IOException thrown in case a directory cannot be read
+     */
+    public static void discover(Path start, ForkJoinPool pool, Consumer<Path> found) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(start, BasicFileAttributes.class);
+        try {
+            pool.invoke(new DiscoverTask(start, attributes, ConcurrentHashMap.newKeySet(), found));
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Lists one directory, forking a task for every directory in it and handing off the
+     * text files in it in batches, then waits for all of them.
+     */
+    @SuppressWarnings("serial")
+    private static class DiscoverTask extends RecursiveAction {
+
+        /** The path to list. */
+        private final Path path;
+
+        /** The attributes of the path, read while listing its parent. */
+        private final BasicFileAttributes attributes;
+
+        /** The directories that have been listed, so symbolic link loops are skipped. */
+        private final Set<Object> visited;
+
+        /** Called with every text file found. */
+        private final Consumer<Path> found;
+
+        /**
+         * Constructor for a task that lists a path.
+         *
+         * @param path the path to list
+         * @param attributes the attributes of the path
+         * @param visited the directories that have been listed
+         * @param found called with every text file found
+         */
+        public DiscoverTask(Path path, BasicFileAttributes attributes, Set<Object> visited, Consumer<Path> found) {
+            this.path = path;
+            this.attributes = attributes;
+            this.visited = visited;
+            this.found = found;
+        }
+
+        @Override
+        protected void compute() {
+            if (!attributes.isDirectory()) {
+                if (IS_TEXT_ATTR.test(path, attributes)) {
+                    found.accept(path);
+                }
+                return;
+            }
+            ArrayList<ForkJoinTask<?>> forked = new ArrayList<>();
+            ArrayList<Path> batch = new ArrayList<>(DISCOVERY_BATCH);
+            try {
+                Object key = attributes.fileKey() != null ? attributes.fileKey() : path.toRealPath();
+                if (!visited.add(key)) {
+                    return;
+                }
+                Files.walkFileTree(path, EnumSet.of(FileVisitOption.FOLLOW_LINKS), 1, new SimpleFileVisitor<Path>() {
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attr) {
+                        if (attr.isDirectory()) {
+                            forked.add(new DiscoverTask(file, attr, visited, found).fork());
+                        }
+                        else if (IS_TEXT_ATTR.test(file, attr)) {
+                            batch.add(file);
+                            if (batch.size() == DISCOVERY_BATCH) {
+                                List<Path> full = new ArrayList<>(batch);
+                                forked.add(ForkJoinTask.adapt(() -> full.forEach(found)).fork());
+                                batch.clear();
+                            }
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            batch.forEach(found);
+            for (ForkJoinTask<?> task : forked) {
+                task.join();
+            }
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+import java.text.Normalizer;
+import java.util.regex.Pattern;
+
+/**
+ * Utility class for parsing text in a consistent manner.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version Fall 2019
+ * @version v2.3.0
+ */
+public class TextParser {
+
+    /** Regular expression that matches any whitespace. **/
+    public static final Pattern SPLIT_REGEX = Pattern.compile("(?U)\\p{Space}+");
+
+    /** Regular expression that matches non-alphabetic characters. **/
+    public static final Pattern CLEAN_REGEX = Pattern.compile("(?U)[^\\p{Alpha}\\p{Space}]+");
+
+    /**
+     * Cleans the text by removing any non-alphabetic characters (e.g. non-letters
+     * like digits, punctuation, symbols, and diacritical marks like the umlaut) and
+     * converting the remaining characters to lowercase.
+     *
+     * @param text the text to clean
+     * @return cleaned text
+     */
+    public static String clean(String text) {
+        String cleaned = Normalizer.normalize(text, Normalizer.Form.NFD);
+        cleaned = CLEAN_REGEX.matcher(cleaned).replaceAll("");
+        return cleaned.toLowerCase();
+    }
+
+  /**
+     * Splits the supplied text by white spaces.
+     *
+     * @param text the text to split
+     * @return an array of {@link String} objects
+     */
+    public static String[] split(String text) {
+        return text.isBlank() ? new String[0] : SPLIT_REGEX.split(text.strip());
+    }
+
+    /**
+     * Cleans the text and then splits it by whitespace.
+     *
+     * @param text the text to clean and split
+     * @return an array of {@link String} objects
+     *
+     * @see #clean(String)
+     * @see #parse(String)
+     */
+    public static String[] parse(String text) {
+        return split(clean(text));
+    }
+}
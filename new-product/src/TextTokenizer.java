@@ -0,0 +1,210 @@
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * TextTokenizer
+ *
+ * A hand-written replacement for {@link TextParser#parse(String)} that scans each
+ * line once, dropping non-alphabetic characters, folding case as it goes, and passing
+ * every token to a callback instead of building a cleaned String and a String array.
+ * The token passed to the callback is backed by a buffer that is reused for the next
+ * token, so it must be copied (for example with {@code toString()}) if it is kept.
+ *
+ * Produces exactly the same tokens as {@link TextParser#parse(String)}. A line is only
+ * decomposed with {@link Normalizer} when it has a character that changes under NFD,
+ * which is what removes diacritical marks; plain ASCII lines never allocate. Lines
+ * where lowercasing depends on the surrounding text (a Greek capital sigma, or a
+ * Turkish, Azeri, or Lithuanian default locale) are passed to TextParser instead.
+ *
+ * Each TextTokenizer keeps its own buffer and is not safe to share between threads.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class TextTokenizer {
+
+    /**
+     * Whether lowercasing a single character gives the same result as lowercasing the
+     * whole String in the default locale, which is not true in Turkish, Azeri, or
+     * Lithuanian.
+     */
+    private static final boolean SIMPLE_CASE = !Locale.getDefault().getLanguage().matches("tr|az|lt");
+
+    /** The Greek capital letter sigma, which lowercases differently at the end of a word. */
+    private static final char CAPITAL_SIGMA = '\u03A3';
+
+    /** The number of chars reserved for a token before the buffer grows. */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** The reusable buffer of the current token. */
+    private char[] buffer;
+
+    /** The number of chars of the current token. */
+    private int length;
+
+    /** The current token as a CharSequence that reads from the buffer. */
+    private final Token token;
+
+    /** Constructor of a TextTokenizer with an empty buffer. */
+    public TextTokenizer() {
+        this.buffer = new char[INITIAL_CAPACITY];
+        this.length = 0;
+        this.token = new Token();
+    }
+
+    /**
+     * Cleans the line and splits it by whitespace, passing each token to the consumer
+     * in order. Gives the same tokens as {@link TextParser#parse(String)}.
+     *
+     * @param line the text to clean and split
+     * @param consumer the callback each token is passed to
+     */
+    public void tokenize(CharSequence line, Consumer<CharSequence> consumer) {
+        CharSequence text = decompose(line);
+        if (!SIMPLE_CASE || hasCapitalSigma(text)) {
+            for (String word : TextParser.parse(line.toString())) {
+                consumer.accept(word);
+            }
+            return;
+        }
+        length = 0;
+        boolean started = false;
+        boolean leadingEmpty = false;
+        int i = 0;
+        while (i < text.length()) {
+            int cp = Character.codePointAt(text, i);
+            i += Character.charCount(cp);
+            if (isSpace(cp)) {
+                if (!started && !Character.isWhitespace(cp)) {
+                    /*
+                     * String.strip() only removes Character.isWhitespace characters, so
+                     * TextParser splits a line that starts with a space like U+00A0 into a
+                     * leading empty token (if any token follows). Kept so the index is the
+                     * same either way.
+                     */
+                    leadingEmpty = true;
+                    started = true;
+                }
+                else if (length > 0) {
+                    emit(consumer);
+                }
+            }
+            else if (Character.isAlphabetic(cp)) {
+                if (leadingEmpty) {
+                    consumer.accept(token);
+                    leadingEmpty = false;
+                }
+                started = true;
+                append(cp);
+            }
+        }
+        if (length > 0) {
+            emit(consumer);
+        }
+    }
+
+    /**
+     * Determines whether the code point matches {@code (?U)\p{Space}}, the same
+     * whitespace that {@link TextParser#SPLIT_REGEX} splits on.
+     *
+     * @param cp the code point to check
+     * @return {@code true} if the code point is whitespace; false otherwise
+     */
+    public static boolean isSpace(int cp) {
+        int type = Character.getType(cp);
+        return type == Character.SPACE_SEPARATOR
+                || type == Character.LINE_SEPARATOR
+                || type == Character.PARAGRAPH_SEPARATOR
+                || (cp >= 0x9 && cp <= 0xD)
+                || cp == 0x85;
+    }
+
+    /**
+     * Returns the line in NFD form, or the line itself if nothing would change, which
+     * is always the case for ASCII text.
+     *
+     * @param line the line to decompose
+     * @return the decomposed line
+     */
+    private static CharSequence decompose(CharSequence line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) >= 0x80) {
+                return Normalizer.isNormalized(line, Normalizer.Form.NFD) ?
+                        line : Normalizer.normalize(line, Normalizer.Form.NFD);
+            }
+        }
+        return line;
+    }
+
+    /**
+     * Determines whether the text has a Greek capital sigma, which lowercases to a
+     * final sigma depending on the words around it.
+     *
+     * @param text the text to check
+     * @return {@code true} if the text has a capital sigma; false otherwise
+     */
+    private static boolean hasCapitalSigma(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == CAPITAL_SIGMA) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lowercases and appends a code point to the current token.
+     *
+     * @param cp the code point to append
+     */
+    private void append(int cp) {
+        cp = Character.toLowerCase(cp);
+        if (length + 2 > buffer.length) {
+            char[] grown = new char[buffer.length * 2];
+            System.arraycopy(buffer, 0, grown, 0, length);
+            buffer = grown;
+        }
+        length += Character.toChars(cp, buffer, length);
+    }
+
+    /**
+     * Passes the current token to the consumer and clears the buffer for the next one.
+     *
+     * @param consumer the callback the token is passed to
+     */
+    private void emit(Consumer<CharSequence> consumer) {
+        consumer.accept(token);
+        length = 0;
+    }
+
+    /**
+     * A view of the current token in the buffer, so that no String is created unless
+     * the consumer asks for one.
+     */
+    private class Token implements CharSequence {
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return buffer[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(buffer, start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(buffer, 0, length);
+        }
+    }
+}
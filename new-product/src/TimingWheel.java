@@ -0,0 +1,147 @@
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * TimingWheel
+ *
+ * A hashed timing wheel: a ring of slots, each holding the items due in one tick of
+ * time. Scheduling an item and expiring the items of a tick both take constant time
+ * however many items are waiting, unlike a priority queue of deadlines. An item due more
+ * than one turn of the wheel away waits in its slot until the wheel comes around to it
+ * again on the right turn.
+ *
+ * Not thread-safe; the owner is expected to hold its own lock around every call.
+ *
+ * @param <T> the type of item that is scheduled
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class TimingWheel<T> {
+
+    /** The slots of the wheel, one per tick of a turn. */
+    private final ArrayDeque<Timeout<T>>[] slots;
+
+    /** Selects the slot of a tick; the number of slots is a power of two. */
+    private final int mask;
+
+    /** The length of a tick, in nanoseconds. */
+    private final long tickNanos;
+
+    /** The last tick whose items have been expired. */
+    private long current;
+
+    /** The number of items waiting. */
+    private int size;
+
+    /**
+     * Constructor of an empty wheel whose current tick is the one holding the time passed in.
+     *
+     * @param tickNanos the length of a tick, in nanoseconds; at least 1
+     * @param slots the number of ticks in a turn of the wheel, rounded up to a power of two
+     * @param nowNanos the current time, as given by {@link System#nanoTime()}
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimingWheel(long tickNanos, int slots, long nowNanos) {
+        int length = Integer.highestOneBit(Math.max(1, slots - 1)) << 1;
+        this.slots = new ArrayDeque[length];
+        for (int i = 0; i < length; i++) {
+            this.slots[i] = new ArrayDeque<>();
+        }
+        this.mask = length - 1;
+        this.tickNanos = Math.max(1, tickNanos);
+        this.current = Math.floorDiv(nowNanos, this.tickNanos);
+    }
+
+    /**
+     * Schedules an item to expire at the first tick that ends at or after its deadline.
+     * An item whose deadline has already passed expires at the next tick.
+     *
+     * @param item the item to schedule
+     * @param deadlineNanos when the item is due, as given by {@link System#nanoTime()}
+     */
+    public void schedule(T item, long deadlineNanos) {
+        long tick = Math.max(current + 1, Math.floorDiv(deadlineNanos + tickNanos - 1, tickNanos));
+        slots[(int) (tick & mask)].add(new Timeout<>(item, tick));
+        size++;
+    }
+
+    /**
+     * Expires every item due at or before the tick holding the time passed in, in the
+     * order of their ticks, and moves the wheel up to that tick.
+     *
+     * @param nowNanos the current time, as given by {@link System#nanoTime()}
+     * @param expired called with each item that has expired
+     */
+    public void advance(long nowNanos, Consumer<? super T> expired) {
+        long target = Math.floorDiv(nowNanos, tickNanos);
+        long last = Math.min(target, current + slots.length);
+        for (long tick = current + 1; tick <= last && size > 0; tick++) {
+            Iterator<Timeout<T>> timeouts = slots[(int) (tick & mask)].iterator();
+            while (timeouts.hasNext()) {
+                Timeout<T> timeout = timeouts.next();
+                if (timeout.tick <= target) {
+                    timeouts.remove();
+                    size--;
+                    expired.accept(timeout.item);
+                }
+            }
+        }
+        current = Math.max(current, target);
+    }
+
+    /**
+     * Returns the number of nanoseconds from the time passed in until the end of the
+     * current tick, which is when {@link #advance} next has anything to do.
+     *
+     * @param nowNanos the current time, as given by {@link System#nanoTime()}
+     * @return the nanoseconds until the next tick, at least 1
+     */
+    public long nanosUntilNextTick(long nowNanos) {
+        return Math.max(1, (current + 1) * tickNanos - nowNanos);
+    }
+
+    /**
+     * Checks whether any items are waiting.
+     *
+     * @return true if no items are waiting; false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of items waiting.
+     *
+     * @return the number of items
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * An item waiting in a slot, with the tick it is due at.
+     *
+     * @param <T> the type of item
+     */
+    private static class Timeout<T> {
+
+        /** The item. */
+        private final T item;
+
+        /** The tick the item is due at. */
+        private final long tick;
+
+        /**
+         * Constructor of an item waiting in a slot.
+         *
+         * @param item the item
+         * @param tick the tick the item is due at
+         */
+        public Timeout(T item, long tick) {
+            this.item = item;
+            this.tick = tick;
+        }
+    }
+}
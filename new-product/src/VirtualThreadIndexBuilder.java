@@ -0,0 +1,193 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * VirtualThreadIndexBuilder
+ *
+ * Builds the inverted index from a path with one virtual thread per file, for when
+ * indexing is limited by how long it takes to open and read each file (such as on a
+ * network filesystem) rather than by the CPU. A virtual thread that is waiting on a
+ * read does not hold on to a platform thread, so as many files can be read at once
+ * as the storage can handle without picking a thread count.
+ *
+ * Only the reading is done on the virtual threads. The lines of each file are then
+ * parsed and stemmed on a pool of platform threads, one per core, since that work
+ * only slows down when there are more threads than cores. The number of files in
+ * flight at once, from being opened until their words are added to the index, is
+ * capped, so that a very large directory neither runs out of file handles nor holds
+ * the lines of many more files in memory than the parsing threads can keep up with.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class VirtualThreadIndexBuilder extends InvertedIndexBuilder {
+
+    /** The default number of files that can be in flight at once. */
+    public static final int DEFAULT_OPEN_FILES = 256;
+
+    /** The index that the files are added to. */
+    private final InvertedIndex index;
+
+    /**
+     * Guards the index, since it is added to from many virtual threads. Not used for an
+     * index that is thread-safe on its own.
+     */
+    private final ReentrantLock indexLock;
+
+    /** The number of platform threads that parse and stem. */
+    private final int cpuThreads;
+
+    /** The number of files that can be in flight at once. */
+    private final int openFiles;
+
+    /**
+     * Constructor for a builder with one parsing thread per core and the default number
+     * of files in flight.
+     *
+     * @param index the InvertedIndex that the files are added to
+     */
+    public VirtualThreadIndexBuilder(InvertedIndex index) {
+        this(index, Runtime.getRuntime().availableProcessors(), DEFAULT_OPEN_FILES);
+    }
+
+    /**
+     * Constructor for a builder with the number of parsing threads and files in flight passed in.
+     *
+     * @param index the InvertedIndex that the files are added to
+     * @param cpuThreads the number of platform threads that parse and stem; at least 1
+     * @param openFiles the number of files that can be in flight at once; at least 1
+     */
+    public VirtualThreadIndexBuilder(InvertedIndex index, int cpuThreads, int openFiles) {
+        super(index);
+        this.index = index;
+        this.indexLock = new ReentrantLock();
+        this.cpuThreads = Math.max(1, cpuThreads);
+        this.openFiles = Math.max(1, openFiles);
+    }
+
+    /**
+     * Creates InvertedIndex structure from the path that is taken, reading every file
+     * on its own virtual thread, started as soon as the file is found while the
+     * directories are walked in parallel. Only the first failure is kept, and files
+     * found after it are not read, so nothing is held on to for each file once it has
+     * been added.
+     *
+     * @param inputPath the path that is checked
+     * @throws IOException thrown in case a file cannot be read through or if invalid input
+     */
+    @Override
+    public void buildIndexFromPath(Path inputPath) throws IOException {
+        Semaphore open = new Semaphore(openFiles);
+        ExecutorService cpu = Executors.newFixedThreadPool(cpuThreads);
+        ForkJoinPool discovery = new ForkJoinPool(cpuThreads);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        try (ExecutorService io = Executors.newVirtualThreadPerTaskExecutor()) {
+            TextFileFinder.discover(inputPath, discovery, file -> io.execute(() -> {
+                if (failure.get() != null) {
+                    return;
+                }
+                try {
+                    addFile(file, open, cpu);
+                }
+                catch (IOException | ExecutionException | RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+                catch (InterruptedException e) {
+                    failure.compareAndSet(null, e);
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        finally {
+            discovery.shutdown();
+            cpu.shutdown();
+        }
+        rethrow(failure.get());
+        if (Thread.currentThread().isInterrupted()) {
+            throw new IOException("Interrupted while building the index.");
+        }
+    }
+
+    /**
+     * Returns the number of platform threads used to parse and stem.
+     *
+     * @return the number of parsing threads
+     */
+    public int getThreads() {
+        return cpuThreads;
+    }
+
+    /**
+     * Throws the first failure of any file, if there was one.
+     *
+     * @param failure the first failure, or {@code null} if every file was added
+     * @throws IOException thrown in case a file could not be read, or a thread was interrupted
+     */
+    private static void rethrow(Throwable failure) throws IOException {
+        Throwable cause = failure;
+        while (cause instanceof ExecutionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause == null) {
+            return;
+        }
+        if (cause instanceof IOException) {
+            throw (IOException) cause;
+        }
+        if (cause instanceof InterruptedException) {
+            throw new IOException("Interrupted while building the index.", cause);
+        }
+        throw new IllegalStateException(cause);
+    }
+
+    /**
+     * Reads a file on the calling virtual thread, then parses and stems its lines on
+     * the platform pool and adds them to the index. A permit is held from before the
+     * file is opened until its words are added, so the lines of at most that many files
+     * are held in memory at once.
+     *
+     * @param file the path that is to be searched through
+     * @param open the permits for files in flight
+     * @param cpu the platform pool to parse and stem on
+     * @throws IOException thrown in case a file cannot be read through or if invalid input
+     * @throws InterruptedException thrown in case the thread is interrupted while waiting
+     * @throws ExecutionException thrown in case parsing or stemming fails
+     */
+    private void addFile(Path file, Semaphore open, ExecutorService cpu)
+            throws IOException, InterruptedException, ExecutionException {
+        open.acquire();
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            HashMap<String, PostingList> words = cpu.submit(() -> stemLines(lines)).get();
+            NearDuplicateDetector detector = getDetector();
+            if (detector != null && !detector.admit(file.toString(), words)) {
+                return;
+            }
+            if (index.isThreadSafe()) {
+                index.addAll(words, file.toString());
+                return;
+            }
+            indexLock.lock();
+            try {
+                index.addAll(words, file.toString());
+            }
+            finally {
+                indexLock.unlock();
+            }
+        }
+        finally {
+            open.release();
+        }
+    }
+}
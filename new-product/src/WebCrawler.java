@@ -0,0 +1,254 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * WebCrawler
+ *
+ * Builds the inverted index from web pages instead of text files. Starting from a seed
+ * URL, every page is fetched on the work queue and read as it arrives: its links are
+ * offered to the {@link CrawlFrontier} to be crawled as soon as they are read, and the
+ * text of the page is stemmed as it is read and added to the index with the URL of the
+ * page as its location. At most the maximum
+ * number of distinct pages are crawled, counting the seed, and each page is crawled
+ * only once.
+ *
+ * Pages are handed from the frontier to a {@link HostScheduler}, which starts each fetch
+ * on the work queue once its host allows another request. A page is only taken from the
+ * frontier when the scheduler has room for another request in flight, one per request,
+ * so that the frontier rather than the queues of the hosts decides which page is fetched
+ * next and pages close to the seed are fetched first.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class WebCrawler {
+
+    /** The default number of pages to crawl. */
+    public static final int DEFAULT_MAX = 1;
+
+    /** Logger used in cases for debugging. */
+    private static final Logger logger = LogManager.getLogger();
+
+    /** The index that the pages are added to. */
+    private final InvertedIndex index;
+
+    /** Decides when each page may be fetched, and fetches it on the work queue. */
+    private final HostScheduler scheduler;
+
+    /** Fetches the pages. */
+    private final HtmlFetcher fetcher;
+
+    /** The pages found but not yet fetched, and every page seen. */
+    private final CrawlFrontier frontier;
+
+    /** The number of pages handed to the scheduler but not yet finished. */
+    private final AtomicInteger inFlight;
+
+    /** The number of pages that were fetched and read. */
+    private final AtomicInteger crawled;
+
+    /** Decides which pages are near-duplicates that are not added, or {@code null} to add every page. */
+    private NearDuplicateDetector detector;
+
+    /**
+     * Guards the index, since it is added to from every worker. Not used for an index
+     * that is thread-safe on its own.
+     */
+    private final ReentrantLock indexLock;
+
+    /**
+     * Constructor for a crawler with its own fetcher, and a scheduler that only limits
+     * the number of requests in flight to the number of threads of the work queue.
+     *
+     * @param index the InvertedIndex that the pages are added to
+     * @param queue the work queue the pages are fetched on
+     * @param max the maximum number of pages to crawl; at least 1
+     */
+    public WebCrawler(InvertedIndex index, TaskQueue queue, int max) {
+        this(index, new HostScheduler(queue), new CrawlFrontier(max), new HtmlFetcher());
+    }
+
+    /**
+     * Constructor for a crawler with the scheduler, frontier and fetcher passed in.
+     *
+     * @param index the InvertedIndex that the pages are added to
+     * @param scheduler decides when each page may be fetched, and fetches it on its work queue
+     * @param frontier the frontier that decides which pages are crawled, and in what order
+     * @param fetcher fetches the pages
+     */
+    public WebCrawler(InvertedIndex index, HostScheduler scheduler, CrawlFrontier frontier, HtmlFetcher fetcher) {
+        this.index = index;
+        this.scheduler = scheduler;
+        this.fetcher = fetcher;
+        this.frontier = frontier;
+        this.inFlight = new AtomicInteger();
+        this.crawled = new AtomicInteger();
+        this.indexLock = new ReentrantLock();
+    }
+
+    /**
+     * Crawls from the seed, waiting until every page queued has been crawled.
+     *
+     * @param seed the first page to crawl
+     * @throws IllegalArgumentException thrown in case the seed is not an HTTP or HTTPS URL
+     * @throws InterruptedException thrown in case the thread is interrupted while waiting
+     */
+    public void crawl(URI seed) throws InterruptedException {
+        URI start = LinkParser.resolve(seed, seed.toString());
+        if (start == null) {
+            throw new IllegalArgumentException("Not an HTTP or HTTPS URL: " + seed);
+        }
+        frontier.offer(start, 0);
+        dispatch();
+        scheduler.finish();
+    }
+
+    /**
+     * Returns the number of pages that were fetched and read, including any that were
+     * not added to the index as near-duplicates.
+     *
+     * @return the number of pages crawled
+     */
+    public int getCrawled() {
+        return crawled.get();
+    }
+
+    /**
+     * Sets the detector that decides which pages are near-duplicates of a page already
+     * added, which are then not added to the index. Their links are still crawled.
+     *
+     * @param detector the detector to use, or {@code null} to add every page
+     */
+    public void setDetector(NearDuplicateDetector detector) {
+        this.detector = detector;
+    }
+
+    /**
+     * Returns the frontier of this crawler.
+     *
+     * @return the frontier
+     */
+    public CrawlFrontier getFrontier() {
+        return frontier;
+    }
+
+    /**
+     * Hands pages from the frontier to the scheduler until it has as many as it lets be
+     * in flight or no pages are waiting. A thread that takes a free slot and finds no page
+     * gives the slot back and checks again, so a page offered at the same moment is not
+     * stranded.
+     */
+    private void dispatch() {
+        int limit = scheduler.getMaxInFlight();
+        while (!frontier.isEmpty()) {
+            int running = inFlight.get();
+            if (running >= limit) {
+                return;
+            }
+            if (!inFlight.compareAndSet(running, running + 1)) {
+                continue;
+            }
+            CrawlFrontier.Entry next = frontier.poll();
+            if (next == null) {
+                inFlight.decrementAndGet();
+                continue;
+            }
+            scheduler.submit(next.getUri(), new CrawlTask(next));
+        }
+    }
+
+    /**
+     * Adds the words of a page to the index.
+     *
+     * @param words the positions of every stem found in the page
+     * @param location the URL of the page
+     */
+    private void addPage(HashMap<String, PostingList> words, String location) {
+        if (index.isThreadSafe()) {
+            index.addAll(words, location);
+            return;
+        }
+        indexLock.lock();
+        try {
+            index.addAll(words, location);
+        }
+        finally {
+            indexLock.unlock();
+        }
+    }
+
+    /**
+     * Fetches one page, queues its links, and adds its text to the index.
+     */
+    private class CrawlTask implements Runnable {
+
+        /** The page to crawl. */
+        private final CrawlFrontier.Entry page;
+
+        /**
+         * Constructor for the page to crawl.
+         *
+         * @param page the page to crawl
+         */
+        public CrawlTask(CrawlFrontier.Entry page) {
+            this.page = page;
+        }
+
+        @Override
+        public void run() {
+            try {
+                crawl();
+            }
+            finally {
+                inFlight.decrementAndGet();
+                dispatch();
+            }
+        }
+
+        /**
+         * Fetches the page, offers its links to the frontier as they are read, and adds
+         * its text to the index.
+         */
+        private void crawl() {
+            URI uri = page.getUri();
+            HashMap<String, PostingList> words;
+            try {
+                HttpResponse<InputStream> response = fetcher.fetchStream(uri);
+                if (response == null) {
+                    return;
+                }
+                URI base = response.uri();
+                try (Reader html = new InputStreamReader(response.body(), HtmlFetcher.getCharset(response))) {
+                    words = InvertedIndexBuilder.stemHtml(html, href -> {
+                        URI link = LinkParser.resolve(base, href);
+                        if (link != null && frontier.offer(link, page.getDepth() + 1)) {
+                            dispatch();
+                        }
+                    });
+                }
+            }
+            catch (IOException e) {
+                logger.debug("Unable to fetch {}", uri, e);
+                return;
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (detector == null || detector.admit(uri.toString(), words)) {
+                addPage(words, uri.toString());
+            }
+            crawled.incrementAndGet();
+        }
+    }
+}
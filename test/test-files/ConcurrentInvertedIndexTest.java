@@ -0,0 +1,196 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ConcurrentInvertedIndexTest
+ *
+ * Checks that a {@link ConcurrentInvertedIndex} built from many threads ends up the same
+ * as an index built one file at a time, that removed files are left out of everything
+ * read from it both before and after they are purged, that replacing files over and
+ * over reuses their document IDs, and that searches running while files are added and
+ * removed only ever see scores between 0 and 1.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class ConcurrentInvertedIndexTest {
+
+    /** The queries searched for in both indexes. */
+    private static final String QUERIES = "apple\nfox jumping\ncrawl index\nsearch words\nzebra über\n";
+
+    /**
+     * Runs every test.
+     *
+     * @param args unused
+     * @throws IOException thrown in case the corpus cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        Path root = TestSupport.createTempDirectory("concurrent");
+        Path corpus = TestSupport.writeCorpus(root.resolve("corpus"), 100, 23);
+        Path expected = write(root.resolve("serial"), corpus, new InvertedIndex(), null);
+
+        TestSupport.run("same output when built on many threads", () -> {
+            InvertedIndex index = new ConcurrentInvertedIndex(8);
+            compare(expected, write(root.resolve("sharded"), corpus, index, new ParallelIndexBuilder(index, 4)));
+        });
+        TestSupport.run("removed files are left out", () -> {
+            InvertedIndex index = new ConcurrentInvertedIndex();
+            new InvertedIndexBuilder(index).buildIndexFromPath(corpus);
+            String path = corpus.resolve("d1").resolve("f1.txt").toString();
+            TestSupport.check(index.removeDocument(path), "file was indexed");
+            TestSupport.check(!index.getFiles().contains(path), "removed file is still listed");
+            TestSupport.checkEquals(0, index.getCount(path), "count of removed file");
+            for (InvertedIndex.QueryResult result : index.search(new TreeSet<>(List.of("a", "s")), false)) {
+                TestSupport.check(!path.equals(result.getPathFile()), "removed file was found");
+            }
+        });
+        TestSupport.run("removed files are left out the same before and after a purge", () -> {
+            InvertedIndex serial = new InvertedIndex();
+            ConcurrentInvertedIndex index = new ConcurrentInvertedIndex(8);
+            new InvertedIndexBuilder(serial).buildIndexFromPath(corpus);
+            new InvertedIndexBuilder(index).buildIndexFromPath(corpus);
+            for (String path : List.copyOf(serial.getFiles()).subList(0, 10)) {
+                serial.removeDocument(path);
+                index.removeDocument(path);
+            }
+            serial.purge();
+            Path purged = writeOutputs(root.resolve("serial-removed"), serial);
+            compare(purged, writeOutputs(root.resolve("sharded-removed"), index));
+            index.purge();
+            TestSupport.check(!index.hasTombstones(), "removed files left to purge");
+            compare(purged, writeOutputs(root.resolve("sharded-purged"), index));
+        });
+        TestSupport.run("replacing files reuses their document IDs", () -> {
+            ConcurrentInvertedIndex index = new ConcurrentInvertedIndex(4);
+            for (int round = 0; round < 500; round++) {
+                for (int i = 0; i < 10; i++) {
+                    HashMap<String, PostingList> words = new HashMap<>();
+                    words.computeIfAbsent("word" + (round + i) % 7, key -> new PostingList()).addPosition(1);
+                    words.computeIfAbsent("shared", key -> new PostingList()).addPosition(2);
+                    index.replaceDocument("file" + i, words);
+                }
+            }
+            index.purge();
+            TestSupport.check(index.getDocuments().size() <= 10 * 2 + 1,
+                    index.getDocuments().size() + " document IDs for 10 files replaced 5000 times");
+            TestSupport.checkEquals(10, index.getFiles().size(), "files");
+            TestSupport.checkEquals(10, index.search(new TreeSet<>(List.of("shared")), true).size(), "results");
+            TestSupport.checkEquals(8, index.numberOfElementsInStructure(), "words");
+        });
+        TestSupport.run("searches during adds and removes score between 0 and 1", () -> {
+            ConcurrentInvertedIndex index = new ConcurrentInvertedIndex(4);
+            List<HashMap<String, PostingList>> pages = pages(new Random(29), 40);
+            AtomicBoolean done = new AtomicBoolean();
+            ArrayList<String> bad = new ArrayList<>();
+            Thread[] writers = new Thread[3];
+            for (int w = 0; w < writers.length; w++) {
+                int writer = w;
+                writers[w] = new Thread(() -> {
+                    for (int round = 0; round < 100; round++) {
+                        for (int i = writer; i < pages.size(); i += writers.length) {
+                            index.addAll(pages.get(i), "page" + i);
+                        }
+                        for (int i = writer; i < pages.size(); i += writers.length) {
+                            index.removeDocument("page" + i);
+                        }
+                    }
+                    done.set(true);
+                });
+                writers[w].start();
+            }
+            Random random = new Random(31);
+            while (!done.get()) {
+                TreeSet<String> queries = new TreeSet<>(List.of(TestSupport.randomWord(random).substring(0, 1)));
+                for (InvertedIndex.QueryResult result : index.search(queries, false)) {
+                    String score = result.getWordScore();
+                    if (!score.matches("0\\.\\d+|1\\.0+") && bad.size() < 10) {
+                        bad.add(result.getPathFile() + " scored " + score);
+                    }
+                }
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            TestSupport.check(bad.isEmpty(), "bad scores: " + bad);
+        });
+        TestSupport.finish();
+    }
+
+    /**
+     * Returns random pages of words, each word at a few positions.
+     *
+     * @param random the source of randomness
+     * @param count the number of pages
+     * @return the words of each page mapped to their positions
+     */
+    private static List<HashMap<String, PostingList>> pages(Random random, int count) {
+        List<HashMap<String, PostingList>> pages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            HashMap<String, PostingList> words = new HashMap<>();
+            for (int position = 1; position <= 50; position++) {
+                words.computeIfAbsent(TestSupport.randomWord(random), key -> new PostingList()).addPosition(position);
+            }
+            pages.add(words);
+        }
+        return pages;
+    }
+
+    /**
+     * Builds an index of the corpus and writes its JSON outputs and search results.
+     *
+     * @param output the directory to write the outputs to
+     * @param corpus the directory of text files to index
+     * @param index the index to build
+     * @param builder the builder to use, or {@code null} to add one file at a time
+     * @return the directory of outputs
+     * @throws IOException thrown in case a file cannot be read or written
+     */
+    private static Path write(Path output, Path corpus, InvertedIndex index, InvertedIndexBuilder builder)
+            throws IOException {
+        (builder != null ? builder : new InvertedIndexBuilder(index)).buildIndexFromPath(corpus);
+        return writeOutputs(output, index);
+    }
+
+    /**
+     * Writes the JSON outputs and search results of an index.
+     *
+     * @param output the directory to write the outputs to
+     * @param index the index to write
+     * @return the directory of outputs
+     * @throws IOException thrown in case a file cannot be written
+     */
+    private static Path writeOutputs(Path output, InvertedIndex index) throws IOException {
+        Files.createDirectories(output);
+        index.writeIndex(output.resolve("index.json"));
+        index.writeWordCount(output.resolve("counts.json"));
+        for (boolean exact : new boolean[] {true, false}) {
+            QueryBuilder queries = new QueryBuilder(index);
+            for (String line : QUERIES.split("\n")) {
+                queries.parse(line, exact);
+            }
+            queries.writeQueryToJSON(output.resolve(exact ? "exact.json" : "partial.json"));
+        }
+        return output;
+    }
+
+    /**
+     * Fails unless every output of the two directories is the same.
+     *
+     * @param expected the outputs of the serial build
+     * @param actual the outputs to compare
+     * @throws IOException thrown in case a file cannot be read
+     */
+    private static void compare(Path expected, Path actual) throws IOException {
+        for (String name : new String[] {"index.json", "counts.json", "exact.json", "partial.json"}) {
+            TestSupport.checkEquals(TestSupport.read(expected.resolve(name)),
+                    TestSupport.read(actual.resolve(name)), name);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CrawlFrontierTest
+ *
+ * Checks that a {@link FingerprintSet} takes no more than 16 bytes for each member once
+ * it has grown, loses no members when many threads add to it at once, and never misses
+ * a member while it is being grown; that a {@link BloomFilter} never misses a fingerprint
+ * that was added; and that a {@link CrawlFrontier} hands pages out closest to the seed
+ * first, skips pages it has seen, and stops at its maximum.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class CrawlFrontierTest {
+
+    /** The number of fingerprints each thread adds. */
+    private static final int PER_THREAD = 50_000;
+
+    /** The number of threads that add at once. */
+    private static final int THREADS = 4;
+
+    /**
+     * Runs every test.
+     *
+     * @param args unused
+     */
+    public static void main(String[] args) {
+        TestSupport.run("the seen-set takes at most 16 bytes a member as it grows", () -> {
+            FingerprintSet set = new FingerprintSet(16);
+            Random random = new Random(41);
+            long[] added = new long[200_000];
+            added[0] = 0L;
+            TestSupport.check(set.add(added[0]), "zero was not added");
+            int grown = 0;
+            int capacity = set.capacity();
+            for (int i = 1; i < added.length; i++) {
+                added[i] = random.nextLong();
+                TestSupport.check(set.add(added[i]), "fingerprint was not added");
+                if (set.capacity() != capacity) {
+                    capacity = set.capacity();
+                    grown++;
+                }
+                if (grown > 0 && (set.capacity() * 8L > 16L * set.size() || set.size() * 4L > set.capacity() * 3L)) {
+                    TestSupport.check(false, set.capacity() + " slots for " + set.size() + " members");
+                }
+            }
+            TestSupport.check(grown > 10, "grew only " + grown + " times");
+            TestSupport.checkEquals(added.length, set.size(), "size");
+            for (long fingerprint : added) {
+                TestSupport.check(set.contains(fingerprint), "member was lost");
+                TestSupport.check(!set.add(fingerprint), "member was added twice");
+            }
+            TestSupport.check(!set.contains(1L), "fingerprint that was never added");
+        });
+        TestSupport.run("concurrent adds lose no members and are found while the set grows", () -> {
+            FingerprintSet set = new FingerprintSet(16);
+            AtomicIntegerArray progress = new AtomicIntegerArray(THREADS);
+            AtomicLong addedOnce = new AtomicLong();
+            AtomicBoolean done = new AtomicBoolean();
+            Thread[] writers = new Thread[THREADS];
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                writers[t] = new Thread(() -> {
+                    for (int i = 0; i < PER_THREAD; i++) {
+                        if (set.add(fingerprint(thread, i))) {
+                            addedOnce.incrementAndGet();
+                        }
+                        if (set.add(fingerprint((thread + 1) % THREADS, i))) {
+                            addedOnce.incrementAndGet();
+                        }
+                        progress.set(thread, i + 1);
+                    }
+                });
+            }
+            ArrayList<String> missed = new ArrayList<>();
+            Thread reader = new Thread(() -> {
+                Random random = new Random(43);
+                while (!done.get()) {
+                    int thread = random.nextInt(THREADS);
+                    int finished = progress.get(thread);
+                    if (finished > 0) {
+                        int i = random.nextInt(finished);
+                        if (!set.contains(fingerprint(thread, i)) && missed.size() < 10) {
+                            missed.add(thread + ":" + i);
+                        }
+                    }
+                }
+            });
+            reader.start();
+            for (Thread writer : writers) {
+                writer.start();
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            done.set(true);
+            reader.join();
+            TestSupport.check(missed.isEmpty(), "members missed while growing: " + missed);
+            TestSupport.checkEquals(THREADS * PER_THREAD, set.size(), "size");
+            TestSupport.checkEquals((long) THREADS * PER_THREAD, addedOnce.get(), "adds that returned true");
+            for (int t = 0; t < THREADS; t++) {
+                for (int i = 0; i < PER_THREAD; i++) {
+                    TestSupport.check(set.contains(fingerprint(t, i)), "member was lost");
+                }
+            }
+            TestSupport.check(set.capacity() * 8L <= 16L * set.size(), set.capacity() + " slots for " + set.size());
+        });
+        TestSupport.run("the Bloom filter never misses a fingerprint that was added", () -> {
+            BloomFilter filter = new BloomFilter(10_000);
+            Random random = new Random(47);
+            for (int i = 0; i < 10_000; i++) {
+                filter.put(FingerprintSet.fingerprint("https://example.com/" + i));
+            }
+            for (int i = 0; i < 10_000; i++) {
+                TestSupport.check(filter.mightContain(FingerprintSet.fingerprint("https://example.com/" + i)),
+                        "fingerprint " + i + " was missed");
+            }
+            int wrong = 0;
+            for (int i = 0; i < 100_000; i++) {
+                if (filter.mightContain(random.nextLong())) {
+                    wrong++;
+                }
+            }
+            TestSupport.check(wrong < 3_000, wrong + " of 100000 fingerprints that were never added were matched");
+        });
+        TestSupport.run("pages are handed out by depth, then in the order they were offered", () -> {
+            for (boolean useFilter : new boolean[] {false, true}) {
+                CrawlFrontier frontier = new CrawlFrontier(6, useFilter);
+                int[] depths = {2, 0, 1, 0, 2, 1};
+                for (int i = 0; i < depths.length; i++) {
+                    TestSupport.check(frontier.offer(page(i), depths[i]), "page " + i + " was not accepted");
+                }
+                TestSupport.check(!frontier.offer(page(1), 0), "a page that was seen was accepted again");
+                TestSupport.check(!frontier.offer(page(9), 0), "a page past the maximum was accepted");
+                TestSupport.check(frontier.hasSeen(page(4)) && !frontier.hasSeen(page(9)), "pages seen");
+                TestSupport.checkEquals(6, frontier.getAccepted(), "accepted");
+                List<URI> order = new ArrayList<>();
+                for (CrawlFrontier.Entry entry = frontier.poll(); entry != null; entry = frontier.poll()) {
+                    order.add(entry.getUri());
+                }
+                TestSupport.checkEquals(List.of(page(1), page(3), page(2), page(5), page(0), page(4)), order,
+                        "order with" + (useFilter ? "" : "out") + " a Bloom filter");
+                TestSupport.check(frontier.isEmpty(), "frontier is not empty");
+            }
+        });
+        TestSupport.finish();
+    }
+
+    /**
+     * Returns the fingerprint a thread adds at a step.
+     *
+     * @param thread the thread
+     * @param i the step
+     * @return a fingerprint that no other thread and step has
+     */
+    private static long fingerprint(int thread, int i) {
+        return FingerprintSet.mix((long) thread * PER_THREAD + i + 1);
+    }
+
+    /**
+     * Returns the URL of a page.
+     *
+     * @param i the number of the page
+     * @return the URL
+     */
+    private static URI page(int i) {
+        return URI.create("https://example.com/page" + i);
+    }
+}
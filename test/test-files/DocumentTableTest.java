@@ -0,0 +1,189 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * DocumentTableTest
+ *
+ * Checks that compacting a {@link DocumentTable} gives the documents that are left
+ * dense IDs in the same order, and that an index whose files are replaced over and
+ * over keeps as many document IDs as it has files, give or take the removed files
+ * that are waiting to be purged. A {@link ConcurrentDocumentTable} instead keeps the IDs
+ * of the documents that are left and hands the removed ones out again. Also checks that
+ * alternate locations stay with their document, that every index shows them in its files
+ * and search results, and that every index keeps them when another index is merged in.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class DocumentTableTest {
+
+    /**
+     * Runs every test.
+     *
+     * @param args unused
+     */
+    public static void main(String[] args) {
+        TestSupport.run("compacting drops removed documents and keeps the order", () -> {
+            DocumentTable table = new DocumentTable();
+            for (String path : List.of("a", "b", "c", "d", "e")) {
+                table.addCount(table.add(path), path.charAt(0));
+            }
+            table.remove("b");
+            table.remove("d");
+            int[] remap = table.compact();
+            TestSupport.checkEquals(List.of(0, -1, 1, -1, 2), List.of(remap[0], remap[1], remap[2], remap[3], remap[4]),
+                    "remap");
+            TestSupport.checkEquals(3, table.size(), "size");
+            for (String path : List.of("a", "c", "e")) {
+                int id = table.getId(path);
+                TestSupport.checkEquals(path, table.getPath(id), "path of " + path);
+                TestSupport.checkEquals((int) path.charAt(0), table.getCount(id), "count of " + path);
+                TestSupport.check(!table.isDeleted(id), path + " is deleted");
+            }
+            TestSupport.checkEquals(-1, table.getId("b"), "id of removed path");
+            TestSupport.checkEquals(3, table.add("f"), "id of a new path");
+        });
+        TestSupport.run("a concurrent table releases removed IDs instead of renumbering", () -> {
+            ConcurrentDocumentTable table = new ConcurrentDocumentTable();
+            for (String path : new String[] {"a", "b", "c", "d", "e"}) {
+                table.addCount(table.add(path), path.charAt(0));
+            }
+            table.remove("b");
+            table.remove("d");
+            TestSupport.checkEquals("[0, -1, 2, -1, 4]", Arrays.toString(table.compact()), "remap");
+            TestSupport.checkEquals("[a, c, e]", table.getCounts().keySet().toString(), "paths");
+            int reused = table.add("f");
+            TestSupport.check(reused == 1 || reused == 3, "id of a new path: " + reused);
+            TestSupport.checkEquals(0, table.getCount(reused), "count of a new path");
+            TestSupport.check(!table.isDeleted(reused), "new path is deleted");
+            TestSupport.checkEquals(5, table.size(), "size");
+            int released = 4 - reused;
+            int[] again = table.compact();
+            TestSupport.checkEquals(-1, again[released], "remap of the ID still released");
+            TestSupport.checkEquals(reused, again[reused], "remap of the reused ID");
+            TestSupport.checkEquals(released, table.add("g"), "id of another new path");
+            TestSupport.checkEquals(5, table.add("h"), "id once none are released");
+        });
+        TestSupport.run("replacing files keeps the document IDs dense", () -> {
+            InvertedIndex index = new InvertedIndex();
+            for (int round = 0; round < 500; round++) {
+                for (int i = 0; i < 10; i++) {
+                    HashMap<String, PostingList> words = new HashMap<>();
+                    words.computeIfAbsent("word" + (round + i) % 7, key -> new PostingList()).addPosition(1);
+                    words.computeIfAbsent("shared", key -> new PostingList()).addPosition(2);
+                    index.replaceDocument("file" + i, words);
+                }
+                TestSupport.check(index.getDocuments().size() <= 10 * 4 / 3 + 1,
+                        index.getDocuments().size() + " document IDs for 10 files");
+            }
+            TestSupport.checkEquals(10, index.getFiles().size(), "files");
+            TestSupport.checkEquals(10, index.search(new TreeSet<>(List.of("shared")), true).size(), "results");
+        });
+        TestSupport.run("results keep their paths after a purge", () -> {
+            InvertedIndex index = new InvertedIndex();
+            for (int i = 0; i < 8; i++) {
+                index.add("word", 1, "file" + i);
+            }
+            List<InvertedIndex.QueryResult> results = index.search(new TreeSet<>(List.of("word")), true);
+            for (int i = 0; i < 4; i++) {
+                index.removeDocument("file" + i);
+            }
+            index.purge();
+            TreeSet<String> paths = new TreeSet<>();
+            for (InvertedIndex.QueryResult result : results) {
+                paths.add(result.getPathFile());
+            }
+            TestSupport.checkEquals(8, paths.size(), "paths of earlier results");
+            TestSupport.check(paths.contains("file0") && paths.contains("file7"), "paths: " + paths);
+        });
+        TestSupport.run("alternate locations follow their document", () -> {
+            DocumentTable table = new DocumentTable();
+            for (String path : List.of("a", "b", "c")) {
+                table.addCount(table.add(path), 1);
+            }
+            TestSupport.check(table.addAlternate(table.getId("c"), "c2"), "alternate of c");
+            TestSupport.check(table.addAlternate(table.getId("c"), "c1"), "second alternate of c");
+            TestSupport.check(table.addAlternate(table.getId("b"), "b2"), "alternate of b");
+            TestSupport.check(!table.addAlternate(table.getId("b"), "a"), "a document became an alternate");
+            TestSupport.checkEquals(List.of("a", "b", "b2", "c", "c1", "c2"), List.copyOf(table.getPaths()), "paths");
+            table.remove("a");
+            table.compact();
+            TestSupport.checkEquals(List.of("c1", "c2"), List.copyOf(table.getAlternates(table.getId("c"))),
+                    "alternates of c after compacting");
+            TestSupport.checkEquals(table.getId("c"), table.getAlternateOf("c1"), "document of c1");
+            table.remove("b");
+            TestSupport.checkEquals(-1, table.getAlternateOf("b2"), "document of an alternate of a removed file");
+            TestSupport.checkEquals(table.getId("c"), table.removeAlternate("c2"), "removed alternate");
+            int id = table.add("c1");
+            TestSupport.check(table.getAlternates(table.getId("c")).isEmpty(), "c1 is still an alternate");
+            TestSupport.checkEquals("c1", table.getPath(id), "path of a former alternate");
+        });
+        TestSupport.run("every index shows alternate locations", () -> {
+            List<InvertedIndex> indexes = List.of(new InvertedIndex(), new MultithreadIndex(),
+                    new ConcurrentInvertedIndex(), new SnapshotIndex(), new SegmentedIndex(3, 2));
+            for (InvertedIndex index : indexes) {
+                String name = index.getClass().getSimpleName();
+                for (int i = 0; i < 5; i++) {
+                    index.add("word", 1, "file" + i);
+                }
+                refresh(index);
+                TestSupport.check(index.addAlternate("file2", "copy2"), name + " added an alternate");
+                TestSupport.check(!index.addAlternate("missing", "copy"), name + " added an alternate of nothing");
+                refresh(index);
+                TestSupport.check(index.getFiles().contains("copy2"), name + " files: " + index.getFiles());
+                for (InvertedIndex.QueryResult result : index.search(Set.of("word"), true)) {
+                    TestSupport.checkEquals(result.getPathFile().equals("file2") ? List.of("copy2") : List.of(),
+                            result.getAlternates(), name + " alternates of " + result.getPathFile());
+                }
+                TestSupport.check(index.removeDocument("copy2"), name + " removed the alternate");
+                refresh(index);
+                TestSupport.check(!index.getFiles().contains("copy2"), name + " still has the alternate");
+                TestSupport.checkEquals(5, index.getFiles().size(), name + " files");
+            }
+        });
+        TestSupport.run("every index keeps alternate locations and leaves out removed files when merging", () -> {
+            List<InvertedIndex> indexes = List.of(new InvertedIndex(), new MultithreadIndex(),
+                    new ConcurrentInvertedIndex(), new SnapshotIndex(), new SegmentedIndex(3, 2));
+            for (InvertedIndex index : indexes) {
+                String name = index.getClass().getSimpleName();
+                InvertedIndex other = new InvertedIndex();
+                for (int i = 0; i < 5; i++) {
+                    other.add("word", 1, "file" + i);
+                }
+                other.add("gone", 2, "file4");
+                other.addAlternate("file2", "copy2");
+                other.removeDocument("file4");
+                TestSupport.check(other.hasTombstones(), "file4 was purged before merging");
+                index.merge(other);
+                refresh(index);
+                TestSupport.checkEquals(List.of("copy2", "file0", "file1", "file2", "file3"),
+                        List.copyOf(index.getFiles()), name + " files");
+                TestSupport.check(!index.contains("gone"), name + " has a word of a removed file");
+                TestSupport.checkEquals(4, index.search(Set.of("word"), true).size(), name + " results");
+                for (InvertedIndex.QueryResult result : index.search(Set.of("word"), true)) {
+                    TestSupport.checkEquals(result.getPathFile().equals("file2") ? List.of("copy2") : List.of(),
+                            result.getAlternates(), name + " alternates of " + result.getPathFile());
+                }
+            }
+        });
+        TestSupport.finish();
+    }
+
+    /**
+     * Makes everything added to an index visible, for an index that only shows what was
+     * added once it is published or flushed.
+     *
+     * @param index the index that was added to
+     */
+    private static void refresh(InvertedIndex index) {
+        if (index instanceof SnapshotIndex) {
+            ((SnapshotIndex) index).publish();
+        }
+        else if (index instanceof SegmentedIndex) {
+            ((SegmentedIndex) index).flush();
+        }
+    }
+}
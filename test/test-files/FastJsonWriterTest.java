@@ -0,0 +1,102 @@
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * FastJsonWriterTest
+ *
+ * Checks that the index written by {@link FastJsonWriter} is the same, byte for byte, as
+ * the index written by {@link SimpleJsonWriter#asBigNestedObject}, for any buffer size.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class FastJsonWriterTest {
+
+    /**
+     * Runs every test.
+     *
+     * @param args unused
+     * @throws IOException thrown in case the corpus cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        Path root = TestSupport.createTempDirectory("json");
+        Path corpus = TestSupport.writeCorpus(root.resolve("corpus"), 60, 11);
+        InvertedIndex index = new InvertedIndex();
+        new InvertedIndexBuilder(index).buildIndexFromPath(corpus);
+
+        TestSupport.run("index JSON matches the simple writer", () -> {
+            Path file = root.resolve("index.json");
+            index.writeIndex(file);
+            TestSupport.checkEquals(simple(copy(index)), TestSupport.read(file), "index.json");
+        });
+        TestSupport.run("empty index JSON matches the simple writer", () -> {
+            Path file = root.resolve("empty.json");
+            new InvertedIndex().writeIndex(file);
+            TestSupport.checkEquals(simple(new TreeMap<>()), TestSupport.read(file), "empty index");
+        });
+        TestSupport.run("output does not depend on the buffer size", () -> {
+            TreeMap<String, TreeMap<String, TreeSet<Integer>>> elements = copy(index);
+            String expected = simple(elements);
+            for (int size : new int[] {1, 16, 17, 63, 100, 4096}) {
+                StringWriter out = new StringWriter();
+                try (FastJsonWriter writer = new FastJsonWriter(out, size)) {
+                    writer.writeIndex(elements);
+                }
+                TestSupport.checkEquals(expected, out.toString(), "buffer of " + size);
+            }
+        });
+        TestSupport.run("numbers of every length match the simple writer", () -> {
+            Random random = new Random(5);
+            TreeMap<String, TreeMap<String, TreeSet<Integer>>> elements = new TreeMap<>();
+            TreeSet<Integer> positions = new TreeSet<>();
+            for (int i = 0; i < 500; i++) {
+                positions.add(random.nextInt(Integer.MAX_VALUE) >>> random.nextInt(31));
+            }
+            positions.add(0);
+            positions.add(Integer.MAX_VALUE);
+            elements.computeIfAbsent("word", key -> new TreeMap<>()).put("a/b.txt", positions);
+            elements.computeIfAbsent("über", key -> new TreeMap<>()).put("c.txt", new TreeSet<>());
+            StringWriter out = new StringWriter();
+            try (FastJsonWriter writer = new FastJsonWriter(out, 32)) {
+                writer.writeIndex(elements);
+            }
+            TestSupport.checkEquals(simple(elements), out.toString(), "positions");
+        });
+        TestSupport.finish();
+    }
+
+    /**
+     * Copies every word, path, and position of an index into plain sorted collections.
+     *
+     * @param index the index to copy
+     * @return the words mapped to their paths mapped to their positions
+     */
+    private static TreeMap<String, TreeMap<String, TreeSet<Integer>>> copy(InvertedIndex index) {
+        TreeMap<String, TreeMap<String, TreeSet<Integer>>> elements = new TreeMap<>();
+        for (String word : index.getWords()) {
+            TreeMap<String, TreeSet<Integer>> locations = new TreeMap<>();
+            for (String location : index.getLocations(word)) {
+                locations.put(location, new TreeSet<>(index.getPositions(word, location)));
+            }
+            elements.put(word, locations);
+        }
+        return elements;
+    }
+
+    /**
+     * Writes the elements with the simple writer.
+     *
+     * @param elements the words mapped to their paths mapped to their positions
+     * @return the JSON that was written
+     * @throws IOException thrown in case the JSON cannot be written
+     */
+    private static String simple(TreeMap<String, TreeMap<String, TreeSet<Integer>>> elements) throws IOException {
+        StringWriter out = new StringWriter();
+        SimpleJsonWriter.asBigNestedObject(elements, out, 0);
+        return out.toString();
+    }
+}
@@ -0,0 +1,350 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * HostSchedulerTest
+ *
+ * Fetches pages from several servers on their own ports, each answering after a random
+ * delay, through a {@link HostScheduler}. Checks that the fetches of each host start at
+ * least the delay apart, and that its server sees them no closer together on the whole.
+ * Also checks that no host, and no crawl as a whole, has more requests in flight than it
+ * is allowed, as seen both by the fetches and by the servers.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class HostSchedulerTest {
+
+    /** The number of servers, each a host of its own. */
+    private static final int HOSTS = 3;
+
+    /** The number of pages fetched from each host. */
+    private static final int PAGES = 12;
+
+    /** The most time a server waits before answering, in milliseconds. */
+    private static final int MAX_LATENCY_MILLIS = 20;
+
+    /** How much sooner than the fetches started a server may see its requests, for the network in between. */
+    private static final long TOLERANCE_MILLIS = 10;
+
+    /** The number of threads of the work queue, more than any cap so the scheduler is what limits. */
+    private static final int THREADS = 8;
+
+    /**
+     * Runs every test.
+     *
+     * @param args unused
+     * @throws IOException thrown in case a server cannot be started
+     */
+    public static void main(String[] args) throws IOException {
+        TestSupport.run("requests to a host start at least the delay apart", () -> {
+            Stats stats = crawl(40, 1, 4);
+            for (int host = 0; host < HOSTS; host++) {
+                TestSupport.check(stats.gap(stats.started.get(host)) >= TimeUnit.MILLISECONDS.toNanos(40),
+                        "fetches of host " + host + " started " + stats.gap(stats.started.get(host)) + " ns apart");
+                TestSupport.check(stats.span(stats.arrived.get(host))
+                        >= TimeUnit.MILLISECONDS.toNanos(40 * (PAGES - 1) - TOLERANCE_MILLIS),
+                        "requests to host " + host + " arrived within " + stats.span(stats.arrived.get(host)) + " ns");
+            }
+            stats.checkCaps(1, 4);
+        });
+        TestSupport.run("requests in flight stay under both caps", () -> {
+            Stats stats = crawl(0, 2, 3);
+            stats.checkCaps(2, 3);
+            TestSupport.checkEquals(3, stats.mostInFlight.get(), "most in flight across every host");
+        });
+        TestSupport.run("one request per host with a delay and a tight global cap", () -> {
+            Stats stats = crawl(15, 1, 2);
+            stats.checkCaps(1, 2);
+            for (int host = 0; host < HOSTS; host++) {
+                TestSupport.check(stats.gap(stats.started.get(host)) >= TimeUnit.MILLISECONDS.toNanos(15),
+                        "fetches of host " + host + " started " + stats.gap(stats.started.get(host)) + " ns apart");
+            }
+        });
+        TestSupport.finish();
+    }
+
+    /**
+     * Starts a server for each host, submits a fetch of every page of every host to a
+     * scheduler at once, and waits for them all.
+     *
+     * @param delayMillis the delay between the start of one request to a host and the next
+     * @param perHost the most requests in flight to one host at once
+     * @param maxInFlight the most requests in flight at once across every host
+     * @return what the fetches and the servers saw
+     * @throws Exception thrown in case a server cannot be started or a fetch fails
+     */
+    private static Stats crawl(long delayMillis, int perHost, int maxInFlight) throws Exception {
+        Stats stats = new Stats();
+        List<HttpServer> servers = new ArrayList<>();
+        TaskQueue queue = new WorkQueue(THREADS);
+        HostScheduler scheduler = new HostScheduler(queue, delayMillis, perHost, maxInFlight);
+        HtmlFetcher fetcher = new HtmlFetcher();
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        try {
+            for (int host = 0; host < HOSTS; host++) {
+                servers.add(serve(host, stats));
+            }
+            for (int page = 0; page < PAGES; page++) {
+                for (int host = 0; host < HOSTS; host++) {
+                    int id = host;
+                    URI uri = URI.create("http://localhost:" + servers.get(host).getAddress().getPort()
+                            + "/page" + page + ".html");
+                    scheduler.submit(uri, () -> {
+                        stats.start(id);
+                        try {
+                            HttpResponse<InputStream> response = fetcher.fetchStream(uri);
+                            if (response == null) {
+                                failures.add(new AssertionError("no page at " + uri));
+                            }
+                            else {
+                                try (InputStream body = response.body()) {
+                                    body.readAllBytes();
+                                }
+                            }
+                        }
+                        catch (Exception e) {
+                            failures.add(e);
+                        }
+                        finally {
+                            stats.end(id);
+                        }
+                    });
+                }
+            }
+            scheduler.finish();
+            TestSupport.checkEquals(0, scheduler.getPending(), "pending after finishing");
+        }
+        finally {
+            scheduler.shutdown();
+            queue.shutdown();
+            for (HttpServer server : servers) {
+                server.stop(0);
+                ((ExecutorService) server.getExecutor()).shutdownNow();
+            }
+        }
+        TestSupport.check(failures.isEmpty(), "failures: " + failures);
+        for (int host = 0; host < HOSTS; host++) {
+            TestSupport.checkEquals(PAGES, stats.arrived.get(host).size(), "requests to host " + host);
+        }
+        return stats;
+    }
+
+    /**
+     * Starts a server on a free port that answers every request with a page of HTML after
+     * a random delay, recording when each request arrived and how many were in flight.
+     *
+     * @param host the number of the host the server stands in for
+     * @param stats where to record the requests
+     * @return the running server
+     * @throws IOException thrown in case the server cannot be started
+     */
+    private static HttpServer serve(int host, Stats stats) throws IOException {
+        Random random = new Random(host);
+        HttpServer server = HttpServer.create(new InetSocketAddress(0), 0);
+        server.createContext("/", exchange -> {
+            try (HttpExchange request = exchange) {
+                stats.arrive(host);
+                try {
+                    int latency;
+                    synchronized (random) {
+                        latency = random.nextInt(MAX_LATENCY_MILLIS + 1);
+                    }
+                    Thread.sleep(latency);
+                    byte[] body = "<html><body>page</body></html>".getBytes(StandardCharsets.UTF_8);
+                    request.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+                    request.sendResponseHeaders(200, body.length);
+                    try (OutputStream out = request.getResponseBody()) {
+                        out.write(body);
+                    }
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                finally {
+                    stats.leave(host);
+                }
+            }
+        });
+        server.setExecutor(Executors.newFixedThreadPool(THREADS));
+        server.start();
+        return server;
+    }
+
+    /**
+     * What the fetches and the servers of one crawl saw: when each fetch started and each
+     * request arrived, and the most fetches and requests in flight at once.
+     */
+    private static class Stats {
+
+        /** When each fetch of each host started, as given by {@link System#nanoTime()}. */
+        private final ConcurrentHashMap<Integer, List<Long>> started = new ConcurrentHashMap<>();
+
+        /** When each request to each host arrived at its server. */
+        private final ConcurrentHashMap<Integer, List<Long>> arrived = new ConcurrentHashMap<>();
+
+        /** The number of fetches in flight to each host. */
+        private final AtomicInteger[] fetching = newCounters();
+
+        /** The most fetches in flight to each host at once. */
+        private final AtomicInteger[] mostFetching = newCounters();
+
+        /** The number of requests being answered by each server. */
+        private final AtomicInteger[] serving = newCounters();
+
+        /** The most requests being answered by each server at once. */
+        private final AtomicInteger[] mostServing = newCounters();
+
+        /** The number of fetches in flight across every host. */
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        /** The most fetches in flight across every host at once. */
+        private final AtomicInteger mostInFlight = new AtomicInteger();
+
+        /** The number of requests being answered across every server. */
+        private final AtomicInteger served = new AtomicInteger();
+
+        /** The most requests being answered across every server at once. */
+        private final AtomicInteger mostServed = new AtomicInteger();
+
+        /**
+         * Constructor with nothing recorded yet.
+         */
+        public Stats() {
+            for (int host = 0; host < HOSTS; host++) {
+                started.put(host, Collections.synchronizedList(new ArrayList<>()));
+                arrived.put(host, Collections.synchronizedList(new ArrayList<>()));
+            }
+        }
+
+        /**
+         * Records that a fetch of a host started.
+         *
+         * @param host the host
+         */
+        private void start(int host) {
+            started.get(host).add(System.nanoTime());
+            raise(mostFetching[host], fetching[host].incrementAndGet());
+            raise(mostInFlight, inFlight.incrementAndGet());
+        }
+
+        /**
+         * Records that a fetch of a host ended.
+         *
+         * @param host the host
+         */
+        private void end(int host) {
+            fetching[host].decrementAndGet();
+            inFlight.decrementAndGet();
+        }
+
+        /**
+         * Records that a request arrived at the server of a host.
+         *
+         * @param host the host
+         */
+        private void arrive(int host) {
+            arrived.get(host).add(System.nanoTime());
+            raise(mostServing[host], serving[host].incrementAndGet());
+            raise(mostServed, served.incrementAndGet());
+        }
+
+        /**
+         * Records that the server of a host answered a request.
+         *
+         * @param host the host
+         */
+        private void leave(int host) {
+            serving[host].decrementAndGet();
+            served.decrementAndGet();
+        }
+
+        /**
+         * Fails unless no host and no crawl as a whole had more in flight than allowed.
+         *
+         * @param perHost the most requests in flight to one host at once
+         * @param maxInFlight the most requests in flight at once across every host
+         */
+        private void checkCaps(int perHost, int maxInFlight) {
+            for (int host = 0; host < HOSTS; host++) {
+                TestSupport.check(mostFetching[host].get() <= perHost,
+                        mostFetching[host].get() + " fetches of host " + host + " at once");
+                TestSupport.check(mostServing[host].get() <= perHost,
+                        mostServing[host].get() + " requests to host " + host + " at once");
+            }
+            TestSupport.check(mostInFlight.get() <= maxInFlight, mostInFlight.get() + " fetches at once");
+            TestSupport.check(mostServed.get() <= maxInFlight, mostServed.get() + " requests at once");
+        }
+
+        /**
+         * Returns the shortest time between two consecutive times.
+         *
+         * @param times the times, in any order
+         * @return the shortest gap, in nanoseconds
+         */
+        private long gap(List<Long> times) {
+            List<Long> sorted;
+            synchronized (times) {
+                sorted = new ArrayList<>(times);
+            }
+            Collections.sort(sorted);
+            long gap = Long.MAX_VALUE;
+            for (int i = 1; i < sorted.size(); i++) {
+                gap = Math.min(gap, sorted.get(i) - sorted.get(i - 1));
+            }
+            return gap;
+        }
+
+        /**
+         * Returns the time between the first and the last of the times.
+         *
+         * @param times the times, in any order
+         * @return the time between them, in nanoseconds
+         */
+        private long span(List<Long> times) {
+            synchronized (times) {
+                return Collections.max(times) - Collections.min(times);
+            }
+        }
+
+        /**
+         * Raises the most seen at once to a new count if it is higher.
+         *
+         * @param most the most seen at once
+         * @param count the count just seen
+         */
+        private static void raise(AtomicInteger most, int count) {
+            most.accumulateAndGet(count, Math::max);
+        }
+
+        /**
+         * Returns a counter for each host, starting at zero.
+         *
+         * @return the counters
+         */
+        private static AtomicInteger[] newCounters() {
+            AtomicInteger[] counters = new AtomicInteger[HOSTS];
+            for (int host = 0; host < HOSTS; host++) {
+                counters[host] = new AtomicInteger();
+            }
+            return counters;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * HtmlStreamParserTest
+ *
+ * Checks that an {@link HtmlStreamParser} skips scripts, styles, comments, and elements
+ * that are never shown, decodes entities even when they are split between reads, never
+ * passes on a piece larger than its buffer or splits a word that fits in it, and passes
+ * on the href of every anchor tag and nothing else.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class HtmlStreamParserTest {
+
+    /** The smallest buffer a parser can have. */
+    private static final int SMALL = 32;
+
+    /**
+     * Runs every test.
+     *
+     * @param args unused
+     */
+    public static void main(String[] args) {
+        TestSupport.run("scripts, styles, comments, and hidden elements are skipped", () -> {
+            String html = "<html><head><title>hidden title</title></head><body>"
+                    + "<p>shown <b>text</b></p><script type=\"text/javascript\">var hidden = '<p>';</script>"
+                    + "<!-- hidden <p>comment</p> -- still hidden --><STYLE>p { hidden: 1 }</STYLE >"
+                    + "<noscript>hidden</noscript><svg><text>hidden</text></svg>after<br/>all"
+                    + "<script src=\"x.js\"/>end</body></html>";
+            TestSupport.checkEquals(List.of("shown", "text", "after", "all", "end"), words(html, SMALL, 1), "words");
+            TestSupport.checkEquals(words(html, SMALL, 1), words(html, HtmlStreamParser.DEFAULT_BUFFER, 1000),
+                    "words with a large buffer");
+        });
+        TestSupport.run("entities are decoded even when split between reads", () -> {
+            String html = "<p>fish &amp; chips caf&#233; &#x41;BC 1 &lt; 2&nbsp;end &bogus; a&b &amp</p>";
+            for (int chunk = 1; chunk <= 8; chunk++) {
+                TestSupport.checkEquals(List.of("fish", "&", "chips", "café", "ABC", "1", "<", "2", "end", "a&b", "&amp"),
+                        words(html, SMALL, chunk), "words read " + chunk + " chars at a time");
+            }
+            String packed = "x".repeat(SMALL - 3) + "&amp;&#233;" + "y".repeat(SMALL);
+            TestSupport.checkEquals("x".repeat(SMALL - 3) + "&é" + "y".repeat(SMALL),
+                    String.join("", pieces(packed, SMALL, 5).get(0)), "entity decoded at the end of a full buffer");
+        });
+        TestSupport.run("pieces fit the buffer without splitting words that fit", () -> {
+            StringBuilder html = new StringBuilder("<p>");
+            ArrayList<String> expected = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String word = "w" + i + "x".repeat(i % 20);
+                expected.add(word);
+                html.append(word).append(i % 7 == 0 ? "\n" : " ");
+            }
+            List<String> pieces = pieces(html.append("</p>").toString(), SMALL, 3).get(0);
+            for (String piece : pieces) {
+                TestSupport.check(piece.length() <= SMALL, "piece of " + piece.length() + " chars");
+            }
+            TestSupport.checkEquals(expected, split(pieces), "words");
+
+            String longWord = "a".repeat(SMALL * 3 + 5);
+            List<String> longPieces = pieces("<p>" + longWord + "</p>", SMALL, 7).get(0);
+            TestSupport.checkEquals(4, longPieces.size(), "pieces of a word longer than the buffer");
+            TestSupport.checkEquals(longWord, String.join("", longPieces), "word longer than the buffer");
+        });
+        TestSupport.run("the href of every anchor tag is passed on", () -> {
+            String html = "<a href=\"one.html\">1</a><A HREF='two.html'>2</A><a class=x href=three.html>3</a>"
+                    + "<a\nhref = \"four?a=1&amp;b=2\">4</a><link href=\"style.css\"><a name=\"top\">"
+                    + "<!-- <a href=\"comment.html\"> --><script>'<a href=\"script.html\">'</script>"
+                    + "<a title=\"a > b\" href=\"five.html\">5</a>";
+            TestSupport.checkEquals(List.of("one.html", "two.html", "three.html", "four?a=1&b=2", "five.html"),
+                    pieces(html, SMALL, 4).get(1), "links");
+            TestSupport.checkEquals(List.of("1", "2", "3", "4", "5"), words(html, SMALL, 4), "words");
+        });
+        TestSupport.finish();
+    }
+
+    /**
+     * Parses HTML and returns the pieces of text and the links passed on.
+     *
+     * @param html the HTML to parse
+     * @param limit the size of the buffers of the parser
+     * @param chunk the most chars returned by each read
+     * @return the pieces of text, then the links
+     * @throws IOException never, since the HTML is read from a String
+     */
+    private static List<List<String>> pieces(String html, int limit, int chunk) throws IOException {
+        ArrayList<String> pieces = new ArrayList<>();
+        ArrayList<String> links = new ArrayList<>();
+        new HtmlStreamParser(piece -> pieces.add(piece.toString()), links::add, limit).parse(chunked(html, chunk));
+        return List.of(pieces, links);
+    }
+
+    /**
+     * Parses HTML and returns the words of its text.
+     *
+     * @param html the HTML to parse
+     * @param limit the size of the buffers of the parser
+     * @param chunk the most chars returned by each read
+     * @return the words of the text, in order
+     * @throws IOException never, since the HTML is read from a String
+     */
+    private static List<String> words(String html, int limit, int chunk) throws IOException {
+        return split(pieces(html, limit, chunk).get(0));
+    }
+
+    /**
+     * Splits pieces of text into words at whitespace.
+     *
+     * @param pieces the pieces of text
+     * @return the words, in order
+     */
+    private static List<String> split(List<String> pieces) {
+        ArrayList<String> words = new ArrayList<>();
+        for (String piece : pieces) {
+            Arrays.stream(piece.strip().split("\\s+")).filter(word -> !word.isEmpty()).forEach(words::add);
+        }
+        return words;
+    }
+
+    /**
+     * Returns a reader of a String that returns at most a few chars from each read.
+     *
+     * @param text the text to read
+     * @param chunk the most chars returned by each read
+     * @return the reader
+     */
+    private static Reader chunked(String text, int chunk) {
+        return new FilterReader(new StringReader(text)) {
+
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, chunk));
+            }
+        };
+    }
+}
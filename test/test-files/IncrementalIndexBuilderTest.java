@@ -0,0 +1,126 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * IncrementalIndexBuilderTest
+ *
+ * Checks that bringing an index up to date with an {@link IncrementalIndexBuilder}
+ * counts every added, modified, unchanged, and deleted file, and gives the same index,
+ * word counts, and manifest as building the index again from scratch. Also checks that
+ * a manifest reads back the same as it was written, and that a file that is not a
+ * manifest is rejected.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class IncrementalIndexBuilderTest {
+
+    /**
+     * Runs every test.
+     *
+     * @param args unused
+     * @throws IOException thrown in case the corpus cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        Path root = TestSupport.createTempDirectory("incremental");
+
+        TestSupport.run("added, modified, unchanged, and deleted files are all applied", () -> {
+            Path corpus = root.resolve("corpus");
+            Files.createDirectories(corpus.resolve("sub"));
+            write(corpus.resolve("same.txt"), "apple banana cherry");
+            write(corpus.resolve("changed.txt"), "fox jumping over");
+            write(corpus.resolve("touched.txt"), "crawl index search");
+            write(corpus.resolve("sub").resolve("deleted.txt"), "zebra words");
+            InvertedIndex index = new InvertedIndex();
+            new InvertedIndexBuilder(index).buildIndexFromPath(corpus);
+            Path manifestPath = root.resolve("index.bin.manifest");
+            IndexManifest.scan(corpus).write(manifestPath);
+
+            write(corpus.resolve("changed.txt"), "fox jumped over the lazy dog");
+            Path touched = corpus.resolve("touched.txt");
+            Files.setLastModifiedTime(touched,
+                    FileTime.fromMillis(Files.getLastModifiedTime(touched).toMillis() + 10000));
+            Files.delete(corpus.resolve("sub").resolve("deleted.txt"));
+            write(corpus.resolve("sub").resolve("added.txt"), "new words here");
+
+            IncrementalIndexBuilder incremental = new IncrementalIndexBuilder(index, IndexManifest.read(manifestPath));
+            incremental.buildIndexFromPath(corpus);
+            TestSupport.checkEquals("Added: 1 Modified: 1 Removed: 1 Unchanged: 2", incremental.toString(), "counts");
+
+            InvertedIndex rebuilt = new InvertedIndex();
+            new InvertedIndexBuilder(rebuilt).buildIndexFromPath(corpus);
+            compare(rebuilt, index, root);
+            incremental.getManifest().write(root.resolve("updated.manifest"));
+            IndexManifest.scan(corpus).write(root.resolve("scanned.manifest"));
+            TestSupport.checkEquals(TestSupport.read(root.resolve("scanned.manifest")),
+                    TestSupport.read(root.resolve("updated.manifest")), "manifest");
+
+            IncrementalIndexBuilder again = new IncrementalIndexBuilder(index, incremental.getManifest());
+            again.buildIndexFromPath(corpus);
+            TestSupport.checkEquals("Added: 0 Modified: 0 Removed: 0 Unchanged: 4", again.toString(), "counts of a second run");
+        });
+        TestSupport.run("manifests read back the same as they were written", () -> {
+            Path corpus = TestSupport.writeCorpus(root.resolve("generated"), 20, 11);
+            IndexManifest manifest = IndexManifest.scan(corpus);
+            Path first = root.resolve("first.manifest");
+            manifest.write(first);
+            IndexManifest read = IndexManifest.read(first);
+            TestSupport.checkEquals(manifest.getPaths(), read.getPaths(), "paths");
+            for (String path : manifest.getPaths()) {
+                TestSupport.checkEquals(manifest.get(path).getHash(), read.get(path).getHash(), "hash of " + path);
+                TestSupport.check(read.get(path).matches(
+                        Files.readAttributes(Path.of(path), BasicFileAttributes.class)),
+                        "size and modified time of " + path);
+                TestSupport.checkEquals(IndexManifest.hash(Files.readAllBytes(Path.of(path))),
+                        read.get(path).getHash(), "hash of the bytes of " + path);
+            }
+            Path second = root.resolve("second.manifest");
+            read.write(second);
+            TestSupport.checkEquals(TestSupport.read(first), TestSupport.read(second), "manifest written again");
+        });
+        TestSupport.run("files that are not manifests are rejected with an IOException", () -> {
+            Path bad = root.resolve("bad.manifest");
+            write(bad, "not a manifest\n");
+            TestSupport.checkThrows(IOException.class, () -> IndexManifest.read(bad), "wrong header");
+            write(bad, "# index manifest v1\n12\tnot a time\tabc\tpath\n");
+            TestSupport.checkThrows(IOException.class, () -> IndexManifest.read(bad), "bad number");
+            write(bad, "# index manifest v1\n12\t34\tabc\n");
+            TestSupport.checkThrows(IOException.class, () -> IndexManifest.read(bad), "missing path");
+        });
+        TestSupport.finish();
+    }
+
+    /**
+     * Writes text to a file as UTF-8.
+     *
+     * @param file the file to write
+     * @param text the text to write
+     * @throws IOException thrown in case the file cannot be written
+     */
+    private static void write(Path file, String text) throws IOException {
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Fails unless two indexes write the same index and word counts.
+     *
+     * @param expected the index built from scratch
+     * @param actual the index brought up to date
+     * @param root the directory to write the outputs to
+     * @throws IOException thrown in case a file cannot be written or read
+     */
+    private static void compare(InvertedIndex expected, InvertedIndex actual, Path root) throws IOException {
+        expected.writeIndex(root.resolve("expected-index.json"));
+        actual.writeIndex(root.resolve("actual-index.json"));
+        expected.writeWordCount(root.resolve("expected-counts.json"));
+        actual.writeWordCount(root.resolve("actual-counts.json"));
+        TestSupport.checkEquals(TestSupport.read(root.resolve("expected-index.json")),
+                TestSupport.read(root.resolve("actual-index.json")), "index");
+        TestSupport.checkEquals(TestSupport.read(root.resolve("expected-counts.json")),
+                TestSupport.read(root.resolve("actual-counts.json")), "word counts");
+    }
+}
@@ -0,0 +1,154 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * IndexSegmentTest
+ *
+ * Checks that an index written to a binary segment file and opened again, or copied
+ * into an in-memory segment, gives the same index, word counts, and search results as
+ * the index it was written from, alternate locations included.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class IndexSegmentTest {
+
+    /** The queries searched for in both indexes. */
+    private static final String QUERIES = "apple\nfox jumping\ncrawl index\nsearch words\nzebra über\nmissing\n";
+
+    /**
+     * Runs every test.
+     *
+     * @param args unused
+     * @throws IOException thrown in case the corpus cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        Path root = TestSupport.createTempDirectory("segment");
+        Path corpus = TestSupport.writeCorpus(root.resolve("corpus"), 80, 7);
+        InvertedIndex index = new InvertedIndex();
+        new InvertedIndexBuilder(index).buildIndexFromPath(corpus);
+        Path expected = write(root.resolve("expected"), index);
+
+        TestSupport.run("segment file opens to the same index", () -> {
+            Path file = root.resolve("index.bin");
+            index.writeSegment(file);
+            compare(expected, write(root.resolve("opened"), IndexSegment.open(file)));
+        });
+        TestSupport.run("in-memory copy is the same index", () -> {
+            compare(expected, write(root.resolve("copied"), IndexSegment.copyOf(index)));
+        });
+        TestSupport.run("segment of a segment is the same index", () -> {
+            Path file = root.resolve("again.bin");
+            IndexSegment.copyOf(index).writeSegment(file);
+            compare(expected, write(root.resolve("again"), IndexSegment.open(file)));
+        });
+        TestSupport.run("removed files are left out of the segment", () -> {
+            InvertedIndex removed = new InvertedIndex();
+            new InvertedIndexBuilder(removed).buildIndexFromPath(corpus);
+            String path = corpus.resolve("d1").resolve("f1.txt").toString();
+            TestSupport.check(removed.removeDocument(path), "file was indexed");
+            IndexSegment segment = IndexSegment.copyOf(removed);
+            TestSupport.check(!segment.getFiles().contains(path), "removed file is in the segment");
+            TestSupport.checkEquals(index.getFiles().size() - 1, segment.getFiles().size(), "files");
+            compare(write(root.resolve("removed"), removed), write(root.resolve("removedCopy"), segment));
+        });
+        TestSupport.run("alternate locations round trip", () -> {
+            InvertedIndex located = new InvertedIndex();
+            new InvertedIndexBuilder(located).buildIndexFromPath(corpus);
+            String path = corpus.resolve("d1").resolve("f1.txt").toString();
+            TestSupport.check(located.addAlternate(path, "elsewhere/f1.txt"), "alternate was added");
+            TestSupport.check(located.addAlternate(path, "mirror/f1.txt"), "second alternate was added");
+            Path file = root.resolve("located.bin");
+            located.writeSegment(file);
+            IndexSegment segment = IndexSegment.open(file);
+            TestSupport.check(segment.getFiles().contains("mirror/f1.txt"), "alternate is not in the files");
+            TestSupport.checkEquals(index.getFiles().size() + 2, segment.getFiles().size(), "files");
+            compare(write(root.resolve("located"), located), write(root.resolve("locatedOpened"), segment));
+        });
+        TestSupport.run("empty index round trips", () -> {
+            Path file = root.resolve("empty.bin");
+            new InvertedIndex().writeSegment(file);
+            IndexSegment segment = IndexSegment.open(file);
+            TestSupport.checkEquals(0, segment.numberOfElementsInStructure(), "words");
+            TestSupport.checkEquals(0, segment.getFiles().size(), "files");
+        });
+        TestSupport.run("segments are read-only", () -> {
+            IndexSegment segment = IndexSegment.copyOf(index);
+            TestSupport.checkThrows(UnsupportedOperationException.class,
+                    () -> segment.add("word", 1, "file"), "add");
+            TestSupport.checkThrows(UnsupportedOperationException.class,
+                    () -> segment.removeDocument("file"), "remove");
+            TestSupport.checkThrows(UnsupportedOperationException.class,
+                    () -> segment.addAlternate("file", "other"), "add alternate");
+        });
+        TestSupport.run("truncated segment files are rejected with an IOException", () -> {
+            Path file = root.resolve("small.bin");
+            InvertedIndex small = new InvertedIndex();
+            new InvertedIndexBuilder(small).buildIndexFromPath(corpus.resolve("d2").resolve("nested"));
+            small.writeSegment(file);
+            byte[] bytes = Files.readAllBytes(file);
+            Path truncated = root.resolve("truncated.bin");
+            for (int length = 0; length < bytes.length; length++) {
+                Files.write(truncated, Arrays.copyOf(bytes, length));
+                TestSupport.checkThrows(IOException.class, () -> IndexSegment.open(truncated),
+                        "open after cutting to " + length + " of " + bytes.length + " bytes");
+            }
+        });
+        TestSupport.run("corrupt footers and document tables are rejected with an IOException", () -> {
+            Path file = root.resolve("small.bin");
+            byte[] bytes = Files.readAllBytes(file);
+            int footer = bytes.length - 16;
+            Path corrupt = root.resolve("corrupt.bin");
+            int[] offsets = {0, 4, footer, footer + 4, footer + 8, footer + 12, 12};
+            for (int offset : offsets) {
+                for (int value : new int[] {-1, Integer.MAX_VALUE, bytes.length, 3}) {
+                    byte[] changed = bytes.clone();
+                    ByteBuffer.wrap(changed).putInt(offset, value);
+                    Files.write(corrupt, changed);
+                    TestSupport.checkThrows(IOException.class, () -> IndexSegment.open(corrupt),
+                            "open with " + value + " written at " + offset);
+                }
+            }
+        });
+        TestSupport.finish();
+    }
+
+    /**
+     * Writes the JSON outputs and search results of an index.
+     *
+     * @param output the directory to write the outputs to
+     * @param index the index to write
+     * @return the directory of outputs
+     * @throws IOException thrown in case a file cannot be written
+     */
+    private static Path write(Path output, InvertedIndex index) throws IOException {
+        Files.createDirectories(output);
+        index.writeIndex(output.resolve("index.json"));
+        index.writeWordCount(output.resolve("counts.json"));
+        for (boolean exact : new boolean[] {true, false}) {
+            QueryBuilder queries = new QueryBuilder(index);
+            for (String line : QUERIES.split("\n")) {
+                queries.parse(line, exact);
+            }
+            queries.writeQueryToJSON(output.resolve(exact ? "exact.json" : "partial.json"));
+        }
+        return output;
+    }
+
+    /**
+     * Fails unless every output of the two directories is the same.
+     *
+     * @param expected the outputs of the original index
+     * @param actual the outputs to compare
+     * @throws IOException thrown in case a file cannot be read
+     */
+    private static void compare(Path expected, Path actual) throws IOException {
+        for (String name : new String[] {"index.json", "counts.json", "exact.json", "partial.json"}) {
+            TestSupport.checkEquals(TestSupport.read(expected.resolve(name)),
+                    TestSupport.read(actual.resolve(name)), name);
+        }
+    }
+}
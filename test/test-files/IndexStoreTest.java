@@ -0,0 +1,106 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * IndexStoreTest
+ *
+ * Checks that every index the Driver can be told to build with the -store flag gives
+ * the same index, word counts, and search results as the default index, whether the
+ * files are added one at a time or on many threads, and that each shows the locations
+ * of near-duplicates collapsed into a file in its search results.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class IndexStoreTest {
+
+    /** The queries searched for by every run of the Driver. */
+    private static final String QUERIES = "apple\nfox jumping\ncrawl index\nsearch words\nzebra über\nmissing\n";
+
+    /** The values of the -store flag to compare with the default index. */
+    private static final String[] STORES = {"sharded", "snapshot", "segmented"};
+
+    /**
+     * Runs every test.
+     *
+     * @param args unused
+     * @throws IOException thrown in case the corpus cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        Path root = TestSupport.createTempDirectory("store");
+        Path corpus = TestSupport.writeCorpus(root.resolve("corpus"), 80, 37);
+        Path queries = root.resolve("queries.txt");
+        Files.writeString(queries, QUERIES);
+        Path expected = driver(root.resolve("default"), corpus, queries);
+
+        for (String store : STORES) {
+            TestSupport.run(store + " store gives the same output", () -> {
+                compare(expected, driver(root.resolve(store), corpus, queries, "-store", store));
+            });
+            TestSupport.run(store + " store gives the same output on many threads", () -> {
+                compare(expected, driver(root.resolve(store + "-threads"), corpus, queries,
+                        "-store", store, "-threads", "4"));
+            });
+        }
+        TestSupport.run("collapsed near-duplicates are alternate locations in every store", () -> {
+            Path duplicated = TestSupport.writeCorpus(root.resolve("duplicated"), 12, 37);
+            Path original = duplicated.resolve("d1").resolve("f1.txt");
+            Files.writeString(original, "apple fox jumping crawl index search words zebra über");
+            Files.copy(original, duplicated.resolve("d1").resolve("g1.txt"));
+            Path collapsed = driver(root.resolve("collapsed"), duplicated, queries, "-dedup", "collapse");
+            String results = TestSupport.read(collapsed.resolve("results.json"));
+            TestSupport.check(results.contains("\"alternates\"") && results.contains("g1.txt"),
+                    "results: " + results);
+            TestSupport.check(!TestSupport.read(collapsed.resolve("counts.json")).contains("g1.txt"),
+                    "near-duplicate has a word count");
+            for (String store : STORES) {
+                compare(collapsed, driver(root.resolve("collapsed-" + store), duplicated, queries,
+                        "-dedup", "collapse", "-store", store));
+            }
+        });
+        TestSupport.run("unknown store falls back to the default index", () -> {
+            compare(expected, driver(root.resolve("unknown"), corpus, queries, "-store", "nothing"));
+        });
+        TestSupport.finish();
+    }
+
+    /**
+     * Runs the Driver on the corpus, writing its outputs to a directory.
+     *
+     * @param output the directory to write the outputs to
+     * @param corpus the directory of text files to index
+     * @param queries the file of queries to search for
+     * @param extra any other flags to pass to the Driver
+     * @return the directory of outputs
+     * @throws IOException thrown in case the directory cannot be created
+     */
+    private static Path driver(Path output, Path corpus, Path queries, String... extra) throws IOException {
+        Files.createDirectories(output);
+        List<String> args = new ArrayList<>(List.of(
+                "-path", corpus.toString(),
+                "-index", output.resolve("index.json").toString(),
+                "-counts", output.resolve("counts.json").toString(),
+                "-query", queries.toString(),
+                "-results", output.resolve("results.json").toString()));
+        args.addAll(List.of(extra));
+        Driver.main(args.toArray(new String[0]));
+        return output;
+    }
+
+    /**
+     * Fails unless every output of the two directories is the same.
+     *
+     * @param expected the outputs of the default index
+     * @param actual the outputs to compare
+     * @throws IOException thrown in case a file cannot be read
+     */
+    private static void compare(Path expected, Path actual) throws IOException {
+        for (String name : new String[] {"index.json", "counts.json", "results.json"}) {
+            TestSupport.checkEquals(TestSupport.read(expected.resolve(name)),
+                    TestSupport.read(actual.resolve(name)), name);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * MultithreadIndexTest
+ *
+ * Checks that a {@link MultithreadIndex} can be read from while other threads remove
+ * and add files, and that the number of words it reports leaves out words that are
+ * only found in removed files.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class MultithreadIndexTest {
+
+    /**
+     * Runs every test.
+     *
+     * @param args unused
+     */
+    public static void main(String[] args) {
+        TestSupport.run("number of words leaves out removed files", () -> {
+            MultithreadIndex index = new MultithreadIndex();
+            for (int i = 0; i < 10; i++) {
+                index.add("shared", 1, "file" + i);
+                index.add("only" + i, 2, "file" + i);
+            }
+            TestSupport.checkEquals(11, index.numberOfElementsInStructure(), "words");
+            index.removeDocument("file0");
+            TestSupport.checkEquals(10, index.numberOfElementsInStructure(), "words after one remove");
+            index.purge();
+            TestSupport.checkEquals(10, index.numberOfElementsInStructure(), "words after purging");
+        });
+        TestSupport.run("counting words while files are removed and added", () -> {
+            MultithreadIndex index = new MultithreadIndex();
+            AtomicBoolean done = new AtomicBoolean();
+            Thread writer = new Thread(() -> {
+                for (int round = 0; round < 2000; round++) {
+                    for (int i = 0; i < 20; i++) {
+                        HashMap<String, PostingList> words = new HashMap<>();
+                        words.computeIfAbsent("word" + (round * 20 + i) % 500, key -> new PostingList()).addPosition(1);
+                        words.computeIfAbsent("shared", key -> new PostingList()).addPosition(2);
+                        index.replaceDocument("file" + i, words);
+                    }
+                }
+                done.set(true);
+            });
+            writer.start();
+            int counted = 0;
+            while (!done.get()) {
+                int words = index.numberOfElementsInStructure();
+                TestSupport.check(words >= 0 && words <= 21, words + " words with at most 20 files");
+                counted++;
+            }
+            writer.join();
+            TestSupport.check(counted > 0, "never counted");
+            TestSupport.checkEquals(index.getWords().size(), index.numberOfElementsInStructure(), "final words");
+        });
+        TestSupport.finish();
+    }
+}
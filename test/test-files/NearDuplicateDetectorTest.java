@@ -0,0 +1,256 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * NearDuplicateDetectorTest
+ *
+ * Checks that a {@link NearDuplicateDetector} catches copies of a document, admits
+ * documents with other words or the same words in another order, and finds a document
+ * to be a near-duplicate exactly when its SimHash is within the distance of one it has
+ * seen, so the banding never misses one. Also checks that collapsed locations are kept,
+ * that a forgotten document no longer hides its near-duplicates, and that incremental
+ * updates and the watcher index the near-duplicates of a file again once it changes or
+ * is removed.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class NearDuplicateDetectorTest {
+
+    /** The most time a test waits for the watcher before it fails, in seconds. */
+    private static final long TIMEOUT_SECONDS = 10;
+
+    /**
+     * Runs every test.
+     *
+     * @param args unused
+     * @throws IOException thrown in case the corpus cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        Path root = TestSupport.createTempDirectory("dedup");
+
+        TestSupport.run("copies are caught and other documents are admitted", () -> {
+            Random random = new Random(53);
+            List<String> text = text(random, 200);
+            NearDuplicateDetector detector = new NearDuplicateDetector();
+            TestSupport.check(detector.admit("a", words(text)), "first document was not admitted");
+            TestSupport.check(detector.admit("a", words(text)), "same document checked again was not admitted");
+            TestSupport.check(!detector.admit("copy", words(text)), "copy was admitted");
+            TestSupport.check(detector.admit("other", words(text(random, 200))), "other words were not admitted");
+            ArrayList<String> shuffled = new ArrayList<>(text);
+            Collections.shuffle(shuffled, random);
+            TestSupport.check(detector.admit("shuffled", words(shuffled)), "same words in another order were not admitted");
+            TestSupport.check(detector.admit("empty", words(List.of())), "empty document was not admitted");
+            TestSupport.check(detector.admit("empty too", words(List.of())), "second empty document was not admitted");
+            TestSupport.checkEquals("Documents: 3 Near-duplicates skipped: 1", detector.toString(), "counts");
+        });
+        TestSupport.run("a document is a near-duplicate exactly when it is within the distance", () -> {
+            Random random = new Random(59);
+            for (int distance : new int[] {0, NearDuplicateDetector.DEFAULT_DISTANCE, NearDuplicateDetector.MAX_DISTANCE}) {
+                int caught = 0;
+                int admitted = 0;
+                for (int trial = 0; trial < 300; trial++) {
+                    List<String> text = text(random, 60);
+                    ArrayList<String> edited = new ArrayList<>(text);
+                    for (int edit = random.nextInt(8); edit > 0; edit--) {
+                        edited.set(random.nextInt(edited.size()), TestSupport.randomWord(random));
+                    }
+                    NearDuplicateDetector detector = new NearDuplicateDetector(distance, false);
+                    detector.admit("base", words(text));
+                    int apart = Long.bitCount(NearDuplicateDetector.simHash(words(text))
+                            ^ NearDuplicateDetector.simHash(words(edited)));
+                    boolean near = !detector.admit("edited", words(edited));
+                    TestSupport.checkEquals(apart <= distance, near,
+                            "near-duplicate " + apart + " bits apart with a distance of " + distance);
+                    if (near) {
+                        caught++;
+                    }
+                    else {
+                        admitted++;
+                    }
+                }
+                TestSupport.check(caught > 0 && admitted > 0,
+                        caught + " caught and " + admitted + " admitted with a distance of " + distance);
+            }
+        });
+        TestSupport.run("collapsed locations are kept with their canonical document", () -> {
+            List<String> text = text(new Random(61), 100);
+            NearDuplicateDetector collapse = new NearDuplicateDetector(NearDuplicateDetector.DEFAULT_DISTANCE, true);
+            NearDuplicateDetector skip = new NearDuplicateDetector();
+            for (NearDuplicateDetector detector : new NearDuplicateDetector[] {collapse, skip}) {
+                detector.admit("a", words(text));
+                detector.admit("c", words(text));
+                detector.admit("b", words(text));
+                detector.admit("b", words(text));
+                TestSupport.checkEquals("a", detector.getCanonical("b"), "canonical");
+                TestSupport.checkEquals(null, detector.getCanonical("a"), "canonical of a canonical document");
+                TestSupport.checkEquals(2, detector.getDuplicates(), "near-duplicates");
+            }
+            TestSupport.checkEquals("{a=[b, c]}", collapse.getCollapsed().toString(), "collapsed");
+            TestSupport.check(skip.getCollapsed().isEmpty(), "locations collapsed while skipping");
+        });
+        TestSupport.run("a forgotten document no longer hides its near-duplicates", () -> {
+            List<String> text = text(new Random(67), 100);
+            NearDuplicateDetector detector = new NearDuplicateDetector(NearDuplicateDetector.DEFAULT_DISTANCE, true);
+            detector.admit("a", words(text));
+            detector.admit("b", words(text));
+            detector.admit("c", words(text));
+            TestSupport.checkEquals(List.of(), detector.forget("b"), "near-duplicates of a near-duplicate");
+            TestSupport.checkEquals("{a=[c]}", detector.getCollapsed().toString(), "collapsed");
+            TestSupport.checkEquals(List.of("c"), detector.forget("a"), "near-duplicates of a canonical document");
+            TestSupport.checkEquals("Documents: 0 Near-duplicates collapsed: 0", detector.toString(), "counts");
+            TestSupport.checkEquals(null, detector.getCanonical("c"), "canonical of a freed document");
+            TestSupport.checkEquals(List.of(), detector.forget("missing"), "near-duplicates of an unknown document");
+            TestSupport.check(detector.admit("c", words(text)), "freed document was not admitted");
+            TestSupport.check(!detector.admit("a", words(text)), "forgotten document now hidden was admitted");
+            TestSupport.checkEquals("{c=[a]}", detector.getCollapsed().toString(), "collapsed afterwards");
+        });
+        TestSupport.run("incremental updates index the near-duplicates of changed and removed files", () -> {
+            Path corpus = root.resolve("incremental");
+            Files.createDirectories(corpus);
+            Random random = new Random(71);
+            String first = String.join(" ", text(random, 100));
+            String second = String.join(" ", text(random, 100));
+            write(corpus.resolve("a.txt"), first);
+            write(corpus.resolve("b.txt"), first);
+            write(corpus.resolve("c.txt"), second);
+            write(corpus.resolve("d.txt"), second);
+            InvertedIndex index = new InvertedIndex();
+            NearDuplicateDetector detector = new NearDuplicateDetector();
+            InvertedIndexBuilder builder = new InvertedIndexBuilder(index);
+            builder.setDetector(detector);
+            builder.buildIndexFromPath(corpus);
+            TestSupport.checkEquals(2, index.getFiles().size(), "files indexed from scratch");
+            IndexManifest manifest = IndexManifest.scan(corpus);
+
+            String changed = detector.getCanonical(corpus.resolve("b.txt").toString()) != null ? "a.txt" : "b.txt";
+            String deleted = detector.getCanonical(corpus.resolve("d.txt").toString()) != null ? "c.txt" : "d.txt";
+            write(corpus.resolve(changed), String.join(" ", text(random, 100)));
+            Files.delete(corpus.resolve(deleted));
+            IncrementalIndexBuilder incremental = new IncrementalIndexBuilder(index, manifest);
+            incremental.setDetector(detector);
+            incremental.buildIndexFromPath(corpus);
+            TestSupport.checkEquals("Added: 0 Modified: 1 Removed: 1 Unchanged: 2", incremental.toString(), "counts");
+            TestSupport.checkEquals(files(corpus, "a.txt", "b.txt", deleted.equals("c.txt") ? "d.txt" : "c.txt"),
+                    new TreeSet<>(index.getFiles()), "files");
+            TestSupport.checkEquals("Documents: 3 Near-duplicates skipped: 0", detector.toString(), "counts");
+
+            InvertedIndex rebuilt = new InvertedIndex();
+            new InvertedIndexBuilder(rebuilt).buildIndexFromPath(corpus);
+            rebuilt.writeIndex(root.resolve("expected.json"));
+            index.writeIndex(root.resolve("actual.json"));
+            TestSupport.checkEquals(TestSupport.read(root.resolve("expected.json")),
+                    TestSupport.read(root.resolve("actual.json")), "index");
+        });
+        TestSupport.run("the watcher indexes the near-duplicates of a changed file", () -> {
+            Path corpus = root.resolve("watched");
+            Files.createDirectories(corpus);
+            Random random = new Random(73);
+            String first = String.join(" ", text(random, 100));
+            write(corpus.resolve("a.txt"), first);
+            write(corpus.resolve("b.txt"), first);
+            MultithreadIndex index = new MultithreadIndex();
+            NearDuplicateDetector detector = new NearDuplicateDetector(NearDuplicateDetector.DEFAULT_DISTANCE, true);
+            InvertedIndexBuilder builder = new InvertedIndexBuilder(index);
+            builder.setDetector(detector);
+            builder.buildIndexFromPath(corpus);
+            String canonical = detector.getCanonical(corpus.resolve("b.txt").toString()) != null ? "a.txt" : "b.txt";
+            String duplicate = canonical.equals("a.txt") ? "b.txt" : "a.txt";
+            index.addAlternate(corpus.resolve(canonical).toString(), corpus.resolve(duplicate).toString());
+
+            AtomicReference<String> applied = new AtomicReference<>();
+            Supplier<String> state = () -> new TreeSet<>(index.getFiles()) + " " + detector;
+            String files = files(corpus, "a.txt", "b.txt", "c.txt").toString();
+            try (IndexWatcher watcher = new IndexWatcher(index, corpus, 10, IndexWatcher.DEFAULT_QUEUE_CAPACITY)) {
+                watcher.setDetector(detector);
+                watcher.setListener(count -> applied.set(state.get()));
+                watcher.start();
+                write(corpus.resolve("c.txt"), first);
+                waitFor(applied, files + " Documents: 1 Near-duplicates collapsed: 2");
+                write(corpus.resolve(canonical), String.join(" ", text(random, 100)));
+                waitFor(applied, files + " Documents: 2 Near-duplicates collapsed: 1");
+            }
+            TestSupport.checkEquals("{" + corpus.resolve(duplicate) + "=[" + corpus.resolve("c.txt") + "]}",
+                    detector.getCollapsed().toString(), "collapsed");
+        });
+        TestSupport.finish();
+    }
+
+    /**
+     * Returns random words.
+     *
+     * @param random the source of the words
+     * @param count the number of words
+     * @return the words, in order
+     */
+    private static List<String> text(Random random, int count) {
+        ArrayList<String> text = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            text.add(TestSupport.randomWord(random));
+        }
+        return text;
+    }
+
+    /**
+     * Stems words the same way a file is stemmed when it is indexed.
+     *
+     * @param text the words, in order
+     * @return the positions of every stem
+     */
+    private static HashMap<String, PostingList> words(List<String> text) {
+        return InvertedIndexBuilder.stemLines(List.of(String.join(" ", text)));
+    }
+
+    /**
+     * Returns the locations of files in a directory.
+     *
+     * @param directory the directory
+     * @param names the names of the files
+     * @return the locations, sorted
+     */
+    private static TreeSet<String> files(Path directory, String... names) {
+        TreeSet<String> files = new TreeSet<>();
+        for (String name : names) {
+            files.add(directory.resolve(name).toString());
+        }
+        return files;
+    }
+
+    /**
+     * Writes text to a file as UTF-8.
+     *
+     * @param file the file to write
+     * @param text the text to write
+     * @throws IOException thrown in case the file cannot be written
+     */
+    private static void write(Path file, String text) throws IOException {
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Waits until the watcher has applied a batch that left the expected state, failing
+     * if it takes too long.
+     *
+     * @param applied the state after the last batch the watcher applied
+     * @param expected the state to wait for
+     * @throws InterruptedException thrown in case the thread is interrupted while waiting
+     */
+    private static void waitFor(AtomicReference<String> applied, String expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (!expected.equals(applied.get()) && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        TestSupport.checkEquals(expected, applied.get(), "state after the watcher applied the change");
+    }
+}
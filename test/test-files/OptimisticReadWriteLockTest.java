@@ -0,0 +1,146 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+
+/**
+ * OptimisticReadWriteLockTest
+ *
+ * Checks that the {@link OptimisticReadWriteLock} keeps writers apart from each other
+ * and from readers when many threads take it at once, that a reader arriving while a
+ * writer waits does not get in ahead of it, and that its reentrant holds and downgrades
+ * work.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class OptimisticReadWriteLockTest {
+
+    /** The number of threads taking the lock at once. */
+    private static final int THREADS = 6;
+
+    /** The number of times each thread takes the lock. */
+    private static final int ROUNDS = 50000;
+
+    /** How long to wait for each thread before deciding it is stuck. */
+    private static final long TIMEOUT_MILLIS = 30000;
+
+    /**
+     * Runs every test.
+     *
+     * @param args unused
+     */
+    public static void main(String[] args) {
+        TestSupport.run("writers on many threads never overlap", () -> {
+            OptimisticReadWriteLock lock = new OptimisticReadWriteLock();
+            SimpleLock writeLock = lock.writeLock();
+            SimpleLock readLock = lock.readLock();
+            int[] counter = new int[2];
+            List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+            Thread[] threads = new Thread[THREADS];
+            for (int t = 0; t < THREADS; t++) {
+                boolean reader = t % 3 == 0;
+                threads[t] = new Thread(() -> {
+                    try {
+                        for (int i = 0; i < ROUNDS; i++) {
+                            SimpleLock taken = reader ? readLock : writeLock;
+                            taken.lock();
+                            try {
+                                if (reader) {
+                                    if (counter[0] != counter[1]) {
+                                        throw new AssertionError("read a write in progress");
+                                    }
+                                }
+                                else {
+                                    counter[0]++;
+                                    counter[1]++;
+                                }
+                            }
+                            finally {
+                                taken.unlock();
+                            }
+                        }
+                    }
+                    catch (Throwable e) {
+                        failures.add(e);
+                    }
+                });
+                threads[t].setDaemon(true);
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join(TIMEOUT_MILLIS);
+                TestSupport.check(!thread.isAlive(), "a thread is still waiting for the lock");
+            }
+            TestSupport.check(failures.isEmpty(), "failures: " + failures);
+            TestSupport.checkEquals(THREADS * 2 / 3 * ROUNDS, counter[0], "writes");
+        });
+        TestSupport.run("a reader behind a waiting writer waits until the writer is done", () -> {
+            OptimisticReadWriteLock lock = new OptimisticReadWriteLock();
+            List<String> order = Collections.synchronizedList(new ArrayList<>());
+            lock.readLock().lock();
+            Thread writer = new Thread(() -> {
+                lock.writeLock().lock();
+                order.add("writer");
+                lock.writeLock().unlock();
+            });
+            writer.setDaemon(true);
+            writer.start();
+            waitUntilWaiting(writer);
+            Thread reader = new Thread(() -> {
+                lock.readLock().lock();
+                order.add("reader");
+                lock.readLock().unlock();
+            });
+            reader.setDaemon(true);
+            reader.start();
+            waitUntilWaiting(reader);
+            TestSupport.check(order.isEmpty(), "got the lock while the first reader held it: " + order);
+            lock.readLock().lock();
+            lock.readLock().unlock();
+            lock.readLock().unlock();
+            writer.join(TIMEOUT_MILLIS);
+            reader.join(TIMEOUT_MILLIS);
+            TestSupport.check(!writer.isAlive() && !reader.isAlive(), "a thread is still waiting for the lock");
+            TestSupport.checkEquals(List.of("writer", "reader"), order, "order the lock was taken in");
+        });
+        TestSupport.run("write lock is reentrant and downgrades to a read lock", () -> {
+            OptimisticReadWriteLock lock = new OptimisticReadWriteLock();
+            lock.writeLock().lock();
+            TestSupport.checkEquals(0L, lock.tryOptimisticRead(), "optimistic read while writing");
+            lock.writeLock().lock();
+            lock.readLock().lock();
+            lock.writeLock().unlock();
+            TestSupport.check(lock.isWriteLockedByCurrentThread(), "write lock released too early");
+            lock.writeLock().unlock();
+            TestSupport.check(!lock.isWriteLockedByCurrentThread(), "write lock still held");
+            lock.readLock().unlock();
+            TestSupport.check(lock.validate(lock.tryOptimisticRead()), "optimistic read after unlocking");
+        });
+        TestSupport.run("unlocking a lock that is not held throws", () -> {
+            OptimisticReadWriteLock lock = new OptimisticReadWriteLock();
+            TestSupport.checkThrows(ConcurrentModificationException.class,
+                    () -> lock.writeLock().unlock(), "write unlock");
+            TestSupport.checkThrows(ConcurrentModificationException.class,
+                    () -> lock.readLock().unlock(), "read unlock");
+            lock.readLock().lock();
+            TestSupport.checkThrows(IllegalStateException.class, () -> lock.writeLock().lock(), "upgrade");
+            lock.readLock().unlock();
+        });
+        TestSupport.finish();
+    }
+
+    /**
+     * Waits until a thread is blocked waiting for the lock, failing if it takes too long.
+     *
+     * @param thread the thread to wait for
+     * @throws InterruptedException thrown in case the thread is interrupted while waiting
+     */
+    private static void waitUntilWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (thread.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        TestSupport.checkEquals(Thread.State.WAITING, thread.getState(), "state of " + thread.getName());
+    }
+}
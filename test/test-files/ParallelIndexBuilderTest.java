@@ -0,0 +1,143 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ParallelIndexBuilderTest
+ *
+ * Checks that building an index on a fork/join pool, on a work-stealing queue, or on
+ * virtual threads, gives the same index, word counts, and search results as building it one file at a time, for
+ * any number of threads. Also checks that the virtual-thread builder adds to an index
+ * that is thread-safe on its own from many threads at once, but never from more than
+ * the number of files it lets be in flight.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class ParallelIndexBuilderTest {
+
+    /** The queries searched for in both indexes. */
+    private static final String QUERIES = "apple\nfox jumping\ncrawl index\nsearch words\nzebra über\n";
+
+    /**
+     * Runs every test.
+     *
+     * @param args unused
+     * @throws IOException thrown in case the corpus cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        Path root = TestSupport.createTempDirectory("parallel");
+        Path corpus = TestSupport.writeCorpus(root.resolve("corpus"), 120, 3);
+        Path expected = write(root.resolve("serial"), corpus, new InvertedIndex(), null);
+
+        for (int threads : new int[] {1, 2, 4, 7}) {
+            TestSupport.run("same output with " + threads + " thread(s)", () -> {
+                InvertedIndex index = new InvertedIndex();
+                Path actual = write(root.resolve("parallel" + threads), corpus, index,
+                        new ParallelIndexBuilder(index, threads));
+                compare(expected, actual);
+            });
+        }
+        TestSupport.run("same output into a MultithreadIndex", () -> {
+            InvertedIndex index = new MultithreadIndex();
+            compare(expected, write(root.resolve("multithread"), corpus, index, new ParallelIndexBuilder(index, 3)));
+        });
+        TestSupport.run("same output when merged into an index that is not empty", () -> {
+            InvertedIndex index = new InvertedIndex();
+            new ParallelIndexBuilder(index, 2).buildIndexFromPath(corpus.resolve("d0"));
+            compare(expected, write(root.resolve("twice"), corpus, index, new ParallelIndexBuilder(index, 2)));
+        });
+        TestSupport.run("same output on a work-stealing queue that fills up", () -> {
+            InvertedIndex index = new InvertedIndex();
+            compare(expected, write(root.resolve("queue"), corpus, index, new QueueIndexBuilder(index, 3, 2)));
+        });
+        TestSupport.run("work-stealing queue reports a missing path", () -> {
+            QueueIndexBuilder builder = new QueueIndexBuilder(new InvertedIndex(), 2);
+            TestSupport.checkThrows(IOException.class, () -> builder.buildIndexFromPath(root.resolve("missing")),
+                    "missing path");
+        });
+        TestSupport.run("same output on virtual threads with few files in flight", () -> {
+            InvertedIndex index = new InvertedIndex();
+            compare(expected, write(root.resolve("virtual"), corpus, index, new VirtualThreadIndexBuilder(index, 2, 3)));
+        });
+        TestSupport.run("virtual threads add to a thread-safe index at once, up to the files in flight", () -> {
+            AtomicInteger adding = new AtomicInteger();
+            AtomicInteger mostAdding = new AtomicInteger();
+            InvertedIndex index = new MultithreadIndex() {
+
+                @Override
+                public void addAll(Map<String, PostingList> words, String path) {
+                    mostAdding.accumulateAndGet(adding.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(10);
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    finally {
+                        adding.decrementAndGet();
+                    }
+                    super.addAll(words, path);
+                }
+            };
+            compare(expected, write(root.resolve("threadSafe"), corpus, index, new VirtualThreadIndexBuilder(index, 2, 3)));
+            TestSupport.check(mostAdding.get() > 1, "files added one at a time");
+            TestSupport.check(mostAdding.get() <= 3, mostAdding.get() + " files added at once");
+        });
+        TestSupport.run("virtual threads report a missing path", () -> {
+            VirtualThreadIndexBuilder builder = new VirtualThreadIndexBuilder(new InvertedIndex());
+            TestSupport.checkThrows(IOException.class, () -> builder.buildIndexFromPath(root.resolve("missing")),
+                    "missing path");
+        });
+        TestSupport.run("empty directory builds an empty index", () -> {
+            InvertedIndex index = new InvertedIndex();
+            Path empty = root.resolve("empty");
+            Files.createDirectories(empty);
+            new ParallelIndexBuilder(index, 4).buildIndexFromPath(empty);
+            TestSupport.checkEquals(0, index.numberOfElementsInStructure(), "words");
+        });
+        TestSupport.finish();
+    }
+
+    /**
+     * Builds an index of the corpus and writes its JSON outputs and search results.
+     *
+     * @param output the directory to write the outputs to
+     * @param corpus the directory of text files to index
+     * @param index the index to build
+     * @param builder the builder to use, or {@code null} to add one file at a time
+     * @return the directory of outputs
+     * @throws IOException thrown in case a file cannot be read or written
+     */
+    private static Path write(Path output, Path corpus, InvertedIndex index, InvertedIndexBuilder builder)
+            throws IOException {
+        (builder != null ? builder : new InvertedIndexBuilder(index)).buildIndexFromPath(corpus);
+        Files.createDirectories(output);
+        index.writeIndex(output.resolve("index.json"));
+        index.writeWordCount(output.resolve("counts.json"));
+        for (boolean exact : new boolean[] {true, false}) {
+            QueryBuilder queries = new QueryBuilder(index);
+            for (String line : QUERIES.split("\n")) {
+                queries.parse(line, exact);
+            }
+            queries.writeQueryToJSON(output.resolve(exact ? "exact.json" : "partial.json"));
+        }
+        return output;
+    }
+
+    /**
+     * Fails unless every output of the two directories is the same.
+     *
+     * @param expected the outputs of the serial build
+     * @param actual the outputs to compare
+     * @throws IOException thrown in case a file cannot be read
+     */
+    private static void compare(Path expected, Path actual) throws IOException {
+        for (String name : new String[] {"index.json", "counts.json", "exact.json", "partial.json"}) {
+            TestSupport.checkEquals(TestSupport.read(expected.resolve(name)),
+                    TestSupport.read(actual.resolve(name)), name);
+        }
+    }
+}
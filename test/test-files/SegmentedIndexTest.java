@@ -0,0 +1,104 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * SegmentedIndexTest
+ *
+ * Checks that a {@link SegmentedIndex} with small segments that are merged often gives
+ * the same index, word counts, and search results as an InvertedIndex, after files are
+ * added, removed, and replaced.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class SegmentedIndexTest {
+
+    /** The queries searched for in both indexes. */
+    private static final String QUERIES = "apple\nfox jumping\ncrawl index\nsearch words\nzebra über\nmissing\n";
+
+    /**
+     * Runs every test.
+     *
+     * @param args unused
+     * @throws IOException thrown in case the corpus cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        Path root = TestSupport.createTempDirectory("segmented");
+        Path corpus = TestSupport.writeCorpus(root.resolve("corpus"), 90, 43);
+        InvertedIndex serial = new InvertedIndex();
+        new InvertedIndexBuilder(serial).buildIndexFromPath(corpus);
+        Path expected = write(root.resolve("serial"), serial);
+
+        TestSupport.run("small merged segments give the same output", () -> {
+            SegmentedIndex index = new SegmentedIndex(3, 2);
+            new InvertedIndexBuilder(index).buildIndexFromPath(corpus);
+            index.shutdown();
+            TestSupport.check(index.getMerges() > 0, "no segments were merged");
+            compare(expected, write(root.resolve("merged"), index));
+        });
+        TestSupport.run("batches merged in on many threads give the same output", () -> {
+            SegmentedIndex index = new SegmentedIndex(3, 2);
+            new ParallelIndexBuilder(index, 4).buildIndexFromPath(corpus);
+            index.shutdown();
+            compare(expected, write(root.resolve("parallel"), index));
+        });
+        TestSupport.run("removed and replaced files match an InvertedIndex", () -> {
+            InvertedIndex plain = new InvertedIndex();
+            SegmentedIndex index = new SegmentedIndex(3, 2);
+            for (InvertedIndex changed : List.of(plain, index)) {
+                new InvertedIndexBuilder(changed).buildIndexFromPath(corpus);
+                for (int i = 1; i < 90; i += 7) {
+                    Path file = corpus.resolve("d" + (i % 4)).resolve(i % 3 == 0 ? "nested" : "")
+                            .resolve("f" + i + (i % 5 == 0 ? ".TEXT" : ".txt"));
+                    TestSupport.check(changed.removeDocument(file.toString()), "not indexed: " + file);
+                }
+                HashMap<String, PostingList> words = new HashMap<>();
+                words.computeIfAbsent("replac", key -> new PostingList()).addPosition(1);
+                words.computeIfAbsent("apple", key -> new PostingList()).addPosition(2);
+                changed.replaceDocument(corpus.resolve("d2").resolve("f2.txt").toString(), words);
+            }
+            index.shutdown();
+            compare(write(root.resolve("plain"), plain), write(root.resolve("removed"), index));
+        });
+        TestSupport.finish();
+    }
+
+    /**
+     * Writes the JSON outputs and search results of an index.
+     *
+     * @param output the directory to write the outputs to
+     * @param index the index to write
+     * @return the directory of outputs
+     * @throws IOException thrown in case a file cannot be written
+     */
+    private static Path write(Path output, InvertedIndex index) throws IOException {
+        Files.createDirectories(output);
+        index.writeIndex(output.resolve("index.json"));
+        index.writeWordCount(output.resolve("counts.json"));
+        for (boolean exact : new boolean[] {true, false}) {
+            QueryBuilder queries = new QueryBuilder(index);
+            for (String line : QUERIES.split("\n")) {
+                queries.parse(line, exact);
+            }
+            queries.writeQueryToJSON(output.resolve(exact ? "exact.json" : "partial.json"));
+        }
+        return output;
+    }
+
+    /**
+     * Fails unless every output of the two directories is the same.
+     *
+     * @param expected the outputs of the InvertedIndex
+     * @param actual the outputs to compare
+     * @throws IOException thrown in case a file cannot be read
+     */
+    private static void compare(Path expected, Path actual) throws IOException {
+        for (String name : new String[] {"index.json", "counts.json", "exact.json", "partial.json"}) {
+            TestSupport.checkEquals(TestSupport.read(expected.resolve(name)),
+                    TestSupport.read(actual.resolve(name)), name);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * SnapshotIndexTest
+ *
+ * Checks that a {@link SnapshotIndex} only shows what was published, and that files
+ * added, removed, and replaced across many snapshots give the same index, word counts,
+ * and search results as making the same changes to an InvertedIndex.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class SnapshotIndexTest {
+
+    /** The queries searched for in both indexes. */
+    private static final String QUERIES = "apple\nfox jumping\ncrawl index\nsearch words\nzebra über\nmissing\n";
+
+    /**
+     * Runs every test.
+     *
+     * @param args unused
+     * @throws IOException thrown in case the corpus cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        Path root = TestSupport.createTempDirectory("snapshot");
+        Path corpus = TestSupport.writeCorpus(root.resolve("corpus"), 60, 41);
+        String removedPath = corpus.resolve("d1").resolve("f1.txt").toString();
+        String replacedPath = corpus.resolve("d2").resolve("f2.txt").toString();
+
+        TestSupport.run("reads only see published changes", () -> {
+            SnapshotIndex index = new SnapshotIndex();
+            index.add("apple", 1, "a.txt");
+            TestSupport.checkEquals(0, index.numberOfElementsInStructure(), "words before publishing");
+            TestSupport.check(index.publish(), "nothing was published");
+            TestSupport.check(index.contains("apple", "a.txt"), "published word is missing");
+            TestSupport.check(!index.publish(), "published with no changes");
+            TestSupport.checkEquals(1L, index.getPublished(), "snapshots");
+        });
+        TestSupport.run("removes only count files that were added", () -> {
+            SnapshotIndex index = new SnapshotIndex();
+            index.add("apple", 1, "a.txt");
+            index.publish();
+            TestSupport.check(!index.removeDocument("b.txt"), "removed a file that was never added");
+            TestSupport.check(index.removeDocument("a.txt"), "published file was not removed");
+            TestSupport.check(!index.removeDocument("a.txt"), "file was removed twice");
+            index.publish();
+            TestSupport.check(!index.contains("apple"), "removed word is still published");
+        });
+        TestSupport.run("changes across snapshots match an InvertedIndex", () -> {
+            InvertedIndex expected = new InvertedIndex();
+            SnapshotIndex actual = new SnapshotIndex();
+            for (InvertedIndex index : List.of(expected, actual)) {
+                new InvertedIndexBuilder(index).buildIndexFromPath(corpus.resolve("d0"));
+                publish(index);
+                new InvertedIndexBuilder(index).buildIndexFromPath(corpus.resolve("d1"));
+                TestSupport.check(index.removeDocument(removedPath), "removed file was not found");
+                publish(index);
+                new InvertedIndexBuilder(index).buildIndexFromPath(corpus.resolve("d2"));
+                publish(index);
+                HashMap<String, PostingList> words = new HashMap<>();
+                words.computeIfAbsent("replac", key -> new PostingList()).addPosition(1);
+                words.computeIfAbsent("apple", key -> new PostingList()).addPosition(2);
+                index.replaceDocument(replacedPath, words);
+                index.removeDocument(corpus.resolve("d0").resolve("f4.txt").toString());
+                new InvertedIndexBuilder(index).buildIndexFromPath(corpus.resolve("d0").resolve("f4.txt"));
+                publish(index);
+            }
+            compare(write(root.resolve("expected"), expected), write(root.resolve("actual"), actual));
+        });
+        TestSupport.run("publishing while adding ends with every file", () -> {
+            InvertedIndex expected = new InvertedIndex();
+            new InvertedIndexBuilder(expected).buildIndexFromPath(corpus);
+            SnapshotIndex actual = new SnapshotIndex();
+            Thread publisher = new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    actual.publish();
+                }
+            });
+            publisher.start();
+            new ParallelIndexBuilder(actual, 4).buildIndexFromPath(corpus);
+            publisher.join();
+            actual.publish();
+            compare(write(root.resolve("serial"), expected), write(root.resolve("published"), actual));
+        });
+        TestSupport.run("searches see a whole snapshot", () -> {
+            SnapshotIndex index = new SnapshotIndex();
+            new InvertedIndexBuilder(index).buildIndexFromPath(corpus);
+            index.publish();
+            TreeSet<String> queries = new TreeSet<>(List.of("a"));
+            int found = index.search(queries, false).size();
+            index.removeDocument(removedPath);
+            TestSupport.checkEquals(found, index.search(queries, false).size(), "results before publishing");
+        });
+        TestSupport.finish();
+    }
+
+    /**
+     * Publishes the snapshot index; other indexes show every change right away.
+     *
+     * @param index the index to publish
+     */
+    private static void publish(InvertedIndex index) {
+        if (index instanceof SnapshotIndex) {
+            ((SnapshotIndex) index).publish();
+        }
+    }
+
+    /**
+     * Writes the JSON outputs and search results of an index.
+     *
+     * @param output the directory to write the outputs to
+     * @param index the index to write
+     * @return the directory of outputs
+     * @throws IOException thrown in case a file cannot be written
+     */
+    private static Path write(Path output, InvertedIndex index) throws IOException {
+        Files.createDirectories(output);
+        index.writeIndex(output.resolve("index.json"));
+        index.writeWordCount(output.resolve("counts.json"));
+        for (boolean exact : new boolean[] {true, false}) {
+            QueryBuilder queries = new QueryBuilder(index);
+            for (String line : QUERIES.split("\n")) {
+                queries.parse(line, exact);
+            }
+            queries.writeQueryToJSON(output.resolve(exact ? "exact.json" : "partial.json"));
+        }
+        return output;
+    }
+
+    /**
+     * Fails unless every output of the two directories is the same.
+     *
+     * @param expected the outputs of the InvertedIndex
+     * @param actual the outputs to compare
+     * @throws IOException thrown in case a file cannot be read
+     */
+    private static void compare(Path expected, Path actual) throws IOException {
+        for (String name : new String[] {"index.json", "counts.json", "exact.json", "partial.json"}) {
+            TestSupport.checkEquals(TestSupport.read(expected.resolve(name)),
+                    TestSupport.read(actual.resolve(name)), name);
+        }
+    }
+}
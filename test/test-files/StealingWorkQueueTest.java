@@ -0,0 +1,167 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * StealingWorkQueueTest
+ *
+ * Checks that a {@link StealingWorkQueue} runs every task, including tasks submitted by
+ * other tasks, that idle workers steal the tasks of a worker that is busy, that a full
+ * submission queue makes the submitter wait until a worker takes a task, and that a
+ * submission given up on after an interrupt is not left pending.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class StealingWorkQueueTest {
+
+    /** The most time a test waits for another thread before it fails, in seconds. */
+    private static final long TIMEOUT_SECONDS = 10;
+
+    /**
+     * Runs every test.
+     *
+     * @param args unused
+     */
+    public static void main(String[] args) {
+        TestSupport.run("every task runs, including tasks submitted by tasks", () -> {
+            StealingWorkQueue queue = new StealingWorkQueue(4, 8);
+            AtomicInteger ran = new AtomicInteger();
+            try {
+                for (int i = 0; i < 1000; i++) {
+                    queue.execute(() -> {
+                        ran.incrementAndGet();
+                        for (int j = 0; j < 3; j++) {
+                            queue.execute(ran::incrementAndGet);
+                        }
+                    });
+                }
+                queue.finish();
+                TestSupport.checkEquals(4000, ran.get(), "tasks run");
+                TestSupport.checkEquals(0, queue.getPending(), "pending");
+                TestSupport.checkEquals(0, queue.getQueueDepth(), "queue depth");
+            }
+            finally {
+                queue.shutdown();
+            }
+        });
+        TestSupport.run("idle workers steal the tasks of a busy worker", () -> {
+            StealingWorkQueue queue = new StealingWorkQueue(4, 8);
+            int tasks = 40;
+            CountDownLatch done = new CountDownLatch(tasks);
+            boolean[] stolen = new boolean[1];
+            try {
+                queue.execute(() -> {
+                    for (int i = 0; i < tasks; i++) {
+                        queue.execute(done::countDown);
+                    }
+                    try {
+                        stolen[0] = done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                queue.finish();
+                TestSupport.check(stolen[0], "tasks of the busy worker were not run by the others");
+                TestSupport.checkEquals((long) tasks, queue.getStealCount(), "steals");
+            }
+            finally {
+                queue.shutdown();
+            }
+        });
+        TestSupport.run("a full submission queue makes the submitter wait", () -> {
+            StealingWorkQueue queue = new StealingWorkQueue(1, 2);
+            CountDownLatch gate = new CountDownLatch(1);
+            AtomicInteger ran = new AtomicInteger();
+            try {
+                fill(queue, gate, ran);
+                Thread submitter = new Thread(() -> queue.execute(ran::incrementAndGet));
+                submitter.start();
+                waitUntilWaiting(submitter);
+                TestSupport.checkEquals(2, queue.getQueueDepth(), "queue depth while full");
+                gate.countDown();
+                submitter.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+                TestSupport.check(!submitter.isAlive(), "submitter still waiting");
+                queue.finish();
+                TestSupport.checkEquals(4, ran.get(), "tasks run");
+            }
+            finally {
+                gate.countDown();
+                queue.shutdown();
+            }
+        });
+        TestSupport.run("an interrupted submission is not left pending", () -> {
+            StealingWorkQueue queue = new StealingWorkQueue(1, 2);
+            CountDownLatch gate = new CountDownLatch(1);
+            AtomicInteger ran = new AtomicInteger();
+            try {
+                fill(queue, gate, ran);
+                boolean[] interrupted = new boolean[1];
+                Thread submitter = new Thread(() -> {
+                    queue.execute(() -> ran.addAndGet(100));
+                    interrupted[0] = Thread.currentThread().isInterrupted();
+                });
+                submitter.start();
+                waitUntilWaiting(submitter);
+                Thread finisher = new Thread(queue::finish);
+                finisher.start();
+                submitter.interrupt();
+                submitter.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+                TestSupport.check(!submitter.isAlive() && interrupted[0], "submitter kept its interrupt");
+                TestSupport.checkEquals(3, queue.getPending(), "pending after the interrupt");
+                gate.countDown();
+                finisher.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+                TestSupport.check(!finisher.isAlive(), "finish never returned");
+                TestSupport.checkEquals(0, queue.getPending(), "pending");
+                TestSupport.checkEquals(3, ran.get(), "tasks run");
+            }
+            finally {
+                gate.countDown();
+                queue.shutdown();
+            }
+        });
+        TestSupport.finish();
+    }
+
+    /**
+     * Keeps the only worker of a queue busy until the gate opens, then fills its
+     * submission queue of two tasks.
+     *
+     * @param queue the queue with one worker and room for two tasks
+     * @param gate opened to let the worker go on
+     * @param ran counts the tasks that ran
+     * @throws InterruptedException thrown in case the thread is interrupted while waiting
+     */
+    private static void fill(StealingWorkQueue queue, CountDownLatch gate, AtomicInteger ran)
+            throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        queue.execute(() -> {
+            started.countDown();
+            try {
+                gate.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ran.incrementAndGet();
+        });
+        TestSupport.check(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), "worker never started");
+        queue.execute(ran::incrementAndGet);
+        queue.execute(ran::incrementAndGet);
+    }
+
+    /**
+     * Waits until a thread is blocked waiting, failing if it takes too long.
+     *
+     * @param thread the thread to wait for
+     * @throws InterruptedException thrown in case the thread is interrupted while waiting
+     */
+    private static void waitUntilWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (thread.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        TestSupport.checkEquals(Thread.State.WAITING, thread.getState(), "state of " + thread.getName());
+    }
+}
@@ -0,0 +1,130 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * TermDictionaryTest
+ *
+ * Checks that the words a front-coded {@link TermDictionary} finds for a prefix are the
+ * same as the words found by walking a sorted set, for random words and prefixes, and
+ * that partial searches through the dictionary are not changed by it.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class TermDictionaryTest {
+
+    /** The chars random words are made of, few enough that many words share prefixes. */
+    private static final String ALPHABET = "abcdeé";
+
+    /**
+     * Runs every test.
+     *
+     * @param args unused
+     */
+    public static void main(String[] args) {
+        TestSupport.run("prefixes match a sorted set", () -> {
+            Random random = new Random(17);
+            for (int trial = 0; trial < 50; trial++) {
+                TreeSet<String> words = new TreeSet<>();
+                for (int i = random.nextInt(300); i > 0; i--) {
+                    words.add(randomWord(random, 1 + random.nextInt(8)));
+                }
+                TermDictionary dictionary = new TermDictionary(words);
+                TestSupport.checkEquals(words.size(), dictionary.size(), "size");
+                TestSupport.checkEquals(new ArrayList<>(words), listOf(dictionary), "every word");
+                for (int i = 0; i < 100; i++) {
+                    String prefix = randomWord(random, random.nextInt(4));
+                    TestSupport.checkEquals(expected(words, prefix),
+                            new ArrayList<>(dictionary.getWordsStartingWith(prefix)), "prefix " + prefix);
+                }
+                for (String word : words) {
+                    TestSupport.checkEquals(expected(words, word),
+                            new ArrayList<>(dictionary.getWordsStartingWith(word)), "prefix " + word);
+                }
+            }
+        });
+        TestSupport.run("empty dictionary finds nothing", () -> {
+            TermDictionary dictionary = new TermDictionary(new TreeSet<>());
+            TestSupport.checkEquals(0, dictionary.size(), "size");
+            TestSupport.check(dictionary.getWordsStartingWith("").isEmpty(), "words found");
+        });
+        TestSupport.run("words past the end are out of bounds", () -> {
+            TermDictionary dictionary = new TermDictionary(new TreeSet<>(List.of("a", "b")));
+            TestSupport.checkThrows(IndexOutOfBoundsException.class, () -> dictionary.get(2), "get(2)");
+            TestSupport.checkThrows(IndexOutOfBoundsException.class, () -> dictionary.get(-1), "get(-1)");
+        });
+        TestSupport.run("partial search finds the same words as the index", () -> {
+            InvertedIndex index = new InvertedIndex();
+            Random random = new Random(19);
+            TreeSet<String> words = new TreeSet<>();
+            for (int i = 0; i < 500; i++) {
+                String word = randomWord(random, 1 + random.nextInt(6));
+                words.add(word);
+                index.add(word, 1 + random.nextInt(50), "file" + random.nextInt(20));
+            }
+            for (String prefix : new String[] {"", "a", "ab", "é", "ca", "zzz"}) {
+                TreeSet<String> queries = new TreeSet<>(List.of(prefix));
+                TreeSet<String> found = new TreeSet<>();
+                for (InvertedIndex.QueryResult result : index.partialSearch(queries)) {
+                    found.add(result.getPathFile());
+                }
+                TreeSet<String> expected = new TreeSet<>();
+                for (String word : expected(words, prefix)) {
+                    expected.addAll(index.getLocations(word));
+                }
+                TestSupport.checkEquals(expected, found, "files of prefix " + prefix);
+            }
+        });
+        TestSupport.finish();
+    }
+
+    /**
+     * Returns the words of the set that start with the prefix, by walking the set from
+     * the prefix onward.
+     *
+     * @param words the sorted words
+     * @param prefix the start of the words to find
+     * @return the words that start with the prefix, in sorted order
+     */
+    private static List<String> expected(TreeSet<String> words, String prefix) {
+        ArrayList<String> found = new ArrayList<>();
+        for (String word : words.tailSet(prefix)) {
+            if (!word.startsWith(prefix)) {
+                break;
+            }
+            found.add(word);
+        }
+        return found;
+    }
+
+    /**
+     * Returns every word of the dictionary, looked up one index at a time.
+     *
+     * @param dictionary the dictionary
+     * @return the words in order
+     */
+    private static List<String> listOf(TermDictionary dictionary) {
+        ArrayList<String> words = new ArrayList<>(dictionary.size());
+        for (int i = 0; i < dictionary.size(); i++) {
+            words.add(dictionary.get(i));
+        }
+        return words;
+    }
+
+    /**
+     * Returns a random word of the length passed in.
+     *
+     * @param random the source of randomness
+     * @param length the number of chars
+     * @return the word
+     */
+    private static String randomWord(Random random, int length) {
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return word.toString();
+    }
+}
@@ -0,0 +1,203 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * TestSupport
+ *
+ * The checks and fixtures shared by the tests of the new product. Each test class has a
+ * main method that runs its tests one at a time with {@link #run(String, Body)} and
+ * then calls {@link #finish()}, which exits with a non-zero status if any test failed,
+ * so the tests can be run without a test framework:
+ *
+ * <pre>
+ * javac -d out new-product/src/*.java test/test-files/*.java
+ * java -cp out ParallelIndexBuilderTest
+ * </pre>
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class TestSupport {
+
+    /** The words the generated text files are made of, with a few that stem the same. */
+    private static final String[] VOCABULARY = {
+            "apple", "apples", "banana", "cherry", "crawl", "crawling", "crawler", "document",
+            "documents", "engine", "fox", "foxes", "index", "indexes", "jump", "jumping",
+            "lazy", "query", "queries", "search", "searching", "stem", "stems", "thread",
+            "threads", "web", "word", "words", "zebra", "über", "naïve", "résumé"
+    };
+
+    /** The number of tests that have failed so far. */
+    private static int failures = 0;
+
+    /** The number of tests that have run so far. */
+    private static int tests = 0;
+
+    /**
+     * The body of a single test.
+     */
+    public interface Body {
+
+        /**
+         * Runs the test, failing by throwing anything.
+         *
+         * @throws Exception thrown in case the test fails
+         */
+        void run() throws Exception;
+    }
+
+    /**
+     * Runs one test and prints whether it passed.
+     *
+     * @param name the name of the test
+     * @param body the test to run
+     */
+    public static void run(String name, Body body) {
+        tests++;
+        try {
+            body.run();
+            System.out.println("PASS " + name);
+        }
+        catch (Throwable e) {
+            failures++;
+            System.out.println("FAIL " + name + ": " + e);
+            e.printStackTrace(System.out);
+        }
+    }
+
+    /**
+     * Prints how many tests passed and exits, with status 1 if any test failed.
+     */
+    public static void finish() {
+        System.out.printf("%d of %d test(s) passed%n", tests - failures, tests);
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * Fails the test unless the condition is true.
+     *
+     * @param condition the condition that should be true
+     * @param message what went wrong if it is not
+     */
+    public static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    /**
+     * Fails the test unless the two values are equal.
+     *
+     * @param expected the value that should have been found
+     * @param actual the value that was found
+     * @param message what was being compared
+     */
+    public static void checkEquals(Object expected, Object actual, String message) {
+        if (!Objects.equals(expected, actual)) {
+            throw new AssertionError(message + ": expected <" + expected + "> but was <" + actual + ">");
+        }
+    }
+
+    /**
+     * Fails the test unless the code throws an exception of the type passed in.
+     *
+     * @param type the type of exception that should be thrown
+     * @param body the code that should throw it
+     * @param message what was being tried
+     */
+    public static void checkThrows(Class<? extends Throwable> type, Body body, String message) {
+        try {
+            body.run();
+        }
+        catch (Throwable e) {
+            if (type.isInstance(e)) {
+                return;
+            }
+            throw new AssertionError(message + ": expected " + type.getSimpleName() + " but was " + e, e);
+        }
+        throw new AssertionError(message + ": expected " + type.getSimpleName() + " but nothing was thrown");
+    }
+
+    /**
+     * Writes a tree of text files of random words, some in nested directories, along
+     * with a file that is not text and an empty text file.
+     *
+     * @param root the directory to write the files under
+     * @param files the number of text files to write
+     * @param seed the seed of the random words, so the same tree is written every time
+     * @return the root directory
+     * @throws IOException thrown in case a file cannot be written
+     */
+    public static Path writeCorpus(Path root, int files, long seed) throws IOException {
+        Random random = new Random(seed);
+        for (int i = 0; i < files; i++) {
+            Path directory = root.resolve("d" + (i % 4)).resolve(i % 3 == 0 ? "nested" : "");
+            Files.createDirectories(directory);
+            StringBuilder text = new StringBuilder();
+            int words = 1 + random.nextInt(200);
+            for (int w = 0; w < words; w++) {
+                text.append(VOCABULARY[random.nextInt(VOCABULARY.length)]);
+                text.append(random.nextInt(12) == 0 ? ".\n" : random.nextInt(9) == 0 ? ", " : " ");
+            }
+            Files.writeString(directory.resolve("f" + i + (i % 5 == 0 ? ".TEXT" : ".txt")),
+                    text, StandardCharsets.UTF_8);
+        }
+        Files.writeString(root.resolve("skipped.md"), "apple banana cherry", StandardCharsets.UTF_8);
+        Files.writeString(root.resolve("empty.txt"), "", StandardCharsets.UTF_8);
+        return root;
+    }
+
+    /**
+     * Returns a random word of the vocabulary the generated text files are made of.
+     *
+     * @param random the source of randomness
+     * @return a word
+     */
+    public static String randomWord(Random random) {
+        return VOCABULARY[random.nextInt(VOCABULARY.length)];
+    }
+
+    /**
+     * Reads a whole file as UTF-8.
+     *
+     * @param path the file to read
+     * @return the text of the file
+     * @throws IOException thrown in case the file cannot be read
+     */
+    public static String read(Path path) throws IOException {
+        return Files.readString(path, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates an empty temporary directory that is deleted when the tests exit.
+     *
+     * @param prefix the start of the name of the directory
+     * @return the directory
+     * @throws IOException thrown in case the directory cannot be created
+     */
+    public static Path createTempDirectory(String prefix) throws IOException {
+        Path directory = Files.createTempDirectory(prefix);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> delete(directory)));
+        return directory;
+    }
+
+    /**
+     * Deletes a directory and everything in it, ignoring anything that cannot be deleted.
+     *
+     * @param directory the directory to delete
+     */
+    private static void delete(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+        catch (IOException e) {
+            // left for the system to clean up
+        }
+    }
+}
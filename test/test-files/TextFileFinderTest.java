@@ -0,0 +1,121 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * TextFileFinderTest
+ *
+ * Checks that {@link TextFileFinder#discover(Path, ForkJoinPool, java.util.function.Consumer)}
+ * finds exactly the same text files as {@link TextFileFinder#list(Path)}, hands files off
+ * while the rest of the tree is still being walked, and finds every file once when
+ * symbolic links make a loop.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class TextFileFinderTest {
+
+    /**
+     * Runs every test.
+     *
+     * @param args unused
+     * @throws IOException thrown in case the files cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        Path root = TestSupport.createTempDirectory("finder");
+
+        TestSupport.run("discover finds the same files as list", () -> {
+            Path corpus = TestSupport.writeCorpus(root.resolve("corpus"), 200, 3);
+            ForkJoinPool pool = new ForkJoinPool(4);
+            try {
+                TestSupport.checkEquals(sorted(TextFileFinder.list(corpus)), discover(corpus, pool), "files");
+                Path file = corpus.resolve("d1").resolve("f1.txt");
+                TestSupport.checkEquals(List.of(file), discover(file, pool), "files of a single file");
+            }
+            finally {
+                pool.shutdown();
+            }
+        });
+        TestSupport.run("discover hands files off before the walk is done", () -> {
+            Path top = root.resolve("chain");
+            Path deepest = top;
+            for (int depth = 0; depth < 5; depth++) {
+                Files.createDirectories(deepest);
+                Files.writeString(deepest.resolve("file" + depth + ".txt"), "words");
+                deepest = deepest.resolve("d" + depth);
+            }
+            Files.createDirectories(deepest);
+            Path late = deepest.resolve("late.txt");
+            Path first = top.resolve("file0.txt");
+            ForkJoinPool pool = new ForkJoinPool(1);
+            List<Path> found = Collections.synchronizedList(new ArrayList<>());
+            try {
+                TextFileFinder.discover(top, pool, path -> {
+                    found.add(path);
+                    if (path.equals(first)) {
+                        try {
+                            Files.writeString(late, "written after the first file was found");
+                        }
+                        catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                });
+            }
+            finally {
+                pool.shutdown();
+            }
+            TestSupport.checkEquals(first, found.get(0), "first file found");
+            TestSupport.check(found.contains(late), "file written after the first was found was missed: " + found);
+            TestSupport.checkEquals(6, found.size(), "files found");
+        });
+        TestSupport.run("discover finds every file once when links make a loop", () -> {
+            Path looped = root.resolve("looped");
+            Path inner = looped.resolve("a").resolve("b");
+            Files.createDirectories(inner);
+            Files.writeString(looped.resolve("top.txt"), "top");
+            Files.writeString(inner.resolve("inner.txt"), "inner");
+            Files.createSymbolicLink(inner.resolve("back"), looped);
+            ForkJoinPool pool = new ForkJoinPool(4);
+            try {
+                TestSupport.checkEquals(List.of(inner.resolve("inner.txt"), looped.resolve("top.txt")),
+                        discover(looped, pool), "files");
+            }
+            finally {
+                pool.shutdown();
+            }
+        });
+        TestSupport.finish();
+    }
+
+    /**
+     * Finds every text file under a path with discover.
+     *
+     * @param start the path to search
+     * @param pool the pool to walk on
+     * @return the files found, sorted
+     * @throws IOException thrown in case a directory cannot be read
+     */
+    private static List<Path> discover(Path start, ForkJoinPool pool) throws IOException {
+        List<Path> found = Collections.synchronizedList(new ArrayList<>());
+        TextFileFinder.discover(start, pool, found::add);
+        return sorted(found);
+    }
+
+    /**
+     * Returns a sorted copy of a list of paths.
+     *
+     * @param paths the paths to sort
+     * @return the paths, sorted
+     */
+    private static List<Path> sorted(List<Path> paths) {
+        ArrayList<Path> copy = new ArrayList<>(paths);
+        Collections.sort(copy);
+        return copy;
+    }
+}
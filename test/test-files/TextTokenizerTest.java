@@ -0,0 +1,104 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * TextTokenizerTest
+ *
+ * Checks that a {@link TextTokenizer} gives exactly the same tokens as
+ * {@link TextParser#parse(String)}, for hand-picked lines that hit each of its special
+ * cases and for random lines made of ASCII, accented, Greek, and supplementary letters,
+ * combining marks, digits, punctuation, and every kind of whitespace.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class TextTokenizerTest {
+
+    /** The code points random lines are made of, including the ones TextTokenizer treats specially. */
+    private static final int[] CODE_POINTS = "aZ éÜçñß ΑΣσςΩω 日本 ı İ ǅ ﬁ 0129 .,;'!?-_ \t\n  　\u0085\u000B"
+            .concat("̧́̈ ÅÅẞ 𝒜𝒶 😀 ​")
+            .codePoints().toArray();
+
+    /** The number of random lines compared. */
+    private static final int LINES = 300_000;
+
+    /**
+     * Runs every test.
+     *
+     * @param args unused
+     */
+    public static void main(String[] args) {
+        TestSupport.run("special cases match TextParser", () -> {
+            TextTokenizer tokenizer = new TextTokenizer();
+            String[] lines = {
+                "", "   ", "The quick brown fox", "  leading and trailing  ", "tabs\tand\nnewlines",
+                "don't stop-believing 1999!", "12345 ...", "über café naïve Ångström", "á ë",
+                " leading no-break space", " ", "  42", "trailing no-break space ",
+                "ΟΔΥΣΣΕΥΣ σοφός", "Σ", "ǅemal ﬁne straße ẞ", "𝒜𝒷𝒸 😀 smile", "zero​width",
+                "line separator paragraph", "ideographic　space", "next\u0085line",
+                "A".repeat(500), "ß".repeat(100) + " " + "Ω".repeat(100)
+            };
+            for (String line : lines) {
+                compare(tokenizer, line);
+            }
+        });
+        TestSupport.run("random lines match TextParser", () -> {
+            TextTokenizer tokenizer = new TextTokenizer();
+            Random random = new Random(5);
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < LINES; i++) {
+                line.setLength(0);
+                for (int length = random.nextInt(40); length > 0; length--) {
+                    line.appendCodePoint(CODE_POINTS[random.nextInt(CODE_POINTS.length)]);
+                }
+                compare(tokenizer, line.toString());
+            }
+        });
+        TestSupport.run("tokens are passed in order without keeping the buffer", () -> {
+            TextTokenizer tokenizer = new TextTokenizer();
+            ArrayList<CharSequence> views = new ArrayList<>();
+            ArrayList<String> copies = new ArrayList<>();
+            tokenizer.tokenize("one two three", token -> {
+                views.add(token);
+                copies.add(token.toString());
+            });
+            TestSupport.checkEquals(List.of("one", "two", "three"), copies, "tokens");
+            TestSupport.checkEquals(3, views.size(), "tokens passed");
+        });
+        TestSupport.finish();
+    }
+
+    /**
+     * Fails unless the tokenizer gives the same tokens for a line as TextParser.
+     *
+     * @param tokenizer the tokenizer to check
+     * @param line the line to tokenize
+     */
+    private static void compare(TextTokenizer tokenizer, String line) {
+        ArrayList<String> tokens = new ArrayList<>();
+        tokenizer.tokenize(line, token -> tokens.add(token.toString()));
+        TestSupport.checkEquals(Arrays.asList(TextParser.parse(line)), tokens, "tokens of " + escape(line));
+    }
+
+    /**
+     * Writes every code point of a line outside printable ASCII as a Unicode escape, so a
+     * failing line can be read and pasted back into a test.
+     *
+     * @param line the line to escape
+     * @return the escaped line
+     */
+    private static String escape(String line) {
+        StringBuilder escaped = new StringBuilder("\"");
+        line.codePoints().forEach(cp -> {
+            if (cp >= 0x20 && cp < 0x7F) {
+                escaped.appendCodePoint(cp);
+            }
+            else {
+                escaped.append(String.format("\\u{%X}", cp));
+            }
+        });
+        return escaped.append('"').toString();
+    }
+}
@@ -0,0 +1,84 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * TopResultsTest
+ *
+ * Checks that a search with a limit returns exactly the first results of the same search
+ * without one, in the same order, for exact and partial searches of random queries.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class TopResultsTest {
+
+    /**
+     * Runs every test.
+     *
+     * @param args unused
+     * @throws IOException thrown in case the corpus cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        Path root = TestSupport.createTempDirectory("topk");
+        Path corpus = TestSupport.writeCorpus(root.resolve("corpus"), 150, 13);
+        InvertedIndex index = new InvertedIndex();
+        new InvertedIndexBuilder(index).buildIndexFromPath(corpus);
+
+        for (boolean exact : new boolean[] {true, false}) {
+            TestSupport.run((exact ? "exact" : "partial") + " limited results are a prefix of all results", () -> {
+                Random random = new Random(exact ? 1 : 2);
+                int found = 0;
+                for (int trial = 0; trial < 200; trial++) {
+                    TreeSet<String> queries = new TreeSet<>();
+                    for (int i = 1 + random.nextInt(3); i > 0; i--) {
+                        String word = TestSupport.randomWord(random);
+                        queries.add(exact ? word : word.substring(0, 1 + random.nextInt(word.length())));
+                    }
+                    List<String> all = describe(index.search(queries, exact));
+                    found += all.isEmpty() ? 0 : 1;
+                    for (int limit : new int[] {1, 2, 3, 10, all.size() - 1, all.size(), all.size() + 5}) {
+                        if (limit <= 0) {
+                            continue;
+                        }
+                        List<String> limited = describe(index.search(queries, exact, limit));
+                        TestSupport.checkEquals(all.subList(0, Math.min(limit, all.size())), limited,
+                                queries + " limited to " + limit);
+                    }
+                }
+                TestSupport.check(found > 100, "only " + found + " searches had results");
+            });
+        }
+        TestSupport.run("a limit of 0 returns every result", () -> {
+            TreeSet<String> queries = new TreeSet<>(List.of("apple", "fox"));
+            TestSupport.checkEquals(describe(index.search(queries, true)),
+                    describe(index.search(queries, true, 0)), "limit 0");
+        });
+        TestSupport.run("results are sorted by score, then appearances, then path", () -> {
+            ArrayList<InvertedIndex.QueryResult> results = index.search(new TreeSet<>(List.of("s", "w")), false);
+            for (int i = 1; i < results.size(); i++) {
+                TestSupport.check(results.get(i - 1).compareTo(results.get(i)) < 0,
+                        "results " + (i - 1) + " and " + i + " are out of order");
+            }
+        });
+        TestSupport.finish();
+    }
+
+    /**
+     * Describes each result by its path, appearances, and score, so two lists of results
+     * can be compared.
+     *
+     * @param results the results to describe
+     * @return one description for each result, in the same order
+     */
+    private static List<String> describe(List<InvertedIndex.QueryResult> results) {
+        ArrayList<String> described = new ArrayList<>(results.size());
+        for (InvertedIndex.QueryResult result : results) {
+            described.add(result.getPathFile() + " " + result.getAppearances() + " " + result.getWordScore());
+        }
+        return described;
+    }
+}
@@ -0,0 +1,257 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * WebCrawlerTest
+ *
+ * Crawls small sites served from this process by the JDK's HTTP server, and checks that
+ * the Driver stops at the maximum number of pages, that links written differently but
+ * leading to the same page are crawled once, that the links of a page reached through
+ * a redirect are resolved against where the page was found, and that pages close to the
+ * seed are fetched first even when their hosts make them wait.
+ *
+ * @author Matthew Chin (matthewjchin)
+ * @version v1.0.0
+ */
+public class WebCrawlerTest {
+
+    /** The number of pages linked to from the seed of the site crawled with -max. */
+    private static final int LINKED = 10;
+
+    /** How long a page pauses where "PAUSE" is written in it, in milliseconds. */
+    private static final long PAUSE_MILLIS = 250;
+
+    /**
+     * Runs every test.
+     *
+     * @param args unused
+     * @throws IOException thrown in case a server cannot be started
+     */
+    public static void main(String[] args) throws IOException {
+        Path root = TestSupport.createTempDirectory("crawl");
+
+        TestSupport.run("-max stops the crawl at that many pages", () -> {
+            HashMap<String, String> pages = new HashMap<>();
+            StringBuilder links = new StringBuilder("home page ");
+            for (int i = 0; i < LINKED; i++) {
+                links.append("<a href=\"p").append(i).append(".html\">page</a> ");
+                pages.put("/p" + i + ".html", "page " + i + " <a href=\"/p" + i + "/deeper.html\">deeper</a>");
+                pages.put("/p" + i + "/deeper.html", "deeper page " + i);
+            }
+            pages.put("/", links.toString());
+            List<String> requests = Collections.synchronizedList(new ArrayList<>());
+            HttpServer server = serve(pages, Map.of(), requests);
+            try {
+                String seed = "http://localhost:" + server.getAddress().getPort() + "/";
+                TestSupport.checkEquals(1, crawled(root.resolve("default"), seed), "pages with no -max");
+                for (int max : new int[] {4, 1000}) {
+                    requests.clear();
+                    int expected = Math.min(max, 1 + 2 * LINKED);
+                    TestSupport.checkEquals(expected, crawled(root.resolve("max" + max), seed,
+                            "-max", String.valueOf(max), "-threads", "3"), "pages with -max " + max);
+                    TestSupport.checkEquals(expected, requests.size(), "requests with -max " + max);
+                }
+            }
+            finally {
+                stop(server);
+            }
+        });
+        TestSupport.run("links to the same page are crawled once", () -> {
+            List<String> requests = Collections.synchronizedList(new ArrayList<>());
+            HttpServer server = serve(Map.of(
+                    "/", "<a href=\"b.html\">b</a> <a href='./sub/../b.html'>b</a> <a href=b.html#top>b</a> "
+                            + "<a href=\"HTTP://LocalHost:PORT/b.html#x\">b</a> <a href=\"/sub/a.html\">a</a> "
+                            + "<a href=\"mailto:someone@localhost\">mail</a> <a href=\"#top\">top</a> home",
+                    "/b.html", "banana <a href=\"http://localhost:PORT\">home</a>",
+                    "/sub/a.html", "apple <a href=\"../b.html\">b</a> <a href=\"../b.html?q=1\">b</a>",
+                    "/b.html?q=1", "banana query"), Map.of(), requests);
+            try {
+                String base = "http://localhost:" + server.getAddress().getPort();
+                InvertedIndex index = crawl(base + "/", 20, 4, 0);
+                TestSupport.checkEquals(new TreeSet<>(List.of(base + "/", base + "/b.html", base + "/sub/a.html",
+                        base + "/b.html?q=1")), new TreeSet<>(index.getFiles()), "pages crawled");
+                TestSupport.checkEquals(1, Collections.frequency(requests, "/"), "requests of the seed");
+                TestSupport.checkEquals(1, Collections.frequency(requests, "/b.html"), "requests of b.html");
+            }
+            finally {
+                stop(server);
+            }
+        });
+        TestSupport.run("links of a redirected page resolve against where it was found", () -> {
+            List<String> requests = Collections.synchronizedList(new ArrayList<>());
+            HttpServer server = serve(Map.of(
+                    "/moved/index.html", "zebra <a href=\"cherry.html\">cherry</a> <a href=\"../top.html\">top</a>",
+                    "/moved/cherry.html", "cherry",
+                    "/top.html", "top",
+                    "/cherry.html", "wrong cherry"), Map.of("/old/", "/moved/index.html"), requests);
+            try {
+                String base = "http://localhost:" + server.getAddress().getPort();
+                InvertedIndex index = crawl(base + "/old/", 20, 4, 0);
+                TestSupport.checkEquals(new TreeSet<>(List.of(base + "/old/", base + "/moved/cherry.html",
+                        base + "/top.html")), new TreeSet<>(index.getFiles()), "pages crawled");
+                TestSupport.check(index.contains("zebra", base + "/old/"), "redirected page is indexed under its link");
+                TestSupport.check(!requests.contains("/cherry.html"), "link resolved against the link followed");
+                TestSupport.check(!requests.contains("/old/cherry.html"), "link resolved against the seed");
+            }
+            finally {
+                stop(server);
+            }
+        });
+        TestSupport.run("pages close to the seed are fetched first", () -> {
+            List<String> requests = Collections.synchronizedList(new ArrayList<>());
+            HashMap<String, String> pages = new HashMap<>();
+            HttpServer other = serve(pages, Map.of(), requests);
+            String otherBase = "http://localhost:" + other.getAddress().getPort();
+            StringBuilder deeper = new StringBuilder("near");
+            for (int i = 0; i < 8; i++) {
+                deeper.append(" <a href=\"/deep").append(i).append(".html\">deep</a>");
+                pages.put("/deep" + i + ".html", "deep");
+            }
+            pages.put("/near0.html", deeper.toString());
+            StringBuilder seed = new StringBuilder("<a href=\"" + otherBase + "/near0.html\">near</a> PAUSE");
+            for (int i = 1; i < 4; i++) {
+                seed.append(" <a href=\"").append(otherBase).append("/near").append(i).append(".html\">near</a>");
+                pages.put("/near" + i + ".html", "near");
+            }
+            HttpServer server = serve(Map.of("/", seed.toString()), Map.of(), requests);
+            try {
+                crawl("http://localhost:" + server.getAddress().getPort() + "/", 20, 2, 100);
+                TestSupport.checkEquals(13, requests.size(), "requests: " + requests);
+                int lastNear = Math.max(requests.indexOf("/near2.html"), requests.indexOf("/near3.html"));
+                TestSupport.check(lastNear < requests.indexOf("/deep7.html"), "order: " + requests);
+            }
+            finally {
+                stop(server);
+                stop(other);
+            }
+        });
+        TestSupport.finish();
+    }
+
+    /**
+     * Starts a server on a free port. Each page is served as HTML, with "PORT" in it
+     * replaced by the port of the server, and the rest of the page held back for a while
+     * where "PAUSE" is written in it; each redirect answers with a 302 to its target.
+     * Every request is recorded by its path and query; anything else is not found.
+     *
+     * @param pages the HTML of each page, by path and query
+     * @param redirects the target of each redirect, by path
+     * @param requests the path and query of every request, added to as they come in
+     * @return the running server
+     * @throws IOException thrown in case the server cannot be started
+     */
+    private static HttpServer serve(Map<String, String> pages, Map<String, String> redirects,
+            List<String> requests) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(0), 0);
+        String port = String.valueOf(server.getAddress().getPort());
+        server.createContext("/", exchange -> {
+            try (HttpExchange request = exchange) {
+                URI uri = request.getRequestURI();
+                String target = uri.getRawPath() + (uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "");
+                requests.add(target);
+                if (redirects.containsKey(uri.getRawPath())) {
+                    request.getResponseHeaders().add("Location", redirects.get(uri.getRawPath()));
+                    request.sendResponseHeaders(302, -1);
+                    return;
+                }
+                String html = pages.get(target);
+                if (html == null) {
+                    request.sendResponseHeaders(404, -1);
+                    return;
+                }
+                String[] parts = ("<html><body>" + html.replace("PORT", port) + "</body></html>").split("PAUSE");
+                request.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+                request.sendResponseHeaders(200, 0);
+                try (OutputStream out = request.getResponseBody()) {
+                    for (int i = 0; i < parts.length; i++) {
+                        if (i > 0) {
+                            Thread.sleep(PAUSE_MILLIS);
+                        }
+                        out.write(parts[i].getBytes(StandardCharsets.UTF_8));
+                        out.flush();
+                    }
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.start();
+        return server;
+    }
+
+    /**
+     * Stops a server started by {@link #serve(Map, Map, Map)} along with its threads.
+     *
+     * @param server the server to stop
+     */
+    private static void stop(HttpServer server) {
+        server.stop(0);
+        ((ExecutorService) server.getExecutor()).shutdownNow();
+    }
+
+    /**
+     * Crawls from a seed into a new index, with as many requests in flight to each host
+     * and to all hosts together as there are threads.
+     *
+     * @param seed the page to start from
+     * @param max the most pages to crawl
+     * @param threads the number of threads to fetch the pages on
+     * @param delayMillis the delay between the start of one request to a host and the next
+     * @return the index of the pages crawled
+     * @throws InterruptedException thrown in case the thread is interrupted while waiting
+     */
+    private static InvertedIndex crawl(String seed, int max, int threads, long delayMillis)
+            throws InterruptedException {
+        InvertedIndex index = new InvertedIndex();
+        TaskQueue queue = new WorkQueue(threads);
+        HostScheduler scheduler = new HostScheduler(queue, delayMillis, threads, threads);
+        try {
+            new WebCrawler(index, scheduler, new CrawlFrontier(max), new HtmlFetcher()).crawl(URI.create(seed));
+        }
+        finally {
+            scheduler.shutdown();
+            queue.shutdown();
+        }
+        return index;
+    }
+
+    /**
+     * Runs the Driver on a seed and returns the number of pages in its word counts.
+     *
+     * @param output the directory to write the word counts to
+     * @param seed the page to start from
+     * @param extra any other flags to pass to the Driver
+     * @return the number of pages the word counts were written for
+     * @throws IOException thrown in case the word counts cannot be read
+     */
+    private static int crawled(Path output, String seed, String... extra) throws IOException {
+        Files.createDirectories(output);
+        Path counts = output.resolve("counts.json");
+        String[] args = new String[4 + extra.length];
+        args[0] = "-html";
+        args[1] = seed;
+        args[2] = "-counts";
+        args[3] = counts.toString();
+        System.arraycopy(extra, 0, args, 4, extra.length);
+        Driver.main(args);
+        return TestSupport.read(counts).split("\"http://", -1).length - 1;
+    }
+}